@@ -207,6 +207,93 @@ public class CollectionUtils {
 		return Pair.of(first,second);
 	}
 	
+	/**
+	 * Index-based version of {@link #splitRandomly(List, int, long)}, giving the identical split of a list
+	 * of size {@code size} but returning the indices of the records instead of copies of the records. Runs in
+	 * {@code O(n log n)} time instead of {@code O(n*numInSecond)}.
+	 * @param size the size of the list to split
+	 * @param numInSecond number of indices in the second split
+	 * @param seed RNG seed
+	 * @return the indices in the first split (in ascending order) and the second split (in the order they were picked)
+	 */
+	public static Pair<int[],int[]> splitIndicesRandomly(int size, int numInSecond, long seed){
+		if (numInSecond < 0 || numInSecond > size)
+			throw new IllegalArgumentException("Cannot take " + numInSecond + " out of " + size + " indices");
+		// Fenwick tree of the remaining indices, for finding the n:th remaining index in log(n) time
+		int[] tree = new int[size+1];
+		for (int i=1; i<=size; i++){
+			tree[i]++;
+			int parent = i + (i & -i);
+			if (parent <= size)
+				tree[parent] += tree[i];
+		}
+		int topBit = Integer.highestOneBit(Math.max(size, 1));
+		boolean[] picked = new boolean[size];
+		int[] second = new int[numInSecond];
+
+		Random rng = new Random(seed);
+		for (int i=0; i<numInSecond; i++) {
+			int rank = rng.nextInt(size - i) + 1;
+			// find the smallest position with prefix-sum == rank
+			int pos = 0;
+			for (int step = topBit; step > 0; step >>= 1){
+				if (pos + step <= size && tree[pos+step] < rank){
+					pos += step;
+					rank -= tree[pos];
+				}
+			}
+			// pos is now the 0-based index
+			picked[pos] = true;
+			second[i] = pos;
+			for (int j=pos+1; j<=size; j += j & -j)
+				tree[j]--;
+		}
+		int[] first = new int[size - numInSecond];
+		for (int i=0, j=0; i<size; i++){
+			if (!picked[i])
+				first[j++] = i;
+		}
+		return Pair.of(first,second);
+	}
+
+	/**
+	 * Shuffles the array in the same way as {@link Collections#shuffle(List, Random)} shuffles a 
+	 * {@link java.util.RandomAccess RandomAccess} list, i.e. gives an identical permutation for the same {@code rnd}
+	 * @param arr the array to shuffle
+	 * @param rnd the source of randomness
+	 */
+	public static void shuffle(int[] arr, Random rnd){
+		shuffle(arr, 0, arr.length, rnd);
+	}
+
+	/**
+	 * Shuffles the range {@code [from,to)} of the array, see {@link #shuffle(int[], Random)}
+	 * @param arr the array to shuffle
+	 * @param from first index (inclusive)
+	 * @param to last index (exclusive)
+	 * @param rnd the source of randomness
+	 */
+	public static void shuffle(int[] arr, int from, int to, Random rnd){
+		for (int i=to-from; i>1; i--){
+			int j = from + rnd.nextInt(i);
+			int tmp = arr[from+i-1];
+			arr[from+i-1] = arr[j];
+			arr[j] = tmp;
+		}
+	}
+
+	/**
+	 * Get an array with the values {@code 0, 1, ..., size-1}
+	 * @param size the size of the array
+	 * @return the array
+	 */
+	public static int[] range(int size){
+		int[] arr = new int[size];
+		for (int i=0; i<size; i++)
+			arr[i] = i;
+		return arr;
+	}
+
 	public static boolean containsNullOrNaN(Collection<Double> input) {
 		for (Double n : input) {
 			if (n == null || n.isNaN()) {
@@ -435,6 +522,34 @@ public class CollectionUtils {
 
 	
 
+	/**
+	 * Get the boundaries of the sets given by {@link #getDisjunctSets(List, int, boolean)}, i.e. set {@code i} 
+	 * contains the indices {@code [bounds[i], bounds[i+1])}
+	 * @param size the size of the list
+	 * @param splits the number of sets
+	 * @param allowEmptySets if sets are allowed to be empty
+	 * @return an array of length {@code splits+1}
+	 */
+	public static int[] getDisjunctSetBounds(int size, int splits, boolean allowEmptySets){
+		if (splits < 2)
+			throw new IllegalArgumentException("Number of folds must be >=2");
+		if (! allowEmptySets && splits > size)
+			throw new IllegalArgumentException("Cannot create " + splits + " out of " + size + " records");
+
+		int defaultFoldSize = size / splits;
+		int recordsLeftToAssign = size - splits*defaultFoldSize;
+		int[] bounds = new int[splits+1];
+		for (int i=0; i<splits-1; i++) {
+			bounds[i+1] = bounds[i] + defaultFoldSize;
+			if (recordsLeftToAssign > 0) {
+				bounds[i+1]++;
+				recordsLeftToAssign--;
+			}
+		}
+		bounds[splits] = size;
+		return bounds;
+	}
+
 	public static <T> List<List<T>> getDisjunctSets(List<T> list, int splits, boolean allowEmptySets){
 		if (splits < 2)
 			throw new IllegalArgumentException("Number of folds must be >=2");
@@ -12,6 +12,9 @@ package com.arosbio.commons;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -41,6 +44,8 @@ public class GlobalConfig {
 	private int maxNumClasses=10;
 	private boolean memSave = false;
 	private boolean ansiAvailable = false;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private ExecutorService sharedExecutor;
 	
 	private GlobalConfig() {
 		RNG_seed = System.currentTimeMillis();
@@ -84,6 +89,43 @@ public class GlobalConfig {
 		this.ansiAvailable = isAvail;
 	}
 
+	/**
+	 * Get the maximum number of threads that should be used for parallel computations, 
+	 * defaults to the number of available processors
+	 * @return the maximum number of threads
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Set the maximum number of threads that should be used for parallel computations,
+	 * a value {@code <=1} turns off parallel execution
+	 * @param numThreads maximum number of threads
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * Get the executor shared by the parallel computations (e.g. computing column statistics and parsing input files),
+	 * so that no thread pool has to be created for each call. Threads are daemon threads that are created when needed and 
+	 * terminated when idle, callers limit their parallelism to {@link #getNumThreads()} by the number of tasks they submit. 
+	 * Callers must not shut down the executor.
+	 * @return the shared executor
+	 */
+	public synchronized ExecutorService getSharedExecutor() {
+		if (sharedExecutor == null) {
+			final AtomicInteger count = new AtomicInteger();
+			sharedExecutor = Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "cpsign-worker-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return sharedExecutor;
+	}
+
 	public static class Defaults {
 		
 		public static enum PredictorType {
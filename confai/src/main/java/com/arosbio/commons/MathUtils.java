@@ -154,6 +154,115 @@ public class MathUtils {
 		return median;
 	}
 
+	/**
+	 * Compute a percentile in the same way as {@link Percentile} (using the default estimation), but using
+	 * in-place selection instead of copying the values. The {@code values} array is partially reordered.
+	 * NaN values are ignored.
+	 * @param values the values, will be reordered
+	 * @param p the percentile, in the range {@code (0,100]}
+	 * @return the percentile, or NaN if no values
+	 * @throws IllegalArgumentException If {@code p} is outside of the allowed range
+	 */
+	public static double percentile(double[] values, double p) throws IllegalArgumentException {
+		return percentile(values, 0, p);
+	}
+
+	/**
+	 * Compute a percentile of {@code values} together with {@code numZeros} additional 0-values, e.g. the implicit
+	 * 0s of a sparse column, without allocating them. See {@link #percentile(double[], double)}.
+	 * @param values the values, will be reordered
+	 * @param numZeros number of additional 0-values
+	 * @param p the percentile, in the range {@code (0,100]}
+	 * @return the percentile, or NaN if no values
+	 * @throws IllegalArgumentException If {@code p} is outside of the allowed range or {@code numZeros} is negative
+	 */
+	public static double percentile(double[] values, int numZeros, double p) throws IllegalArgumentException {
+		if (p <= 0 || p > 100)
+			throw new IllegalArgumentException("Percentile must be in the range (0,100], got: " + p);
+		if (numZeros < 0)
+			throw new IllegalArgumentException("Number of zeros must be non-negative");
+
+		// Partition into [negatives | zeros | positives | NaN]
+		int n = 0;
+		for (int i=0; i<values.length; i++) {
+			if (!Double.isNaN(values[i]))
+				swap(values, n++, i);
+		}
+		int numNeg = 0;
+		for (int i=0; i<n; i++) {
+			if (values[i] < 0)
+				swap(values, numNeg++, i);
+		}
+		int posStart = numNeg;
+		for (int i=numNeg; i<n; i++) {
+			if (values[i] == 0)
+				swap(values, posStart++, i);
+		}
+		final int total = n + numZeros;
+		if (total == 0)
+			return Double.NaN;
+
+		double pos = p == 100 ? total : p/100 * (total + 1);
+		if (pos < 1)
+			return orderStatistic(values, numNeg, posStart, n, numZeros, 0);
+		if (pos >= total)
+			return orderStatistic(values, numNeg, posStart, n, numZeros, total - 1);
+		int intPos = (int) Math.floor(pos);
+		double lower = orderStatistic(values, numNeg, posStart, n, numZeros, intPos - 1);
+		double upper = orderStatistic(values, numNeg, posStart, n, numZeros, intPos);
+		return lower + (pos - intPos) * (upper - lower);
+	}
+
+	private static double orderStatistic(double[] values, int numNeg, int posStart, int n, int numZeros, int k) {
+		if (k < numNeg)
+			return select(values, 0, numNeg, k);
+		int zerosEnd = posStart + numZeros;
+		if (k < zerosEnd)
+			return 0d;
+		return select(values, posStart, n, k - numZeros);
+	}
+
+	/**
+	 * Find the k:th smallest value of {@code a[from..to)} using quick select, where {@code k} is an
+	 * index in the same range
+	 */
+	private static double select(double[] a, int from, int to, int k) {
+		int lo = from, hi = to - 1;
+		while (hi > lo) {
+			int mid = (lo + hi) >>> 1;
+			// Median of three as pivot
+			if (a[mid] < a[lo])
+				swap(a, lo, mid);
+			if (a[hi] < a[lo])
+				swap(a, lo, hi);
+			if (a[hi] < a[mid])
+				swap(a, mid, hi);
+			double pivot = a[mid];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (a[i] < pivot)
+					i++;
+				while (a[j] > pivot)
+					j--;
+				if (i <= j)
+					swap(a, i++, j--);
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return a[k];
+		}
+		return a[k];
+	}
+
+	private static void swap(double[] a, int i, int j) {
+		double tmp = a[i];
+		a[i] = a[j];
+		a[j] = tmp;
+	}
+
 	public static <T extends Comparable<T>> int findMaxIndex(List<T> values){
 		int maxInd = 0;
 		for (int i=1; i<values.size(); i++){
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.commons;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A quantile sketch (the KLL sketch by Karnin, Lang and Liberty) that summarises a stream of values using
+ * bounded memory, stored in primitive arrays. Values are kept in a hierarchy of levels, where each value at level
+ * {@code h} represents {@code 2^h} of the added values. When a level is full it is sorted and every other value is
+ * promoted to the next level. The number of retained values grows with the logarithm of the number of added values.
+ * <p>
+ * The error is given in terms of rank, i.e. the value returned for quantile {@code q} has a rank within
+ * {@code [q-e, q+e]} of the added values. The normalized rank error {@code e} is roughly inversely proportional to
+ * {@code k}, for the default {@code k=200} it is typically below 0.017. Sketches with the same {@code k} can be merged, e.g.
+ * when values are summarised in parallel, with the same error bound as if all values were added to a single sketch.
+ * The compaction uses a seeded random generator, so results are reproducible for the same sequence of values and merges.
+ *
+ * @author Aros Bio AB
+ *
+ */
+public class QuantileSketch {
+
+	public static final int DEFAULT_K = 200;
+	public static final int MIN_K = 8;
+	private static final double CAPACITY_DECAY = 2d/3;
+	private static final long DEFAULT_SEED = 42;
+
+	private final int k;
+	private final SplittableRandom rng;
+	private double[][] levels = new double[1][];
+	private int[] sizes = new int[1];
+	private int numRetained = 0;
+	private int maxRetained;
+	private long count = 0;
+	private double min = Double.NaN, max = Double.NaN;
+
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * 
+	 * @param k parameter controlling the size and accuracy of the sketch, at least {@link #MIN_K}
+	 * @throws IllegalArgumentException If {@code k} is too small
+	 */
+	public QuantileSketch(int k) throws IllegalArgumentException {
+		if (k < MIN_K)
+			throw new IllegalArgumentException("Parameter k must be at least " + MIN_K + ", got: " + k);
+		this.k = k;
+		this.rng = new SplittableRandom(DEFAULT_SEED);
+		levels[0] = new double[k];
+		maxRetained = capacity(0);
+	}
+
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Add a value
+	 * @param value the value
+	 * @throws IllegalArgumentException If the value is NaN
+	 */
+	public void update(double value) throws IllegalArgumentException {
+		update(value, 1);
+	}
+
+	/**
+	 * Add the same value several times, requires only a logarithmic number of operations in {@code num}
+	 * @param value the value
+	 * @param num number of times to add it
+	 * @throws IllegalArgumentException If the value is NaN or {@code num} is negative
+	 */
+	public void update(double value, long num) throws IllegalArgumentException {
+		if (Double.isNaN(value))
+			throw new IllegalArgumentException("NaN cannot be added to the sketch");
+		if (num < 0)
+			throw new IllegalArgumentException("Count must be non-negative");
+		if (num == 0)
+			return;
+		updateMinMax(value, value);
+		// Each set bit corresponds to one value at that level
+		for (int h=0; num >> h != 0; h++) {
+			if ((num >> h & 1) == 1) {
+				ensureLevels(h+1);
+				insert(h, value);
+			}
+		}
+		count += num;
+		while (numRetained >= maxRetained)
+			compress();
+	}
+
+	/**
+	 * Merge the values of another sketch into this sketch
+	 * @param other a sketch with the same {@code k}
+	 * @throws IllegalArgumentException If the sketches have different {@code k}
+	 */
+	public void merge(QuantileSketch other) throws IllegalArgumentException {
+		if (other.k != k)
+			throw new IllegalArgumentException(String.format("Cannot merge sketches with different k (%d vs %d)", k, other.k));
+		if (other.count == 0)
+			return;
+		updateMinMax(other.min, other.max);
+		ensureLevels(other.sizes.length);
+		for (int h=0; h<other.sizes.length; h++) {
+			for (int i=0; i<other.sizes[h]; i++)
+				insert(h, other.levels[h][i]);
+		}
+		count += other.count;
+		while (numRetained >= maxRetained)
+			compress();
+	}
+
+	/**
+	 * The number of added values
+	 * @return number of values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * The number of values retained in the sketch
+	 * @return number of retained values
+	 */
+	public int getNumRetained() {
+		return numRetained;
+	}
+
+	/**
+	 * Check if the sketch still holds all added values, i.e. no compaction has been performed 
+	 * and quantiles can be computed exactly from {@link #getExactValues()}
+	 * @return {@code true} if all added values are retained
+	 */
+	public boolean isExact() {
+		return numRetained == count;
+	}
+
+	/**
+	 * Get all added values, only available as long as the sketch {@link #isExact() is exact}
+	 * @return the added values, in no particular order
+	 * @throws IllegalStateException If values have been compacted
+	 */
+	public double[] getExactValues() throws IllegalStateException {
+		if (!isExact())
+			throw new IllegalStateException("The sketch has been compacted, values are no longer exact");
+		return Arrays.copyOf(levels[0], sizes[0]);
+	}
+
+	/**
+	 * The exact minimum of the added values
+	 * @return the minimum, or NaN if no values
+	 */
+	public double getMin() {
+		return min;
+	}
+
+	/**
+	 * The exact maximum of the added values
+	 * @return the maximum, or NaN if no values
+	 */
+	public double getMax() {
+		return max;
+	}
+
+	/**
+	 * Get the approximate q-quantile of the added values, i.e. a retained value with (approximate)
+	 * rank {@code q*count}. Quantiles 0 and 1 give the exact minimum and maximum
+	 * @param q the quantile, in the range {@code [0,1]}
+	 * @return the quantile or NaN if no values are added
+	 * @throws IllegalArgumentException If {@code q} is outside of {@code [0,1]}
+	 */
+	public double getQuantile(double q) throws IllegalArgumentException {
+		if (q < 0 || q > 1)
+			throw new IllegalArgumentException("Quantile must be in the range [0,1], got: " + q);
+		if (count == 0)
+			return Double.NaN;
+		if (q == 0)
+			return min;
+		if (q == 1)
+			return max;
+
+		// Merge the sorted levels, in ascending order of the values
+		int numLevels = sizes.length;
+		int[] next = new int[numLevels];
+		for (int h=0; h<numLevels; h++)
+			Arrays.sort(levels[h], 0, sizes[h]);
+		double target = q * count;
+		long weight = 0;
+		while (true) {
+			int best = -1;
+			for (int h=0; h<numLevels; h++) {
+				if (next[h] < sizes[h] && (best < 0 || levels[h][next[h]] < levels[best][next[best]]))
+					best = h;
+			}
+			if (best < 0)
+				return max;
+			weight += 1L << best;
+			double value = levels[best][next[best]++];
+			if (weight >= target)
+				return value;
+		}
+	}
+
+	public double getMedian() {
+		return getQuantile(.5);
+	}
+
+	public String toString() {
+		return String.format("QuantileSketch k=%d, count=%d, retained=%d", k, count, numRetained);
+	}
+
+	private void updateMinMax(double low, double high) {
+		if (count == 0 || low < min)
+			min = low;
+		if (count == 0 || high > max)
+			max = high;
+	}
+
+	private int capacity(int level) {
+		int depth = sizes.length - level - 1;
+		return Math.max(2, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+	}
+
+	private void ensureLevels(int numLevels) {
+		if (sizes.length >= numLevels)
+			return;
+		int old = sizes.length;
+		levels = Arrays.copyOf(levels, numLevels);
+		sizes = Arrays.copyOf(sizes, numLevels);
+		for (int h=old; h<numLevels; h++)
+			levels[h] = new double[2];
+		maxRetained = 0;
+		for (int h=0; h<numLevels; h++)
+			maxRetained += capacity(h);
+	}
+
+	private void insert(int level, double value) {
+		if (sizes[level] == levels[level].length)
+			levels[level] = Arrays.copyOf(levels[level], Math.max(2, levels[level].length * 2));
+		levels[level][sizes[level]++] = value;
+		numRetained++;
+	}
+
+	/** Compact the lowest level that is at or above its capacity */
+	private void compress() {
+		for (int h=0; h<sizes.length; h++) {
+			if (sizes[h] >= capacity(h)) {
+				ensureLevels(h+2);
+				compact(h);
+				return;
+			}
+		}
+	}
+
+	private void compact(int level) {
+		double[] values = levels[level];
+		int num = sizes[level];
+		Arrays.sort(values, 0, num);
+		// With an odd number of values, the smallest one is kept at this level
+		int start = num % 2;
+		for (int i = start + (rng.nextBoolean() ? 1 : 0); i < num; i += 2)
+			insert(level+1, values[i]);
+		sizes[level] = start;
+		numRetained -= num - start;
+	}
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.commons.mixins;
+
+/**
+ * An object that can be frozen, i.e. turned into an immutable state where all lazily initialised
+ * state has been computed. A frozen object is safe to share between any number of threads, as long as
+ * it is published safely (e.g. using a final field, a concurrent collection or by submitting tasks to an
+ * {@link java.util.concurrent.ExecutorService ExecutorService}). Methods that would alter the state of a frozen
+ * object throw an {@link IllegalStateException}.
+ */
+public interface Freezable {
+
+    /**
+     * Freeze the object, making it immutable. Calling this method on an already frozen object has no effect
+     * @return the frozen object
+     * @throws IllegalStateException If the object is not in a state where it can be frozen
+     */
+    public Freezable freeze() throws IllegalStateException;
+
+    /**
+     * Check if the object has been frozen, using {@link #freeze()}
+     * @return {@code true} if the object is frozen
+     */
+    public boolean isFrozen();
+
+}
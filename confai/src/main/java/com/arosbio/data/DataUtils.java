@@ -293,6 +293,34 @@ public class DataUtils {
 		return new ArrayList<>(stratas.values());
 	}
 
+	/**
+	 * Index-based version of {@link #stratify(List)}, the stratas are given in the same order and contain the 
+	 * indices of the records in {@code data}
+	 * @param data records
+	 * @return the indices of each strata
+	 * @throws IllegalArgumentException If the data is not of classification type
+	 */
+	public static List<int[]> stratifyIndices(List<DataRecord> data){
+		Map<Double, List<Integer>> stratas = new HashMap<>();
+		int maxNumCls = GlobalConfig.getInstance().getMaxNumClasses();
+		for (int i=0; i<data.size(); i++) {
+			Double label = data.get(i).getLabel();
+			if (! stratas.containsKey(label)) {
+				stratas.put(label, new ArrayList<>());
+			}
+			stratas.get(label).add(i);
+
+			if (stratas.size() > maxNumCls) {
+				throw new IllegalArgumentException("Stratifying a dataset is only possible for classification datasets");
+			}
+		}
+		List<int[]> result = new ArrayList<>(stratas.size());
+		for (List<Integer> strata : stratas.values()){
+			result.add(strata.stream().mapToInt(Integer::intValue).toArray());
+		}
+		return result;
+	}
+
 	public static enum DataType {
 		SINGLE_CLASS, BINARY_CLASS, MULTI_CLASS, REGRESSION;
 	}
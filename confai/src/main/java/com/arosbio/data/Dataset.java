@@ -17,6 +17,7 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.security.InvalidKeyException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -27,16 +28,20 @@ import java.util.Random;
 import java.util.Set;
 import java.util.zip.GZIPOutputStream;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.apache.commons.math3.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.arosbio.commons.GlobalConfig;
 import com.arosbio.commons.MathUtils;
+import com.arosbio.commons.QuantileSketch;
 import com.arosbio.commons.mixins.HasProperties;
+import com.arosbio.data.io.BinaryFormat;
 import com.arosbio.data.io.DataSerializationFormat;
 import com.arosbio.data.io.LIBSVMFormat;
+import com.arosbio.data.splitting.IndexedRecordView;
+import com.arosbio.data.transform.ColumnSpec;
+import com.arosbio.data.transform.ColumnStatistics;
+import com.arosbio.data.transform.ColumnStatistics.ColumnAccumulator;
 import com.arosbio.data.transform.Transformer;
 import com.arosbio.encryption.EncryptionSpecification;
 import com.arosbio.encryption.utils.EncryptUtils;
@@ -143,6 +148,7 @@ public class Dataset implements Cloneable, HasProperties, Saveable {
 	}
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(Dataset.class);
+	private static final int FEATURE_INFO_SKETCH_SIZE = QuantileSketch.DEFAULT_K;
 	private final static String PROBLEM_DIRECTORY_NAME = "sparse_data";
 	private final static String DATASET_FILE_NAME = "data.csr";
 	private final static String CALIBRATION_EXCLUSIVE_FILE_NAME = "data.calib.exclusive.csr";
@@ -155,6 +161,8 @@ public class Dataset implements Cloneable, HasProperties, Saveable {
 	private SubSet calibrationExclusive = new SubSet(RecordType.CALIBRATION_EXCLUSIVE);
 
 	private List<Transformer> transformers = new ArrayList<>();
+	/** The format used when saving the records, {@code null} means the default ({@link LIBSVMFormat}) */
+	private DataSerializationFormat serializationFormat = null;
 
 	/**
 	 * A single set of {@link DataRecord DataRecords}. 
@@ -225,11 +233,24 @@ public class Dataset implements Cloneable, HasProperties, Saveable {
 			return fromLIBSVMFormat(decryptedStream);
 		}
 
+		/**
+		 * Creates a {@link SubSet} by reading an {@link InputStream} in the given format. The stream can be 
+		 * gzipped as well, and data in the {@link BinaryFormat} is detected and read regardless of the given format.
+		 * @param stream An {@link InputStream}
+		 * @param format The format of the data
+		 * @return The data in a {@link SubSet}
+		 * @throws IOException An IO exception when reading from the stream
+		 */
 		public static SubSet fromInput(InputStream stream, DataSerializationFormat format) throws IOException {
 			try( 
 					InputStream unzippedStream = StreamUtils.unZIP(stream);
+					InputStream buffStream = unzippedStream.markSupported() ? unzippedStream : new BufferedInputStream(unzippedStream);
 					) {
-				return format.read(unzippedStream);
+				if (! (format instanceof BinaryFormat) && BinaryFormat.isBinaryFormat(buffStream)) {
+					LOGGER.debug("Data is in binary format, reading it using the binary format instead of {}", format.getName());
+					format = new BinaryFormat();
+				}
+				return format.read(buffStream);
 
 			} catch (Exception e){
 				throw new IOException(e.getMessage());
@@ -444,12 +465,17 @@ public class Dataset implements Cloneable, HasProperties, Saveable {
 
 		public void saveToSink(DataSink sink, String location, EncryptionSpecification spec) 
 				throws IOException, InvalidKeyException, IllegalStateException {
-			LOGGER.debug("Saving dataset to datasink, loc={}", location);
+			saveToSink(sink, location, spec, DEFAULT_SERIALIZATION_FMT);
+		}
+
+		public void saveToSink(DataSink sink, String location, EncryptionSpecification spec, DataSerializationFormat format) 
+				throws IOException, InvalidKeyException, IllegalStateException {
+			LOGGER.debug("Saving dataset to datasink, loc={}, format={}", location, format.getName());
 			try (OutputStream ostream = sink.getOutputStream(location)){
 				if(spec != null)
-					writeRecords(ostream, spec);
+					writeRecords(ostream, spec, format);
 				else
-					writeRecords(ostream, false);
+					writeRecords(ostream, false, format);
 			}
 		}
 		public void loadFromSource(DataSource source, String location, EncryptionSpecification spec) throws IOException, InvalidKeyException {
@@ -809,6 +835,26 @@ public class Dataset implements Cloneable, HasProperties, Saveable {
 		return this;
 	}
 
+	/**
+	 * Set the format used for saving the records in {@link #saveToDataSink(DataSink, String, EncryptionSpecification)}, e.g. 
+	 * the {@link BinaryFormat} which is more compact and faster to load than the default {@link LIBSVMFormat}. Loading 
+	 * detects the format of the records, so data saved in either format can be loaded without further settings.
+	 * @param format the format, or {@code null} to use the default format
+	 * @return the same instance
+	 */
+	public Dataset withSerializationFormat(DataSerializationFormat format) {
+		this.serializationFormat = format;
+		return this;
+	}
+
+	/**
+	 * Get the format used when saving the records
+	 * @return the format, or {@code null} if the default format is used
+	 */
+	public DataSerializationFormat getSerializationFormat() {
+		return serializationFormat;
+	}
+
 	public SubSet getModelingExclusiveDataset() {
 		return modelingExclusive;
 	}
@@ -873,66 +919,67 @@ public class Dataset implements Cloneable, HasProperties, Saveable {
 
 
 	/**
-	 * Gathers info about all features, such as min, max, median etc
+	 * Gathers info about all features, such as min, max, median etc. Statistics are computed in a single pass 
+	 * over the data using memory proportional to the number of features. For features with many values the median is 
+	 * approximated using a {@link QuantileSketch} (with a normalised rank error typically below 2%)
 	 * @return a {@link com.arosbio.data.Dataset.FeatureInfo FeatureInfo} with descriptive statistics 
 	 * @throws IllegalStateException If no data is loaded 
 	 */
 	public List<FeatureInfo> getFeaturesInfo() throws IllegalStateException {
 		if (isEmpty())
 			throw new IllegalStateException("No data loaded");
+		
+		// Single pass over all records, using bounded memory per column - the median is approximate
+		List<List<DataRecord>> sources = new ArrayList<>();
+		for (SubSet s : new SubSet[] {dataset, modelingExclusive, calibrationExclusive}) {
+			if (s != null)
+				sources.add(s);
+		}
+		int nRec = getNumRecords();
+		int[] indices = new int[nRec];
+		for (int i=0; i<nRec; i++)
+			indices[i] = i;
+		ColumnStatistics stats = ColumnStatistics.computeWithSketches(
+			IndexedRecordView.concatenation(sources, indices), ColumnSpec.allColumns(), FEATURE_INFO_SKETCH_SIZE);
+
 		List<FeatureInfo> info = new ArrayList<>(getNumAttributes());
 		for (int col=0; col<getNumAttributes(); col++){
-			Pair<DescriptiveStatistics,Boolean> columResult = getFeatureStats(col);
-			DescriptiveStatistics stats = columResult.getFirst(); 
-			info.add(new FeatureInfo(col, 
-				stats.getMin(), 
-				stats.getMax(), 
-				stats.getMean(), 
-				stats.getPercentile(50), // median
-				columResult.getSecond()));
-		}
-		return info;
-	}
-
-	private Pair<DescriptiveStatistics,Boolean> getFeatureStats(int column){
-		boolean containsNaN = false;
-		DescriptiveStatistics stats = new DescriptiveStatistics();
-		if (dataset != null){
-			boolean tmp = addColumn(dataset, stats, column);
-			if (tmp){
-				containsNaN = tmp;
+			ColumnAccumulator colStats = col <= stats.getMaxFeatureIndex() ? stats.get(col) : null;
+			if (colStats == null) {
+				// Only implicit 0s
+				info.add(new FeatureInfo(col, 0, 0, 0, 0, false));
+				continue;
 			}
-		}
-		if (modelingExclusive != null){
-			boolean tmp = addColumn(modelingExclusive, stats, column);
-			if (tmp){
-				containsNaN = tmp;
-			}
-		}
-		if (calibrationExclusive != null){
-			boolean tmp = addColumn(calibrationExclusive, stats, column);
-			if (tmp){
-				containsNaN = tmp;
+			int numZeros = nRec - colStats.getNumExplicit();
+			int numFinite = colStats.getNumFinite();
+			double min = colStats.getFiniteMin(), max = colStats.getFiniteMax();
+			if (numZeros > 0) {
+				min = numFinite > 0 ? Math.min(min, 0) : 0;
+				max = numFinite > 0 ? Math.max(max, 0) : 0;
 			}
+			int n = numFinite + numZeros;
+			info.add(new FeatureInfo(col, 
+				min, 
+				max, 
+				n > 0 ? colStats.getFiniteSum() / n : Double.NaN, 
+				getMedian(colStats, numZeros),
+				colStats.getNumMissing() + colStats.getNumNonFinite() > 0));
 		}
-		return new Pair<>(stats,containsNaN);
+		return info;
 	}
 
-	private boolean addColumn(Dataset.SubSet data, DescriptiveStatistics stats, int column){
-		boolean containsNaN = false;
-		for (DataRecord record : data){
-			double v = record.getFeatures().getFeature(column);
-			if (Double.isFinite(v)){
-				stats.addValue(v);
-			} else {
-				containsNaN = true;
-			}
+	private static double getMedian(ColumnAccumulator colStats, int numZeros) {
+		QuantileSketch sketch = colStats.getSketch();
+		if (sketch.isExact()) {
+			// Few values - compute the exact median of the finite values
+			double[] finite = Arrays.stream(sketch.getExactValues()).filter(Double::isFinite).toArray();
+			return MathUtils.percentile(finite, numZeros, 50);
 		}
-		return containsNaN;
+		if (numZeros > 0)
+			sketch.update(0, numZeros);
+		return sketch.getMedian();
 	}
 
-
-
 	public double[] extractColumnArray(int column){
 		double[] columnValues = new double[getNumRecords()];
 		int nextEmpty=0;
@@ -1177,15 +1224,15 @@ public class Dataset implements Cloneable, HasProperties, Saveable {
 
 		// Save the respective datasets
 		if(!dataset.isEmpty()){
-			dataset.saveToSink(sink, problemDir+DATASET_FILE_NAME, encryptSpec);
+			saveSubSet(sink, dataset, problemDir+DATASET_FILE_NAME, encryptSpec);
 			LOGGER.debug("Saved normal dataset");
 		}
 		if(!modelingExclusive.isEmpty()){
-			modelingExclusive.saveToSink(sink, problemDir+MODELING_EXCLUSIVE_FILE_NAME, encryptSpec);
+			saveSubSet(sink, modelingExclusive, problemDir+MODELING_EXCLUSIVE_FILE_NAME, encryptSpec);
 			LOGGER.debug("Saved modeling exclusive dataset");
 		}
 		if(!calibrationExclusive.isEmpty()){
-			calibrationExclusive.saveToSink(sink, problemDir+CALIBRATION_EXCLUSIVE_FILE_NAME, encryptSpec);
+			saveSubSet(sink, calibrationExclusive, problemDir+CALIBRATION_EXCLUSIVE_FILE_NAME, encryptSpec);
 			LOGGER.debug("Saved calibration exclusive dataset");
 		}
 
@@ -1360,6 +1407,14 @@ public class Dataset implements Cloneable, HasProperties, Saveable {
 		return true;
 	}
 
+	private void saveSubSet(DataSink sink, SubSet data, String location, EncryptionSpecification encryptSpec) 
+			throws IOException, InvalidKeyException {
+		if (serializationFormat != null)
+			data.saveToSink(sink, location, encryptSpec, serializationFormat);
+		else
+			data.saveToSink(sink, location, encryptSpec);
+	}
+
 	/**
 	 * Makes a deep copy of the {@link Dataset}
 	 * @return a deep copy of the current {@link Dataset}
@@ -1371,6 +1426,7 @@ public class Dataset implements Cloneable, HasProperties, Saveable {
 		clone.dataset = dataset.clone();
 		clone.calibrationExclusive = calibrationExclusive.clone();
 		clone.modelingExclusive = modelingExclusive.clone();
+		clone.serializationFormat = serializationFormat;
 		if (!transformers.isEmpty()) {
 			// Copy the transformations as well
 			for (Transformer t : transformers)
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.data.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arosbio.data.DataRecord;
+import com.arosbio.data.Dataset.SubSet;
+import com.arosbio.data.DenseFloatVector;
+import com.arosbio.data.DenseVector;
+import com.arosbio.data.FeatureVector;
+import com.arosbio.data.FeatureVector.Feature;
+import com.arosbio.data.MissingValueFeature;
+import com.arosbio.data.SparseFeature;
+import com.arosbio.data.SparseFeatureImpl;
+
+/**
+ * A compact binary format, that is faster to read and write than the text based formats. The stream starts with
+ * a header (the bytes {@code CPSB} and a version byte) followed by the number of records, and each record is 
+ * stored as its label and its feature vector. Sparse vectors store the feature indices as delta encoded 
+ * variable-length integers, and the values as variable-length integers when all values of the record are integers
+ * (e.g. signature counts), otherwise as doubles. Dense vectors are stored with their original precision, so the 
+ * type of vector is kept when reading the data back. Missing values are stored as {@code NaN} and read back as
+ * {@link MissingValueFeature MissingValueFeatures}.
+ * <p>
+ * No compression/decompression is performed here, that should be handled outside of this class. Use 
+ * {@link #isBinaryFormat(InputStream)} to check if a stream is in this format.
+ * 
+ * @author Aros Bio AB
+ *
+ */
+public class BinaryFormat implements DataSerializationFormat {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BinaryFormat.class);
+	public static final String FORMAT_NAME = "BinaryFormat";
+
+	private static final byte[] MAGIC = new byte[] {'C','P','S','B'};
+	private static final byte VERSION = 1;
+
+	private static final byte SPARSE_DOUBLE = 0;
+	private static final byte SPARSE_INT = 1;
+	private static final byte DENSE_DOUBLE = 2;
+	private static final byte DENSE_FLOAT = 3;
+
+	/**
+	 * Check if a stream is in the binary format, without consuming any bytes of the stream
+	 * @param stream a stream that supports {@link InputStream#mark(int) mark} and {@link InputStream#reset() reset}
+	 * @return {@code true} if the stream starts with the header of this format, {@code false} otherwise
+	 * @throws IOException Any issues reading/resetting the {@code stream}
+	 * @throws IllegalArgumentException If the stream does not support mark/reset
+	 */
+	public static boolean isBinaryFormat(InputStream stream) throws IOException, IllegalArgumentException {
+		if (! stream.markSupported())
+			throw new IllegalArgumentException("Stream must support mark/reset");
+		stream.mark(MAGIC.length);
+		try {
+			byte[] bytes = new byte[MAGIC.length];
+			int n = org.apache.commons.io.IOUtils.read(stream, bytes);
+			return n == MAGIC.length && Arrays.equals(MAGIC, bytes);
+		} finally {
+			stream.reset();
+		}
+	}
+
+	@Override
+	public SubSet read(InputStream stream) throws IOException {
+		try (DataInputStream in = new DataInputStream(stream instanceof BufferedInputStream ? stream : new BufferedInputStream(stream))){
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			if (! Arrays.equals(MAGIC, magic))
+				throw new IOException("Data not in binary format");
+			byte version = in.readByte();
+			if (version != VERSION)
+				throw new IOException("Unsupported version of the binary format: " + version);
+
+			int numRecords = in.readInt();
+			List<DataRecord> recs = new ArrayList<>(numRecords);
+			for (int i=0; i<numRecords; i++) {
+				recs.add(readRecord(in));
+			}
+			LOGGER.debug("Parsed {} records from binary format", recs.size());
+			return new SubSet(recs);
+		} catch (EOFException e) {
+			LOGGER.debug("Reached end of stream before all records were read", e);
+			throw new IOException("Data in binary format is truncated");
+		}
+	}
+
+	private static DataRecord readRecord(DataInputStream in) throws IOException {
+		double label = in.readDouble();
+		byte type = in.readByte();
+		int length = readVarInt(in);
+
+		switch (type) {
+			case DENSE_DOUBLE: {
+				double[] vec = new double[length];
+				for (int i=0; i<length; i++)
+					vec[i] = in.readDouble();
+				return new DataRecord(label, new DenseVector(vec));
+			}
+			case DENSE_FLOAT: {
+				float[] vec = new float[length];
+				for (int i=0; i<length; i++)
+					vec[i] = in.readFloat();
+				return new DataRecord(label, new DenseFloatVector(vec));
+			}
+			case SPARSE_INT:
+			case SPARSE_DOUBLE: {
+				List<SparseFeature> features = new ArrayList<>(length);
+				int index = -1;
+				for (int i=0; i<length; i++) {
+					index += zigZagDecode(readVarInt(in));
+					if (type == SPARSE_INT) {
+						features.add(new SparseFeatureImpl(index, zigZagDecode(readVarInt(in))));
+					} else {
+						double value = in.readDouble();
+						features.add(Double.isNaN(value) ? new MissingValueFeature(index) : new SparseFeatureImpl(index, value));
+					}
+				}
+				return new DataRecord(label, features);
+			}
+			default:
+				throw new IOException("Invalid record type in binary format: " + type);
+		}
+	}
+
+	@Override
+	public void write(OutputStream ostream, SubSet data) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(ostream))){
+			out.write(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt(data.size());
+			for (DataRecord rec : data) {
+				writeRecord(out, rec);
+			}
+		}
+		LOGGER.debug("Written {} records in binary format", data.size());
+	}
+
+	private static void writeRecord(DataOutputStream out, DataRecord rec) throws IOException {
+		out.writeDouble(rec.getLabel());
+		FeatureVector vec = rec.getFeatures();
+
+		if (vec instanceof DenseVector) {
+			double[] arr = ((DenseVector) vec).getInternalArray();
+			out.writeByte(DENSE_DOUBLE);
+			writeVarInt(out, arr.length);
+			for (double d : arr)
+				out.writeDouble(d);
+			return;
+		} else if (vec instanceof DenseFloatVector) {
+			float[] arr = ((DenseFloatVector) vec).getInternalArray();
+			out.writeByte(DENSE_FLOAT);
+			writeVarInt(out, arr.length);
+			for (float f : arr)
+				out.writeFloat(f);
+			return;
+		}
+
+		// Sparse - skip explicit zeros, as for the LIBSVM format
+		List<Feature> features = new ArrayList<>();
+		boolean allInts = true;
+		for (Feature f : vec) {
+			double v = f.getValue();
+			if (v == 0)
+				continue;
+			features.add(f);
+			if (allInts && (v != Math.rint(v) || v < Integer.MIN_VALUE || v > Integer.MAX_VALUE))
+				allInts = false; // Also covers NaN and infinite values
+		}
+
+		out.writeByte(allInts ? SPARSE_INT : SPARSE_DOUBLE);
+		writeVarInt(out, features.size());
+		int prev = -1;
+		for (Feature f : features) {
+			writeVarInt(out, zigZagEncode(f.getIndex() - prev));
+			prev = f.getIndex();
+			if (allInts)
+				writeVarInt(out, zigZagEncode((int) f.getValue()));
+			else
+				out.writeDouble(f.getValue());
+		}
+	}
+
+	private static int zigZagEncode(int v) {
+		return (v << 1) ^ (v >> 31);
+	}
+
+	private static int zigZagDecode(int v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+		while ((v & ~0x7F) != 0) {
+			out.writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int v = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			v |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return v;
+		}
+		throw new IOException("Invalid variable-length integer in binary format");
+	}
+
+	public String getName(){
+		return FORMAT_NAME;
+	}
+
+	public String toString(){
+		return this.getClass().getCanonicalName();
+	}
+
+}
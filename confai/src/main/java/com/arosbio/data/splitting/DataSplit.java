@@ -13,32 +13,87 @@ import java.util.List;
 
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.Dataset;
+import com.arosbio.data.Dataset.RecordType;
+import com.arosbio.data.Dataset.SubSet;
 import com.google.common.collect.Range;
 
 public class DataSplit {
 
-	private final Dataset trainSet;
+	/** Lazily materialised in case the split was given as a view of the records */
+	private Dataset trainSet;
+	private final List<DataRecord> firstRecords;
+	private final SubSet modelingExclusive, calibrationExclusive;
 	private final List<DataRecord> testSet;
 	private final long seed;
 	private final Range<Double> observedLabelSpace;
 	
 	public DataSplit(Dataset first, List<DataRecord> second, long seed) {
+		this(first, second, seed, null);
+	}
+
+	public DataSplit(Dataset first, List<DataRecord> second, long seed, Range<Double> observedLabelSpace){
 		this.trainSet = first;
+		this.firstRecords = first.getDataset();
+		this.modelingExclusive = first.getModelingExclusiveDataset();
+		this.calibrationExclusive = first.getCalibrationExclusiveDataset();
 		this.testSet = second;
 		this.seed = seed;
-		this.observedLabelSpace = null;
+		this.observedLabelSpace = observedLabelSpace;
 	}
 
-	public DataSplit(Dataset first, List<DataRecord> second, long seed, Range<Double> observedLabelSpace){
-		this.trainSet = first;
+	/**
+	 * Create a split where the first part is given as records (typically a {@link IndexedRecordView}) and the 
+	 * exclusive datasets of the original {@link Dataset}. The {@link Dataset} of the first part is only created
+	 * if {@link #getFirst()} is called.
+	 * @param firstRecords the records of the first part, excluding the modeling and calibration exclusive data
+	 * @param modelingExclusive modeling exclusive data
+	 * @param calibrationExclusive calibration exclusive data
+	 * @param second the records of the second part
+	 * @param seed the RNG seed used
+	 * @param observedLabelSpace the observed label space, or {@code null}
+	 */
+	public DataSplit(List<DataRecord> firstRecords, SubSet modelingExclusive, SubSet calibrationExclusive, 
+		List<DataRecord> second, long seed, Range<Double> observedLabelSpace){
+		this.trainSet = null;
+		this.firstRecords = firstRecords;
+		this.modelingExclusive = modelingExclusive != null ? modelingExclusive : new SubSet(RecordType.MODELING_EXCLUSIVE);
+		this.calibrationExclusive = calibrationExclusive != null ? calibrationExclusive : new SubSet(RecordType.CALIBRATION_EXCLUSIVE);
 		this.testSet = second;
 		this.seed = seed;
 		this.observedLabelSpace = observedLabelSpace;
 	}
 	
+	/**
+	 * Get the first part as a {@link Dataset}, which requires copying the records if the split was 
+	 * created from a view of the records. Use {@link #getFirstRecords()}, {@link #getModelingExclusiveRecords()}
+	 * and {@link #getCalibrationExclusiveRecords()} to avoid the copy.
+	 * @return the first part of the split
+	 */
 	public Dataset getFirst() {
+		if (trainSet == null) {
+			trainSet = new Dataset()
+				.withDataset(new SubSet(firstRecords))
+				.withModelingExclusiveDataset(modelingExclusive)
+				.withCalibrationExclusiveDataset(calibrationExclusive);
+		}
 		return trainSet;
 	}
+
+	/**
+	 * Get the records of the first part, excluding the modeling and calibration exclusive data
+	 * @return the records of the first part
+	 */
+	public List<DataRecord> getFirstRecords(){
+		return firstRecords;
+	}
+
+	public SubSet getModelingExclusiveRecords(){
+		return modelingExclusive;
+	}
+
+	public SubSet getCalibrationExclusiveRecords(){
+		return calibrationExclusive;
+	}
 	
 	public List<DataRecord> getSecond(){
 		return testSet;
@@ -9,12 +9,13 @@
  */
 package com.arosbio.data.splitting;
 
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,7 +25,6 @@ import com.arosbio.commons.GlobalConfig;
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset;
-import com.arosbio.data.Dataset.SubSet;
 import com.google.common.collect.Range;
 
 public class FoldedSplitter implements DataSplitter {
@@ -40,11 +40,25 @@ public class FoldedSplitter implements DataSplitter {
 
     // Iteration state
     /** The folds generated when using the iterating  */
-    private List<List<DataRecord>> iteratorFolds;
+    private Folds iteratorFolds;
     private int currentFold = 0;
     private int currentRepetition = 0;
-    /** Only populated in case stratify == true */
-    private final List<List<DataRecord>> stratifiedRecs;
+    /** Only populated in case stratify == true, indices of the records in each strata */
+    private final List<int[]> stratifiedIndices;
+
+    /**
+     * The folds of a repetition, given as a permutation of the record indices where fold {@code i} 
+     * is found at positions {@code [bounds[i], bounds[i+1])}. All splits of the repetition are views of 
+     * the same permutation, so the memory overhead is independent of the number of folds.
+     */
+    private static class Folds {
+        private final int[] order;
+        private final int[] bounds;
+        private Folds(int[] order, int[] bounds){
+            this.order = order;
+            this.bounds = bounds;
+        }
+    }
 
     public static class Builder {
         private int numFolds = 10;
@@ -138,9 +152,9 @@ public class FoldedSplitter implements DataSplitter {
 
         if (stratify){
             // do the stratification of data once, also verifies input is not of regression type
-            stratifiedRecs = Collections.unmodifiableList(DataUtils.stratify(dataClone.getDataset()));
+            stratifiedIndices = Collections.unmodifiableList(DataUtils.stratifyIndices(dataClone.getDataset()));
         } else {
-            stratifiedRecs = null;
+            stratifiedIndices = null;
         }
 
         if (b.findObservedLabelSpace){
@@ -169,71 +183,85 @@ public class FoldedSplitter implements DataSplitter {
 
     
 
-    private List<List<DataRecord>> getFoldsForRep(int forRep) {
+    private Folds getFoldsForRep(int forRep) {
         long seedForRep = getSeedForRep(forRep);
         LOGGER.debug("generating folds for repetition {} using stratify={}, shuffle={}, seed={}",
             forRep, stratify, shuffle, seedForRep);
         
+        int numRecs = dataClone.getDataset().size();
         if (stratify) {
 
             // Init the folds
-            int initSize = dataClone.getDataset().size() / numFolds + 1;
-            List<List<DataRecord>> folds = new ArrayList<>();
-            for (int i=0; i<numFolds; i++){
-                folds.add(new ArrayList<>(initSize));
-            }
+            int maxFoldSize = numRecs / numFolds + stratifiedIndices.size() + 1;
+            int[][] folds = new int[numFolds][maxFoldSize];
+            int[] foldSizes = new int[numFolds];
 
             // split the stratified datasets into the folds
-            for (List<DataRecord> recs : stratifiedRecs) {
+            for (int[] strata : stratifiedIndices) {
                 
-                List<DataRecord> tmp = recs;
+                int[] tmp = strata;
                 // Shuffle if set to do so
                 if (shuffle){
-                    tmp = new ArrayList<>(tmp); // Need copy before we shuffle 
-                    Collections.shuffle(tmp, new Random(seedForRep));
+                    tmp = strata.clone(); // Need copy before we shuffle 
+                    CollectionUtils.shuffle(tmp, new Random(seedForRep));
                 }
 
                 // Folds for each strata - note the first ones will be the largest ones (if not evenly divisible)
-                List<List<DataRecord>> foldStrata = CollectionUtils.getDisjunctSets(tmp, numFolds, true);
+                int[] strataBounds = CollectionUtils.getDisjunctSetBounds(tmp.length, numFolds, true);
                
-                if (tmp.size() % numFolds == 0){
+                if (tmp.length % numFolds == 0){
                     // The folds will all have the same size, no need to worry about order
                     for (int i=0; i<numFolds; i++) {
-                        folds.get(i).addAll(foldStrata.get(i));
+                        foldSizes[i] = append(tmp, strataBounds[i], strataBounds[i+1], folds[i], foldSizes[i]);
                     }
                     
                 } else {
                     // The records are not evenly divisible - need to find where to put the larger folds
                    
                     // Take the smallest folds first, and add the largest strata-folds to them
-                    List<Integer> sizeSort = CollectionUtils.getSortedIndicesBySize(folds, true);
+                    int[] sizeSort = getSortedIndicesBySize(foldSizes);
                     for (int i=0; i<numFolds; i++) {
-                        folds.get(sizeSort.get(i)).addAll(foldStrata.get(i));
+                        int f = sizeSort[i];
+                        foldSizes[f] = append(tmp, strataBounds[i], strataBounds[i+1], folds[f], foldSizes[f]);
                     }
                 }
             }
 
-            // Shuffle the folds (so not arranged in order of their labels)
-            for (List<DataRecord> f : folds) {
-                Collections.shuffle(f, new Random(seedForRep));
+            // Shuffle the folds (so not arranged in order of their labels) and put them after each other
+            int[] order = new int[numRecs];
+            int[] bounds = new int[numFolds+1];
+            for (int i=0; i<numFolds; i++) {
+                CollectionUtils.shuffle(folds[i], 0, foldSizes[i], new Random(seedForRep));
+                System.arraycopy(folds[i], 0, order, bounds[i], foldSizes[i]);
+                bounds[i+1] = bounds[i] + foldSizes[i];
             }
-            return folds;
+            return new Folds(order, bounds);
 
         } else {
-            List<DataRecord> recs = null; 
+            int[] order = CollectionUtils.range(numRecs);
             if (shuffle) {
-                // Copy only in case we need to shuffle
-                recs = new ArrayList<>(dataClone.getDataset());
-                Collections.shuffle(recs, new Random(seedForRep));
-            } else {
-                recs = dataClone.getDataset();
+                CollectionUtils.shuffle(order, new Random(seedForRep));
             }
                 
-            return CollectionUtils.getDisjunctSets(recs, numFolds, false);
+            return new Folds(order, CollectionUtils.getDisjunctSetBounds(numRecs, numFolds, false));
         }
 
     }
 
+    private static int append(int[] src, int from, int to, int[] dest, int destSize){
+        System.arraycopy(src, from, dest, destSize, to-from);
+        return destSize + to - from;
+    }
+
+    /** Same ordering as {@link CollectionUtils#getSortedIndicesBySize(List, boolean)} in ascending order */
+    private static int[] getSortedIndicesBySize(int[] sizes){
+        return IntStream.range(0, sizes.length)
+            .boxed()
+            .sorted(Comparator.<Integer>comparingInt(i -> sizes[i]).thenComparingInt(i -> i))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
     @Override
     public boolean hasNext() {
         // If called for the first time only - init the folds
@@ -241,7 +269,7 @@ public class FoldedSplitter implements DataSplitter {
             iteratorFolds = getFoldsForRep(currentRepetition);
         }
         // If more folds for the current repetition
-        if (currentFold < iteratorFolds.size())
+        if (currentFold < numFolds)
             return true;
         // finished the current rep - start new
         currentRepetition ++;
@@ -283,32 +311,26 @@ public class FoldedSplitter implements DataSplitter {
 
         LOGGER.debug("Generating fold {}/{} for repeat: {}",(fold+1),numFolds, rep);
 
-        List<List<DataRecord>> theFolds = null;
+        Folds theFolds = null;
         if (rep == currentRepetition && iteratorFolds != null){
             theFolds = iteratorFolds;
         } else {
             theFolds = getFoldsForRep(rep);
         }
 
-        // Copy over the calibration and modeling exclusive data sets
-        Dataset first = new Dataset()
-            .withCalibrationExclusiveDataset(dataClone.getCalibrationExclusiveDataset())
-            .withModelingExclusiveDataset(dataClone.getModelingExclusiveDataset());
-
-        List<DataRecord> firstDataOnly = new ArrayList<>(dataClone.getDataset().size());
-        List<DataRecord> second = theFolds.get(fold);
-        for (int i=0; i<numFolds; i++) {
-            if (i != fold) {
-                firstDataOnly.addAll(theFolds.get(i));
-            }
-        }
-
-        first.withDataset(new SubSet(firstDataOnly));
+        // Views of the records, no records are copied
+        int from = theFolds.bounds[fold], to = theFolds.bounds[fold+1];
+        List<DataRecord> records = dataClone.getDataset();
+        List<DataRecord> firstDataOnly = IndexedRecordView.excludingRange(records, theFolds.order, from, to);
+        List<DataRecord> second = IndexedRecordView.range(records, theFolds.order, from, to);
 
         LOGGER.debug("Using {} examples in first {} examples second (not counting model-exclusive or calibration-exclusive data)",
             firstDataOnly.size(), second.size());
 
-        return new DataSplit(first, second, getSeedForRep(rep), foundRange);
+        return new DataSplit(firstDataOnly, 
+            dataClone.getModelingExclusiveDataset(), 
+            dataClone.getCalibrationExclusiveDataset(), 
+            second, getSeedForRep(rep), foundRange);
     }
 
     private long getSeedForRep(int rep){
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.data.splitting;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import com.arosbio.data.DataRecord;
+
+/**
+ * A view of records, given by an array of indices into one or several source lists. When several
+ * sources are given the indices refer to the concatenation of the sources. The view can further be restricted
+ * to one or two ranges of the index array, so that e.g. all folds of a k-fold split can share the same index array.
+ * No records are copied, the records are looked up from the sources when accessed - so the sources
+ * must not be altered while the view is in use. The sources should be {@link RandomAccess} lists.
+ * <p>
+ * The view is materialised lazily, i.e. the first modifying operation copies the records of the view 
+ * to an internal list which is used from then on. The source lists are never altered by the view. 
+ *
+ * @author Aros Bio AB
+ *
+ */
+public class IndexedRecordView extends AbstractList<DataRecord> implements RandomAccess {
+
+	private final List<List<DataRecord>> sources;
+	private final int[] indices;
+	/** Pairs of [from,to) into the indices array */
+	private final int[] ranges;
+	private final int size;
+	/** Only created if the view is modified */
+	private List<DataRecord> materialised;
+
+	/**
+	 * View of all records given by the {@code indices}
+	 * @param source the source records
+	 * @param indices indices into the {@code source}
+	 */
+	public IndexedRecordView(List<DataRecord> source, int[] indices){
+		this(Collections.singletonList(source), indices, new int[]{0, indices.length});
+	}
+
+	private IndexedRecordView(List<List<DataRecord>> sources, int[] indices, int[] ranges){
+		Objects.requireNonNull(sources, "sources must not be null");
+		Objects.requireNonNull(indices, "indices must not be null");
+		this.sources = sources;
+		this.indices = indices;
+		this.ranges = ranges;
+		int s = 0;
+		for (int i=0; i<ranges.length; i+=2){
+			if (ranges[i] < 0 || ranges[i] > ranges[i+1] || ranges[i+1] > indices.length)
+				throw new IndexOutOfBoundsException("Invalid range [" + ranges[i] + ',' + ranges[i+1] + ") for " + indices.length + " indices");
+			s += ranges[i+1] - ranges[i];
+		}
+		this.size = s;
+	}
+
+	/**
+	 * View of all records given by the {@code indices}, where the indices refer to the concatenation of all {@code sources}
+	 * @param sources the source records
+	 * @param indices indices into the concatenation of the {@code sources}
+	 * @return the view
+	 */
+	public static IndexedRecordView concatenation(List<List<DataRecord>> sources, int[] indices){
+		return new IndexedRecordView(sources, indices, new int[]{0, indices.length});
+	}
+
+	/**
+	 * View of the records given by {@code indices[from]} to {@code indices[to-1]}
+	 * @param source the source records
+	 * @param indices indices into the {@code source}
+	 * @param from first position in {@code indices} (inclusive)
+	 * @param to last position in {@code indices} (exclusive)
+	 * @return the view
+	 */
+	public static IndexedRecordView range(List<DataRecord> source, int[] indices, int from, int to){
+		return new IndexedRecordView(Collections.singletonList(source), indices, new int[]{from, to});
+	}
+
+	/**
+	 * View of the records given by all {@code indices} except the ones at positions {@code [from, to)}
+	 * @param source the source records
+	 * @param indices indices into the {@code source}
+	 * @param from first position in {@code indices} to exclude (inclusive)
+	 * @param to last position in {@code indices} to exclude (exclusive)
+	 * @return the view
+	 */
+	public static IndexedRecordView excludingRange(List<DataRecord> source, int[] indices, int from, int to){
+		return new IndexedRecordView(Collections.singletonList(source), indices, new int[]{0, from, to, indices.length});
+	}
+
+	@Override
+	public DataRecord get(int index) {
+		if (materialised != null)
+			return materialised.get(index);
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		int pos = -1;
+		for (int i=0; i<ranges.length; i+=2){
+			int len = ranges[i+1] - ranges[i];
+			if (index < len){
+				pos = ranges[i] + index;
+				break;
+			}
+			index -= len;
+		}
+		int recIndex = indices[pos];
+		for (List<DataRecord> src : sources){
+			if (recIndex < src.size())
+				return src.get(recIndex);
+			recIndex -= src.size();
+		}
+		throw new IndexOutOfBoundsException("Index " + indices[pos] + " not found in the source records");
+	}
+
+	@Override
+	public int size() {
+		return materialised != null ? materialised.size() : size;
+	}
+
+	/**
+	 * Check if the records has been copied to an internal list, which happens when the view is modified
+	 * @return {@code true} if the view has been materialised
+	 */
+	public boolean isMaterialised(){
+		return materialised != null;
+	}
+
+	private List<DataRecord> materialise(){
+		if (materialised == null){
+			List<DataRecord> tmp = new ArrayList<>(size);
+			for (int i=0; i<size; i++)
+				tmp.add(get(i));
+			materialised = tmp;
+		}
+		return materialised;
+	}
+
+	@Override
+	public DataRecord set(int index, DataRecord element) {
+		return materialise().set(index, element);
+	}
+
+	@Override
+	public void add(int index, DataRecord element) {
+		materialise().add(index, element);
+		modCount++;
+	}
+
+	@Override
+	public DataRecord remove(int index) {
+		DataRecord r = materialise().remove(index);
+		modCount++;
+		return r;
+	}
+
+	@Override
+	public void clear() {
+		materialise().clear();
+		modCount++;
+	}
+
+}
@@ -9,8 +9,6 @@
  */
 package com.arosbio.data.splitting;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -19,6 +17,7 @@ import java.util.Random;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.arosbio.commons.CollectionUtils;
 import com.arosbio.commons.GlobalConfig;
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.DataUtils;
@@ -32,7 +31,9 @@ public class LOOSplitter implements DataSplitter {
 
     private final SubSet calibrationData, modelExclusiveData;
     private final long seed;
-    private final List<DataRecord> shuffledRecords;
+    private final List<DataRecord> records;
+    /** The (possibly shuffled) order of the records */
+    private final int[] order;
     private final Range<Double> foundRange;
     
     /** Iteration index */ 
@@ -44,9 +45,10 @@ public class LOOSplitter implements DataSplitter {
         modelExclusiveData = data.getModelingExclusiveDataset();
         this.seed = b.seed;
         
-        shuffledRecords = new ArrayList<>(data.getDataset());
+        records = data.getDataset();
+        order = CollectionUtils.range(records.size());
         if (b.shuffle) {
-            Collections.shuffle(shuffledRecords, new Random(seed));
+            CollectionUtils.shuffle(order, new Random(seed));
         }
 
         if (b.findLabelRange){
@@ -108,7 +110,7 @@ public class LOOSplitter implements DataSplitter {
 
     @Override
     public boolean hasNext() {
-        return currentIndex < shuffledRecords.size();
+        return currentIndex < order.length;
     }
 
     @Override
@@ -127,23 +129,16 @@ public class LOOSplitter implements DataSplitter {
 
     @Override
     public DataSplit get(int index) throws NoSuchElementException {
-        LOGGER.debug("Generating split {}/{}", (index+1), shuffledRecords.size());
+        LOGGER.debug("Generating split {}/{}", (index+1), order.length);
         
-        // Generate the training and test-set
-        List<DataRecord> trainingSet = new ArrayList<>(shuffledRecords);
-        trainingSet.remove(index);
-        List<DataRecord> testSet = new ArrayList<>();
-        testSet.add(shuffledRecords.get(index));
-
-        Dataset trainingData = new Dataset()
-            .withDataset(new SubSet(trainingSet))
-            .withCalibrationExclusiveDataset(calibrationData)
-            .withModelingExclusiveDataset(modelExclusiveData);
+        // Generate the training and test-set, as views of the records
+        List<DataRecord> trainingSet = IndexedRecordView.excludingRange(records, order, index, index+1);
+        List<DataRecord> testSet = IndexedRecordView.range(records, order, index, index+1);
 
         LOGGER.debug("Using {} examples for training and {} example(s) for testing (not counting model-exclusive or calibration-exclusive data)",
             trainingSet.size(), testSet.size());
         
-        return new DataSplit(trainingData, testSet, seed, foundRange);
+        return new DataSplit(trainingSet, modelExclusiveData, calibrationData, testSet, seed, foundRange);
     }
 
     @Override
@@ -153,7 +148,7 @@ public class LOOSplitter implements DataSplitter {
 
     @Override
     public int getMaxSplitIndex() {
-        return shuffledRecords.size() -1;
+        return order.length -1;
     }
 
 }
@@ -10,7 +10,6 @@
 package com.arosbio.data.splitting;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -23,10 +22,8 @@ import org.slf4j.LoggerFactory;
 import com.arosbio.commons.CollectionUtils;
 import com.arosbio.commons.GlobalConfig;
 import com.arosbio.commons.MathUtils;
-import com.arosbio.data.DataRecord;
 import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset;
-import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.ml.sampling.TrainSplit;
 import com.google.common.collect.Range;
 
@@ -216,18 +213,19 @@ public class RandomSplitter implements DataSplitter {
 
 	private class StratifiedSplitterHelper {
 
-		private final List<List<DataRecord>> stratas;
+		/** Indices of the records in each strata */
+		private final List<int[]> stratas;
 		private final List<Integer> numFromEachStrata;
 
 		private StratifiedSplitterHelper(){
-			stratas = DataUtils.stratify(dataClone.getDataset());
+			stratas = DataUtils.stratifyIndices(dataClone.getDataset());
 			numFromEachStrata = new ArrayList<>();
 			
 			// deduce number to take from each strata
 			double fracSecond = ((double)numInSecond)/dataClone.getDataset().size();
 			int numAdded = 0;
-			for (List<DataRecord> strata : stratas) {
-				int n = (int) (fracSecond*strata.size());
+			for (int[] strata : stratas) {
+				int n = (int) (fracSecond*strata.length);
 				numFromEachStrata.add(n);
 				numAdded += n;
 			}
@@ -246,10 +244,10 @@ public class RandomSplitter implements DataSplitter {
 				// Log some info
 				StringBuffer sb = new StringBuffer();
 				sb.append("Class-fractions (normal ds only): ");
-				for (List<DataRecord> strata : stratas) {
-					sb.append(strata.get(0).getLabel())
+				for (int[] strata : stratas) {
+					sb.append(dataClone.getDataset().get(strata[0]).getLabel())
 						.append('=')
-						.append(strata.size())
+						.append(strata.length)
 						.append(' ');
 				}
 				LOGGER.debug(sb.toString());
@@ -259,54 +257,50 @@ public class RandomSplitter implements DataSplitter {
 
 		private DataSplit getRandomSplit(int index) {
 			long currentSeed = seed+index;
-			// Init lists for records 
-			List<DataRecord> firstSplit = new ArrayList<>(dataClone.getDataset().size() - numInSecond);
-			List<DataRecord> secondSplit = new ArrayList<>(numInSecond);
+			// Init arrays for the record indices 
+			int totalInSecond = numFromEachStrata.stream().mapToInt(Integer::intValue).sum();
+			int[] firstSplit = new int[dataClone.getDataset().size() - totalInSecond];
+			int[] secondSplit = new int[totalInSecond];
+			int numFirst = 0, numSecond = 0;
 
 			for (int i=0; i<stratas.size(); i++) {
 				// Split each strata using the same seed
-				Pair<List<DataRecord>, List<DataRecord>> splits = CollectionUtils.splitRandomly(stratas.get(i), numFromEachStrata.get(i), currentSeed);
-				firstSplit.addAll(splits.getLeft());
-				secondSplit.addAll(splits.getRight());
+				int[] strata = stratas.get(i);
+				Pair<int[], int[]> splits = CollectionUtils.splitIndicesRandomly(strata.length, numFromEachStrata.get(i), currentSeed);
+				for (int ix : splits.getLeft())
+					firstSplit[numFirst++] = strata[ix];
+				for (int ix : splits.getRight())
+					secondSplit[numSecond++] = strata[ix];
 			}
 
-			Dataset first = new Dataset()
-				.withDataset(new SubSet(firstSplit))
-				.withModelingExclusiveDataset(dataClone.getModelingExclusiveDataset())
-				.withCalibrationExclusiveDataset(dataClone.getCalibrationExclusiveDataset());
-			
 			// Make sure to shuffle the first and second split, they are now in blocks of the same label
-			first.getDataset().shuffle(currentSeed);
-			Collections.shuffle(secondSplit, new Random(currentSeed));
+			CollectionUtils.shuffle(firstSplit, new Random(currentSeed));
+			CollectionUtils.shuffle(secondSplit, new Random(currentSeed));
 
-			LOGGER.debug("Num in first split: {}, num in second split: {}", firstSplit.size(), secondSplit.size());
+			LOGGER.debug("Num in first split: {}, num in second split: {}", firstSplit.length, secondSplit.length);
 
-			return new DataSplit(first, secondSplit, currentSeed, foundRange);
+			return new DataSplit(new IndexedRecordView(dataClone.getDataset(), firstSplit), 
+				dataClone.getModelingExclusiveDataset(), 
+				dataClone.getCalibrationExclusiveDataset(), 
+				new IndexedRecordView(dataClone.getDataset(), secondSplit), 
+				currentSeed, foundRange);
 		}
 
 	}
 	
-	/**
-	 * Handles getting the next random split when <b>not</b> using stratify
-	 * @param index
-	 * @return a {@link DataSplit} with data
-	 */
 	private DataSplit getRandomSplit(int index) {
 		long currentSeed = seed+index;
 
 		LOGGER.debug("generating random (non-stratified) split with {} instances taken out of total size {}", numInSecond, dataClone.getDataset().size());
 
-		Pair<List<DataRecord>, List<DataRecord>> splits = CollectionUtils.splitRandomly(dataClone.getDataset(), numInSecond, currentSeed);
+		Pair<int[], int[]> splits = CollectionUtils.splitIndicesRandomly(dataClone.getDataset().size(), numInSecond, currentSeed);
 
-		Dataset first = new Dataset()
-			.withDataset(new SubSet(splits.getLeft()))
-			.withModelingExclusiveDataset(dataClone.getModelingExclusiveDataset())
-			.withCalibrationExclusiveDataset(dataClone.getCalibrationExclusiveDataset());
-
-		// put together the second split
-		List<DataRecord> second = splits.getRight();
-		
-		return new DataSplit(first, second, currentSeed, foundRange);
+		// Views of the records, no records are copied
+		return new DataSplit(new IndexedRecordView(dataClone.getDataset(), splits.getLeft()), 
+			dataClone.getModelingExclusiveDataset(), 
+			dataClone.getCalibrationExclusiveDataset(), 
+			new IndexedRecordView(dataClone.getDataset(), splits.getRight()), 
+			currentSeed, foundRange);
 	}
 	
 	@Override
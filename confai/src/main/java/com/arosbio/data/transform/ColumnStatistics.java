@@ -0,0 +1,630 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.data.transform;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arosbio.commons.GlobalConfig;
+import com.arosbio.commons.QuantileSketch;
+import com.arosbio.data.DataRecord;
+import com.arosbio.data.DataUtils;
+import com.arosbio.data.FeatureVector.Feature;
+import com.arosbio.data.MissingValueFeature;
+import com.arosbio.data.transform.Transformer.TransformationException;
+
+/**
+ * Column-wise statistics of a collection of records, computed in a single pass over the data. The records are
+ * split into consecutive blocks of a fixed size that are processed in parallel (on the {@link GlobalConfig#getSharedExecutor() shared executor}), 
+ * each block giving one {@link ColumnAccumulator} per column, and the accumulators are then merged in the order of the blocks. 
+ * All statistics are thus independent of the number of threads used, and the optionally kept values of each column are in record order.
+ * The mean and variance are updated one value at a time in record order when the blocks are merged, i.e. identical to adding 
+ * the values to a {@code SummaryStatistics} of commons-math. 
+ * Memory usage is proportional to the number of columns and the blocks currently processed, unless the values are kept. The exception is the optional {@link QuantileSketch quantile sketches}
+ * (see {@link #computeWithSketches(Collection, ColumnSpec, int)}), that are approximate and can differ slightly depending on the number of threads.
+ * <p>
+ * Only the explicit features of each record are visited, i.e. for sparse data the implicit 0-values are
+ * not included in the statistics and have to be accounted for using {@link #getNumRecords()}.
+ *
+ * @author Aros Bio AB
+ *
+ */
+public class ColumnStatistics {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ColumnStatistics.class);
+
+	/**
+	 * The minimum number of records handled by each thread, smaller datasets are processed in the calling thread
+	 */
+	public static final int MIN_RECORDS_PER_THREAD = 1000;
+	/** The number of consecutive records accumulated before merging, independent of the number of threads */
+	private static final int BLOCK_SIZE = MIN_RECORDS_PER_THREAD;
+
+	private final int numRecords;
+	private final int maxFeatureIndex;
+	private final List<Integer> columns;
+	/** Maps feature index to position in {@link #accumulators}, -1 for columns not included */
+	private final int[] slots;
+	private final ColumnAccumulator[] accumulators;
+
+	/**
+	 * Accumulated statistics of a single column. Accumulators can be {@link #merge(ColumnAccumulator) merged},
+	 * where the values of the merged accumulator are considered to come after the values of the current one.
+	 */
+	public static class ColumnAccumulator {
+
+		private static final long ZERO_BITS = Double.doubleToLongBits(0d);
+
+		private final int column;
+		private int numExplicit = 0;
+		private int numMissing = 0;
+		private int numNaN = 0;
+		private int numPosInf = 0;
+		private int numNegInf = 0;
+		private int numFinite = 0;
+		private int numNonZero = 0;
+		private double finiteMin = Double.NaN;
+		private double finiteMax = Double.NaN;
+		private double finiteSum = 0;
+		/** Running mean and sum of squared deviations of the finite values, same updates as commons-math {@code SecondMoment} */
+		private double m1 = 0;
+		private double m2 = 0;
+		/** Finite values whose moments are added when merged into another accumulator, or {@code null} if moments are updated directly */
+		private double[] pending;
+		private int numPending = 0;
+		/** All non-missing values in record order, or {@code null} if not kept */
+		private double[] values;
+		private int numValues = 0;
+		/** Sketch of all non-NaN values, or {@code null} if not used */
+		private QuantileSketch sketch;
+
+		public ColumnAccumulator(int column, boolean keepValues) {
+			this(column, keepValues, 0);
+		}
+
+		/**
+		 * 
+		 * @param column the column
+		 * @param keepValues if all values should be kept
+		 * @param sketchSize the {@code k} of a {@link QuantileSketch} of the values, or 0 if no sketch should be used
+		 */
+		public ColumnAccumulator(int column, boolean keepValues, int sketchSize) {
+			this(column, keepValues, sketchSize, false);
+		}
+
+		private ColumnAccumulator(int column, boolean keepValues, int sketchSize, boolean deferMoments) {
+			this.column = column;
+			if (keepValues)
+				values = new double[8];
+			if (sketchSize > 0)
+				sketch = new QuantileSketch(sketchSize);
+			if (deferMoments)
+				pending = new double[8];
+		}
+
+		public void add(Feature f) {
+			numExplicit++;
+			if (f instanceof MissingValueFeature) {
+				numMissing++;
+				return;
+			}
+			double v = f.getValue();
+			if (Double.isNaN(v)) {
+				numNaN++;
+			} else {
+				if (v == Double.POSITIVE_INFINITY) {
+					numPosInf++;
+				} else if (v == Double.NEGATIVE_INFINITY) {
+					numNegInf++;
+				} else {
+					if (numFinite == 0 || v < finiteMin)
+						finiteMin = v;
+					if (numFinite == 0 || v > finiteMax)
+						finiteMax = v;
+					finiteSum += v;
+					numFinite++;
+					if (pending != null) {
+						if (numPending == pending.length)
+							pending = Arrays.copyOf(pending, pending.length * 2);
+						pending[numPending++] = v;
+					} else {
+						updateMoments(v, numFinite);
+					}
+				}
+				// Same as Double.equals, i.e. -0.0 is not considered equal to 0
+				if (Double.doubleToLongBits(v) != ZERO_BITS)
+					numNonZero++;
+				if (sketch != null)
+					sketch.update(v);
+			}
+			if (values != null) {
+				if (numValues == values.length)
+					values = Arrays.copyOf(values, values.length * 2);
+				values[numValues++] = v;
+			}
+		}
+
+		private void updateMoments(double v, int n) {
+			double dev = v - m1;
+			double nDev = dev / n;
+			m1 += nDev;
+			m2 += ((double) n - 1) * dev * nDev;
+		}
+
+		/**
+		 * Merge the statistics of {@code other} into this accumulator, the values of {@code other} are
+		 * appended after the values of this accumulator. The mean and variance of two accumulators created by the public 
+		 * constructors are merged pairwise, which can differ in the last bits from adding all values to a single accumulator
+		 * @param other accumulator of the same column
+		 * @return the calling instance
+		 * @throws IllegalArgumentException If the accumulators are of different columns
+		 */
+		public ColumnAccumulator merge(ColumnAccumulator other) throws IllegalArgumentException {
+			if (other.column != column)
+				throw new IllegalArgumentException("Cannot merge statistics of column " + other.column + " into column " + column);
+			if (other.numFinite > 0) {
+				if (numFinite == 0 || other.finiteMin < finiteMin)
+					finiteMin = other.finiteMin;
+				if (numFinite == 0 || other.finiteMax > finiteMax)
+					finiteMax = other.finiteMax;
+				if (other.pending != null) {
+					// Add the values one at a time, giving the same moments as a single accumulator
+					for (int i=0; i<other.numPending; i++)
+						updateMoments(other.pending[i], numFinite + i + 1);
+				} else {
+					// Chan et al. pairwise update of the moments
+					double n = (double) numFinite + other.numFinite;
+					double delta = other.m1 - m1;
+					m1 += delta * other.numFinite / n;
+					m2 += other.m2 + delta * delta * numFinite * (other.numFinite / n);
+				}
+			}
+			numExplicit += other.numExplicit;
+			numMissing += other.numMissing;
+			numNaN += other.numNaN;
+			numPosInf += other.numPosInf;
+			numNegInf += other.numNegInf;
+			numFinite += other.numFinite;
+			numNonZero += other.numNonZero;
+			finiteSum += other.finiteSum;
+			if (sketch != null && other.sketch != null)
+				sketch.merge(other.sketch);
+			else
+				sketch = null;
+			if (values != null && other.values != null) {
+				if (numValues + other.numValues > values.length)
+					values = Arrays.copyOf(values, numValues + other.numValues);
+				System.arraycopy(other.values, 0, values, numValues, other.numValues);
+				numValues += other.numValues;
+			} else {
+				values = null;
+				numValues = 0;
+			}
+			return this;
+		}
+
+		public int getColumn() {
+			return column;
+		}
+
+		/**
+		 * The number of explicit features, including missing values
+		 * @return number of explicit features
+		 */
+		public int getNumExplicit() {
+			return numExplicit;
+		}
+
+		/**
+		 * The number of {@link MissingValueFeature MissingValueFeatures}
+		 * @return number of missing features
+		 */
+		public int getNumMissing() {
+			return numMissing;
+		}
+
+		/**
+		 * The number of explicit features that are not {@link MissingValueFeature MissingValueFeatures}
+		 * @return number of values
+		 */
+		public int getNumValues() {
+			return numExplicit - numMissing;
+		}
+
+		public int getNumNaN() {
+			return numNaN;
+		}
+
+		/**
+		 * The number of NaN or infinite values, not including {@link MissingValueFeature MissingValueFeatures}
+		 * @return number of non-finite values
+		 */
+		public int getNumNonFinite() {
+			return numNaN + numPosInf + numNegInf;
+		}
+
+		public int getNumFinite() {
+			return numFinite;
+		}
+
+		/**
+		 * The number of values that are not NaN or equal to 0 (infinite values are counted as non-zero)
+		 * @return number of non-zero values
+		 */
+		public int getNumNonZero() {
+			return numNonZero;
+		}
+
+		/**
+		 * The minimum value, ignoring NaN values
+		 * @return the minimum, or NaN if no values
+		 */
+		public double getMin() {
+			if (numNegInf > 0)
+				return Double.NEGATIVE_INFINITY;
+			if (numFinite > 0)
+				return finiteMin;
+			return numPosInf > 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+		}
+
+		/**
+		 * The maximum value, ignoring NaN values
+		 * @return the maximum, or NaN if no values
+		 */
+		public double getMax() {
+			if (numPosInf > 0)
+				return Double.POSITIVE_INFINITY;
+			if (numFinite > 0)
+				return finiteMax;
+			return numNegInf > 0 ? Double.NEGATIVE_INFINITY : Double.NaN;
+		}
+
+		/**
+		 * The minimum of the finite values
+		 * @return the minimum, or NaN if no finite values
+		 */
+		public double getFiniteMin() {
+			return finiteMin;
+		}
+
+		/**
+		 * The maximum of the finite values
+		 * @return the maximum, or NaN if no finite values
+		 */
+		public double getFiniteMax() {
+			return finiteMax;
+		}
+
+		/**
+		 * The sum of the finite values
+		 * @return the sum, or 0 if no finite values
+		 */
+		public double getFiniteSum() {
+			return finiteSum;
+		}
+
+		/**
+		 * The mean of the finite values, where the finite values are padded with 0s up to {@code length} values. 
+		 * For sparse data, pass the number of records to include the implicit 0-values
+		 * @param length the total number of values, values {@code <=} {@link #getNumFinite()} means no padding
+		 * @return the mean, or NaN if no values
+		 */
+		public double getFiniteMean(int length) {
+			if (Math.max(length, numFinite) == 0)
+				return Double.NaN;
+			return padMoments(length)[0];
+		}
+
+		/**
+		 * The (bias-corrected) sample variance of the finite values, where the finite values are padded with 0s 
+		 * up to {@code length} values. For sparse data, pass the number of records to include the implicit 0-values
+		 * @param length the total number of values, values {@code <=} {@link #getNumFinite()} means no padding
+		 * @return the variance, 0 if a single value or NaN if no values
+		 */
+		public double getFiniteVariance(int length) {
+			int n = Math.max(length, numFinite);
+			if (n == 0)
+				return Double.NaN;
+			if (n == 1)
+				return 0;
+			return padMoments(length)[1] / (n - 1.0);
+		}
+
+		/**
+		 * Add the 0s one at a time (as when fitted using commons-math), so that the moments are identical 
+		 * to adding the implicit 0s after the explicit values
+		 */
+		private double[] padMoments(int length) {
+			double mean = m1, sqDev = m2;
+			for (int n=numFinite+1; n<=length; n++) {
+				double dev = 0d - mean;
+				double nDev = dev / n;
+				mean += nDev;
+				sqDev += ((double) n - 1) * dev * nDev;
+			}
+			return new double[] {mean, sqDev};
+		}
+
+		public boolean hasSketch() {
+			return sketch != null;
+		}
+
+		/**
+		 * Get the sketch of all non-missing values, excluding NaN values
+		 * @return the sketch
+		 * @throws IllegalStateException If no sketch was used
+		 */
+		public QuantileSketch getSketch() throws IllegalStateException {
+			if (sketch == null)
+				throw new IllegalStateException("No sketch was used for column " + column);
+			return sketch;
+		}
+
+		public boolean hasValues() {
+			return values != null;
+		}
+
+		/**
+		 * Get all non-missing values (including NaN and infinite values) in record order
+		 * @return the values
+		 * @throws IllegalStateException If values were not kept
+		 */
+		public double[] getValues() throws IllegalStateException {
+			if (values == null)
+				throw new IllegalStateException("Values were not kept for column " + column);
+			return Arrays.copyOf(values, numValues);
+		}
+
+		/**
+		 * Get all finite values in record order
+		 * @return the finite values
+		 * @throws IllegalStateException If values were not kept
+		 */
+		public double[] getFiniteValues() throws IllegalStateException {
+			if (values == null)
+				throw new IllegalStateException("Values were not kept for column " + column);
+			double[] finite = new double[numFinite];
+			int i = 0;
+			for (int j=0; j<numValues; j++) {
+				if (Double.isFinite(values[j]))
+					finite[i++] = values[j];
+			}
+			return finite;
+		}
+
+		public String toString() {
+			return String.format("ColumnAccumulator column=%d, explicit=%d, missing=%d", column, numExplicit, numMissing);
+		}
+	}
+
+	private ColumnStatistics(int numRecords, int maxFeatureIndex, List<Integer> columns, int[] slots, ColumnAccumulator[] accumulators) {
+		this.numRecords = numRecords;
+		this.maxFeatureIndex = maxFeatureIndex;
+		this.columns = columns;
+		this.slots = slots;
+		this.accumulators = accumulators;
+	}
+
+	/**
+	 * Compute statistics using the number of threads given by {@link GlobalConfig#getNumThreads()}
+	 * @param data the records
+	 * @param columns the columns to compute statistics for, {@code null} meaning all columns
+	 * @param keepValues if the values of each column should be kept
+	 * @return the statistics
+	 * @throws IndexOutOfBoundsException If the {@code columns} are invalid for the data
+	 */
+	public static ColumnStatistics compute(Collection<DataRecord> data, ColumnSpec columns, boolean keepValues)
+			throws IndexOutOfBoundsException {
+		return compute(data, columns, keepValues, GlobalConfig.getInstance().getNumThreads());
+	}
+
+	/**
+	 * Compute statistics using at most {@code numThreads} threads
+	 * @param data the records
+	 * @param columns the columns to compute statistics for, {@code null} meaning all columns
+	 * @param keepValues if the values of each column should be kept
+	 * @param numThreads the maximum number of threads
+	 * @return the statistics
+	 * @throws IndexOutOfBoundsException If the {@code columns} are invalid for the data
+	 */
+	public static ColumnStatistics compute(Collection<DataRecord> data, ColumnSpec columns, boolean keepValues, int numThreads)
+			throws IndexOutOfBoundsException {
+		return compute(data, columns, keepValues, 0, numThreads);
+	}
+
+	/**
+	 * Compute statistics including a {@link QuantileSketch} of each column, instead of keeping all values, using
+	 * the number of threads given by {@link GlobalConfig#getNumThreads()}
+	 * @param data the records
+	 * @param columns the columns to compute statistics for, {@code null} meaning all columns
+	 * @param sketchSize the {@code k} parameter of the sketches
+	 * @return the statistics
+	 * @throws IndexOutOfBoundsException If the {@code columns} are invalid for the data
+	 * @throws IllegalArgumentException If the {@code sketchSize} is invalid
+	 */
+	public static ColumnStatistics computeWithSketches(Collection<DataRecord> data, ColumnSpec columns, int sketchSize)
+			throws IndexOutOfBoundsException, IllegalArgumentException {
+		return computeWithSketches(data, columns, sketchSize, GlobalConfig.getInstance().getNumThreads());
+	}
+
+	/**
+	 * Compute statistics including a {@link QuantileSketch} of each column, using at most {@code numThreads} threads
+	 * @param data the records
+	 * @param columns the columns to compute statistics for, {@code null} meaning all columns
+	 * @param sketchSize the {@code k} parameter of the sketches
+	 * @param numThreads the maximum number of threads
+	 * @return the statistics
+	 * @throws IndexOutOfBoundsException If the {@code columns} are invalid for the data
+	 * @throws IllegalArgumentException If the {@code sketchSize} is invalid
+	 */
+	public static ColumnStatistics computeWithSketches(Collection<DataRecord> data, ColumnSpec columns, int sketchSize, int numThreads)
+			throws IndexOutOfBoundsException, IllegalArgumentException {
+		if (sketchSize < QuantileSketch.MIN_K)
+			throw new IllegalArgumentException("Sketch size must be at least " + QuantileSketch.MIN_K + ", got: " + sketchSize);
+		return compute(data, columns, false, sketchSize, numThreads);
+	}
+
+	private static ColumnStatistics compute(Collection<DataRecord> data, ColumnSpec columns, boolean keepValues, int sketchSize, int numThreads)
+			throws IndexOutOfBoundsException {
+		if (columns == null)
+			columns = ColumnSpec.allColumns();
+
+		int maxFeatIndex = DataUtils.getMaxFeatureIndex(data);
+		List<Integer> cols = (columns.useAll() && maxFeatIndex < 0) ? Collections.emptyList() : columns.getColumns(maxFeatIndex);
+
+		int maxCol = -1;
+		for (int c : cols)
+			maxCol = Math.max(maxCol, c);
+		int[] slots = new int[maxCol+1];
+		Arrays.fill(slots, -1);
+		for (int i=0; i<cols.size(); i++)
+			slots[cols.get(i)] = i;
+
+		List<DataRecord> recs = (data instanceof List && data instanceof RandomAccess) ? (List<DataRecord>) data : new ArrayList<>(data);
+		int numBlocks = (recs.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int nThreads = Math.max(1, Math.min(numThreads, numBlocks));
+
+		ColumnAccumulator[] result = null;
+		if (nThreads == 1) {
+			result = accumulateSerial(recs, numBlocks, slots, cols, keepValues, sketchSize);
+		} else {
+			LOGGER.debug("Computing column statistics for {} records and {} columns using {} threads", recs.size(), cols.size(), nThreads);
+			result = accumulateParallel(recs, numBlocks, slots, cols, keepValues, sketchSize, nThreads);
+		}
+
+		return new ColumnStatistics(recs.size(), maxFeatIndex, cols, slots, result);
+	}
+
+	private static ColumnAccumulator[] accumulateSerial(final List<DataRecord> recs, final int numBlocks, final int[] slots, final List<Integer> cols,
+			final boolean keepValues, final int sketchSize) {
+		ColumnAccumulator[] result = new ColumnAccumulator[cols.size()];
+		ColumnAccumulator[] block = new ColumnAccumulator[cols.size()];
+		for (int b=0; b<numBlocks; b++) {
+			accumulate(recs, b*BLOCK_SIZE, Math.min(recs.size(), (b+1)*BLOCK_SIZE), slots, keepValues, sketchSize, block);
+			mergeInto(result, block, cols, keepValues, sketchSize);
+			Arrays.fill(block, null);
+		}
+		return result;
+	}
+
+	private static ColumnAccumulator[] accumulateParallel(final List<DataRecord> recs, final int numBlocks, final int[] slots, final List<Integer> cols,
+			final boolean keepValues, final int sketchSize, final int nThreads) {
+		ExecutorService executor = GlobalConfig.getInstance().getSharedExecutor();
+		// At most nThreads blocks are processed at the same time, the blocks are merged in order 
+		Deque<Future<ColumnAccumulator[]>> pending = new ArrayDeque<>(nThreads);
+		int nextBlock = 0;
+		ColumnAccumulator[] result = new ColumnAccumulator[cols.size()];
+		try {
+			while (nextBlock < numBlocks || !pending.isEmpty()) {
+				while (nextBlock < numBlocks && pending.size() < nThreads) {
+					final int from = nextBlock*BLOCK_SIZE, to = Math.min(recs.size(), (nextBlock+1)*BLOCK_SIZE);
+					pending.add(executor.submit(() -> accumulate(recs, from, to, slots, keepValues, sketchSize, new ColumnAccumulator[cols.size()])));
+					nextBlock++;
+				}
+				mergeInto(result, pending.poll().get(), cols, keepValues, sketchSize);
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TransformationException("Interrupted while computing column statistics");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new TransformationException("Failed computing column statistics: " + cause.getMessage());
+		} finally {
+			for (Future<?> f : pending)
+				f.cancel(true);
+		}
+	}
+
+	private static void mergeInto(ColumnAccumulator[] result, ColumnAccumulator[] block, List<Integer> cols, boolean keepValues, int sketchSize) {
+		for (int c=0; c<result.length; c++) {
+			if (block[c] == null)
+				continue;
+			if (result[c] == null) {
+				// Always merge, so that the result is the same regardless of where the column was first encountered
+				result[c] = new ColumnAccumulator(cols.get(c), keepValues, sketchSize);
+			}
+			result[c].merge(block[c]);
+		}
+	}
+
+	private static ColumnAccumulator[] accumulate(List<DataRecord> recs, int from, int to, int[] slots, boolean keepValues, int sketchSize, ColumnAccumulator[] accs) {
+		int maxCol = slots.length - 1;
+		for (int i=from; i<to; i++) {
+			for (Feature f : recs.get(i).getFeatures()) {
+				int index = f.getIndex();
+				// Features are sorted by index
+				if (index > maxCol)
+					break;
+				int slot = slots[index];
+				if (slot < 0)
+					continue;
+				if (accs[slot] == null)
+					accs[slot] = new ColumnAccumulator(index, keepValues, sketchSize, true);
+				accs[slot].add(f);
+			}
+		}
+		return accs;
+	}
+
+	public int getNumRecords() {
+		return numRecords;
+	}
+
+	/**
+	 * The maximum feature index of the records
+	 * @return the maximum feature index, or -1 if no features
+	 */
+	public int getMaxFeatureIndex() {
+		return maxFeatureIndex;
+	}
+
+	/**
+	 * The columns that statistics were computed for, in sorted order if the {@link ColumnSpec}
+	 * was sorted
+	 * @return the columns
+	 */
+	public List<Integer> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Get the statistics of a column
+	 * @param column the column
+	 * @return the statistics, or {@code null} if the column had no explicit features
+	 * @throws IllegalArgumentException If statistics were not computed for the column
+	 */
+	public ColumnAccumulator get(int column) throws IllegalArgumentException {
+		if (column < 0 || column >= slots.length || slots[column] < 0)
+			throw new IllegalArgumentException("No statistics computed for column " + column);
+		return accumulators[slots[column]];
+	}
+
+	public String toString() {
+		return String.format("ColumnStatistics of %d records and %d columns", numRecords, columns.size());
+	}
+
+}
@@ -11,11 +11,8 @@ package com.arosbio.data.transform.feature_selection;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,7 +20,9 @@ import org.slf4j.LoggerFactory;
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.data.FeatureVector;
-import com.arosbio.data.MissingValueFeature;
+import com.arosbio.data.transform.ColumnSpec;
+import com.arosbio.data.transform.ColumnStatistics;
+import com.arosbio.data.transform.ColumnStatistics.ColumnAccumulator;
 import com.arosbio.data.transform.Transformer;
 
 /**
@@ -69,18 +68,15 @@ public class DropMissingDataSelector implements FeatureSelector {
 	public DropMissingDataSelector fit(Collection<DataRecord> data) throws TransformationException {
 		LOGGER.debug("Fitting feature-selector {}", this);
 		
-		Set<Integer> indicesToRm = new HashSet<>();
-		
-		for (DataRecord r : data) {
-			for (FeatureVector.Feature f : r.getFeatures()) {
-				if (f instanceof MissingValueFeature || ! Double.isFinite(f.getValue())) {
-					indicesToRm.add(f.getIndex());
-				}
+		ColumnStatistics stats = ColumnStatistics.compute(data, ColumnSpec.allColumns(), false);
+
+		toRemove = new ArrayList<>();
+		for (int col : stats.getColumns()) {
+			ColumnAccumulator colStats = stats.get(col);
+			if (colStats != null && (colStats.getNumMissing() > 0 || colStats.getNumNonFinite() > 0)) {
+				toRemove.add(col);
 			}
 		}
-		
-		toRemove = new ArrayList<>(indicesToRm);
-		Collections.sort(toRemove);
 		LOGGER.debug("Finished fitting transformer, removing features: {}", toRemove);
 
 		return this;
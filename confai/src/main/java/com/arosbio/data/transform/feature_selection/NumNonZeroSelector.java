@@ -23,11 +23,12 @@ import org.slf4j.LoggerFactory;
 import com.arosbio.commons.TypeUtils;
 import com.arosbio.commons.config.IntegerConfig;
 import com.arosbio.data.DataRecord;
-import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.data.FeatureVector;
 import com.arosbio.data.FeatureVector.Feature;
 import com.arosbio.data.SparseVector;
+import com.arosbio.data.transform.ColumnStatistics;
+import com.arosbio.data.transform.ColumnStatistics.ColumnAccumulator;
 import com.arosbio.data.transform.ColumnTransformer;
 
 /**
@@ -117,11 +118,22 @@ public class NumNonZeroSelector extends ColumnTransformer implements FeatureSele
 	public NumNonZeroSelector fit(Collection<DataRecord> data) throws TransformationException {
 		LOGGER.debug("Fitting transformer {}", this);
 		toRemove = new ArrayList<>();
-
-		if (data.iterator().next().getFeatures() instanceof SparseVector) {
-			fitForSparse(data);
-		} else {
-			fitForDense(data);
+		boolean sparse = data.iterator().next().getFeatures() instanceof SparseVector;
+
+		ColumnStatistics stats = ColumnStatistics.compute(data, getColumns(), false);
+		for (int col : stats.getColumns()) {
+			ColumnAccumulator colStats = stats.get(col);
+			if (sparse) {
+				// For sparse data - count the explicit features
+				if (colStats == null) {
+					if (getColumns().useAll() && minOccurrenceThreshold > 0)
+						toRemove.add(col);
+				} else if (colStats.getNumExplicit() < minOccurrenceThreshold) {
+					toRemove.add(col);
+				}
+			} else if (colStats.getNumNonZero() < minOccurrenceThreshold) {
+				toRemove.add(col);
+			}
 		}
 		Collections.sort(toRemove);
 
@@ -129,74 +141,6 @@ public class NumNonZeroSelector extends ColumnTransformer implements FeatureSele
 		return this;
 	}
 
-	private void fitForSparse(Collection<DataRecord> recs) {
-		if (! getColumns().useAll()) {
-			LOGGER.debug("Fitting transformer for a subset of features");
-			fitForSparseSubset(recs);
-			return;
-		}
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(recs);
-		// Loop through all of them and make the counts
-		int[] counts = new int[maxFeatIndex+1];
-		for (DataRecord r : recs) {
-			for (Feature f : r.getFeatures()){
-				counts[f.getIndex()]++;
-			}
-		}
-
-		for (int col : getColumns().getColumns(maxFeatIndex) ) {
-			if (counts[col]< minOccurrenceThreshold)
-				toRemove.add(col);
-		}
-	}
-
-	private void fitForSparseSubset(Collection<DataRecord> recs) {
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(recs);
-
-		// The indices to compute for
-		List<Integer> indices = getColumns().getColumns(maxFeatIndex);
-		int maxIndex = indices.get(indices.size()-1); // This list should always be sorted!
-
-		// Loop through all of them and make the counts
-		Map<Integer,Integer> counts = new HashMap<>();
-		for (DataRecord r : recs) {
-			for (Feature f : r.getFeatures()){
-				int index = f.getIndex();
-				if (index>maxIndex)
-					break;
-				if (indices.contains(index))
-					counts.put(index, 1 + counts.getOrDefault(index, 0));
-			}
-		}
-
-		for (Map.Entry<Integer, Integer> colCount : counts.entrySet() ) {
-			if (colCount.getValue()< minOccurrenceThreshold)
-				toRemove.add(colCount.getKey());
-		}
-	}
-
-	private void fitForDense(Collection<DataRecord> recs) {
-
-		for (int col: getColumns().getColumns(DataUtils.getMaxFeatureIndex(recs))) {
-			if (checkRemoveFeature(recs, col))
-				toRemove.add(col);
-		}
-	}
-
-	private boolean checkRemoveFeature(Collection<DataRecord> recs, int col) {
-		List<Double> featureValues = DataUtils.extractColumn(recs, col);
-
-		int numNonZero = 0;
-		for (Double d : featureValues) {
-			if (d != null && !d.isNaN() && ! d.equals(0d))
-				numNonZero++;
-			if (numNonZero>= minOccurrenceThreshold)
-				return false;
-		}
-
-		return true;
-	}
-
 	@Override
 	public boolean isFitted() {
 		return toRemove != null;
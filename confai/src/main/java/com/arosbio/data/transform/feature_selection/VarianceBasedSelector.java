@@ -16,17 +16,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.math3.stat.descriptive.moment.Variance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.arosbio.commons.CollectionUtils;
 import com.arosbio.data.DataRecord;
-import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.data.FeatureVector;
-import com.arosbio.data.FeatureVector.Feature;
 import com.arosbio.data.SparseVector;
+import com.arosbio.data.transform.ColumnStatistics;
+import com.arosbio.data.transform.ColumnStatistics.ColumnAccumulator;
 import com.arosbio.data.transform.ColumnTransformer;
 import com.arosbio.data.transform.feature_selection.SelectionCriterion.Criterion;
 
@@ -125,72 +124,39 @@ public class VarianceBasedSelector extends ColumnTransformer implements FeatureS
 			throw new TransformationException("Cannot fit Transformer without data");
 		LOGGER.debug("Fitting transformer {}", this);
 
-		if (data.iterator().next().getFeatures() instanceof SparseVector) {
-			fitSparseData(data);
-		} else {
-			fitDenseData(data);
-		}
-
-		LOGGER.debug("Finished fitting {}, removing columns: {}", this, toRemove);
+		boolean sparse = data.iterator().next().getFeatures() instanceof SparseVector;
 
-		return this;
-	}
+		ColumnStatistics stats = ColumnStatistics.compute(data, getColumns(), false);
 
-	private void fitSparseData(Collection<DataRecord> recs) {
-
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(recs);
-		// Instantiate all variance-instances
-		Map<Integer, Variance> counts = new HashMap<>();
-		for (int column : getColumns().getColumns(maxFeatIndex)){
-			counts.put(column, new Variance());
-		}
-		// Go through all data and update the variance instances
-		for (DataRecord r : recs) {
-			for (Feature f : r.getFeatures()){
-				if (counts.containsKey(f.getIndex()) && Double.isFinite(f.getValue())) {
-					counts.get(f.getIndex()).increment(f.getValue());
+		List<CollectionUtils.IndexedValue> vals = new ArrayList<>();
+		if (sparse) {
+			int nRecs = stats.getNumRecords();
+			Map<Integer, Double> variances = new HashMap<>();
+			for (int col : stats.getColumns()) {
+				ColumnAccumulator colStats = stats.get(col);
+				if (colStats == null || colStats.getNumFinite() == 0) {
+					// this was never encountered - 0 variance!
+					variances.put(col, 0d);
+				} else {
+					// Add 0s corresponding to the sparse features
+					variances.put(col, colStats.getFiniteVariance(nRecs));
 				}
 			}
-		}
-
-		int nRecs = recs.size();
-
-
-		List<CollectionUtils.IndexedValue> vals = new ArrayList<>();
-		for (Map.Entry<Integer,Variance> kv : counts.entrySet()){
-			Variance colVar = kv.getValue();
-			if (colVar.getN() == 0){
-				// this was never encountered - 0 variance!
-				vals.add(new CollectionUtils.IndexedValue(kv.getKey(), 0d));
-				continue;
+			for (Map.Entry<Integer, Double> kv : variances.entrySet()) {
+				vals.add(new CollectionUtils.IndexedValue(kv.getKey(), kv.getValue()));
 			}
-			int zerosToAdd = nRecs - (int) colVar.getN();
-			for (int i=0; i<zerosToAdd; i++) {
-				colVar.increment(0d);
+		} else {
+			for (int col : stats.getColumns()) {
+				vals.add(new CollectionUtils.IndexedValue(col, stats.get(col).getFiniteVariance(0)));
 			}
-			vals.add(new CollectionUtils.IndexedValue(kv.getKey(), colVar.getResult()));
-
 		}
 
 		toRemove = criterion.getIndicesToRemove(vals);
 		Collections.sort(toRemove);
-	}
 
-	private void fitDenseData(Collection<DataRecord> data) {
-		List<CollectionUtils.IndexedValue> variances = new ArrayList<>();
-		for (int col : getColumns().getColumns(DataUtils.getMaxFeatureIndex(data))) {
-			variances.add(new CollectionUtils.IndexedValue(col, getVariance(data, col)));
-		}
-		toRemove = criterion.getIndicesToRemove(variances);
-		Collections.sort(toRemove);
-	}
+		LOGGER.debug("Finished fitting {}, removing columns: {}", this, toRemove);
 
-	private double getVariance(Collection<DataRecord> recs, int col) {
-		List<Double> featureValues = DataUtils.extractColumnExcludeMissingFeatures(recs, col);
-		Variance var = new Variance();
-		for (double v : featureValues)
-			var.increment(v);
-		return var.getResult();
+		return this;
 	}
 
 	@Override
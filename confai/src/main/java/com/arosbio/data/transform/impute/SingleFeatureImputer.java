@@ -12,7 +12,6 @@ package com.arosbio.data.transform.impute;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
@@ -23,7 +22,6 @@ import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.arosbio.commons.CollectionUtils;
 import com.arosbio.commons.MathUtils;
 import com.arosbio.commons.TypeUtils;
 import com.arosbio.commons.config.EnumConfig;
@@ -32,10 +30,10 @@ import com.arosbio.data.DataRecord;
 import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.data.FeatureVector;
-import com.arosbio.data.FeatureVector.Feature;
-import com.arosbio.data.MissingValueFeature;
 import com.arosbio.data.SparseVector;
 import com.arosbio.data.transform.ColumnSpec;
+import com.arosbio.data.transform.ColumnStatistics;
+import com.arosbio.data.transform.ColumnStatistics.ColumnAccumulator;
 import com.arosbio.data.transform.ColumnTransformer;
 import com.arosbio.data.transform.scale.MinMaxScaler;
 
@@ -124,10 +122,8 @@ public class SingleFeatureImputer extends ColumnTransformer implements Imputer {
 
 		if (strategy == ImputationStrategy.FIXED) {
 			fitFixed(data);
-		} else if (data.iterator().next().getFeatures() instanceof SparseVector) {
-			fitSparseData(data);
 		} else {
-			fitDenseData(data);
+			fitStatistics(data, data.iterator().next().getFeatures() instanceof SparseVector);
 		}
 
 		LOGGER.debug("Finished fitting {}", this);
@@ -146,169 +142,105 @@ public class SingleFeatureImputer extends ColumnTransformer implements Imputer {
 		}
 	}
 
-	private void fitSparseData(Collection<DataRecord> data) throws TransformationException {
-
-		if (strategy == ImputationStrategy.MEDIAN) {
-			fitSparseDataMedian(data);
-			return;
-		}
-
-		// Here we fit using the updating statistics instead, not having to keep all values in memory
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(data);
-		// The indices to compute for
-		List<Integer> indices = getColumns().getColumns(maxFeatIndex);
-		int maxIndex = indices.get(indices.size()-1); // This list should always be sorted! Collections.max(indices);
-
-		Map<Integer, SummaryStatistics> colStats = new HashMap<>();
-		// Init the statistics
-		for (int index : indices){
-			colStats.put(index, new SummaryStatistics());
-		}
-
-		// Go through the data
-		for (DataRecord r : data) {
-			for (Feature f : r.getFeatures()) {
-				if (f instanceof MissingValueFeature)
-					continue;
-				int index = f.getIndex();
-				if (index > maxIndex)
-					break;
-
-				if (colStats.containsKey(index) && Double.isFinite(f.getValue())) {
-					colStats.get(index).addValue(f.getValue());
-				}
-			}
+	private void fitStatistics(Collection<DataRecord> data, boolean sparse) throws TransformationException {
+		// Only mean and median require the values, min and max are computed without keeping all values in memory
+		boolean keepValues = strategy == ImputationStrategy.MEAN || strategy == ImputationStrategy.MEDIAN;
+		ColumnStatistics stats = null;
+		try {
+			stats = ColumnStatistics.compute(data, getColumns(), keepValues);
+		} catch (OutOfMemoryError e) {
+			LOGGER.debug("Failed with an OutOfMemory exception");
+			throw new TransformationException("Failed fitting transformer " + NAME + " using '"+strategy.toString().toLowerCase()+"' strategy, please use the 'min' or 'max' strategy for larger problems");
 		}
 
-		int nRecs = data.size();
-		// Compute the values
+		int nRecs = stats.getNumRecords();
+		int numZero = 0;
 		substitutions = new HashMap<>();
-		for (int col : colStats.keySet() ) {
-
-			SummaryStatistics colVar = colStats.get(col);
-
-			int zerosToAdd = nRecs - (int) colVar.getN();
-			for (int i=0; i<zerosToAdd; i++) {
-				colVar.addValue(0d);
+		for (int col : stats.getColumns()) {
+			ColumnAccumulator colStats = stats.get(col);
+			if (!sparse) {
+				substitutions.put(col, fitDenseFeature(colStats));
+				continue;
 			}
-			double sub = Double.NaN;
-			switch (strategy) {
-			case MAX:
-				sub = colVar.getMax();
-				break;
-			case MEAN:
-				sub = colVar.getMean();
-				break;
-			case MIN:
-				sub = colVar.getMin();
-				break;
-
-			default:
-				LOGGER.debug("Encountered impute-strategy of non-supported type: {}", strategy);
-				throw new TransformationException("Encountered impute-strategy of non-supported type: " + strategy);
+			if (strategy == ImputationStrategy.MEDIAN && (colStats == null || colStats.getNumFinite() == 0)) {
+				substitutions.put(col, 0d);
+				numZero++;
+				continue;
 			}
-			if (Double.isFinite(sub))
-				substitutions.put(col, sub);
-			else {
+			double sub = fitSparseFeature(colStats, nRecs);
+			if (!Double.isFinite(sub)) {
 				LOGGER.debug("Encountered non-finite substitution value for feature index {}: {}", col, sub);
 				throw new TransformationException("Encountered feature for which a substitution value could not be computed - "
 						+ "consider removing features with all missing values prior to using the " + NAME + " transformation");
 			}
-
+			substitutions.put(col, sub);
 		}
-
+		if (numZero > 0)
+			LOGGER.debug("Found {} features that were not present in the dataset - perhaps these should be removed prior to this step?",numZero);
 	}
 
-	private void fitSparseDataMedian(Collection<DataRecord> data) throws TransformationException {
-		LOGGER.debug("Fitting for median (which requires to create a (potentially) huge matrix");
-		try {
-			int maxFeatIndex = DataUtils.getMaxFeatureIndex(data);
-			// The indices to compute for
-			List<Integer> indices = getColumns().getColumns(maxFeatIndex);
-			int maxIndex = indices.get(indices.size()-1); // This list should always be sorted!Collections.max(indices);
-
-			Map<Integer, List<Double>> colLists = new HashMap<>();
-			// Init the lists
-			for (int index : indices){
-				colLists.put(index, new ArrayList<>());
-			}
+	/**
+	 * For sparse data only the finite values are used, padded with 0s for the features not explicitly given in the records
+	 */
+	private double fitSparseFeature(ColumnAccumulator colStats, int nRecs) {
+		int numFinite = colStats != null ? colStats.getNumFinite() : 0;
+		int zerosToAdd = nRecs - numFinite;
 
-			for (DataRecord r : data) {
-				for (Feature f : r.getFeatures()) {
-					if (f instanceof MissingValueFeature)
-						continue;
-					int index = f.getIndex();
-					if (index > maxIndex)
-						break;
-
-					if (colLists.containsKey(index) && Double.isFinite(f.getValue())) {
-						colLists.get(index).add(f.getValue());
-					}
-				}
+		switch (strategy) {
+		case MIN:
+			double min = numFinite > 0 ? colStats.getFiniteMin() : Double.NaN;
+			if (zerosToAdd > 0 && (numFinite == 0 || 0d < min))
+				min = 0d;
+			return min;
+		case MAX:
+			double max = numFinite > 0 ? colStats.getFiniteMax() : Double.NaN;
+			if (zerosToAdd > 0 && (numFinite == 0 || 0d > max))
+				max = 0d;
+			return max;
+		case MEAN:
+			SummaryStatistics ss = new SummaryStatistics();
+			if (numFinite > 0) {
+				for (double v : colStats.getFiniteValues())
+					ss.addValue(v);
 			}
-
-			int numZero=0;
-
-			// Get the values
-			int nRec = data.size();
-			substitutions = new HashMap<>();
-			for (int col : colLists.keySet()) { 
-				List<Double> vals = colLists.get(col);
-				if (vals == null || vals.isEmpty()) {
-					substitutions.put(col, 0d);
-					numZero++;
-					continue;
-				}
-				double[] colValues = new double[nRec];
-				fillArray(colValues, vals); 
-				substitutions.put(col, new Percentile(50).evaluate(colValues));
-				vals.clear(); // might be pre-optimization, but try to clear up some memory
+			for (int i=0; i<zerosToAdd; i++) {
+				ss.addValue(0d);
 			}
-			LOGGER.debug("Found {} features that were not present in the dataset - perhaps these should be removed prior to this step?",numZero);
-		} catch (OutOfMemoryError e) {
-			LOGGER.debug("Failed with an OutOfMemory exception");
-			throw new TransformationException("Failed fitting transformer " + NAME + " using 'median' strategy, please use any of the other strategies for larger problems");
-		}
-	}
-
-	private static void fillArray(double[] arr, List<Double> listVals) {
-		for (int i=0; i<listVals.size(); i++) {
-			arr[i] = listVals.get(i);
-		}
-	}
-
-	private void fitDenseData(Collection<DataRecord> data) throws TransformationException {
-		substitutions = new HashMap<>();
-		for (int col: getColumns().getColumns(DataUtils.getMaxFeatureIndex(data))) {
-			substitutions.put(col, fitOneFeature(data, col));
+			return ss.getMean();
+		case MEDIAN:
+			// Pad with 0s at the end
+			return new Percentile(50).evaluate(Arrays.copyOf(colStats.getFiniteValues(), nRecs));
+		default:
+			LOGGER.debug("Encountered impute-strategy of non-supported type: {}", strategy);
+			throw new TransformationException("Encountered impute-strategy of non-supported type: " + strategy);
 		}
 	}
 
-	private double fitOneFeature(Collection<DataRecord> recs, int index){
-		if (strategy == ImputationStrategy.FIXED)
-			return fixedValue;
-
-		List<Double> column = DataUtils.extractColumn(recs, index);
-
-		List<Double> colVals = CollectionUtils.filterNullOrNaN(column);
-
+	/**
+	 * For dense data all values that are not NaN are used
+	 */
+	private double fitDenseFeature(ColumnAccumulator colStats) {
+		boolean noValues = colStats == null || colStats.getNumValues() == colStats.getNumNaN();
 		switch (strategy) {
 		case MIN:
-			return Collections.min(colVals);
-		case FIXED:
-			LOGGER.debug("Setting FIXED value in the fitDense-version of imputer, this doesn't require the data to be traversed - something is bad");
-			return fixedValue; 
 		case MAX:
-			return Collections.max(colVals);
+			if (noValues)
+				throw new TransformationException("Encountered feature for which a substitution value could not be computed - "
+					+ "consider removing features with all missing values prior to using the " + NAME + " transformation");
+			return strategy == ImputationStrategy.MIN ? colStats.getMin() : colStats.getMax();
 		case MEDIAN:
-			return MathUtils.median(colVals);
+			return noValues ? Double.NaN : MathUtils.median(getNonNaNValues(colStats));
 		case MEAN:
-			return MathUtils.mean(colVals);
+			return noValues ? Double.NaN : MathUtils.mean(getNonNaNValues(colStats));
 		default:
 			throw new TransformationException("No imputation strategy set for imputer " + NAME);
 		}
 	}
 
+	private static double[] getNonNaNValues(ColumnAccumulator colStats) {
+		return Arrays.stream(colStats.getValues()).filter(v -> !Double.isNaN(v)).toArray();
+	}
+
 
 	@Override
 	public boolean isFitted() {
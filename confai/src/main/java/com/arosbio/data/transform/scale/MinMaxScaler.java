@@ -12,7 +12,6 @@ package com.arosbio.data.transform.scale;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,18 +19,16 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.arosbio.commons.CollectionUtils;
 import com.arosbio.commons.TypeUtils;
 import com.arosbio.commons.config.NumericConfig;
 import com.arosbio.commons.mixins.Aliased;
 import com.arosbio.data.DataRecord;
-import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.data.FeatureVector;
-import com.arosbio.data.FeatureVector.Feature;
-import com.arosbio.data.MissingValueFeature;
 import com.arosbio.data.SparseVector;
 import com.arosbio.data.transform.ColumnSpec;
+import com.arosbio.data.transform.ColumnStatistics;
+import com.arosbio.data.transform.ColumnStatistics.ColumnAccumulator;
 import com.arosbio.data.transform.ColumnTransformer;
 
 /**
@@ -143,142 +140,36 @@ public class MinMaxScaler extends ColumnTransformer implements FeatureScaler, Al
 			throw new TransformationException("Cannot fit Transformer "+NAME+" without data");
 		LOGGER.debug("Fitting transformer {}", this);
 
-		if (data.iterator().next().getFeatures() instanceof SparseVector) {
-			fitSparseData(data);
-		} else {
-			fitDenseData(data);
-		}
-
-		LOGGER.debug("Finished fitting transformer");
-		
-		return this;
-	}
-
-	private void fitSparseData(Collection<DataRecord> data) throws TransformationException {
-
-		if (!getColumns().useAll()) {
-			LOGGER.debug("Fitting transformer using a subset of features");
-			fitSparseDataSubset(data);
-			return;
-		}
-
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(data);
-
-		double[][] colMinMaxMatrix = new double[maxFeatIndex+1][];
-		int[] counts = new int [maxFeatIndex+1];
+		boolean sparse = data.iterator().next().getFeatures() instanceof SparseVector;
 
+		ColumnStatistics stats = ColumnStatistics.compute(data, getColumns(), false);
+		int nRec = stats.getNumRecords();
 
-		// Go through the data
-		for (DataRecord r : data) {
-
-			for (Feature f : r.getFeatures()) {
-				if (f instanceof MissingValueFeature)
-					throw new TransformationException("Transformation using " + this + " not possible on missing-data features");
-
-				int ind = f.getIndex();
-				double val = f.getValue();
-				counts[ind] ++;
-
-				double[] minMax = colMinMaxMatrix[ind];
-				if (minMax == null) {
-					colMinMaxMatrix[ind] = new double[] {val,val};
-				} else {
-
-					// Min
-					if (val < minMax[0])
-						minMax[0] = val;
-					// Max
-					else if (val > minMax[1])
-						minMax[1] = val;
-				}
-			}
-		}
-		int nRecs = data.size();
 		scaleFactors = new HashMap<>();
-		for (int col=0; col<colMinMaxMatrix.length; col++) {
-			double[] minMax=colMinMaxMatrix[col];
-			if (counts[col]< 1) {
+		for (int col : stats.getColumns()) {
+			ColumnAccumulator colStats = stats.get(col);
+			if (colStats == null) {
 				// Skip the scale factors for this one
-			} else if (counts[col] < nRecs) {
+				continue;
+			}
+			// Missing data not allowed, for dense data NaN is considered as missing as well
+			if (colStats.getNumMissing() > 0 || (!sparse && colStats.getNumNaN() > 0))
+				throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
+
+			if (colStats.getNumValues() < nRec) {
 				// Some sparse (0) values
-				scaleFactors.put(col, new double[] {Math.min(0, minMax[0]), Math.max(0, minMax[1])});
+				scaleFactors.put(col, new double[] {Math.min(0, colStats.getMin()), Math.max(0, colStats.getMax())});
 			} else {
 				// only explicit data
-				scaleFactors.put(col, new double[] {minMax[0], minMax[1]});
+				scaleFactors.put(col, new double[] {colStats.getMin(), colStats.getMax()});
 			}
-
 		}
 
+		LOGGER.debug("Finished fitting transformer");
+		
+		return this;
 	}
 
-	private void fitSparseDataSubset(Collection<DataRecord> data) throws TransformationException {
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(data);
-		List<Integer> indices = getColumns().getColumns(maxFeatIndex);
-		int maxIndex = indices.get(indices.size()-1); // This list should always be sorted!Collections.max(indices);
-
-		scaleFactors = new HashMap<>();
-		Map<Integer,Integer> counts = new HashMap<>();
-
-		// Go through the data
-		for (DataRecord r : data) {
-			for (Feature f : r.getFeatures()) {
-				int index = f.getIndex();
-				if (index > maxIndex)
-					break;
-
-				if (indices.contains(index)) {
-					if (f instanceof MissingValueFeature)
-						throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
-					// Update count of this feature
-					counts.put(index, 1+counts.getOrDefault(index, 0));
-
-					if (!scaleFactors.containsKey(index)) {
-						scaleFactors.put(index, new double[]{f.getValue(), f.getValue()});
-					} else {
-						double[] minMax = scaleFactors.get(index);
-
-						// Min
-						if (f.getValue() < minMax[0])
-							minMax[0] = f.getValue();
-						// Max
-						else if (f.getValue() > minMax[1])
-							minMax[1] = f.getValue();
-					}
-				}
-			}
-		}
-
-		int nRec = data.size();
-		for (Map.Entry<Integer, Integer> colCount : counts.entrySet()) {
-			if (colCount.getValue() < nRec) {
-				double[] minMax = scaleFactors.get(colCount.getKey());
-				minMax[0] = Math.min(0, minMax[0]);
-				minMax[1] = Math.max(0, minMax[1]);
-			}
-		}
-
-	}
-
-
-	private void fitDenseData(Collection<DataRecord> data) throws TransformationException {
-		scaleFactors = new HashMap<>();
-		for (int col: getColumns().getColumns(DataUtils.getMaxFeatureIndex(data))) {
-			scaleFactors.put(col, fitOneFeature(data, col));
-		}
-	}
-
-	private double[] fitOneFeature(Collection<DataRecord> recs, int index){
-		List<Double> column = DataUtils.extractColumn(recs, index);
-
-		// Verify no null or NaN
-		if (CollectionUtils.containsNullOrNaN(column)) {
-			throw new TransformationException("Transformation using " + NAME+ " not possible on missing-data features");
-		}
-
-		return new double[]{ Collections.min(column),Collections.max(column)};
-	}
-
-
 	@Override
 	public SubSet fitAndTransform(SubSet data) throws TransformationException {
 		fit(data);
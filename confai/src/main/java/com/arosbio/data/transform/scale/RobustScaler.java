@@ -12,28 +12,32 @@ package com.arosbio.data.transform.scale;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Range;
+
 import com.arosbio.commons.CollectionUtils;
+import com.arosbio.commons.MathUtils;
+import com.arosbio.commons.QuantileSketch;
 import com.arosbio.commons.TypeUtils;
+import com.arosbio.commons.config.EnumConfig;
+import com.arosbio.commons.config.IntegerConfig;
 import com.arosbio.commons.config.NumericConfig;
 import com.arosbio.commons.mixins.Aliased;
 import com.arosbio.data.DataRecord;
-import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.data.FeatureVector;
-import com.arosbio.data.FeatureVector.Feature;
-import com.arosbio.data.MissingValueFeature;
 import com.arosbio.data.SparseVector;
 import com.arosbio.data.transform.ColumnSpec;
+import com.arosbio.data.transform.ColumnStatistics;
+import com.arosbio.data.transform.ColumnStatistics.ColumnAccumulator;
 import com.arosbio.data.transform.ColumnTransformer;
-import com.google.common.collect.Range;
 
 /**
  * The <code>Standardizer</code> applies Gaussian standard normalization to normalize/scale data
@@ -49,6 +53,8 @@ public class RobustScaler extends ColumnTransformer implements FeatureScaler, Al
 
 	private static final List<String> UPPER_QUANT_PARAM_NAMES = Arrays.asList("upperQuantile", "maxQuantile");
 	private static final List<String> LOWER_QUANT_PARAM_NAMES = Arrays.asList("lowerQuantile", "minQuantile");
+	private static final List<String> FIT_STRATEGY_PARAM_NAMES = Arrays.asList("fitStrategy");
+	private static final List<String> SKETCH_SIZE_PARAM_NAMES = Arrays.asList("sketchSize");
 	private static final Logger LOGGER = LoggerFactory.getLogger(RobustScaler.class);
 	private static final Range<Double> ALLOWED_LOWER_QUANTILE = Range.openClosed(0d, 50d);
 	private static final Range<Double> ALLOWED_UPPER_QUANTILE = Range.closedOpen(50d, 100d);
@@ -61,6 +67,18 @@ public class RobustScaler extends ColumnTransformer implements FeatureScaler, Al
 	private double lowerQuantile = 25;
 	private double upperQuantile = 75;
 	private boolean inPlace = true;
+	private FitStrategy fitStrategy = FitStrategy.EXACT;
+	private int sketchSize = QuantileSketch.DEFAULT_K;
+
+	/**
+	 * How the quantiles are computed when fitting the scaler
+	 */
+	public static enum FitStrategy {
+		/** Exact quantiles, keeping all values of the columns in memory */
+		EXACT, 
+		/** Approximate quantiles using a {@link QuantileSketch} per column, using bounded memory */
+		APPROXIMATE;
+	}
 
 	/*
 	 *  The scale factors (column -> {median, pUpper-pLower})
@@ -99,7 +117,8 @@ public class RobustScaler extends ColumnTransformer implements FeatureScaler, Al
 
 	public String getDescription() {
 		return "The robust scaler normalize features based on interquartile range (IQR). It behaves similarly to the standardizer but instead subtracts the median and scales the size based on percentiles/quantiles "
-				+ "(default is scaling to the 25 - 75 percentile range). By changing the lower and upper quantile the scaling becomes more or less sensitive to outliers. " + CONVERTING_SPARSE_TO_DENSE_WARNING_MSG; 
+				+ "(default is scaling to the 25 - 75 percentile range). By changing the lower and upper quantile the scaling becomes more or less sensitive to outliers. "
+				+ "For large datasets the quantiles can be approximated using bounded memory, by setting the fit strategy to " + FitStrategy.APPROXIMATE + ". " + CONVERTING_SPARSE_TO_DENSE_WARNING_MSG; 
 	}
 
 	public String toString() {
@@ -124,6 +143,40 @@ public class RobustScaler extends ColumnTransformer implements FeatureScaler, Al
 		return this;
 	}
 
+	/**
+	 * Set how the quantiles are computed. The {@link FitStrategy#APPROXIMATE} strategy uses bounded memory
+	 * per column, at the cost of a small rank error of the quantiles (see {@link QuantileSketch})
+	 * @param strategy the strategy
+	 * @return the same instance
+	 */
+	public RobustScaler setFitStrategy(FitStrategy strategy) {
+		if (strategy == null)
+			throw new IllegalArgumentException("Fit strategy cannot be null");
+		this.fitStrategy = strategy;
+		return this;
+	}
+
+	public FitStrategy getFitStrategy() {
+		return fitStrategy != null ? fitStrategy : FitStrategy.EXACT;
+	}
+
+	/**
+	 * Set the size of the sketches used by the {@link FitStrategy#APPROXIMATE} strategy
+	 * @param k the {@code k} parameter of the {@link QuantileSketch}
+	 * @return the same instance
+	 * @throws IllegalArgumentException If {@code k} is smaller than {@link QuantileSketch#MIN_K}
+	 */
+	public RobustScaler setSketchSize(int k) throws IllegalArgumentException {
+		if (k < QuantileSketch.MIN_K)
+			throw new IllegalArgumentException("Invalid " + SKETCH_SIZE_PARAM_NAMES.get(0) + " '" + k + "' - must be at least " + QuantileSketch.MIN_K);
+		this.sketchSize = k;
+		return this;
+	}
+
+	public int getSketchSize() {
+		return sketchSize;
+	}
+
 	public double getLowerQuantile() {
 		return lowerQuantile;
 	}
@@ -150,6 +203,8 @@ public class RobustScaler extends ColumnTransformer implements FeatureScaler, Al
 		clone.setColumns(getColumns().clone());
 		clone.lowerQuantile = lowerQuantile;
 		clone.upperQuantile = upperQuantile;
+		clone.fitStrategy = fitStrategy;
+		clone.sketchSize = sketchSize;
 		return clone;
 	}
 
@@ -174,130 +229,55 @@ public class RobustScaler extends ColumnTransformer implements FeatureScaler, Al
 
 		assertValidRange(lowerQuantile, upperQuantile);
 
-		if (data.iterator().next().getFeatures() instanceof SparseVector) {
-			fitSparseData(data);
-		} else {
-			fitNonSparseData(data);
-		}
-
-		LOGGER.debug("Finished fitting transformer");
-
-		return this;
-	}
-
-	@SuppressWarnings("unchecked")
-	private void fitSparseData(Collection<DataRecord> data) throws TransformationException {
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(data);
+		boolean sparse = data.iterator().next().getFeatures() instanceof SparseVector;
 
-		if (!getColumns().useAll()) {
-			LOGGER.debug("Fitting transformer using a subset of features");
-			fitSparseDataSubsetFeatures(data);
-			return;
-		}
-
-		int nRec = data.size();
-		List<Double>[] colLists = new List[maxFeatIndex+1];
-		// for (int i=0; i<nRec; i++) {
-		for (DataRecord r : data){
-			FeatureVector v = r.getFeatures();
-			for (Feature f : v) {
-				List<Double> col = colLists[f.getIndex()];
-				if (col == null) {
-					colLists[f.getIndex()] = new ArrayList<>();
-					col = colLists[f.getIndex()];
-				}
-				col.add(f.getValue());
-			}
-		}
+		boolean approximate = getFitStrategy() == FitStrategy.APPROXIMATE;
+		ColumnStatistics stats = approximate ? 
+			ColumnStatistics.computeWithSketches(data, getColumns(), sketchSize) : 
+			ColumnStatistics.compute(data, getColumns(), true);
+		int nRec = stats.getNumRecords();
 
-		// Get the values
 		scaleFactors = new HashMap<>();
-		for (int col : getColumns().getColumns(maxFeatIndex) ) {
-			List<Double> vals = colLists[col];
-			if (vals == null || vals.isEmpty()) {
-				scaleFactors.put(col, new double[] {0,1});
+		for (int col : stats.getColumns()) {
+			ColumnAccumulator colStats = stats.get(col);
+			if (colStats == null) {
+				if (getColumns().useAll())
+					scaleFactors.put(col, new double[] {0,1});
 				continue;
 			}
-			double[] colValues = new double[nRec];
-			fillArray(colValues, vals); 
-			scaleFactors.put(col, fitOneFeature(colValues));
-			colLists[col].clear(); // might be pre-optimization, but try to clear up some memory
-		}
-
-	}
-
-	private void fitSparseDataSubsetFeatures(Collection<DataRecord> data) throws TransformationException {
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(data);
-
-		List<Integer> indices = getColumns().getColumns(maxFeatIndex);
-		int maxIndex = indices.get(indices.size()-1); // This list should always be sorted! Collections.max(indices);
-
-		Map<Integer,List<Double>> featuresMap = new HashMap<>();
-		int nRec = data.size();
-
-		for (DataRecord r : data) {
-			for (Feature f : r.getFeatures()) {
-				int index = f.getIndex();
-				if (index > maxIndex)
-					break;
-
-				if (indices.contains(index)) {
-					if (f instanceof MissingValueFeature)
-						throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
-
-					if (!featuresMap.containsKey(index))
-						featuresMap.put(index, new ArrayList<>());
-
-					featuresMap.get(index).add(f.getValue());
-
-				}
+			// Missing data not allowed, for dense data NaN is considered as missing as well
+			if (colStats.getNumMissing() > 0 || (!sparse && colStats.getNumNaN() > 0))
+				throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
+
+			// The implicit 0s of sparse features
+			int numZeros = nRec - colStats.getNumExplicit();
+			if (approximate) {
+				QuantileSketch sketch = colStats.getSketch();
+				sketch.update(0, numZeros);
+				scaleFactors.put(col, fitOneFeature(sketch));
+			} else {
+				scaleFactors.put(col, fitOneFeature(colStats.getValues(), numZeros));
 			}
-
 		}
 
-		// Compute the values
-		scaleFactors = new HashMap<>();
-		for (int col : featuresMap.keySet()) {
-			double[] colValues = new double[nRec];
-			fillArray(colValues, featuresMap.get(col)); 
-			scaleFactors.put(col, fitOneFeature(colValues));
-		}
-
-	}
+		LOGGER.debug("Finished fitting transformer");
 
-	private static void fillArray(double[] arr, List<Double> listVals) {
-		for (int i=0; i<listVals.size(); i++) {
-			arr[i] = listVals.get(i);
-		}
+		return this;
 	}
 
-
-	private void fitNonSparseData(Collection<DataRecord> data) {
-		scaleFactors = new HashMap<>();
-		for (int col: getColumns().getColumns(DataUtils.getMaxFeatureIndex(data))) {
-			scaleFactors.put(col, fitOneFeature(data, col));
-		}
+	private double[] fitOneFeature(double[] vals, int numZeros) {
+		// Selection in-place, i.e. no copies of the values
+		double median = MathUtils.percentile(vals, numZeros, 50);
+		double low = MathUtils.percentile(vals, numZeros, lowerQuantile);
+		double high = MathUtils.percentile(vals, numZeros, upperQuantile);
+		return scaleFactors(median, low, high);
 	}
 
-	private double[] fitOneFeature(Collection<DataRecord> recs, int index){
-		List<Double> column = DataUtils.extractColumn(recs, index);
-
-		// Verify no null or NaN
-		if (CollectionUtils.containsNullOrNaN(column)) {
-			throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
-		}
-		return fitOneFeature(CollectionUtils.toArray(column));
-
+	private double[] fitOneFeature(QuantileSketch sketch) {
+		return scaleFactors(sketch.getMedian(), sketch.getQuantile(lowerQuantile/100), sketch.getQuantile(upperQuantile/100));
 	}
 
-	private double[] fitOneFeature(double[] vals) {
-		Percentile calc = new Percentile();
-		calc.setData(vals);
-
-		double median = calc.evaluate(50);
-		double low = calc.evaluate(lowerQuantile);
-		double high = calc.evaluate(upperQuantile);	
-
+	private static double[] scaleFactors(double median, double low, double high) {
 		// do nothing with 0 "variance" features, avoid division with 0
 		double scale = high-low;
 		if (scale < 1e-10) {
@@ -397,6 +377,13 @@ public class RobustScaler extends ColumnTransformer implements FeatureScaler, Al
 			.range(ALLOWED_UPPER_QUANTILE)
 			.description("The percentile to use as upper bound (i.e. compute a measure of variance based on)")
 			.build());
+		params.add(new EnumConfig.Builder<>(FIT_STRATEGY_PARAM_NAMES, EnumSet.allOf(FitStrategy.class), FitStrategy.EXACT)
+			.description("How the quantiles are computed, "+FitStrategy.APPROXIMATE+" uses a sketch of each feature with bounded memory instead of all values")
+			.build());
+		params.add(new IntegerConfig.Builder(SKETCH_SIZE_PARAM_NAMES, QuantileSketch.DEFAULT_K)
+			.range(Range.atLeast(QuantileSketch.MIN_K))
+			.description("Size of the sketches used by the "+FitStrategy.APPROXIMATE+" fit strategy, larger sketches give more accurate quantiles")
+			.build());
 		params.addAll(super.getConfigParameters());
 		return params;
 	}
@@ -406,9 +393,26 @@ public class RobustScaler extends ColumnTransformer implements FeatureScaler, Al
 		Map<String,Object> toPassOn = new HashMap<>();
 
 		Double min = null, max = null; 
+		FitStrategy strategy = null;
+		Integer sketch = null;
 		for (Map.Entry<String, Object> kv: params.entrySet()) {
 
-			if (CollectionUtils.containsIgnoreCase(LOWER_QUANT_PARAM_NAMES, kv.getKey())) {
+			if (CollectionUtils.containsIgnoreCase(FIT_STRATEGY_PARAM_NAMES, kv.getKey())) {
+				try {
+					if (kv.getValue() instanceof FitStrategy) {
+						strategy = (FitStrategy) kv.getValue();
+					} else {
+						strategy = FitStrategy.valueOf(kv.getValue().toString().toUpperCase());
+					}
+				} catch (Exception e) {
+					LOGGER.debug("Tried to set fit strategy in {} but got incorrect input {}",this,kv.getValue());
+					throw new IllegalArgumentException("Invalid config value for "+FIT_STRATEGY_PARAM_NAMES.get(0) + " for transformer " + NAME + ": " + kv.getValue());
+				}
+			} else if (CollectionUtils.containsIgnoreCase(SKETCH_SIZE_PARAM_NAMES, kv.getKey())) {
+				sketch = TypeUtils.asInt(kv.getValue());
+				if (sketch < QuantileSketch.MIN_K)
+					throw new IllegalArgumentException("Invalid " + SKETCH_SIZE_PARAM_NAMES.get(0) + " '" + sketch + "' - must be at least " + QuantileSketch.MIN_K);
+			} else if (CollectionUtils.containsIgnoreCase(LOWER_QUANT_PARAM_NAMES, kv.getKey())) {
 				min = TypeUtils.asDouble(kv.getValue());
 			} else if (CollectionUtils.containsIgnoreCase(UPPER_QUANT_PARAM_NAMES, kv.getKey())) {
 				max = TypeUtils.asDouble(kv.getValue());
@@ -427,6 +431,10 @@ public class RobustScaler extends ColumnTransformer implements FeatureScaler, Al
 			lowerQuantile = min;
 		if (max != null)
 			upperQuantile = max;
+		if (strategy != null)
+			fitStrategy = strategy;
+		if (sketch != null)
+			sketchSize = sketch;
 
 
 		LOGGER.debug("Updated config parameters, now using lowerQuantile: {}, and upperQuantile: {}",
@@ -11,23 +11,19 @@ package com.arosbio.data.transform.scale;
 
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.arosbio.commons.CollectionUtils;
 import com.arosbio.commons.mixins.Aliased;
 import com.arosbio.data.DataRecord;
-import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.data.FeatureVector;
-import com.arosbio.data.FeatureVector.Feature;
-import com.arosbio.data.MissingValueFeature;
 import com.arosbio.data.SparseVector;
 import com.arosbio.data.transform.ColumnSpec;
+import com.arosbio.data.transform.ColumnStatistics;
+import com.arosbio.data.transform.ColumnStatistics.ColumnAccumulator;
 import com.arosbio.data.transform.ColumnTransformer;
 
 /**
@@ -105,151 +101,38 @@ public class Standardizer extends ColumnTransformer implements FeatureScaler, Al
 	@Override
 	public Standardizer fit(Collection<DataRecord> data) throws TransformationException {
 		LOGGER.debug("Fitting transformer {}", this);
-		if (data.iterator().next().getFeatures() instanceof SparseVector) {
-			fitSparseData(data);
-		} else {
-			fitDenseData(data);
-		}
-		LOGGER.debug("Finished fitting transformer");
+		boolean sparse = data.iterator().next().getFeatures() instanceof SparseVector;
+
+		ColumnStatistics stats = ColumnStatistics.compute(data, getColumns(), false);
+		int nRec = stats.getNumRecords();
 
-		return this;
-	}
-	
-	private void fitSparseData(Collection<DataRecord> data) throws TransformationException {
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(data);
-		if (! getColumns().useAll()) {
-			LOGGER.debug("Fittning using a subset of feature indicies");
-			fitSparseDataOnlySomeFeats(data, maxFeatIndex);
-			return;
-		} 
-		
-		SummaryStatistics[] colMaxVector = new SummaryStatistics[maxFeatIndex+1];
-		
-		// Go through the data
-		for (DataRecord r : data) {
-			for (Feature f : r.getFeatures()) {
-				if (f instanceof MissingValueFeature)
-					throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
-				
-				if (colMaxVector[f.getIndex()] == null) {
-					colMaxVector[f.getIndex()] = new SummaryStatistics();
-				}
-				
-				colMaxVector[f.getIndex()].addValue(f.getValue());
-			}
-		}
-		
-		int nRec = data.size();
-		
-		scaleFactors = new HashMap<>();
-		for (int col: getColumns().getColumns(maxFeatIndex)) {
-			SummaryStatistics ss = colMaxVector[col];
-			if (ss == null) {
-				scaleFactors.put(col, new double[] {0,1});
-				continue;
-			}
-			
-			// Add 0s corresponding to the sparse features
-			int toAdd = nRec - (int) ss.getN();
-			for (int i=0; i<toAdd; i++) {
-				ss.addValue(0);
-			}
-			
-			double mean = ss.getMean();
-			double std = ss.getStandardDeviation();
-			// Cannot use standard deviation of 0, use same strategy as in Sklearn - use 1 instead (the result will be 0 anyways)
-			if (std == 0)
-				std = 1d;
-			
-			scaleFactors.put(col, new double[] {mean, std});
-		}
-		
-	}
-	
-	private void fitSparseDataOnlySomeFeats(Collection<DataRecord> data, int maxFeatIndex) throws TransformationException {
-		
-		List<Integer> indices = getColumns().getColumns(maxFeatIndex);
-		int maxIndex = indices.get(indices.size()-1); // This list should always be sorted! Collections.max(indices);
-		
-		
-		Map<Integer, SummaryStatistics> statsMap = new HashMap<>();
-		
-		// Go through the data
-		for (DataRecord r : data) {
-			for (Feature f : r.getFeatures()) {
-				int index = f.getIndex();
-				if (index > maxIndex)
-					break;
-				
-				if (indices.contains(index)) {
-					if (f instanceof MissingValueFeature)
-						throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
-					
-					// Init SS object for this feature
-					if (!statsMap.containsKey(index))
-						statsMap.put(index, new SummaryStatistics());
-					
-					// Update the stats
-					statsMap.get(index).addValue(f.getValue());
-					
-				}
-				
-			}
-		}
-		
-		int nRec = data.size();
-		
 		scaleFactors = new HashMap<>();
-		for (int col: getColumns().getColumns(maxFeatIndex)) {
-			SummaryStatistics ss = statsMap.get(col);
-			if (ss == null) {
+		for (int col : stats.getColumns()) {
+			ColumnAccumulator colStats = stats.get(col);
+			if (colStats == null) {
 				// If no statistics - no scaling
 				scaleFactors.put(col, new double[] {0,1});
 				continue;
 			}
-			
-			// Add 0s corresponding to the sparse features
-			int toAdd = nRec - (int) ss.getN();
-			for (int i=0; i<toAdd; i++) {
-				ss.addValue(0);
+			// Missing data not allowed, for dense data NaN is considered as missing as well
+			if (colStats.getNumMissing() > 0 || (!sparse && colStats.getNumNaN() > 0))
+				throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
+
+			double mean = Double.NaN, std = Double.NaN;
+			if (colStats.getNumNonFinite() == 0) {
+				// Include the 0s corresponding to the sparse features
+				mean = colStats.getFiniteMean(nRec);
+				std = Math.sqrt(colStats.getFiniteVariance(nRec));
 			}
-			
-			double mean = ss.getMean();
-			double std = ss.getStandardDeviation();
 			// Cannot use standard deviation of 0, use same strategy as in Sklearn - use 1 instead (the result will be 0 anyways)
 			if (std == 0)
 				std = 1d;
-			
+
 			scaleFactors.put(col, new double[] {mean, std});
 		}
-		
-	}
-	
-	private void fitDenseData(Collection<DataRecord> data) throws TransformationException {
-		scaleFactors = new HashMap<>();
-		for (int col: getColumns().getColumns(DataUtils.getMaxFeatureIndex(data))) {
-			scaleFactors.put(col, fitOneFeature(data, col));
-		}
-	}
-	
-	private double[] fitOneFeature(Collection<DataRecord> recs, int index){
-		List<Double> column = DataUtils.extractColumn(recs, index);
-		
-		// Verify no null or NaN
-		if (CollectionUtils.containsNullOrNaN(column)) {
-			throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
-		}
-		SummaryStatistics ss = new SummaryStatistics();
-		for (double v : column) {
-			ss.addValue(v);
-		}
-		double mean = ss.getMean();
-		double std = ss.getStandardDeviation();
-		// Cannot use standard deviation of 0, use same strategy as in Sklearn - use 1 instead (the result will be 0 anyways)
-		if (std == 0)
-			std = 1d;
-		
-		return new double[] {mean, std};
+		LOGGER.debug("Finished fitting transformer");
+
+		return this;
 	}
 	
 	private double transformOneFeature(double old, double mean, double std) {
@@ -12,7 +12,6 @@ package com.arosbio.data.transform.scale;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,18 +19,17 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.arosbio.commons.CollectionUtils;
 import com.arosbio.commons.TypeUtils;
 import com.arosbio.commons.config.NumericConfig;
 import com.arosbio.commons.mixins.Aliased;
 import com.arosbio.data.DataRecord;
-import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.data.FeatureVector;
 import com.arosbio.data.FeatureVector.Feature;
-import com.arosbio.data.MissingValueFeature;
 import com.arosbio.data.SparseVector;
 import com.arosbio.data.transform.ColumnSpec;
+import com.arosbio.data.transform.ColumnStatistics;
+import com.arosbio.data.transform.ColumnStatistics.ColumnAccumulator;
 import com.arosbio.data.transform.ColumnTransformer;
 
 /**
@@ -134,128 +132,37 @@ public class ZeroMaxScaler extends ColumnTransformer implements FeatureScaler, A
 	public ZeroMaxScaler fit(Collection<DataRecord> data) throws TransformationException {
 		LOGGER.debug("Fitting transformer {}", this);
 
-		if (data.iterator().next().getFeatures() instanceof SparseVector) {
-			fitSparseData(data);
-		} else {
-			fitDenseData(data);
-		}
-
-		LOGGER.debug("Finished fitting transformer");
+		boolean sparse = data.iterator().next().getFeatures() instanceof SparseVector;
 
-		return this;
-	}
+		ColumnStatistics stats = ColumnStatistics.compute(data, getColumns(), false);
 
-	private <C extends Collection<DataRecord>> void fitSparseData(C data) throws TransformationException {
-
-		if (! getColumns().useAll()) {
-			LOGGER.debug("Fitting using only a subset of features");
-			fitSparseDataSubset(data);
-			return;
-		} 
-		LOGGER.debug("Fitting using all features");
-
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(data);
-		double[] colMaxVector = new double[maxFeatIndex+1];
-
-		// Go through the data
-		for (DataRecord r : data) {
-			for (Feature f : r.getFeatures()) {
-				double val = f.getValue();
-				if (f instanceof MissingValueFeature)
+		scaleFactors = new HashMap<>();
+		for (int col : stats.getColumns()) {
+			ColumnAccumulator colStats = stats.get(col);
+			double colMax = 0;
+			if (colStats == null) {
+				// When using a subset of the features, only the ones found in the data are given a scale factor
+				if (! getColumns().useAll())
+					continue;
+			} else {
+				// Missing data not allowed, for dense data NaN is considered as missing as well
+				if (colStats.getNumMissing() > 0 || (!sparse && colStats.getNumNaN() > 0))
 					throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
-				else if (val < 0) {
+				if (colStats.getMin() < 0)
 					throw new TransformationException("Transformer " + NAME + " not allowed for features with values smaller than 0 - use the " + MinMaxScaler.NAME + " instead");
-				}
-				// Max
-				else if (val > colMaxVector[f.getIndex()])
-					colMaxVector[f.getIndex()] = val;
+				colMax = colStats.getMax();
 			}
-		}
 
-		scaleFactors = new HashMap<>();
-		for (int col: getColumns().getColumns(maxFeatIndex)) {
-			double factor = max / colMaxVector[col];
+			double factor = max / colMax;
 			// If the max value of features is 0 - then division by 0 -> cap this to make all 0 in output as well
 			if (Double.isInfinite(factor))
 				factor = 0;
 			scaleFactors.put(col, factor);
 		}
 
-	}
-
-	private void fitSparseDataSubset(Collection<DataRecord> data) throws TransformationException {
-		int maxFeatIndex = DataUtils.getMaxFeatureIndex(data);
-		
-		List<Integer> indices = getColumns().getColumns(maxFeatIndex);
-		int maxIndex = indices.get(indices.size()-1); // This list should always be sorted! Collections.max(indices);
-
-		// High-jacking the ScaleFactors to keep the maximum value, then compute the scale factors instead
-		scaleFactors = new HashMap<>();
-
-		// Go through the data
-		for (DataRecord r : data) {
-			for (Feature f : r.getFeatures()) {
-				int index = f.getIndex();
-				if (index > maxIndex)
-					break;
-
-				if (indices.contains(index)) {
-					double val = f.getValue();
-
-					if (f instanceof MissingValueFeature)
-						throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
-					else if (val < 0) {
-						throw new TransformationException("Transformer " + NAME + " not allowed for features with values smaller than 0 - use the " + MinMaxScaler.NAME + " instead");
-					}
-
-					if (! scaleFactors.containsKey(index)) {
-						scaleFactors.put(index, val);
-					} else {
-						scaleFactors.put(index, Math.max(val, scaleFactors.get(index)));
-					}
-				}
-			}
-		}
-
-		// Compute the scale factors using the maximum values
-		for (int col: scaleFactors.keySet()) {
-			double maxFeatVal = scaleFactors.getOrDefault(col, 0d);
-
-			double factor = max / maxFeatVal;
-			// If the max value of features is 0 - then division by 0 -> cap this to make all 0 in output as well
-			if (Double.isInfinite(factor))
-				factor = 0;
-			// Update the value
-			scaleFactors.put(col, factor);
-		}
-
-	}
-
-	private void fitDenseData(Collection<DataRecord> data) throws TransformationException {
-		scaleFactors = new HashMap<>();
-		for (int col: getColumns().getColumns(DataUtils.getMaxFeatureIndex(data))) {
-			scaleFactors.put(col, fitOneFeature(data, col));
-		}
-	}
-
-	private double fitOneFeature(Collection<DataRecord> recs, int index){
-		List<Double> column = DataUtils.extractColumn(recs, index);
-
-		// Verify no null or NaN
-		if (CollectionUtils.containsNullOrNaN(column)) {
-			throw new TransformationException("Transformation using " + NAME + " not possible on missing-data features");
-		}
-
-		if (Collections.min(column) < 0) {
-			throw new TransformationException("Transformation using " + NAME + " not possible when input has features with values less than 0");
-		}
-
-		double factor = max / Collections.max(column);
-		// If the max value of features is 0 - then division by 0 -> cap this to make all 0 in output as well
-		if (Double.isInfinite(factor))
-			factor = 0;
+		LOGGER.debug("Finished fitting transformer");
 
-		return factor;
+		return this;
 	}
 
 	@Override
@@ -13,10 +13,9 @@ import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.Writer;
+import java.math.BigDecimal;
 
-import com.arosbio.commons.StringUtils;
 import com.github.cliftonlabs.json_simple.JsonObject;
-import com.github.cliftonlabs.json_simple.Jsoner;
 
 public class IteratingJSONArrayWriter implements Closeable, Flushable {
 	
@@ -36,6 +35,17 @@ public class IteratingJSONArrayWriter implements Closeable, Flushable {
 	
 	
 	public void write(JsonObject item) throws IOException {
+		write(item.toJson());
+	}
+	
+	/**
+	 * Write an item that has already been serialised to (compact or pretty printed) JSON. The item is pretty printed
+	 * directly to the underlying writer, in the same format as {@link com.github.cliftonlabs.json_simple.Jsoner#prettyPrint(String) Jsoner.prettyPrint}
+	 * (indented one level), without parsing it into an intermediate object. Strings are written as they are given.
+	 * @param json a serialised JSON object
+	 * @throws IOException Any issue writing to the underlying writer
+	 */
+	public void write(String json) throws IOException {
 		if (numItemsWritten < 1) {
 			writer.write('['+NEW_LINE);
 		} else {
@@ -43,9 +53,88 @@ public class IteratingJSONArrayWriter implements Closeable, Flushable {
 			writer.write(','+NEW_LINE); 
 		}
 		
-		writer.write(StringUtils.indent(Jsoner.prettyPrint(item.toJson())));
+		writePretty(json);
 		numItemsWritten++;
 	}
+
+	private void writePretty(String json) throws IOException {
+		// One level for being an item of the array
+		int depth = 1;
+		writer.write('\t');
+		int i = 0, len = json.length();
+		while (i < len) {
+			char c = json.charAt(i);
+			switch (c) {
+			case '{':
+			case '[':
+				writer.write(c);
+				writeNewLine(++depth);
+				i++;
+				break;
+			case '}':
+			case ']':
+				writeNewLine(--depth);
+				writer.write(c);
+				i++;
+				break;
+			case ',':
+				writer.write(c);
+				writeNewLine(depth);
+				i++;
+				break;
+			case ':':
+				writer.write(": ");
+				i++;
+				break;
+			case '"':
+				int end = endOfString(json, i);
+				writer.write(json, i, end - i);
+				i = end;
+				break;
+			default:
+				if (Character.isWhitespace(c)) {
+					i++;
+					break;
+				}
+				// Number or literal (true, false, null)
+				int endOfToken = i;
+				while (endOfToken < len && "{}[],:\"".indexOf(json.charAt(endOfToken)) < 0 && !Character.isWhitespace(json.charAt(endOfToken)))
+					endOfToken++;
+				String token = json.substring(i, endOfToken);
+				if (c == '-' || Character.isDigit(c)) {
+					// Numbers are printed in the same way as by Jsoner
+					writer.write(new BigDecimal(token).toString());
+				} else {
+					writer.write(token);
+				}
+				i = endOfToken;
+			}
+		}
+	}
+
+	private void writeNewLine(int depth) throws IOException {
+		writer.write(NEW_LINE);
+		for (int i=0; i<depth; i++)
+			writer.write('\t');
+	}
+
+	/**
+	 * Find the end of a string starting at {@code start}
+	 * @return the index after the closing quote
+	 */
+	private static int endOfString(String json, int start) {
+		int i = start + 1;
+		while (i < json.length()) {
+			char c = json.charAt(i);
+			if (c == '\\')
+				i += 2;
+			else if (c == '"')
+				return i + 1;
+			else
+				i++;
+		}
+		return json.length();
+	}
 	
 	public int getNumItemsWritten() {
 		return numItemsWritten;
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.io;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses block-gzip (BGZF) streams using several threads. BGZF is a sequence of gzip members
+ * where each member stores its compressed size in the header (produced by e.g. {@code bgzip}), so that
+ * the members can be located without decompressing them. The compressed blocks are read in the calling
+ * thread and inflated by the worker threads, at most {@code 2*numThreads} blocks ahead. The bytes are
+ * returned in the order of the input.
+ * <p>
+ * The stream should only be consumed by a single thread.
+ *
+ * @author Aros Bio AB
+ * @see StreamUtils#isBGZFCompressed(BufferedInputStream)
+ */
+public class ParallelBGZFInputStream extends InputStream {
+
+	/** The length of the fixed part of the gzip header, before the extra field */
+	private static final int HEADER_LENGTH = 12;
+	private static final int FLAG_EXTRA = 4;
+	private static final int BLOCKS_PER_THREAD = 2;
+
+	private final InputStream source;
+	private final int maxPending;
+	private final ExecutorService executor;
+	private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+	private final byte[] header = new byte[HEADER_LENGTH];
+
+	private byte[] current = new byte[0];
+	private int pos = 0;
+	private boolean endOfSource = false, closed = false;
+
+	/**
+	 *
+	 * @param source a (buffered) BGZF stream
+	 * @param numThreads the number of decompression threads
+	 */
+	public ParallelBGZFInputStream(InputStream source, int numThreads) {
+		if (numThreads < 1)
+			throw new IllegalArgumentException("Number of threads must be >= 1");
+		this.source = source;
+		this.maxPending = numThreads * BLOCKS_PER_THREAD;
+		this.executor = Executors.newFixedThreadPool(numThreads, r -> {
+			Thread t = new Thread(r, "bgzf-inflater");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (! ensureAvailable())
+			return -1;
+		return current[pos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (! ensureAvailable())
+			return -1;
+		int n = Math.min(len, current.length - pos);
+		System.arraycopy(current, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return current.length - pos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		executor.shutdownNow();
+		pending.clear();
+		source.close();
+	}
+
+	private boolean ensureAvailable() throws IOException {
+		if (closed)
+			throw new IOException("Stream closed");
+		while (pos >= current.length) {
+			submitBlocks();
+			if (pending.isEmpty()) {
+				executor.shutdown();
+				return false;
+			}
+			try {
+				current = pending.poll().get();
+				pos = 0;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while decompressing");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException)
+					throw (IOException) cause;
+				throw new IOException(cause.getMessage(), cause);
+			}
+		}
+		return true;
+	}
+
+	private void submitBlocks() throws IOException {
+		while (pending.size() < maxPending && ! endOfSource) {
+			byte[] block = readBlock();
+			if (block == null) {
+				endOfSource = true;
+				break;
+			}
+			pending.add(executor.submit(() -> inflate(block)));
+		}
+	}
+
+	/**
+	 * Read the compressed data of the next block, including the trailing CRC32 and ISIZE
+	 * @return the block, or {@code null} if there are no more blocks
+	 */
+	private byte[] readBlock() throws IOException {
+		int n = org.apache.commons.io.IOUtils.read(source, header);
+		if (n == 0)
+			return null;
+		if (n < HEADER_LENGTH)
+			throw new EOFException("Unexpected end of BGZF stream");
+		if ((header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b || header[2] != 8)
+			throw new ZipException("Not in BGZF format");
+		if ((header[3] & 0xff) != FLAG_EXTRA)
+			throw new ZipException("Not in BGZF format, unsupported gzip header flags");
+		int xlen = le16(header, 10);
+		byte[] extra = readFully(xlen);
+		int bsize = -1;
+		for (int i=0; i + 4 <= xlen; ) {
+			int slen = le16(extra, i + 2);
+			if (extra[i] == 'B' && extra[i+1] == 'C' && slen == 2 && i + 6 <= xlen) {
+				bsize = le16(extra, i + 4);
+				break;
+			}
+			i += 4 + slen;
+		}
+		if (bsize < 0)
+			throw new ZipException("Not in BGZF format, missing block size");
+		int remaining = bsize + 1 - HEADER_LENGTH - xlen;
+		if (remaining < 8)
+			throw new ZipException("Invalid BGZF block size");
+		return readFully(remaining);
+	}
+
+	private byte[] readFully(int len) throws IOException {
+		byte[] bytes = new byte[len];
+		if (org.apache.commons.io.IOUtils.read(source, bytes) != len)
+			throw new EOFException("Unexpected end of BGZF stream");
+		return bytes;
+	}
+
+	private static byte[] inflate(byte[] block) throws IOException {
+		int dataLen = block.length - 8;
+		long expectedCrc = le32(block, dataLen);
+		int size = (int) le32(block, dataLen + 4);
+		byte[] out = new byte[size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(block, 0, dataLen);
+			int n = 0;
+			while (n < size && ! inflater.finished()) {
+				int k = inflater.inflate(out, n, size - n);
+				if (k == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				n += k;
+			}
+			if (n != size)
+				throw new ZipException("Corrupt BGZF block, invalid uncompressed size");
+		} catch (DataFormatException e) {
+			throw new ZipException("Corrupt BGZF block: " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+		CRC32 crc = new CRC32();
+		crc.update(out);
+		if (crc.getValue() != expectedCrc)
+			throw new ZipException("Corrupt BGZF block, invalid CRC");
+		return out;
+	}
+
+	private static int le16(byte[] b, int off) {
+		return (b[off] & 0xff) | ((b[off+1] & 0xff) << 8);
+	}
+
+	private static long le32(byte[] b, int off) {
+		return ((long) le16(b, off)) | (((long) le16(b, off + 2)) << 16);
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a stream on a separate thread into a bounded number of buffers, so that e.g. decompression of the
+ * stream overlaps with the processing of the read bytes in the consuming thread. When all buffers are filled
+ * the reading thread waits for the consumer (back-pressure). Failures in the reading thread are thrown
+ * from the next call to {@code read} once the bytes read before the failure have been consumed.
+ * <p>
+ * The stream should only be consumed by a single thread.
+ *
+ * @author Aros Bio AB
+ *
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReadAheadInputStream.class);
+
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+	public static final int DEFAULT_NUM_BUFFERS = 4;
+
+	private static final Chunk END = new Chunk(new byte[0], 0, null);
+
+	private static class Chunk {
+		private final byte[] bytes;
+		private final int length;
+		private final IOException error;
+
+		private Chunk(byte[] bytes, int length, IOException error) {
+			this.bytes = bytes;
+			this.length = length;
+			this.error = error;
+		}
+	}
+
+	private final InputStream source;
+	private final BlockingQueue<Chunk> queue;
+	private final Thread reader;
+	private volatile boolean closed = false;
+
+	private Chunk current = null;
+	private int pos = 0;
+	private boolean endReached = false;
+
+	public ReadAheadInputStream(InputStream source) {
+		this(source, DEFAULT_BUFFER_SIZE, DEFAULT_NUM_BUFFERS);
+	}
+
+	/**
+	 *
+	 * @param source the stream to read from
+	 * @param bufferSize the size of each buffer
+	 * @param numBuffers the maximum number of filled buffers that are read ahead
+	 */
+	public ReadAheadInputStream(InputStream source, int bufferSize, int numBuffers) {
+		if (bufferSize < 1 || numBuffers < 1)
+			throw new IllegalArgumentException("Buffer size and number of buffers must be >= 1");
+		this.source = source;
+		this.queue = new ArrayBlockingQueue<>(numBuffers);
+		this.reader = new Thread(() -> fill(bufferSize), "read-ahead");
+		this.reader.setDaemon(true);
+		this.reader.start();
+	}
+
+	private void fill(int bufferSize) {
+		try {
+			while (! closed) {
+				byte[] buffer = new byte[bufferSize];
+				int n = org.apache.commons.io.IOUtils.read(source, buffer);
+				if (n > 0)
+					queue.put(new Chunk(buffer, n, null));
+				if (n < bufferSize)
+					break;
+			}
+			queue.put(END);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.debug("Failed reading ahead from stream", e);
+			try {
+				queue.put(new Chunk(null, 0, e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e)));
+			} catch (InterruptedException ie) {
+				// Closed
+			}
+		} catch (InterruptedException e) {
+			// Closed by the consumer
+		}
+	}
+
+	/**
+	 * Get the next chunk with available bytes
+	 * @return {@code false} if the end of the stream is reached
+	 */
+	private boolean ensureAvailable() throws IOException {
+		if (closed)
+			throw new IOException("Stream closed");
+		while (current == null || pos >= current.length) {
+			if (endReached)
+				return false;
+			try {
+				current = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading");
+			}
+			pos = 0;
+			if (current.error != null) {
+				endReached = true;
+				IOException e = current.error;
+				current = null;
+				throw new IOException(e.getMessage(), e);
+			}
+			if (current == END) {
+				endReached = true;
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (! ensureAvailable())
+			return -1;
+		return current.bytes[pos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (! ensureAvailable())
+			return -1;
+		int n = Math.min(len, current.length - pos);
+		System.arraycopy(current.bytes, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		if (closed || current == null)
+			return 0;
+		return current.length - pos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		reader.interrupt();
+		queue.clear();
+		current = null;
+		source.close();
+	}
+
+}
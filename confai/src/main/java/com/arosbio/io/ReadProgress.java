@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Keeps track of the number of bytes that has been read from a resource, so that progress can be
+ * reported while reading a resource a single time (instead of first counting the number of records).
+ * The bytes are counted on the raw stream, i.e. before decompression, so that they can be compared
+ * to the size of the resource (the file size or the {@code Content-Length} of a remote resource).
+ * Note that the count includes bytes that are buffered but not yet consumed by the reader.
+ * <p>
+ * The progress can be queried from any thread.
+ *
+ * @author Aros Bio AB
+ * @see UriUtils#getInputStream(java.net.URI, ReadProgress)
+ */
+public class ReadProgress {
+
+	private volatile long totalBytes = -1;
+	private volatile long bytesRead = 0;
+
+	/**
+	 * Get the total size of the resource in bytes
+	 * @return the total number of bytes, or {@code -1} if not known
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * Set the total size of the resource in bytes
+	 * @param totalBytes the total number of bytes, or a negative value if not known
+	 */
+	public void setTotalBytes(long totalBytes) {
+		this.totalBytes = totalBytes < 0 ? -1 : totalBytes;
+	}
+
+	public boolean isTotalKnown() {
+		return totalBytes >= 0;
+	}
+
+	/**
+	 * Get the number of bytes that has been read
+	 * @return number of read bytes
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Get the fraction of the resource that has been read, in the range [0,1]
+	 * @return the fraction read, or {@code NaN} if the total size is not known
+	 */
+	public double getFractionRead() {
+		long total = totalBytes;
+		if (total < 0)
+			return Double.NaN;
+		if (total == 0)
+			return 1;
+		return Math.min(1d, ((double)bytesRead) / total);
+	}
+
+	/**
+	 * Wrap a stream so that all bytes read from it are counted by this instance
+	 * @param raw the stream to count
+	 * @return a stream that updates this instance when read from
+	 */
+	public InputStream wrap(InputStream raw) {
+		return new CountingStream(raw);
+	}
+
+	public String toString() {
+		return isTotalKnown() ? String.format("Read %d/%d bytes", bytesRead, totalBytes) : String.format("Read %d bytes", bytesRead);
+	}
+
+	private class CountingStream extends FilterInputStream {
+
+		private long mark = -1;
+
+		private CountingStream(InputStream in) {
+			super(in);
+		}
+
+		private void count(long n) {
+			// Only a single reader thread updates the count
+			if (n > 0)
+				bytesRead += n;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0)
+				count(1);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			count(n);
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count(skipped);
+			return skipped;
+		}
+
+		@Override
+		public synchronized void mark(int readlimit) {
+			super.mark(readlimit);
+			mark = bytesRead;
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			super.reset();
+			if (mark >= 0)
+				bytesRead = mark;
+		}
+	}
+
+}
@@ -16,10 +16,13 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.zip.GZIPInputStream;
 
 public class StreamUtils {
 
+	private static final int GZIP_BUFFER_SIZE = 1 << 14;
+
 	/**
 	 * Check if a stream is GZipped or not. This requires that the user sends a BufferedInputStream because
 	 * we need to peak on the first few bytes, and these will be lost in case we create a new BufferedInputStream
@@ -41,6 +44,44 @@ public class StreamUtils {
 		return magic == GZIPInputStream.GZIP_MAGIC;
 	}
 
+	/**
+	 * Check if a stream is block-gzip (BGZF) compressed, i.e. gzip where the first member has the
+	 * {@code BC} extra field holding the compressed size of the block
+	 * @param stream a buffered stream
+	 * @return {@code true} if the stream is BGZF compressed, {@code false} otherwise
+	 * @throws IOException Any issues reading/resetting the {@code stream}
+	 */
+	public static boolean isBGZFCompressed(BufferedInputStream stream) throws IOException {
+		byte[] header = peek(stream, 16);
+		return header.length == 16 && 
+				(header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b && 
+				(header[3] & 4) != 0 && // has extra field
+				header[12] == 'B' && header[13] == 'C';
+	}
+
+	/**
+	 * Check if a stream is compressed using Zstandard
+	 * @param stream a buffered stream
+	 * @return {@code true} if the stream is zstd compressed, {@code false} otherwise
+	 * @throws IOException Any issues reading/resetting the {@code stream}
+	 */
+	public static boolean isZstdCompressed(BufferedInputStream stream) throws IOException {
+		byte[] magic = peek(stream, 4);
+		return magic.length == 4 && 
+				(magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5 && (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd;
+	}
+
+	private static byte[] peek(BufferedInputStream stream, int len) throws IOException {
+		stream.mark(len);
+		try {
+			byte[] bytes = new byte[len];
+			int n = org.apache.commons.io.IOUtils.read(stream, bytes);
+			return n == len ? bytes : Arrays.copyOf(bytes, n);
+		} finally {
+			stream.reset();
+		}
+	}
+
 	/**
 	 * Takes a InputStream, checks if it's GZIP'ed, if it is: unZip it, otherwise just 
 	 * return the InputStream as it is (untouched) 
@@ -49,18 +90,31 @@ public class StreamUtils {
 	 * @throws IOException Any issues reading/resetting the {@code stream}
 	 */
 	public static InputStream unZIP(InputStream stream) throws IOException {
-		if (stream instanceof BufferedInputStream) {
-			if (isGZIPCompressed((BufferedInputStream)stream))
-				return new GZIPInputStream(stream);
-			else
-				return stream;
-		} else {
-			BufferedInputStream buffStream = new BufferedInputStream(stream);
-			if (isGZIPCompressed(buffStream))
-				return new GZIPInputStream(buffStream);
-			else
-				return buffStream;
-		}
+		return unZIP(stream, 1);
+	}
+
+	/**
+	 * Takes a InputStream, checks if it's GZIP'ed, if it is: unZip it, otherwise just 
+	 * return the InputStream as it is (untouched). When {@code numThreads > 1} the decompression 
+	 * is performed in separate threads; block-gzip (BGZF) input is decompressed by {@code numThreads} threads
+	 * (see {@link ParallelBGZFInputStream}) and other gzip input (including multi-member gzip) is decompressed 
+	 * in a single thread that reads ahead of the consumer (see {@link ReadAheadInputStream}).
+	 * @param stream a stream that may be compressed
+	 * @param numThreads the maximum number of threads to use for decompression
+	 * @return A normal InputStream without compression
+	 * @throws IOException Any issues reading/resetting the {@code stream}, or if the stream is compressed in an unsupported format
+	 */
+	public static InputStream unZIP(InputStream stream, int numThreads) throws IOException {
+		BufferedInputStream buffStream = stream instanceof BufferedInputStream ? (BufferedInputStream) stream : new BufferedInputStream(stream);
+		if (isZstdCompressed(buffStream))
+			throw new IOException("Input is compressed using zstd, which is not supported - please decompress it or use gzip");
+		if (! isGZIPCompressed(buffStream))
+			return buffStream;
+		if (numThreads <= 1)
+			return new GZIPInputStream(buffStream);
+		if (isBGZFCompressed(buffStream))
+			return new ParallelBGZFInputStream(buffStream, numThreads);
+		return new ReadAheadInputStream(new GZIPInputStream(buffStream, GZIP_BUFFER_SIZE));
 	}
 	
 	public static BufferedOutputStream getBufferedOutputStream(File file) throws FileNotFoundException{
@@ -15,6 +15,7 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URLConnection;
 import java.net.URLDecoder;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
@@ -34,6 +35,8 @@ import org.apache.commons.io.input.BOMInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.arosbio.commons.GlobalConfig;
+
 public class UriUtils {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(UriUtils.class);
@@ -196,16 +199,41 @@ public class UriUtils {
 	}
 
 	/**
-	 * Note that this returns a non-buffered InputStream. Buffering of the stream is up to the caller
+	 * Note that this returns a non-buffered InputStream. Buffering of the stream is up to the caller. Compressed
+	 * resources are decompressed in separate threads when {@link GlobalConfig#getNumThreads()} is larger than 1
+	 * (see {@link StreamUtils#unZIP(InputStream, int)}), so the stream should be closed when done.
 	 * @param uri the resource to read from
 	 * @return a stream to read from 
 	 * @throws IOException any issues reading from {@code uri} parameter
 	 */
 	public static InputStream getInputStream(URI uri) throws IOException {
+		int numThreads = GlobalConfig.getInstance().getNumThreads();
 		if (hasBOM(uri)){
-			return StreamUtils.unZIP(new BOMInputStream(uri.toURL().openStream()));
+			return StreamUtils.unZIP(new BOMInputStream(uri.toURL().openStream()), numThreads);
 		} 
-		return StreamUtils.unZIP(uri.toURL().openStream());
+		return StreamUtils.unZIP(uri.toURL().openStream(), numThreads);
+	}
+
+	/**
+	 * Get a stream of the resource, while counting the number of (raw) bytes that are read in {@code progress}.
+	 * The total size of the resource is set in {@code progress} when it is known, i.e. the file size of local
+	 * files or the {@code Content-Length} of remote resources. Note that this returns a non-buffered InputStream.
+	 * @param uri the resource to read from
+	 * @param progress the progress to update, or {@code null}
+	 * @return a stream to read from
+	 * @throws IOException any issues reading from {@code uri} parameter
+	 */
+	public static InputStream getInputStream(URI uri, ReadProgress progress) throws IOException {
+		if (progress == null)
+			return getInputStream(uri);
+		URLConnection conn = uri.toURL().openConnection();
+		progress.setTotalBytes(conn.getContentLengthLong());
+		InputStream raw = progress.wrap(conn.getInputStream());
+		int numThreads = GlobalConfig.getInstance().getNumThreads();
+		if (hasBOM(uri)){
+			return StreamUtils.unZIP(new BOMInputStream(raw), numThreads);
+		}
+		return StreamUtils.unZIP(raw, numThreads);
 	}
 
 	public static boolean canReadFromURI(URI uri) {
@@ -17,6 +17,8 @@ public abstract class PredictorBase implements Predictor {
 
 	protected ModelInfo info;
 	protected long seed = GlobalConfig.getInstance().getRNGSeed();
+	/** Only used by predictors that are {@link com.arosbio.commons.mixins.Freezable Freezable} */
+	protected volatile boolean frozen = false;
 	
 	@Override
 	public ModelInfo getModelInfo() {
@@ -25,6 +27,7 @@ public abstract class PredictorBase implements Predictor {
 
 	@Override
 	public void setModelInfo(ModelInfo info) {
+		assertNotFrozen();
 		this.info = info;
 	}
 
@@ -35,8 +38,18 @@ public abstract class PredictorBase implements Predictor {
 
 	@Override
 	public void setSeed(long seed) {
+		assertNotFrozen();
 		this.seed = seed;
 	}
+
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	protected void assertNotFrozen() throws IllegalStateException {
+		if (frozen)
+			throw new IllegalStateException("Predictor is frozen and cannot be altered");
+	}
 	
 	// Overrides the method in Predictor-interface as otherwise this class has the default Object.clone method which does not 
 	// match the one in the Predictor-interface and cause compilation-problems 
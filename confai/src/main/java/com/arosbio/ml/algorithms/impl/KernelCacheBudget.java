@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.algorithms.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Singleton class that manages a global memory budget for the kernel caches of LIBSVM. Each LIBSVM
+ * model has its own cache size (see {@link LibSvm#CACHE_SIZE_CONFIG}), which is requested from the budget
+ * when training starts and returned when training is finished. When the budget is
+ * enabled (i.e. a total is set), the cache sizes of concurrent trainings are adjusted so that their sum
+ * stays within the total. Each training is granted at most its fair share, i.e. the total divided by the
+ * larger of the number of running trainings and the {@link #setExpectedConcurrency(int) expected concurrency}.
+ * <p>
+ * The budget is a soft limit, a training is never granted less than {@link #MIN_CACHE_SIZE_MB} so that
+ * trainings never have to wait for each other. The budget is disabled by default, i.e. every
+ * training uses the cache size specified in its parameters.
+ *
+ * @author Aros Bio AB
+ *
+ */
+public class KernelCacheBudget {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(KernelCacheBudget.class);
+
+	/**
+	 * The smallest cache size (in MB) that will be granted
+	 */
+	public static final double MIN_CACHE_SIZE_MB = 10;
+
+	private static KernelCacheBudget instance;
+
+	private double totalMB = -1;
+	private int expectedConcurrency = 1;
+	private double allocatedMB = 0;
+	private double peakAllocatedMB = 0;
+	private int numActive = 0;
+
+	private KernelCacheBudget() {}
+
+	public static synchronized KernelCacheBudget getInstance() {
+		if (instance == null)
+			instance = new KernelCacheBudget();
+		return instance;
+	}
+
+	/**
+	 * Set the total memory budget (in MB) for all kernel caches, a value {@code <=0} disables the budget
+	 * @param totalMB the total budget in MB
+	 */
+	public synchronized void setTotalMemoryMB(double totalMB) {
+		this.totalMB = totalMB;
+		this.peakAllocatedMB = allocatedMB;
+	}
+
+	public synchronized double getTotalMemoryMB() {
+		return totalMB;
+	}
+
+	public synchronized boolean isEnabled() {
+		return totalMB > 0;
+	}
+
+	/**
+	 * Set the number of trainings that are expected to run concurrently, so that the first
+	 * trainings do not claim the full budget
+	 * @param numConcurrent the expected number of concurrent trainings
+	 */
+	public synchronized void setExpectedConcurrency(int numConcurrent) {
+		this.expectedConcurrency = Math.max(1, numConcurrent);
+	}
+
+	public synchronized int getExpectedConcurrency() {
+		return expectedConcurrency;
+	}
+
+	/**
+	 * Get the number of trainings that currently hold a part of the budget
+	 * @return the number of active trainings
+	 */
+	public synchronized int getNumActive() {
+		return numActive;
+	}
+
+	/**
+	 * Get the memory (in MB) that is currently granted to running trainings
+	 * @return the allocated memory in MB
+	 */
+	public synchronized double getAllocatedMB() {
+		return allocatedMB;
+	}
+
+	/**
+	 * Get the largest memory (in MB) that has been granted at the same time, since the total was last set
+	 * @return the peak allocated memory in MB
+	 */
+	public synchronized double getPeakAllocatedMB() {
+		return peakAllocatedMB;
+	}
+
+	/**
+	 * Request memory for a kernel cache, the returned size must be given back using {@link #release(double)} once
+	 * the training is finished
+	 * @param requestedMB the requested size in MB
+	 * @return the granted cache size in MB
+	 */
+	public synchronized double acquire(double requestedMB) {
+		double granted = requestedMB;
+		if (isEnabled()) {
+			double fairShare = totalMB / Math.max(numActive + 1, expectedConcurrency);
+			double available = totalMB - allocatedMB;
+			granted = Math.max(MIN_CACHE_SIZE_MB, Math.min(requestedMB, Math.min(fairShare, available)));
+			if (granted < requestedMB)
+				LOGGER.debug("Reduced kernel cache from {} MB to {} MB due to memory budget (allocated {}/{} MB, {} active trainings)",
+					requestedMB, granted, allocatedMB, totalMB, numActive);
+		}
+		allocatedMB += granted;
+		peakAllocatedMB = Math.max(peakAllocatedMB, allocatedMB);
+		numActive++;
+		return granted;
+	}
+
+	/**
+	 * Return memory granted by {@link #acquire(double)}
+	 * @param grantedMB the size that was granted
+	 */
+	public synchronized void release(double grantedMB) {
+		allocatedMB = Math.max(0, allocatedMB - grantedMB);
+		numActive = Math.max(0, numActive - 1);
+	}
+
+	public String toString() {
+		return String.format("KernelCacheBudget total=%s MB, allocated=%s MB, active=%d",
+			(isEnabled()? totalMB : "unlimited"), getAllocatedMB(), getNumActive());
+	}
+
+}
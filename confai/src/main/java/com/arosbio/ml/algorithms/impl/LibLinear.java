@@ -20,8 +20,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +62,16 @@ public class LibLinear {
 	//	// TUNABLE PARAMETERS
 	public static final List<String> SOLVER_TYPE_PARAM_NAMES = Arrays.asList("solverType", "solver");
 	public static final List<String> MAX_ITERATIONS_PARAM_NAMES = Arrays.asList("maxIterations");
+	/** Not a tunable hyper-parameter, a training mode that is toggled e.g. by the {@link com.arosbio.ml.gridsearch.GridSearch GridSearch} */
+	public static final List<String> WARM_START_PARAM_NAMES = Arrays.asList("warmStart");
+
+	/**
+	 * The solvers in LIBLINEAR that accept an initial solution, all other solvers are trained from scratch
+	 */
+	public static final EnumSet<SolverType> WARM_START_SOLVERS = EnumSet.of(
+			SolverType.L2R_LR, 
+			SolverType.L2R_L2LOSS_SVC, 
+			SolverType.L2R_L2LOSS_SVR);
 
 	// Remove logging
 	static {
@@ -144,6 +157,136 @@ public class LibLinear {
 	}
 
 
+	/**
+	 * The LIBLINEAR based algorithms that can be warm-started, either by {@link #setWarmStart(boolean)} or 
+	 * by the {@link LibLinear#WARM_START_PARAM_NAMES warm start} parameter
+	 */
+	public interface WarmStartable {
+
+		public boolean isWarmStart();
+
+		/**
+		 * Enable or disable warm-starting of the solver, from the solution of a previously solved identical problem. 
+		 * The cache of solutions is shared with all clones of this instance. Only applicable for the solvers 
+		 * listed in {@link LibLinear#WARM_START_SOLVERS}, the solution is only affected within the tolerance of the
+		 * termination criterion
+		 * @param warmStart {@code true} if warm-start should be used
+		 */
+		public void setWarmStart(boolean warmStart);
+	}
+
+	/**
+	 * Get the cache that should be used after enabling or disabling warm-start, see {@link WarmStartable#setWarmStart(boolean)}
+	 * @param current the current cache, or {@code null}
+	 * @param warmStart if warm-start should be enabled
+	 * @return a cache (the current or a new one) if warm-start was enabled, or {@code null} if warm-start 
+	 * 	was disabled (the current cache is then cleared)
+	 */
+	public static WarmStartCache toggleWarmStart(WarmStartCache current, boolean warmStart) {
+		if (!warmStart) {
+			// Clear it as it might still be referenced by trained clones
+			if (current != null)
+				current.clear();
+			return null;
+		}
+		return current != null ? current : new WarmStartCache();
+	}
+
+	/**
+	 * Checks if the parameters contains the {@link #WARM_START_PARAM_NAMES warm start} parameter,
+	 * and in that case returns the updated cache that should be used.
+	 * @param current the current cache, or {@code null}
+	 * @param params parameters
+	 * @return the current cache if the parameter was not given, otherwise the cache given by {@link #toggleWarmStart(WarmStartCache, boolean)}
+	 * @throws IllegalArgumentException If the parameter value could not be interpreted as a boolean
+	 */
+	public static WarmStartCache updateWarmStartCache(WarmStartCache current, Map<String,Object> params) 
+			throws IllegalArgumentException {
+		for (Map.Entry<String, ? extends Object> p : params.entrySet()) {
+			if (CollectionUtils.containsIgnoreCase(WARM_START_PARAM_NAMES, p.getKey())) {
+				boolean enable = false;
+				try {
+					enable = TypeUtils.asBoolean(p.getValue());
+				} catch (Exception e){
+					throw new IllegalArgumentException("Invalid argument for parameter '" + p.getKey() + "': " + p.getValue());
+				}
+				return toggleWarmStart(current, enable);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * A cache of LIBLINEAR solutions (the weight vectors) of previously solved problems, used for
+	 * warm-starting the solver when the same problem is solved again with different parameters - e.g. 
+	 * for consecutive cost values along a regularization path. The problems are identified by a 
+	 * fingerprint of the training data, so training of e.g. the different ICPs and folds of a grid search 
+	 * will use the solution of the matching problem. Instances are thread-safe and intended to be 
+	 * shared between clones of the same algorithm. The number of stored solutions is bounded, 
+	 * the least recently used solutions are evicted first.
+	 */
+	public static class WarmStartCache {
+
+		public static final int DEFAULT_MAX_NUM_SOLUTIONS = 256;
+
+		private final Map<Long,double[]> solutions;
+
+		public WarmStartCache(){
+			this(DEFAULT_MAX_NUM_SOLUTIONS);
+		}
+
+		public WarmStartCache(final int maxNumSolutions){
+			if (maxNumSolutions < 1)
+				throw new IllegalArgumentException("Max number of solutions must be at least 1");
+			this.solutions = new LinkedHashMap<Long,double[]>(16, .75f, true){
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long,double[]> eldest){
+					return size() > maxNumSolutions;
+				}
+			};
+		}
+
+		public synchronized double[] get(long problemFingerprint){
+			return solutions.get(problemFingerprint);
+		}
+
+		public synchronized void put(long problemFingerprint, double[] solution){
+			solutions.put(problemFingerprint, solution);
+		}
+
+		public synchronized int size(){
+			return solutions.size();
+		}
+
+		public synchronized void clear(){
+			solutions.clear();
+		}
+
+		public String toString(){
+			return String.format("LibLinear warm-start cache with %d solutions", size());
+		}
+	}
+
+	/**
+	 * Computes a 64-bit fingerprint of a problem, based on the labels and all features 
+	 * @param problem the problem
+	 * @return a fingerprint of the problem
+	 */
+	public static long fingerprint(Problem problem){
+		long h = 1125899906842597L;
+		h = 31*h + problem.l;
+		h = 31*h + problem.n;
+		for (int i=0; i<problem.l; i++){
+			h = 31*h + Double.doubleToLongBits(problem.y[i]);
+			for (Feature f : problem.x[i]){
+				h = 31*h + f.getIndex();
+				h = 31*h + Double.doubleToLongBits(f.getValue());
+			}
+		}
+		return h;
+	}
+
 	/* 
 	 * =================================================
 	 * 			TRAINING
@@ -154,6 +297,52 @@ public class LibLinear {
 		return train(params, createLibLinearTrainProblem(trainingSet));
 	}
 
+	public static Model train(Parameter params, List<DataRecord> trainingSet, WarmStartCache cache) throws IllegalArgumentException{
+		return train(params, createLibLinearTrainProblem(trainingSet), cache);
+	}
+
+	public static Model train(Parameter params, List<DataRecord> trainingSet, WarmStartCache cache, NativeRowCache<Feature[]> rowCache) throws IllegalArgumentException{
+		return train(params, createLibLinearTrainProblem(trainingSet, rowCache), cache);
+	}
+
+	/**
+	 * Train a model, using a previous solution of the same problem as initial solution if available in the {@code cache}
+	 * and the solver type supports it (see {@link #WARM_START_SOLVERS}). The solution of the current problem is 
+	 * stored in the cache.
+	 * @param params parameters
+	 * @param problem the problem
+	 * @param cache a cache of solutions, or {@code null}
+	 * @return the trained model
+	 * @throws IllegalArgumentException If the problem is empty or the parameters are invalid
+	 */
+	public static Model train(Parameter params, Problem problem, WarmStartCache cache) throws IllegalArgumentException {
+		if (cache == null || !WARM_START_SOLVERS.contains(params.getSolverType()))
+			return train(params, problem);
+		if (problem.l == 0)
+			throw new IllegalArgumentException("Training set cannot be empty");
+
+		long key = fingerprint(problem);
+		double[] init = cache.get(key);
+		Parameter p = params;
+		if (init != null && init.length == getWeightVectorLength(params.getSolverType(), problem)) {
+			LOGGER.trace("Warm-starting liblinear training from a previous solution");
+			p = params.clone();
+			p.setInitSol(init);
+		}
+		Model model = train(p, problem);
+		cache.put(key, model.getFeatureWeights());
+		return model;
+	}
+
+	private static int getWeightVectorLength(SolverType type, Problem problem){
+		if (type.isSupportVectorRegression())
+			return problem.n;
+		Set<Double> labels = new HashSet<>();
+		for (double y : problem.y)
+			labels.add(y);
+		return labels.size() == 2 ? problem.n : problem.n * labels.size();
+	}
+
 	public static Model train(Parameter params, Problem problem) throws IllegalArgumentException {
 		if (problem.l == 0)
 			throw new IllegalArgumentException("Training set cannot be empty");
@@ -175,6 +364,19 @@ public class LibLinear {
 
 	public static Problem createLibLinearTrainProblem(
 			List<DataRecord> trainingSet) {
+		return createLibLinearTrainProblem(trainingSet, null);
+	}
+
+	/**
+	 * Create a training problem, re-using the rows of records that are found in the {@code rowCache}. 
+	 * The bias term is the last feature of each row and its index depends on the max feature index of the 
+	 * full training set, cached rows are only re-used if the index of the bias term is the same.
+	 * @param trainingSet the records
+	 * @param rowCache a cache of rows that are shared between problems, or {@code null}
+	 * @return the problem
+	 */
+	public static Problem createLibLinearTrainProblem(
+			List<DataRecord> trainingSet, NativeRowCache<Feature[]> rowCache) {
 		LOGGER.debug("trainingSet.size={}", trainingSet.size());
 		int maxFeatIndex = DataUtils.getMaxFeatureIndex(trainingSet) + 1; // +1 for indices starting at 1 instead of 0
 		int biasColumn = maxFeatIndex+1;
@@ -187,10 +389,17 @@ public class LibLinear {
 
 		try {
 			for (int ex=0; ex < trainProblem.l; ex++) {
+				DataRecord r = trainingSet.get(ex);
 				// Copy the target value
-				trainProblem.y[ex] = trainingSet.get(ex).getLabel();
+				trainProblem.y[ex] = r.getLabel();
 				// Convert the feature vector
-				trainProblem.x[ex] = createFeatureArray(trainingSet.get(ex).getFeatures(),biasColumn);
+				Feature[] row = rowCache != null ? rowCache.get(r) : null;
+				if (row == null || row[row.length-1].getIndex() != biasColumn) {
+					row = createFeatureArray(r.getFeatures(),biasColumn);
+					if (rowCache != null)
+						rowCache.put(r, row);
+				}
+				trainProblem.x[ex] = row;
 			}
 		} catch (MissingDataException e) {
 			LOGGER.debug("Failed setting up LibLinear problem due to missing data: ",e);
@@ -78,7 +78,7 @@ public class LibSvm {
 	
 	public static final ConfigParameter CACHE_SIZE_CONFIG = new NumericConfig.Builder(CACHE_SIZE_PARAM_NAMES,DEFAULT_SVM_MEM_SIZE)
 		.range(Range.atLeast(100d))
-		.description("Cache memory size in MB")
+		.description("Cache memory size in MB, can be reduced when a global memory budget is set for concurrent trainings")
 		.build();
 
 	public static final ConfigParameter KERNEL_CONFIG = new EnumConfig.Builder<>(KERNEL_PARAM_NAMES,EnumSet.allOf(KernelType.class),KernelType.RBF)
@@ -351,22 +351,45 @@ public class LibSvm {
 
 	//	@Override
 	public static svm_model train(svm_parameter params, List<DataRecord> trainingset, long seed) {
+		return train(params, trainingset, seed, null);
+	}
+
+	public static svm_model train(svm_parameter params, List<DataRecord> trainingset, long seed, NativeRowCache<svm_node[]> rowCache) {
 
 		//Create the train problem
-		svm_problem trainProblem = createLibSvmTrainProblem(trainingset);
+		svm_problem trainProblem = createLibSvmTrainProblem(trainingset, rowCache);
 		LOGGER.debug("Finished setting up the LibSVM training problem");
 
 		return train(params, trainProblem, seed);
 	}
 
+	/**
+	 * Train a model, the kernel cache size is requested from the {@link KernelCacheBudget} so the 
+	 * cache used might be smaller than the one given in {@code params} 
+	 * @param params parameters
+	 * @param problem the problem 
+	 * @param seed RNG seed
+	 * @return the trained model
+	 */
 	public static svm_model train(svm_parameter params, svm_problem problem, long seed){
 		LOGGER.debug("Training libsvm model...");
-		//Train the svm_model
-		svm.rand.setSeed(seed); // we want the same result always!
-
-		svm_model model = svm.svm_train(problem, params);
-		LOGGER.debug("Finished training the svm-model");
-		return model;
+		KernelCacheBudget budget = KernelCacheBudget.getInstance();
+		double cacheMB = budget.acquire(params.cache_size);
+		try {
+			svm_parameter p = params;
+			if (cacheMB != params.cache_size) {
+				p = (svm_parameter) params.clone();
+				p.cache_size = cacheMB;
+			}
+			//Train the svm_model
+			svm.rand.setSeed(seed); // we want the same result always!
+
+			svm_model model = svm.svm_train(problem, p);
+			LOGGER.debug("Finished training the svm-model");
+			return model;
+		} finally {
+			budget.release(cacheMB);
+		}
 	}
 
 	/* 
@@ -376,6 +399,16 @@ public class LibSvm {
 	 */
 
 	public static svm_problem createLibSvmTrainProblem(List<DataRecord> trainingset) {
+		return createLibSvmTrainProblem(trainingset, null);
+	}
+
+	/**
+	 * Create a training problem, re-using the rows of records that are found in the {@code rowCache}
+	 * @param trainingset the records
+	 * @param rowCache a cache of rows that are shared between problems, or {@code null}
+	 * @return the problem
+	 */
+	public static svm_problem createLibSvmTrainProblem(List<DataRecord> trainingset, NativeRowCache<svm_node[]> rowCache) {
 		LOGGER.debug("creating libsvm problem with {} records",trainingset.size());
 		//Set up training problem on proper training set
 		svm_problem trainProblem = new svm_problem();
@@ -385,11 +418,18 @@ public class LibSvm {
 
 		try {
 			for (int ex = 0; ex < trainProblem.l; ex++){
+				DataRecord r = trainingset.get(ex);
 				// Target value
-				trainProblem.y[ex] = trainingset.get(ex).getLabel();
+				trainProblem.y[ex] = r.getLabel();
 
 				// features
-				trainProblem.x[ex] = createFeatureArray(trainingset.get(ex).getFeatures());
+				svm_node[] row = rowCache != null ? rowCache.get(r) : null;
+				if (row == null) {
+					row = createFeatureArray(r.getFeatures());
+					if (rowCache != null)
+						rowCache.put(r, row);
+				}
+				trainProblem.x[ex] = row;
 
 			}
 		} catch (MissingDataException e) {
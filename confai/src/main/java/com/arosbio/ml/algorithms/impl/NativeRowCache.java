@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.algorithms.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.arosbio.commons.CollectionUtils;
+import com.arosbio.commons.TypeUtils;
+import com.arosbio.data.DataRecord;
+
+/**
+ * A cache of the native (LIBSVM/LIBLINEAR) representation of {@link DataRecord DataRecords}, so that records
+ * that occur in several training problems are only converted once and the converted rows are shared between
+ * the problems. This is used when training aggregated predictors, where e.g. every ICP of a cross-conformal
+ * predictor is trained on {@code k-1} of the {@code k} folds. For LIBSVM models the support vectors refer to
+ * the rows of the training problem, so the trained models will share the rows as well.
+ * <p>
+ * Records are identified by reference, so the records must not be altered while the cache is in use.
+ * Instances are thread-safe and intended to be shared between clones of the same algorithm,
+ * the cache is toggled using the {@link #CONFIG_PARAM_NAMES} parameter.
+ *
+ * @author Aros Bio AB
+ *
+ * @param <T> The type of the native rows
+ */
+public class NativeRowCache<T> {
+
+	/** Not a tunable hyper-parameter, a training mode that is toggled e.g. by the aggregated predictors */
+	public static final List<String> CONFIG_PARAM_NAMES = Arrays.asList("shareNativeRows");
+
+	private final Map<DataRecord,T> rows = new IdentityHashMap<>();
+
+	public synchronized T get(DataRecord record){
+		return rows.get(record);
+	}
+
+	public synchronized void put(DataRecord record, T row){
+		rows.put(record, row);
+	}
+
+	public synchronized int size(){
+		return rows.size();
+	}
+
+	public synchronized void clear(){
+		rows.clear();
+	}
+
+	/**
+	 * Update the cache based on the {@link #CONFIG_PARAM_NAMES} parameter, if given in the {@code params}
+	 * @param <T> The type of the native rows
+	 * @param current the current cache, or {@code null}
+	 * @param params parameters
+	 * @return the current cache if the parameter was not given, a cache (the current or a new one) if sharing was enabled,
+	 * 	or {@code null} if sharing was disabled (the current cache is then cleared)
+	 * @throws IllegalArgumentException If the parameter has an invalid value
+	 */
+	public static <T> NativeRowCache<T> update(NativeRowCache<T> current, Map<String,Object> params)
+			throws IllegalArgumentException {
+		Boolean enable = getSharing(params);
+		if (enable == null)
+			return current;
+		if (!enable) {
+			// Clear it as it might still be referenced by trained clones
+			if (current != null)
+				current.clear();
+			return null;
+		}
+		return current != null ? current : new NativeRowCache<>();
+	}
+
+	/**
+	 * Get the value of the {@link #CONFIG_PARAM_NAMES} parameter, for classes that pass the parameter on
+	 * to their underlying algorithms but need to know if sharing is enabled
+	 * @param params parameters
+	 * @return {@code true} if sharing was enabled, {@code false} if disabled or {@code null} if the parameter was not given
+	 * @throws IllegalArgumentException If the parameter has an invalid value
+	 */
+	public static Boolean getSharing(Map<String,Object> params) throws IllegalArgumentException {
+		for (Map.Entry<String,Object> p : params.entrySet()) {
+			if (CollectionUtils.containsIgnoreCase(CONFIG_PARAM_NAMES, p.getKey())) {
+				try {
+					return TypeUtils.asBoolean(p.getValue());
+				} catch (Exception e){
+					throw new IllegalArgumentException("Invalid argument for parameter '" + p.getKey() + "': " + p.getValue());
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the parameters that enables or disables sharing of native rows, to be passed to 
+	 * {@link com.arosbio.commons.config.Configurable#setConfigParameters(Map) setConfigParameters}
+	 * @param share {@code true} to enable, {@code false} to disable and clear the cache
+	 * @return the parameters
+	 */
+	public static Map<String,Object> getParameters(boolean share){
+		return Collections.singletonMap(CONFIG_PARAM_NAMES.get(0), share);
+	}
+
+	public String toString(){
+		return String.format("Native row cache with %d rows", size());
+	}
+
+}
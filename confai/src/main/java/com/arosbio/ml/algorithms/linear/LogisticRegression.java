@@ -25,13 +25,15 @@ import com.arosbio.ml.algorithms.MultiLabelClassifier;
 import com.arosbio.ml.algorithms.PseudoProbabilisticClassifier;
 import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
 import com.arosbio.ml.algorithms.impl.LibLinear;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 import com.google.common.collect.ImmutableList;
 
+import de.bwaldvogel.liblinear.Feature;
 import de.bwaldvogel.liblinear.Model;
 import de.bwaldvogel.liblinear.Parameter;
 import de.bwaldvogel.liblinear.SolverType;
 
-public class LogisticRegression implements MultiLabelClassifier, PseudoProbabilisticClassifier {
+public class LogisticRegression implements MultiLabelClassifier, PseudoProbabilisticClassifier, LibLinear.WarmStartable {
 
 	public static final String ALG_NAME = "LogisticRegression";
 	public static final int ALG_ID = 16;
@@ -46,6 +48,8 @@ public class LogisticRegression implements MultiLabelClassifier, PseudoProbabili
 	 */
 	private Parameter parameters = LibLinear.getDefaultParams(DEFAULT_SOLVER);
 	private Model svm;
+	private LibLinear.WarmStartCache warmStartCache;
+	private NativeRowCache<Feature[]> rowCache;
 
 	public LogisticRegression(){
 		this.parameters.setRandom(new Random(GlobalConfig.getInstance().getRNGSeed()));
@@ -110,6 +114,22 @@ public class LogisticRegression implements MultiLabelClassifier, PseudoProbabili
 		parameters.setSolverType(type);
 	}
 
+	// Warm start
+	@Override
+	public boolean isWarmStart() {
+		return warmStartCache != null;
+	}
+
+	@Override
+	public void setWarmStart(boolean warmStart) {
+		warmStartCache = LibLinear.toggleWarmStart(warmStartCache, warmStart);
+	}
+
+	public LogisticRegression withWarmStart(boolean warmStart) {
+		setWarmStart(warmStart);
+		return this;
+	}
+
 	// Max iterations
 	public int getMaxNumIterations() {
 		return parameters.getMaxIters();
@@ -168,6 +188,8 @@ public class LogisticRegression implements MultiLabelClassifier, PseudoProbabili
 		LogisticRegression clone = new LogisticRegression();
 		// Only copy the actual parameters 
 		clone.parameters = parameters.clone();
+		clone.warmStartCache = warmStartCache;
+		clone.rowCache = rowCache;
 		return clone;
 	}
 
@@ -176,6 +198,8 @@ public class LogisticRegression implements MultiLabelClassifier, PseudoProbabili
 		Parameter clone = parameters.clone();
 		LibLinear.setConfigParameters(clone, ALLOWED_SOLVERS, params);
 		parameters = clone; 
+		warmStartCache = LibLinear.updateWarmStartCache(warmStartCache, params);
+		rowCache = NativeRowCache.update(rowCache, params);
 	}
 
 	@Override
@@ -201,7 +225,7 @@ public class LogisticRegression implements MultiLabelClassifier, PseudoProbabili
 	
 	@Override
 	public void train(List<DataRecord> trainingSet) throws IllegalArgumentException {
-		svm = LibLinear.train(parameters, trainingSet);
+		svm = LibLinear.train(parameters, trainingSet, warmStartCache, rowCache);
 	}
 
 	@Override
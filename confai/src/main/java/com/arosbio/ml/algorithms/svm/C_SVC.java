@@ -24,8 +24,10 @@ import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
 import com.arosbio.ml.algorithms.impl.LibSvm;
 import com.arosbio.ml.algorithms.impl.LibSvm.KernelType;
 import com.arosbio.ml.algorithms.impl.LibSvm.SvmType;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 
 import libsvm.svm_model;
+import libsvm.svm_node;
 import libsvm.svm_parameter;
 
 public class C_SVC implements SVC, MultiLabelClassifier {
@@ -39,6 +41,7 @@ public class C_SVC implements SVC, MultiLabelClassifier {
 	private svm_parameter parameters = LibSvm.getDefaultParams(SvmType.C_SVC);
 	private svm_model svm;
 	private long seed = GlobalConfig.getInstance().getRNGSeed();
+	private NativeRowCache<svm_node[]> rowCache;
 
 	// Cost
 	public double getC() {
@@ -187,6 +190,7 @@ public class C_SVC implements SVC, MultiLabelClassifier {
 		svm_parameter clone = (svm_parameter) parameters.clone();
 		LibSvm.setConfigParameters(clone, params);
 		parameters = clone; // trick to not update unless everything passes
+		rowCache = NativeRowCache.update(rowCache, params);
 	}
 
 	@Override
@@ -213,6 +217,7 @@ public class C_SVC implements SVC, MultiLabelClassifier {
 		// Only copy the actual parameters 
 		clone.parameters = (svm_parameter) parameters.clone();
 		clone.seed = seed;
+		clone.rowCache = rowCache;
 		return clone;
 	}
 
@@ -244,12 +249,12 @@ public class C_SVC implements SVC, MultiLabelClassifier {
 	
 	@Override
 	public void train(List<DataRecord> trainingSet) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingSet, seed);
+		svm = LibSvm.train(parameters, trainingSet, seed, rowCache);
 	}
 
 	@Override
 	public void fit(List<DataRecord> trainingSet) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingSet, seed);
+		svm = LibSvm.train(parameters, trainingSet, seed, rowCache);
 	}
 
 	/* 
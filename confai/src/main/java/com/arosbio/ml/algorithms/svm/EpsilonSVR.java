@@ -23,8 +23,10 @@ import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
 import com.arosbio.ml.algorithms.impl.LibSvm;
 import com.arosbio.ml.algorithms.impl.LibSvm.KernelType;
 import com.arosbio.ml.algorithms.impl.LibSvm.SvmType;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 
 import libsvm.svm_model;
+import libsvm.svm_node;
 import libsvm.svm_parameter;
 
 public class EpsilonSVR implements SVR {
@@ -38,6 +40,7 @@ public class EpsilonSVR implements SVR {
 	private svm_parameter parameters = LibSvm.getDefaultParams(SvmType.EPSILON_SVR);
 	private svm_model svm;
 	private long seed = GlobalConfig.getInstance().getRNGSeed();
+	private NativeRowCache<svm_node[]> rowCache;
 
 
 	// Cost
@@ -184,6 +187,7 @@ public class EpsilonSVR implements SVR {
 		svm_parameter clone = (svm_parameter)parameters.clone();
 		LibSvm.setConfigParameters(clone, params);
 		parameters = clone;
+		rowCache = NativeRowCache.update(rowCache, params);
 	}
 
 	@Override
@@ -192,6 +196,7 @@ public class EpsilonSVR implements SVR {
 		// Only copy the actual parameters 
 		clone.parameters = (svm_parameter) parameters.clone();
 		clone.seed = seed;
+		clone.rowCache = rowCache;
 		return clone;
 	}
 
@@ -246,12 +251,12 @@ public class EpsilonSVR implements SVR {
 
 	@Override
 	public void train(List<DataRecord> trainingset) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingset, seed);
+		svm = LibSvm.train(parameters, trainingset, seed, rowCache);
 	}
 
 	@Override
 	public void fit(List<DataRecord> trainingset) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingset, seed);
+		svm = LibSvm.train(parameters, trainingset, seed, rowCache);
 	}
 
 	/* 
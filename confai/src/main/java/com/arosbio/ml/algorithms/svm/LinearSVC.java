@@ -25,12 +25,14 @@ import com.arosbio.data.FeatureVector;
 import com.arosbio.ml.algorithms.MultiLabelClassifier;
 import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
 import com.arosbio.ml.algorithms.impl.LibLinear;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 
+import de.bwaldvogel.liblinear.Feature;
 import de.bwaldvogel.liblinear.Model;
 import de.bwaldvogel.liblinear.Parameter;
 import de.bwaldvogel.liblinear.SolverType;
 
-public class LinearSVC implements SVC, MultiLabelClassifier {
+public class LinearSVC implements SVC, MultiLabelClassifier, LibLinear.WarmStartable {
 
 	public static final String ALG_NAME = "LinearSVC";
 	public static final int ALG_ID = 11;
@@ -46,6 +48,8 @@ public class LinearSVC implements SVC, MultiLabelClassifier {
 	 */
 	private Parameter parameters = LibLinear.getDefaultParams(DEFAULT_SOLVER);
 	private Model svm;
+	private LibLinear.WarmStartCache warmStartCache;
+	private NativeRowCache<Feature[]> rowCache;
 
 	public LinearSVC(){
 		this.parameters.setRandom(new Random(GlobalConfig.getInstance().getRNGSeed()));
@@ -120,6 +124,22 @@ public class LinearSVC implements SVC, MultiLabelClassifier {
 		return this;
 	}
 
+	// Warm start
+	@Override
+	public boolean isWarmStart() {
+		return warmStartCache != null;
+	}
+
+	@Override
+	public void setWarmStart(boolean warmStart) {
+		warmStartCache = LibLinear.toggleWarmStart(warmStartCache, warmStart);
+	}
+
+	public LinearSVC withWarmStart(boolean warmStart) {
+		setWarmStart(warmStart);
+		return this;
+	}
+
 	// Max iterations
 	public int getMaxNumIterations() {
 		return parameters.getMaxIters();
@@ -179,6 +199,8 @@ public class LinearSVC implements SVC, MultiLabelClassifier {
 		LinearSVC clone = new LinearSVC();
 		// Only copy the actual parameters 
 		clone.parameters = parameters.clone();
+		clone.warmStartCache = warmStartCache;
+		clone.rowCache = rowCache;
 		return clone;
 	}
 
@@ -187,6 +209,8 @@ public class LinearSVC implements SVC, MultiLabelClassifier {
 		Parameter clone = parameters.clone();
 		LibLinear.setConfigParameters(clone, ALLOWED_SOLVERS, params);
 		parameters = clone; 
+		warmStartCache = LibLinear.updateWarmStartCache(warmStartCache, params);
+		rowCache = NativeRowCache.update(rowCache, params);
 	}
 
 	@Override
@@ -207,12 +231,12 @@ public class LinearSVC implements SVC, MultiLabelClassifier {
 	
 	@Override
 	public void train(List<DataRecord> trainingset) throws IllegalArgumentException {
-		svm = LibLinear.train(parameters, trainingset);
+		svm = LibLinear.train(parameters, trainingset, warmStartCache, rowCache);
 	}
 
 	@Override
 	public void fit(List<DataRecord> trainingset) throws IllegalArgumentException {
-		svm = LibLinear.train(parameters, trainingset);
+		svm = LibLinear.train(parameters, trainingset, warmStartCache, rowCache);
 	}
 	
 	/* 
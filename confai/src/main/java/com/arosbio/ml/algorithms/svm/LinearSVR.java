@@ -24,12 +24,14 @@ import com.arosbio.data.DataRecord;
 import com.arosbio.data.FeatureVector;
 import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
 import com.arosbio.ml.algorithms.impl.LibLinear;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 
+import de.bwaldvogel.liblinear.Feature;
 import de.bwaldvogel.liblinear.Model;
 import de.bwaldvogel.liblinear.Parameter;
 import de.bwaldvogel.liblinear.SolverType;
 
-public class LinearSVR implements SVR {
+public class LinearSVR implements SVR, LibLinear.WarmStartable {
 
 	public static final String ALG_NAME="LinearSVR";
 	public static final int ALG_ID = 1;
@@ -44,6 +46,8 @@ public class LinearSVR implements SVR {
 	 */
 	private Parameter parameters = LibLinear.getDefaultParams(DEFAULT_SOLVER);
 	private Model svm;
+	private LibLinear.WarmStartCache warmStartCache;
+	private NativeRowCache<Feature[]> rowCache;
 
 	public LinearSVR(){
 		this.parameters.setRandom(new Random(GlobalConfig.getInstance().getRNGSeed()));
@@ -118,6 +122,22 @@ public class LinearSVR implements SVR {
 		return this;
 	}
 
+	// Warm start
+	@Override
+	public boolean isWarmStart() {
+		return warmStartCache != null;
+	}
+
+	@Override
+	public void setWarmStart(boolean warmStart) {
+		warmStartCache = LibLinear.toggleWarmStart(warmStartCache, warmStart);
+	}
+
+	public LinearSVR withWarmStart(boolean warmStart) {
+		setWarmStart(warmStart);
+		return this;
+	}
+
 	// Max iterations
 	public int getMaxNumIterations() {
 		return parameters.getMaxIters();
@@ -185,6 +205,8 @@ public class LinearSVR implements SVR {
 		LinearSVR clone = new LinearSVR();
 		// Only copy the actual parameters 
 		clone.parameters = parameters.clone();
+		clone.warmStartCache = warmStartCache;
+		clone.rowCache = rowCache;
 		return clone;
 	}
 
@@ -193,6 +215,8 @@ public class LinearSVR implements SVR {
 		Parameter clone = parameters.clone();
 		LibLinear.setConfigParameters(clone, ALLOWED_SOLVERS, params);
 		parameters = clone; 
+		warmStartCache = LibLinear.updateWarmStartCache(warmStartCache, params);
+		rowCache = NativeRowCache.update(rowCache, params);
 	}
 
 	@Override
@@ -214,12 +238,12 @@ public class LinearSVR implements SVR {
 	
 	@Override
 	public void train(List<DataRecord> trainingSet) throws IllegalArgumentException {
-		svm = LibLinear.train(parameters, trainingSet);
+		svm = LibLinear.train(parameters, trainingSet, warmStartCache, rowCache);
 	}
 
 	@Override
 	public void fit(List<DataRecord> trainingSet) throws IllegalArgumentException {
-		svm = LibLinear.train(parameters, trainingSet);
+		svm = LibLinear.train(parameters, trainingSet, warmStartCache, rowCache);
 	}
 	
 	/* 
@@ -23,8 +23,10 @@ import com.arosbio.ml.algorithms.MultiLabelClassifier;
 import com.arosbio.ml.algorithms.impl.LibSvm;
 import com.arosbio.ml.algorithms.impl.LibSvm.KernelType;
 import com.arosbio.ml.algorithms.impl.LibSvm.SvmType;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 
 import libsvm.svm_model;
+import libsvm.svm_node;
 import libsvm.svm_parameter;
 
 public class NuSVC implements SVC, MultiLabelClassifier {
@@ -38,6 +40,7 @@ public class NuSVC implements SVC, MultiLabelClassifier {
 	private svm_parameter parameters = LibSvm.getDefaultParams(SvmType.NU_SVC);
 	private svm_model svm;
 	private long seed = GlobalConfig.getInstance().getRNGSeed();
+	private NativeRowCache<svm_node[]> rowCache;
 
 	// Nu
 	public double getNu() {
@@ -185,6 +188,7 @@ public class NuSVC implements SVC, MultiLabelClassifier {
 		svm_parameter clone = (svm_parameter) parameters.clone();
 		LibSvm.setConfigParameters(clone, params);
 		parameters = clone; // trick to not update unless everything passes
+		rowCache = NativeRowCache.update(rowCache, params);
 	}
 
 	@Override
@@ -211,6 +215,7 @@ public class NuSVC implements SVC, MultiLabelClassifier {
 		// Only copy the actual parameters 
 		clone.parameters = (svm_parameter) parameters.clone();
 		clone.seed = seed;
+		clone.rowCache = rowCache;
 		return clone;
 	}
 
@@ -242,12 +247,12 @@ public class NuSVC implements SVC, MultiLabelClassifier {
 
 	@Override
 	public void train(List<DataRecord> trainingSet) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingSet, seed);
+		svm = LibSvm.train(parameters, trainingSet, seed, rowCache);
 	}
 
 	@Override
 	public void fit(List<DataRecord> trainingSet) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingSet, seed);
+		svm = LibSvm.train(parameters, trainingSet, seed, rowCache);
 	}
 
 	/* 
@@ -23,8 +23,10 @@ import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
 import com.arosbio.ml.algorithms.impl.LibSvm;
 import com.arosbio.ml.algorithms.impl.LibSvm.KernelType;
 import com.arosbio.ml.algorithms.impl.LibSvm.SvmType;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 
 import libsvm.svm_model;
+import libsvm.svm_node;
 import libsvm.svm_parameter;
 
 public class NuSVR implements SVR {
@@ -38,6 +40,7 @@ public class NuSVR implements SVR {
 	private svm_parameter parameters = LibSvm.getDefaultParams(SvmType.NU_SVR);
 	private svm_model svm;
 	private long seed = GlobalConfig.getInstance().getRNGSeed();
+	private NativeRowCache<svm_node[]> rowCache;
 
 	// Nu
 	public double getNu() {
@@ -199,6 +202,7 @@ public class NuSVR implements SVR {
 		svm_parameter clone = (svm_parameter)parameters.clone();
 		LibSvm.setConfigParameters(clone, params);
 		parameters = clone;
+		rowCache = NativeRowCache.update(rowCache, params);
 	}
 	
 	@Override
@@ -220,6 +224,7 @@ public class NuSVR implements SVR {
 		// Only copy the actual parameters 
 		clone.parameters = (svm_parameter) parameters.clone();
 		clone.seed = seed;
+		clone.rowCache = rowCache;
 		return clone;
 	}
 
@@ -251,12 +256,12 @@ public class NuSVR implements SVR {
 	
 	@Override
 	public void train(List<DataRecord> trainingSet) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingSet, seed);
+		svm = LibSvm.train(parameters, trainingSet, seed, rowCache);
 	}
 
 	@Override
 	public void fit(List<DataRecord> trainingSet) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingSet, seed);
+		svm = LibSvm.train(parameters, trainingSet, seed, rowCache);
 	}
 
 	/* 
@@ -25,8 +25,10 @@ import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
 import com.arosbio.ml.algorithms.impl.LibSvm;
 import com.arosbio.ml.algorithms.impl.LibSvm.KernelType;
 import com.arosbio.ml.algorithms.impl.LibSvm.SvmType;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 
 import libsvm.svm_model;
+import libsvm.svm_node;
 import libsvm.svm_parameter;
 
 public class PlattScaledC_SVC implements SVC, MultiLabelClassifier, PseudoProbabilisticClassifier {
@@ -40,6 +42,7 @@ public class PlattScaledC_SVC implements SVC, MultiLabelClassifier, PseudoProbab
 	private svm_parameter parameters = LibSvm.getDefaultParams(SvmType.C_SVC);
 	private svm_model svm = null;
 	private long seed = GlobalConfig.getInstance().getRNGSeed();
+	private NativeRowCache<svm_node[]> rowCache;
 
 	public PlattScaledC_SVC() {
 		parameters.probability = 1;
@@ -193,6 +196,7 @@ public class PlattScaledC_SVC implements SVC, MultiLabelClassifier, PseudoProbab
 		svm_parameter clone = (svm_parameter) parameters.clone();
 		LibSvm.setConfigParameters(clone, params);
 		parameters = clone; // trick to not update unless everything passes
+		rowCache = NativeRowCache.update(rowCache, params);
 	}
 
 	@Override
@@ -219,6 +223,7 @@ public class PlattScaledC_SVC implements SVC, MultiLabelClassifier, PseudoProbab
 		// Only copy the actual parameters 
 		clone.parameters = (svm_parameter) parameters.clone();
 		clone.seed = seed;
+		clone.rowCache = rowCache;
 		return clone;
 	}
 
@@ -250,12 +255,12 @@ public class PlattScaledC_SVC implements SVC, MultiLabelClassifier, PseudoProbab
 
 	@Override
 	public void train(List<DataRecord> trainingset) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingset, seed);
+		svm = LibSvm.train(parameters, trainingset, seed, rowCache);
 	}
 
 	@Override
 	public void fit(List<DataRecord> trainingset) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingset, seed);
+		svm = LibSvm.train(parameters, trainingset, seed, rowCache);
 	}
 
 	/* 
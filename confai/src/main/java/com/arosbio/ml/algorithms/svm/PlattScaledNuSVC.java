@@ -24,8 +24,10 @@ import com.arosbio.ml.algorithms.PseudoProbabilisticClassifier;
 import com.arosbio.ml.algorithms.impl.LibSvm;
 import com.arosbio.ml.algorithms.impl.LibSvm.KernelType;
 import com.arosbio.ml.algorithms.impl.LibSvm.SvmType;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 
 import libsvm.svm_model;
+import libsvm.svm_node;
 import libsvm.svm_parameter;
 
 public class PlattScaledNuSVC implements SVC, MultiLabelClassifier, PseudoProbabilisticClassifier {
@@ -39,6 +41,7 @@ public class PlattScaledNuSVC implements SVC, MultiLabelClassifier, PseudoProbab
 	private svm_parameter parameters = LibSvm.getDefaultParams(SvmType.NU_SVC);
 	private svm_model svm;
 	private long seed = GlobalConfig.getInstance().getRNGSeed();
+	private NativeRowCache<svm_node[]> rowCache;
 
 	public PlattScaledNuSVC() {
 		parameters.probability = 1;
@@ -190,6 +193,7 @@ public class PlattScaledNuSVC implements SVC, MultiLabelClassifier, PseudoProbab
 		svm_parameter clone = (svm_parameter) parameters.clone();
 		LibSvm.setConfigParameters(clone, params);
 		parameters = clone; // trick to not update unless everything passes
+		rowCache = NativeRowCache.update(rowCache, params);
 	}
 
 	@Override
@@ -216,6 +220,7 @@ public class PlattScaledNuSVC implements SVC, MultiLabelClassifier, PseudoProbab
 		// Only copy the actual parameters 
 		clone.parameters = (svm_parameter) parameters.clone();
 		clone.seed = seed;
+		clone.rowCache = rowCache;
 		return clone;
 	}
 
@@ -247,12 +252,12 @@ public class PlattScaledNuSVC implements SVC, MultiLabelClassifier, PseudoProbab
 
 	@Override
 	public void train(List<DataRecord> trainingset) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingset, seed);
+		svm = LibSvm.train(parameters, trainingset, seed, rowCache);
 	}
 
 	@Override
 	public void fit(List<DataRecord> trainingset) throws IllegalArgumentException {
-		svm = LibSvm.train(parameters, trainingset, seed);
+		svm = LibSvm.train(parameters, trainingset, seed, rowCache);
 	}
 
 	/* 
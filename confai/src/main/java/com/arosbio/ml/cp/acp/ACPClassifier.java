@@ -15,6 +15,7 @@ import java.io.OutputStream;
 import java.security.InvalidKeyException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -31,6 +32,7 @@ import com.arosbio.commons.GlobalConfig.Defaults.PredictorType;
 import com.arosbio.commons.MathUtils;
 import com.arosbio.commons.TypeUtils;
 import com.arosbio.commons.config.ImplementationConfig;
+import com.arosbio.commons.mixins.Freezable;
 import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset;
 import com.arosbio.data.FeatureVector;
@@ -42,6 +44,7 @@ import com.arosbio.io.DataSource;
 import com.arosbio.ml.ClassificationUtils;
 import com.arosbio.ml.PredictorBase;
 import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 import com.arosbio.ml.cp.ConformalClassifier;
 import com.arosbio.ml.cp.icp.ICPClassifier;
 import com.arosbio.ml.cp.nonconf.classification.NCMMondrianClassification;
@@ -53,9 +56,10 @@ import com.arosbio.ml.sampling.RandomSampling;
 import com.arosbio.ml.sampling.SamplingStrategy;
 import com.arosbio.ml.sampling.SamplingStrategyUtils;
 import com.arosbio.ml.sampling.TrainSplit;
+import com.arosbio.ml.sampling.TrainSplitCache;
 import com.arosbio.ml.sampling.TrainSplitGenerator;
 
-public final class ACPClassifier extends PredictorBase implements ACP, ConformalClassifier {
+public final class ACPClassifier extends PredictorBase implements ACP, ConformalClassifier, Freezable {
 
 	public static final String PREDICTOR_TYPE = "ACP Classification";
 
@@ -66,6 +70,9 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 
 	private Map<Integer,ICPClassifier> predictors = new HashMap<>();
 	private SamplingStrategy strategy;
+	/** Training modes, toggled by callers that train the predictor several times on the same data */
+	private TrainSplitCache splitCache;
+	private boolean rowsSharedByCaller = false;
 	private ICPClassifier icpImplementation;
 	private AggregationType aggregation = AggregationType.MEDIAN;
 
@@ -104,6 +111,8 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 		if (icpImplementation != null)
 			clone.icpImplementation = icpImplementation.clone();
 		clone.seed = this.seed; 
+		clone.splitCache = splitCache;
+		clone.rowsSharedByCaller = rowsSharedByCaller;
 		// Copy all ICPs
 		if (predictors != null)
 			for (Integer i : predictors.keySet())
@@ -124,6 +133,7 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 	 */
 
 	public void setAggregation(AggregationType type){
+		assertNotFrozen();
 		this.aggregation = type;
 	}
 	
@@ -145,6 +155,7 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 	}
 
 	public boolean releaseResources(){
+		assertNotFrozen();
 		if (predictors == null || predictors.isEmpty())
 			return false;
 
@@ -178,6 +189,7 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 
 	@Override
 	public void setConfigParameters(Map<String, Object> params) throws IllegalArgumentException {
+		assertNotFrozen();
 		// SAMPLING STRATEGY
 		if (params.containsKey(CONFIG_SAMPLING_STRATEGY_PARAM_NAME)) {
 			if (params.get(CONFIG_SAMPLING_STRATEGY_PARAM_NAME) instanceof SamplingStrategy) {
@@ -186,7 +198,12 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 				throw new IllegalArgumentException("Parameter " + CONFIG_SAMPLING_STRATEGY_PARAM_NAME + " cannot take value: " + params.get(CONFIG_SAMPLING_STRATEGY_PARAM_NAME));
 			}
 		}
-		
+
+		splitCache = TrainSplitCache.update(splitCache, params);
+		Boolean shareRows = NativeRowCache.getSharing(params);
+		if (shareRows != null)
+			rowsSharedByCaller = shareRows;
+
 		// pass on to ICP
 		icpImplementation.setConfigParameters(params);
 	}
@@ -203,6 +220,7 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 	 * @throws IllegalAccessException if sampling strategy is <b>folded</b> - then must specify which fold the ICP belongs to
 	 */
 	public void addICP(ICPClassifier icp) throws IllegalAccessException {
+		assertNotFrozen();
 		if(strategy.isFolded())
 			throw new IllegalAccessException("For folded sampling strategy, a fold must be specified");
 		if (predictors==null)
@@ -236,6 +254,7 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 	 * @throws IllegalArgumentException If <code>index</code> is outside the number of folds set in the strategy of the ACP
 	 */
 	public void addICP(ICPClassifier icp, int index) throws IllegalArgumentException {
+		assertNotFrozen();
 		if (predictors==null)
 			predictors = new HashMap<>();
 		LOGGER.debug("Attempting to add new ICP to fold={}",index);
@@ -258,6 +277,7 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 	}
 	
 	public void setICPImplementation(ICPClassifier impl) {
+		assertNotFrozen();
 		this.icpImplementation = impl;
 	}
 	
@@ -277,6 +297,7 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 	}
 
 	public void setStrategy(SamplingStrategy strategy) {
+		assertNotFrozen();
 		this.strategy = strategy;
 	}
 
@@ -324,7 +345,9 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 	@Override
 	public void train(Dataset problem) 
 			throws IllegalArgumentException {
-		Iterator<TrainSplit> splits = strategy.getIterator(problem, seed);
+		assertNotFrozen();
+		Iterator<TrainSplit> splits = splitCache != null ? 
+			splitCache.getSplits(strategy, problem, seed).iterator() : strategy.getIterator(problem, seed);
 
 		predictors=new HashMap<>();
 
@@ -332,25 +355,40 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 		int i=0, nrModels=strategy.getNumSamples();
 		LOGGER.debug("Training ACP Predictor with {} models", nrModels);
 
-		while (splits.hasNext()){
-			ICPClassifier icp = icpImplementation.clone();
-			TrainSplit nextDataset = splits.next();
-			icp.train(nextDataset);
-			predictors.put(i, icp);
-			LOGGER.debug(" - Trained model {}/{}",(i+1), nrModels);
-			i++;
+		// The models are trained on overlapping data, share the native representation of the records between them
+		// (unless already shared by the caller, in which case the shared rows should be kept after training)
+		boolean shareRows = nrModels > 1 && !rowsSharedByCaller;
+		if (shareRows)
+			icpImplementation.setConfigParameters(NativeRowCache.getParameters(true));
+		try {
+			while (splits.hasNext()){
+				ICPClassifier icp = icpImplementation.clone();
+				TrainSplit nextDataset = splits.next();
+				icp.train(nextDataset);
+				predictors.put(i, icp);
+				LOGGER.debug(" - Trained model {}/{}",(i+1), nrModels);
+				i++;
+			}
+		} finally {
+			if (shareRows) {
+				// The trained models should not keep a reference to the shared rows
+				icpImplementation.setConfigParameters(NativeRowCache.getParameters(false));
+				for (ICPClassifier trained : predictors.values())
+					trained.setConfigParameters(NativeRowCache.getParameters(false));
+			}
 		}
 
 	}
 
 	public void train(Dataset data, int index) throws IllegalArgumentException {
+		assertNotFrozen();
 
 		if (icpImplementation == null)
 			throw new IllegalStateException("No ICP implementation given to train");
 		if (predictors == null)
 			predictors = new HashMap<>();
 		SamplingStrategyUtils.validateTrainSplitIndex(strategy, index);
-		TrainSplitGenerator generator = strategy.getIterator(data, index);
+		TrainSplitGenerator generator = strategy.getIterator(data, seed);
 
 		ICPClassifier icp = icpImplementation.clone();
 		TrainSplit split = null;
@@ -365,6 +403,32 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 
 	}
 
+	/* 
+	 * =================================================
+	 * 			FREEZE
+	 * =================================================
+	 */
+
+	/**
+	 * Freeze the trained ACP, and all of its ICPs, into an immutable snapshot where all lazily initialised
+	 * state has been computed. The frozen ACP can be used for prediction from any number of threads concurrently,
+	 * all methods that alter the ACP throw an {@link IllegalStateException}. 
+	 * @return the calling instance
+	 * @throws IllegalStateException If the ACP is not trained
+	 */
+	@Override
+	public ACPClassifier freeze() throws IllegalStateException {
+		if (frozen)
+			return this;
+		assertIsTrained();
+		for (ICPClassifier icp : predictors.values())
+			icp.freeze();
+		predictors = Collections.unmodifiableMap(new HashMap<>(predictors));
+		// Volatile write last, publishes the state above
+		frozen = true;
+		return this;
+	}
+
 	/* 
 	 * =================================================
 	 * 			PREDICT
@@ -479,6 +543,7 @@ public final class ACPClassifier extends PredictorBase implements ACP, Conformal
 	@Override
 	public void loadFromDataSource(DataSource source, String basePath, EncryptionSpecification encryptSpec) 
 			throws InvalidKeyException, IOException {
+		assertNotFrozen();
 		String acpDir = DataIOUtils.locateBasePath(source, basePath, ACP_DIRECTORY_NAME+'/');
 		LOGGER.debug("acp directory={}",acpDir);
 		
@@ -16,6 +16,7 @@ import java.security.InvalidKeyException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -31,6 +32,7 @@ import com.arosbio.commons.GlobalConfig.Defaults.PredictorType;
 import com.arosbio.commons.MathUtils;
 import com.arosbio.commons.TypeUtils;
 import com.arosbio.commons.config.ImplementationConfig;
+import com.arosbio.commons.mixins.Freezable;
 import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset;
 import com.arosbio.data.FeatureVector;
@@ -41,6 +43,7 @@ import com.arosbio.io.DataSink;
 import com.arosbio.io.DataSource;
 import com.arosbio.ml.PredictorBase;
 import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 import com.arosbio.ml.cp.CPRegressionPrediction;
 import com.arosbio.ml.cp.CPRegressionPrediction.PredictedInterval;
 import com.arosbio.ml.cp.ConformalRegressor;
@@ -55,9 +58,10 @@ import com.arosbio.ml.sampling.RandomSampling;
 import com.arosbio.ml.sampling.SamplingStrategy;
 import com.arosbio.ml.sampling.SamplingStrategyUtils;
 import com.arosbio.ml.sampling.TrainSplit;
+import com.arosbio.ml.sampling.TrainSplitCache;
 import com.arosbio.ml.sampling.TrainSplitGenerator;
 
-public final class ACPRegressor extends PredictorBase implements ACP, ConformalRegressor {
+public final class ACPRegressor extends PredictorBase implements ACP, ConformalRegressor, Freezable {
 
 	public static final String PREDICTOR_TYPE = "ACP Regression";
 	
@@ -69,6 +73,9 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 	private Map<Integer,ICPRegressor> predictors = new HashMap<>();
 	private ICPRegressor icpImplementation;
 	private SamplingStrategy strategy;
+	/** Training modes, toggled by callers that train the predictor several times on the same data */
+	private TrainSplitCache splitCache;
+	private boolean rowsSharedByCaller = false;
 	private AggregationType aggregation = AggregationType.MEDIAN;
 
 	/* 
@@ -111,6 +118,8 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 		if (strategy != null)
 			clone.strategy = this.strategy.clone();
 		clone.seed=seed;
+		clone.splitCache = splitCache;
+		clone.rowsSharedByCaller = rowsSharedByCaller;
 
 		// Copy all ICPs 
 		if (predictors != null)
@@ -132,6 +141,7 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 	 */
 
 	public void setAggregation(AggregationType type){
+		assertNotFrozen();
 		this.aggregation = type;
 	}
 	
@@ -149,6 +159,7 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 	}
 
 	public void setICPImplementation(ICPRegressor icp) {
+		assertNotFrozen();
 		this.icpImplementation = icp;
 	}
 
@@ -169,6 +180,7 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 
 	@Override
 	public void setConfigParameters(Map<String, Object> params) throws IllegalArgumentException {
+		assertNotFrozen();
 		// SAMPLING STRATEGY
 		if (params.containsKey(CONFIG_SAMPLING_STRATEGY_PARAM_NAME)) {
 			if (params.get(CONFIG_SAMPLING_STRATEGY_PARAM_NAME) instanceof SamplingStrategy) {
@@ -178,6 +190,12 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 			}
 		}
 
+
+		splitCache = TrainSplitCache.update(splitCache, params);
+		Boolean shareRows = NativeRowCache.getSharing(params);
+		if (shareRows != null)
+			rowsSharedByCaller = shareRows;
+
 		// pass on to ICP
 		icpImplementation.setConfigParameters(params);
 	}
@@ -188,6 +206,7 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 	 * @throws IllegalAccessException if sampling strategy is <b>folded</b> - then must specify which fold the ICP belongs to
 	 */
 	public void addICP(ICPRegressor icp) throws IllegalAccessException {
+		assertNotFrozen();
 		if (strategy.isFolded())
 			throw new IllegalAccessException("For folded sampling strategy, a fold must be specified");
 		if (predictors==null)
@@ -221,6 +240,7 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 	 * @throws IllegalArgumentException If <code>index</code> is outside the number of folds set in the strategy of the ACP
 	 */
 	public void addICP(ICPRegressor icp, int index) throws IllegalArgumentException {
+		assertNotFrozen();
 		if (predictors==null)
 			predictors = new HashMap<>();
 		LOGGER.debug("Attempting to add new ICP to index={}",index);
@@ -243,6 +263,7 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 	}
 
 	public boolean releaseResources(){
+		assertNotFrozen();
 		if (predictors == null || predictors.isEmpty())
 			return false;
 
@@ -272,6 +293,7 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 	}
 
 	public void setStrategy(SamplingStrategy strategy) {
+		assertNotFrozen();
 		if (strategy.isStratified())
 			throw new IllegalArgumentException("Stratified sampling not allowed for regression");
 		this.strategy = strategy;
@@ -316,7 +338,9 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 	@Override
 	public void train(Dataset data) 
 			throws IllegalArgumentException {
-		Iterator<TrainSplit> splits = strategy.getIterator(data, seed);
+		assertNotFrozen();
+		Iterator<TrainSplit> splits = splitCache != null ? 
+			splitCache.getSplits(strategy, data, seed).iterator() : strategy.getIterator(data, seed);
 
 		predictors=new HashMap<>();
 
@@ -324,13 +348,27 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 		int i=0, nrModels=strategy.getNumSamples();
 		LOGGER.debug("Training ACP Predictor with {} models", nrModels);
 
-		while (splits.hasNext()){
-			ICPRegressor icp = icpImplementation.clone();
-			TrainSplit nextDataset = splits.next();
-			icp.train(nextDataset);
-			predictors.put(i, icp);
-			LOGGER.debug(" - Trained model {}/{}",(i+1),nrModels);
-			i++;
+		// The models are trained on overlapping data, share the native representation of the records between them
+		// (unless already shared by the caller, in which case the shared rows should be kept after training)
+		boolean shareRows = nrModels > 1 && !rowsSharedByCaller;
+		if (shareRows)
+			icpImplementation.setConfigParameters(NativeRowCache.getParameters(true));
+		try {
+			while (splits.hasNext()){
+				ICPRegressor icp = icpImplementation.clone();
+				TrainSplit nextDataset = splits.next();
+				icp.train(nextDataset);
+				predictors.put(i, icp);
+				LOGGER.debug(" - Trained model {}/{}",(i+1),nrModels);
+				i++;
+			}
+		} finally {
+			if (shareRows) {
+				// The trained models should not keep a reference to the shared rows
+				icpImplementation.setConfigParameters(NativeRowCache.getParameters(false));
+				for (ICPRegressor trained : predictors.values())
+					trained.setConfigParameters(NativeRowCache.getParameters(false));
+			}
 		}
 
 	}
@@ -343,6 +381,7 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 	 */
 	public void train(Dataset data, int index) 
 			throws IllegalArgumentException {
+		assertNotFrozen();
 
 		if (predictors == null){
 			predictors = new HashMap<>();
@@ -366,6 +405,32 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 
 	}
 
+	/* 
+	 * =================================================
+	 * 			FREEZE
+	 * =================================================
+	 */
+
+	/**
+	 * Freeze the trained ACP, and all of its ICPs, into an immutable snapshot where all lazily initialised
+	 * state has been computed. The frozen ACP can be used for prediction from any number of threads concurrently,
+	 * all methods that alter the ACP throw an {@link IllegalStateException}. 
+	 * @return the calling instance
+	 * @throws IllegalStateException If the ACP is not trained
+	 */
+	@Override
+	public ACPRegressor freeze() throws IllegalStateException {
+		if (frozen)
+			return this;
+		assertIsTrained();
+		for (ICPRegressor icp : predictors.values())
+			icp.freeze();
+		predictors = Collections.unmodifiableMap(new HashMap<>(predictors));
+		// Volatile write last, publishes the state above
+		frozen = true;
+		return this;
+	}
+
 	/* 
 	 * =================================================
 	 * 			PREDICT
@@ -591,6 +656,7 @@ public final class ACPRegressor extends PredictorBase implements ACP, ConformalR
 	@Override
 	public void loadFromDataSource(DataSource source, String basePath, EncryptionSpecification encryptSpec) 
 			throws InvalidKeyException, IOException {
+		assertNotFrozen();
 		String acpDir = DataIOUtils.locateBasePath(source, basePath, ACP_DIRECTORY_NAME+'/'); 
 		LOGGER.debug("acp directory={}",acpDir);
 
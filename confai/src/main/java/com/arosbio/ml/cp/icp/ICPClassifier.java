@@ -33,6 +33,7 @@ import com.arosbio.commons.FuzzyServiceLoader;
 import com.arosbio.commons.TypeUtils;
 import com.arosbio.commons.config.Configurable;
 import com.arosbio.commons.config.ImplementationConfig;
+import com.arosbio.commons.mixins.Freezable;
 import com.arosbio.commons.mixins.ResourceAllocator;
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.FeatureVector;
@@ -67,7 +68,7 @@ import com.github.cliftonlabs.json_simple.Jsoner;
  * @author staffan
  *
  */
-public class ICPClassifier implements ICP, ClassificationPredictor {
+public class ICPClassifier implements ICP, ClassificationPredictor, Freezable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ICPClassifier.class);
 	private final static String ICP_META_INFO_PATH = ".meta.json";
@@ -83,6 +84,7 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 	// The nonconformity lists for all classes
 	private Map<Integer,List<Double>> nonconfLists;
 	private int numTrainingObservations;
+	private volatile boolean frozen = false;
 
 	/* 
 	 * =================================================
@@ -118,6 +120,7 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 
 	@Override
 	public void setPValueCalculator(PValueCalculator estimator) {
+		assertNotFrozen();
 		this.pValueCalculator = estimator; 
 		if (fittedNCSEstimators != null && !fittedNCSEstimators.isEmpty())
 			fittedNCSEstimators.clear(); // invalidate the fitted estimators!
@@ -133,6 +136,7 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 	}
 
 	public void setNCS(Map<Integer,List<Double>> nonconf) {
+		assertNotFrozen();
 		this.nonconfLists = nonconf; 
 	}
 
@@ -152,6 +156,7 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 	}
 
 	public void setSeed(long seed) {
+		assertNotFrozen();
 		ncm.getModel().setSeed(seed);
 		pValueCalculator.setRNGSeed(seed);
 	}
@@ -165,6 +170,7 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 	}
 
 	public void setNCM(NCMMondrianClassification nonconfMeasure){
+		assertNotFrozen();
 		this.ncm = nonconfMeasure;
 	}
 
@@ -224,13 +230,14 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 
 	@Override
 	public void setConfigParameters(Map<String, Object> params) throws IllegalArgumentException {
+		assertNotFrozen();
 		for (Map.Entry<String, Object> kv : params.entrySet()) {
 			try {
 			if (CollectionUtils.containsIgnoreCase(ConformalPredictor.CONFIG_PVALUE_CALC_PARAM_NAMES, kv.getKey())) {
 				if (kv.getValue() instanceof PValueCalculator) {
-					pValueCalculator = (PValueCalculator) kv.getValue();
+					setPValueCalculator((PValueCalculator) kv.getValue());
 				} else {
-					pValueCalculator = FuzzyServiceLoader.load(PValueCalculator.class, kv.getValue().toString());
+					setPValueCalculator(FuzzyServiceLoader.load(PValueCalculator.class, kv.getValue().toString()));
 				}
 			}
 			} catch (Exception e) {
@@ -251,6 +258,7 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 	@Override
 	public void train(TrainSplit icpdataset) 
 			throws IllegalArgumentException {
+		assertNotFrozen();
 		if (ncm == null)
 			throw new IllegalStateException("No NCM set in the ICP");
 
@@ -292,7 +300,7 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 	}
 
 	private void fitNCSEstimators() {
-		fittedNCSEstimators = new HashMap<>();
+		Map<Integer,PValueCalculator> fitted = new HashMap<>();
 
 		for (Map.Entry<Integer,List<Double>> nonconf: nonconfLists.entrySet()) {
 			if (nonconf.getValue().isEmpty())
@@ -300,8 +308,53 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 			Collections.sort(nonconf.getValue());
 			PValueCalculator forLabel = pValueCalculator.clone();
 			forLabel.build(nonconf.getValue());
-			fittedNCSEstimators.put(nonconf.getKey(), forLabel);
+			fitted.put(nonconf.getKey(), forLabel);
 		}
+		// Only assign once fully built
+		fittedNCSEstimators = fitted;
+	}
+
+	/* 
+	 * =================================================
+	 * 			FREEZE
+	 * =================================================
+	 */
+
+	/**
+	 * Freeze the trained ICP into an immutable snapshot, fitting the p-value calculators up front so
+	 * that no state is altered when predicting. The frozen ICP can be used for prediction from any number of threads
+	 * concurrently, all methods that alter the ICP throw an {@link IllegalStateException}. Note that the {@link NCM}
+	 * and its underlying model must not be altered directly after freezing the ICP. 
+	 * @return the calling instance
+	 * @throws IllegalStateException If the ICP is not trained
+	 */
+	@Override
+	public ICPClassifier freeze() throws IllegalStateException {
+		if (frozen)
+			return this;
+		assertIsTrained();
+
+		if (fittedNCSEstimators == null || fittedNCSEstimators.isEmpty())
+			fitNCSEstimators();
+
+		Map<Integer,List<Double>> ncs = new HashMap<>();
+		for (Map.Entry<Integer,List<Double>> kv : nonconfLists.entrySet())
+			ncs.put(kv.getKey(), Collections.unmodifiableList(kv.getValue()));
+		nonconfLists = Collections.unmodifiableMap(ncs);
+		fittedNCSEstimators = Collections.unmodifiableMap(fittedNCSEstimators);
+		// Volatile write last, publishes the state above
+		frozen = true;
+		return this;
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void assertNotFrozen() throws IllegalStateException {
+		if (frozen)
+			throw new IllegalStateException("ICP is frozen and cannot be altered");
 	}
 
 	/* 
@@ -327,7 +380,7 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 		if (instance == null)
 			throw new IllegalArgumentException("example to predict was null");
 
-		if (fittedNCSEstimators == null || fittedNCSEstimators.isEmpty()) {
+		if (!frozen && (fittedNCSEstimators == null || fittedNCSEstimators.isEmpty())) {
 			fitNCSEstimators();
 			LOGGER.trace("Fitted PvalueExtractors of type {}", pValueCalculator.getClass());
 		}
@@ -433,6 +486,7 @@ public class ICPClassifier implements ICP, ClassificationPredictor {
 	@Override
 	public void loadFromDataSource(DataSource src, String path, EncryptionSpecification spec)
 			throws IOException, InvalidKeyException {
+		assertNotFrozen();
 		if (! src.hasEntry(path+ICP_META_INFO_PATH) || 
 				! src.hasEntry(path+NCS_PATH))
 			throw new IOException("No ICP model in source under modelName=" + path);
@@ -32,6 +32,7 @@ import com.arosbio.commons.FuzzyServiceLoader;
 import com.arosbio.commons.TypeUtils;
 import com.arosbio.commons.config.Configurable;
 import com.arosbio.commons.config.ImplementationConfig;
+import com.arosbio.commons.mixins.Freezable;
 import com.arosbio.commons.mixins.ResourceAllocator;
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.FeatureVector;
@@ -60,7 +61,7 @@ import com.github.cliftonlabs.json_simple.JsonArray;
 import com.github.cliftonlabs.json_simple.JsonException;
 import com.github.cliftonlabs.json_simple.Jsoner;
 
-public class ICPRegressor implements ICP, RegressionPredictor {
+public class ICPRegressor implements ICP, RegressionPredictor, Freezable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ICPRegressor.class);
 	//	private static final String NCS_ESTIMATOR_PARAMETER = "PVALUE_CALCULATION";
@@ -76,6 +77,7 @@ public class ICPRegressor implements ICP, RegressionPredictor {
 	//The minimum and maximum values observed in training. Used to truncate ranges.
 	private double minObservation;
 	private double maxObservation;
+	private volatile boolean frozen = false;
 
 	/* 
 	 * =================================================
@@ -119,6 +121,7 @@ public class ICPRegressor implements ICP, RegressionPredictor {
 	}
 
 	public void setPValueCalculator(PValueCalculator estimator) {
+		assertNotFrozen();
 		this.pValueCalculator = estimator;
 	}
 
@@ -139,15 +142,18 @@ public class ICPRegressor implements ICP, RegressionPredictor {
 	 * @param alphas nonconformity scores
 	 */
 	public void setNCS(List<Double> alphas) {
+		assertNotFrozen();
 		this.ncs = alphas;
 	}
 
 	public void setMinMaxObservations(double minObs, double maxObs) {
+		assertNotFrozen();
 		this.minObservation = minObs;
 		this.maxObservation = maxObs;
 	}
 
 	public void setSeed(long seed) {
+		assertNotFrozen();
 		if (ncm != null) {
 			ncm.getModel().setSeed(seed);
 			if (ncm.requiresErrorModel())
@@ -175,6 +181,7 @@ public class ICPRegressor implements ICP, RegressionPredictor {
 	}
 
 	public void setNCM(NCMRegression nonconfMeasure){
+		assertNotFrozen();
 		this.ncm = nonconfMeasure;
 	}
 
@@ -229,6 +236,7 @@ public class ICPRegressor implements ICP, RegressionPredictor {
 
 	@Override
 	public void setConfigParameters(Map<String, Object> params) throws IllegalArgumentException {
+		assertNotFrozen();
 		for (Map.Entry<String, Object> kv : params.entrySet()) {
 			try {
 				if (CollectionUtils.containsIgnoreCase(ConformalPredictor.CONFIG_PVALUE_CALC_PARAM_NAMES, kv.getKey())) {
@@ -255,6 +263,7 @@ public class ICPRegressor implements ICP, RegressionPredictor {
 	@Override
 	public void train(TrainSplit icpdataset) 
 			throws IllegalArgumentException, IllegalStateException {
+		assertNotFrozen();
 		if (icpdataset==null)
 			throw new IllegalArgumentException("Training data cannot be null");
 		if (ncm == null)
@@ -292,6 +301,46 @@ public class ICPRegressor implements ICP, RegressionPredictor {
 	}
 
 
+	/* 
+	 * =================================================
+	 * 			FREEZE
+	 * =================================================
+	 */
+
+	/**
+	 * Freeze the trained ICP into an immutable snapshot, building the p-value calculator up front so
+	 * that no state is altered when predicting. The frozen ICP can be used for prediction from any number of threads
+	 * concurrently, all methods that alter the ICP throw an {@link IllegalStateException}. Note that the {@link NCMRegression}
+	 * and its underlying models must not be altered directly after freezing the ICP.
+	 * @return the calling instance
+	 * @throws IllegalStateException If the ICP is not trained
+	 */
+	@Override
+	public ICPRegressor freeze() throws IllegalStateException {
+		if (frozen)
+			return this;
+		if (! isTrained())
+			throw new IllegalStateException("Model not trained");
+		if (pValueCalculator == null)
+			throw new IllegalStateException("No NCS estimator set");
+		if (!pValueCalculator.isReady())
+			pValueCalculator.build(ncs);
+		ncs = Collections.unmodifiableList(ncs);
+		// Volatile write last, publishes the state above
+		frozen = true;
+		return this;
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void assertNotFrozen() throws IllegalStateException {
+		if (frozen)
+			throw new IllegalStateException("ICP is frozen and cannot be altered");
+	}
+
 	/* 
 	 * =================================================
 	 * 			PREDICTION
@@ -325,7 +374,7 @@ public class ICPRegressor implements ICP, RegressionPredictor {
 			throw new IllegalArgumentException("example to predict was null");
 		if (pValueCalculator == null)
 			throw new IllegalStateException("No NCS estimator set");
-		if (!pValueCalculator.isReady()) {
+		if (!frozen && !pValueCalculator.isReady()) {
 			pValueCalculator.build(ncs);
 			LOGGER.debug("Fitted NCS estimator");
 		}
@@ -460,6 +509,7 @@ public class ICPRegressor implements ICP, RegressionPredictor {
 	@Override
 	public void loadFromDataSource(DataSource src, String path, EncryptionSpecification encryptSpec)
 			throws IOException, InvalidKeyException {
+		assertNotFrozen();
 
 		if (! src.hasEntry(path+ICP_META_INFO_PATH) ||
 				! src.hasEntry(path+NCS_PATH)) {
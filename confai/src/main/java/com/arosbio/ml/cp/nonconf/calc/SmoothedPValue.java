@@ -31,7 +31,7 @@ public class SmoothedPValue implements PValueCalculator {
 
 	private long seed;
 	private Random rng;
-	private transient boolean hasDebuggedConfTooHigh = false;
+	private transient volatile boolean hasDebuggedConfTooHigh = false;
 
 
 	public SmoothedPValue() {
@@ -23,7 +23,7 @@ public class StandardPValue implements PValueCalculator {
 	public static final int ID = 1;
 
 	private List<Double> scores;
-	private transient boolean hasDebuggedConfTooHigh = false;
+	private transient volatile boolean hasDebuggedConfTooHigh = false;
 
 	@Override
 	public StandardPValue clone() {
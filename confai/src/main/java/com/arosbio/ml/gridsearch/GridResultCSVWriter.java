@@ -43,6 +43,7 @@ public class GridResultCSVWriter implements AutoCloseable {
 	private static final String CSV_RUNTIME_MS_HEADER = "Runtime (ms)";
 	private static final String CSV_SET_CONFIDENCE_HEADER = "Chosen confidence";
 	private static final String CSV_ERROR_MSG_HEADER = "Comment";
+	private static final String CSV_BUDGET_HEADER = "Budget";
 	private static final char NO_RESULT_INDICATOR = '-';
 
 	// Prior to initialization
@@ -59,6 +60,7 @@ public class GridResultCSVWriter implements AutoCloseable {
 	public static class Builder {
 		private Double conf = null;
 		private boolean useRanking = false;
+		private boolean includeBudget = false;
 		private CSVFormat.Builder format = CSVFormat.DEFAULT.builder().setRecordSeparator(System.lineSeparator());
 		private List<String> params;
 		private Appendable output;
@@ -80,6 +82,16 @@ public class GridResultCSVWriter implements AutoCloseable {
 			this.useRanking = on;
 			return this;
 		}
+		/**
+		 * Include the budget (fraction of the data) that each result was evaluated on, 
+		 * used when running successive halving
+		 * @param include if the budget should be included
+		 * @return the Builder
+		 */
+		public Builder budget(boolean include) {
+			this.includeBudget = include;
+			return this;
+		}
 		public Builder format(CSVFormat.Builder format) {
 			this.format = format;
 			return this;
@@ -106,7 +118,7 @@ public class GridResultCSVWriter implements AutoCloseable {
 		}
 
 		private Builder getCopy() {
-			return new Builder().confidence(conf).rank(useRanking).format(format).params(params).log(output);
+			return new Builder().confidence(conf).rank(useRanking).budget(includeBudget).format(format).params(params).log(output);
 		}
 
 		public GridResultCSVWriter build(){
@@ -146,6 +158,9 @@ public class GridResultCSVWriter implements AutoCloseable {
 		}
 
 		headers.addAll(settings.params); // Then the parameters
+		if (settings.includeBudget) {
+			headers.add(CSV_BUDGET_HEADER);
+		}
 		headers.add(CSV_RUNTIME_HEADER);
 		headers.add(CSV_RUNTIME_MS_HEADER);
 		headers.add(CSV_STATUS_HEADER);
@@ -191,6 +206,8 @@ public class GridResultCSVWriter implements AutoCloseable {
 				record.add(res.getParams().get(h).toString());
 			} else if (h.equals(CSV_SET_CONFIDENCE_HEADER)){
 				record.add(settings.conf);
+			} else if (h.equals(CSV_BUDGET_HEADER)) {
+				record.add(MathUtils.roundToNSignificantFigures(res.getBudget(), NUM_SIGNIFICANT_FIGURES));
 			} else if (h.equals(CSV_STATUS_HEADER)) {
 				record.add(res.getStatus().toString());
 			} else if (h.equals(CSV_ERROR_MSG_HEADER)){
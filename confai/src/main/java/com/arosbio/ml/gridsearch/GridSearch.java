@@ -9,6 +9,7 @@
  */
 package com.arosbio.ml.gridsearch;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
@@ -18,10 +19,12 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -29,7 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.arosbio.commons.CollectionUtils;
-import com.arosbio.commons.LazyListsPermutationIterator;
+import com.arosbio.commons.GlobalConfig;
 import com.arosbio.commons.MathUtils;
 import com.arosbio.commons.Stopwatch;
 import com.arosbio.commons.StringUtils;
@@ -40,6 +43,7 @@ import com.arosbio.commons.mixins.ResourceAllocator;
 import com.arosbio.data.DataUtils;
 import com.arosbio.data.DataUtils.DataType;
 import com.arosbio.data.Dataset;
+import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.data.MissingDataException;
 import com.arosbio.io.CollectionsWriter;
 import com.arosbio.io.DebugWriter;
@@ -47,7 +51,16 @@ import com.arosbio.io.IOUtils;
 import com.arosbio.ml.algorithms.Classifier;
 import com.arosbio.ml.algorithms.MLAlgorithm;
 import com.arosbio.ml.algorithms.Regressor;
+import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
+import com.arosbio.ml.algorithms.impl.LibLinear;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 import com.arosbio.ml.cp.ConformalPredictor;
+import com.arosbio.ml.cp.acp.ACPClassifier;
+import com.arosbio.ml.cp.acp.ACPRegressor;
+import com.arosbio.ml.cp.tcp.TCP;
+import com.arosbio.ml.gridsearch.search.ExhaustiveSearch;
+import com.arosbio.ml.gridsearch.search.SearchStrategy;
+import com.arosbio.ml.gridsearch.search.SearchStrategy.Search;
 import com.arosbio.ml.gridsearch.utils.GSResComparator;
 import com.arosbio.ml.interfaces.Predictor;
 import com.arosbio.ml.metrics.Metric;
@@ -55,11 +68,13 @@ import com.arosbio.ml.metrics.MetricFactory;
 import com.arosbio.ml.metrics.SingleValuedMetric;
 import com.arosbio.ml.metrics.cp.ModelCalibration;
 import com.arosbio.ml.metrics.plots.PlotMetric;
+import com.arosbio.ml.sampling.TrainSplitCache;
 import com.arosbio.ml.testing.KFoldCV;
 import com.arosbio.ml.testing.TestRunner;
 import com.arosbio.ml.testing.TestingStrategy;
 import com.arosbio.ml.testing.utils.EvaluationUtils;
 import com.arosbio.ml.vap.VennABERSPredictor;
+import com.arosbio.ml.vap.avap.AVAPClassifier;
 
 /**
  * <code>GridSearch</code> takes a <code>Dataset</code> and the chosen
@@ -96,6 +111,39 @@ import com.arosbio.ml.vap.VennABERSPredictor;
  * accuracy of 0.7 - 0.05 = 0.65 at worst. For Venn-ABERS predictors the
  * accuracy is not checked so the {@code tolerance} parameter is not used.
  * Note that {@code tolerance} can only be in the range [0..1].
+ * <p>
+ * When running in {@link Builder#regularizationPath(boolean) regularization path} mode, the grid is 
+ * ordered so that the cost parameter varies fastest and in increasing order, and the scoring algorithms 
+ * that support it (currently the LIBLINEAR based algorithms, see 
+ * {@link com.arosbio.ml.algorithms.impl.LibLinear#WARM_START_SOLVERS LibLinear.WARM_START_SOLVERS}) 
+ * are warm-started from the solution of the previous cost value. This makes a full sweep of cost values 
+ * cost little more than the most expensive single fit. 
+ * <p>
+ * By default the preparation of the data is shared between all evaluated grid points (see {@link Builder#reuseDataPreparation(boolean)}),
+ * i.e. the test-train splits of the testing strategy, the splits of the sampling strategy of aggregated predictors and the 
+ * native (LIBSVM/LIBLINEAR) representation of the records are only computed once, so the cost of each grid point is the 
+ * training and prediction of the models. 
+ * <p>
+ * Which points of the grid that are evaluated is decided by the {@link Builder#searchStrategy(SearchStrategy) search strategy}.
+ * Apart from the default exhaustive search, a fixed number of points can be evaluated by drawing them at random 
+ * ({@link com.arosbio.ml.gridsearch.search.RandomSearch RandomSearch}) or by picking them sequentially based on 
+ * the results of the previous points ({@link com.arosbio.ml.gridsearch.search.TPESearch TPESearch}). 
+ * <p>
+ * When running with {@link Builder#successiveHalving(boolean) successive halving}, all grid points are first 
+ * evaluated on a small random subsample of the data (stratified for classification data), after which only the best 
+ * {@code 1/reductionFactor} of them are evaluated again on a {@code reductionFactor} times larger subsample. This 
+ * is repeated until the remaining grid points are evaluated on the full data, so that e.g. a grid of 81 points using a 
+ * reduction factor of 3 is evaluated on 1/27, 1/9, 1/3 and finally all of the data - using the computational cost of 
+ * 12 full evaluations instead of 81 (if the cost scales linearly with the amount of data). Only the evaluations on the full data are included in the returned 
+ * {@link GridSearchResult}, the evaluations on smaller budgets are only written to the 
+ * {@link Builder#loggingWriter(Writer) logging writer}. Note that parameters that perform well on the full data might be 
+ * discarded early if they perform poorly on small amounts of data, e.g. weak regularization. 
+ * <p>
+ * Long running searches can save the result of each grid point to a {@link Builder#checkpoint(File) checkpoint} 
+ * ({@link GridSearchCheckpoint}), so that an interrupted search can be {@link Builder#resume(boolean) resumed} without 
+ * evaluating the completed grid points again. The grid can also be split into {@link Builder#partition(int, int) partitions}
+ * that are evaluated on separate machines, and the results are merged by running the full grid 
+ * {@link Builder#resumeFrom(List) using the checkpoints} of all partitions.
  * 
  * 
  * @author Aros Bio AB
@@ -107,6 +155,8 @@ public class GridSearch {
 	private static final Logger LOGGER = (Logger) LoggerFactory.getLogger(GridSearch.class);
 
 	public static final double MIN_ALLOWED_TOLERANCE = 0.0, MAX_ALLOWED_TOLERANCE = 1.0, DEFAULT_CONFIDENCE = 0.8;
+	public static final int DEFAULT_REDUCTION_FACTOR = 3;
+	public static final double DEFAULT_MIN_BUDGET = 1d/27;
 
 	public static enum EvalStatus {
 		IN_PROGRESS("in progress"), VALID("valid"), NOT_VALID("not valid"), FAILED("failed");
@@ -174,6 +224,11 @@ public class GridSearch {
 			this.runtime = runtime;
 			this.currentBestScore = bestScore;
 		}
+		/**
+		 * Get the total number of planned evaluations, when running successive halving a grid point
+		 * can be evaluated several times (on different amounts of data)
+		 * @return the total number of evaluations
+		 */
 		public int getTotalNumGridPoints(){
 			return numTotalGridPoints;
 		}
@@ -206,6 +261,7 @@ public class GridSearch {
 		private final List<Metric> secondaryMetrics;
 		private final EvalStatus status;
 		private final String errorMessage;
+		private final double budget;
 
 		private GSResult(Builder b){
 			this.parameters = Objects.requireNonNull(b.parameters);
@@ -215,6 +271,7 @@ public class GridSearch {
 			this.secondaryMetrics = b.secondaryMetrics;
 			this.status = b.status;
 			this.errorMessage = b.errorMessage;
+			this.budget = b.budget;
 		}
 
 		static class Builder {
@@ -225,6 +282,7 @@ public class GridSearch {
 			private List<Metric> secondaryMetrics;
 			private EvalStatus status;
 			private String errorMessage;
+			private double budget = 1;
 
 			public static Builder success(Map<String, Object> params, 
 					double optimizationResult, 
@@ -257,6 +315,21 @@ public class GridSearch {
 				return this;
 			}
 
+			public Builder budget(double fraction){
+				this.budget = fraction;
+				return this;
+			}
+
+			public Builder status(EvalStatus status){
+				this.status = status;
+				return this;
+			}
+
+			public Builder runtime(long runtime){
+				this.runtimeMS = runtime;
+				return this;
+			}
+
 			public GSResult build(){
 				return new GSResult(this);
 			}
@@ -292,6 +365,33 @@ public class GridSearch {
 			return runtimeMS;
 		}
 
+		/**
+		 * The fraction of the data that was used in the evaluation, which is
+		 * less than 1 for the early evaluations when running successive halving
+		 * 
+		 * @return the fraction of the data, in the range (0..1]
+		 */
+		public double getBudget() {
+			return budget;
+		}
+
+		/**
+		 * Get a copy of this result with other parameter objects, e.g. the grid values 
+		 * of a result that was restored from a checkpoint 
+		 */
+		GSResult withParams(Map<String, Object> params) {
+			Builder b = new Builder();
+			b.parameters = params;
+			b.result = result;
+			b.optimizationType = optimizationType;
+			b.runtimeMS = runtimeMS;
+			b.secondaryMetrics = secondaryMetrics;
+			b.status = status;
+			b.errorMessage = errorMessage;
+			b.budget = budget;
+			return b.build();
+		}
+
 		public String toString() {
 			return String.format("GSResult using metric %s: %s, runtime: %sms, params: %s",
 					optimizationType.getName(),
@@ -322,6 +422,17 @@ public class GridSearch {
 	private final double confidence;
 	private final double tolerance;
 	private final int maxNumGSresults;
+	private final boolean regularizationPath;
+	private final boolean reuseDataPreparation;
+	private final SearchStrategy searchStrategy;
+	private final boolean successiveHalving;
+	private final int reductionFactor;
+	private final double minBudget;
+	private final File checkpoint;
+	private final boolean resume;
+	private final List<File> resumeFrom;
+	private final int partitionIndex;
+	private final int numPartitions;
 
 	private final ProgressCallback callback;
 	private final ProgressMonitor monitor;
@@ -338,6 +449,25 @@ public class GridSearch {
 		confidence = builder.confidence;
 		tolerance = builder.tolerance;
 		maxNumGSresults = builder.maxNumGSresults;
+		regularizationPath = builder.regularizationPath;
+		reuseDataPreparation = builder.reuseDataPreparation;
+		if (builder.searchStrategy == null)
+			throw new IllegalArgumentException("Must specify a search strategy");
+		searchStrategy = builder.searchStrategy;
+		successiveHalving = builder.successiveHalving;
+		reductionFactor = builder.reductionFactor;
+		minBudget = builder.minBudget;
+		checkpoint = builder.checkpoint;
+		resume = builder.resume;
+		resumeFrom = new ArrayList<>(builder.resumeFrom);
+		if (resume && checkpoint == null)
+			throw new IllegalArgumentException("Must specify a checkpoint file in order to resume a grid search");
+		partitionIndex = builder.partitionIndex;
+		numPartitions = builder.numPartitions;
+		if (numPartitions > 1 && successiveHalving)
+			throw new IllegalArgumentException("Successive halving cannot be used when the grid is split into partitions");
+		if (numPartitions > 1 && searchStrategy.isAdaptive())
+			throw new IllegalArgumentException("Search strategy " + searchStrategy.getName() + " cannot be used when the grid is split into partitions");
 
 		monitor = builder.monitor;
 		callback = builder.callback;
@@ -357,6 +487,17 @@ public class GridSearch {
 		private double confidence = DEFAULT_CONFIDENCE;
 		private double tolerance = 0.05;
 		private int maxNumGSresults = 10;
+		private boolean regularizationPath = false;
+		private boolean reuseDataPreparation = true;
+		private SearchStrategy searchStrategy = new ExhaustiveSearch();
+		private boolean successiveHalving = false;
+		private int reductionFactor = DEFAULT_REDUCTION_FACTOR;
+		private double minBudget = DEFAULT_MIN_BUDGET;
+		private File checkpoint;
+		private boolean resume = false;
+		private List<File> resumeFrom = new ArrayList<>();
+		private int partitionIndex = 0;
+		private int numPartitions = 1;
 		private ProgressCallback callback;
 		private ProgressMonitor monitor;
 
@@ -474,6 +615,145 @@ public class GridSearch {
 			return this;
 		}
 
+		/**
+		 * Run the grid search along a regularization path, i.e. evaluate the cost values in increasing order
+		 * for each combination of the other parameters, and warm-start the scoring algorithm from the solution 
+		 * of the previous cost value (if supported by the algorithm). Note that warm-started models are only 
+		 * equal to the ones trained from scratch within the tolerance of the termination criterion of the solver.
+		 * @param useRegPath {@code true} if the search should be run along a regularization path
+		 * @return the same Builder object
+		 */
+		public Builder regularizationPath(boolean useRegPath) {
+			this.regularizationPath = useRegPath;
+			return this;
+		}
+
+		/**
+		 * Set if the preparation of the data should be computed once and shared between all evaluated grid points, i.e. 
+		 * the test-train splits, the splits of the sampling strategy of aggregated predictors and the native 
+		 * representation of the records used by the LIBSVM and LIBLINEAR based algorithms. The results are the same 
+		 * as when preparing the data for each grid point, but the prepared data is kept in memory during the search. Default is {@code true}
+		 * @param reuse {@code true} if the data preparation should be shared between the grid points
+		 * @return the same Builder object
+		 */
+		public Builder reuseDataPreparation(boolean reuse) {
+			this.reuseDataPreparation = reuse;
+			return this;
+		}
+
+		/**
+		 * Set the strategy for which points of the grid that should be evaluated, the default
+		 * is to evaluate all of them ({@link ExhaustiveSearch})
+		 * @param strategy the search strategy
+		 * @return the same Builder object
+		 */
+		public Builder searchStrategy(SearchStrategy strategy) {
+			this.searchStrategy = strategy;
+			return this;
+		}
+
+		public SearchStrategy searchStrategy() {
+			return searchStrategy;
+		}
+
+		/**
+		 * Run the grid search using successive halving, i.e. evaluate all grid points on a small subsample of 
+		 * the data and only evaluate the best ones on larger subsamples, until the best are evaluated on the full data.
+		 * See {@link #reductionFactor(int)} and {@link #minBudget(double)} for the settings. 
+		 * @param useHalving {@code true} if successive halving should be used, {@code false} for an exhaustive search
+		 * @return the same Builder object
+		 */
+		public Builder successiveHalving(boolean useHalving) {
+			this.successiveHalving = useHalving;
+			return this;
+		}
+
+		/**
+		 * Set the factor that both the number of grid points is reduced with, and the fraction of the data is 
+		 * increased with, between each round of successive halving
+		 * @param factor the reduction factor, at least 2
+		 * @return the same Builder object
+		 * @throws IllegalArgumentException If the factor is smaller than 2
+		 */
+		public Builder reductionFactor(int factor) throws IllegalArgumentException {
+			if (factor < 2)
+				throw new IllegalArgumentException("Reduction factor must be at least 2, got: " + factor);
+			this.reductionFactor = factor;
+			return this;
+		}
+
+		/**
+		 * Set the smallest fraction of the data that grid points are evaluated on when running successive halving,
+		 * the actual fraction is the smallest power of {@code 1/reductionFactor} that is at least this large
+		 * @param fraction the minimum fraction, in the range (0..1]
+		 * @return the same Builder object
+		 * @throws IllegalArgumentException If the fraction is outside the range (0..1]
+		 */
+		public Builder minBudget(double fraction) throws IllegalArgumentException {
+			if (fraction <= 0 || fraction > 1)
+				throw new IllegalArgumentException("Minimum budget must be in the range (0..1], got: " + fraction);
+			this.minBudget = fraction;
+			return this;
+		}
+
+		/**
+		 * Save the result of each grid point to a checkpoint file, as soon as it has been evaluated. An existing 
+		 * file is overwritten unless resuming the search, see {@link #resume(boolean)}
+		 * @param file the checkpoint file, or {@code null} for not saving any checkpoint
+		 * @return the same Builder object
+		 * @see GridSearchCheckpoint
+		 */
+		public Builder checkpoint(File file) {
+			this.checkpoint = file;
+			return this;
+		}
+
+		/**
+		 * Resume a search from the checkpoint file (see {@link #checkpoint(File)}), i.e. grid points that are
+		 * saved in the checkpoint are not evaluated again and new results are added to the checkpoint. The search
+		 * starts from scratch if the checkpoint file does not exist. Note that the search must be run using the
+		 * same data, testing strategy, metrics and RNG seed in order to give the same results as an uninterrupted search.
+		 * @param resume {@code true} if the search should be resumed from the checkpoint
+		 * @return the same Builder object
+		 */
+		public Builder resume(boolean resume) {
+			this.resume = resume;
+			return this;
+		}
+
+		/**
+		 * Re-use the results of other checkpoint files, e.g. checkpoints of partitions of the grid that were
+		 * evaluated on other machines (see {@link #partition(int, int)}). Grid points that are saved in any of 
+		 * the checkpoints are not evaluated again, so running the full grid using the checkpoints of all 
+		 * partitions merges their results.
+		 * @param checkpoints checkpoint files to re-use results from
+		 * @return the same Builder object
+		 */
+		public Builder resumeFrom(List<File> checkpoints) {
+			this.resumeFrom = checkpoints != null ? new ArrayList<>(checkpoints) : new ArrayList<>();
+			return this;
+		}
+
+		/**
+		 * Only evaluate a partition of the grid points, so that the grid can be split over several machines
+		 * (or JVMs). Grid point {@code i} (in the order given by the search strategy) is evaluated by the 
+		 * partition with index {@code i % numPartitions}. Cannot be combined with successive halving or a 
+		 * search strategy that adapts to previous results, and all partitions must use the same RNG seed.
+		 * @param index the index of this partition, in the range {@code [0, numPartitions)}
+		 * @param numPartitions the number of partitions, {@code 1} evaluates all grid points
+		 * @return the same Builder object
+		 * @throws IllegalArgumentException If the index is outside the allowed range or the number of partitions is smaller than 1
+		 */
+		public Builder partition(int index, int numPartitions) throws IllegalArgumentException {
+			if (numPartitions < 1)
+				throw new IllegalArgumentException("Number of partitions must be at least 1, got: " + numPartitions);
+			if (index < 0 || index >= numPartitions)
+				throw new IllegalArgumentException(String.format("Partition index must be in the range [0,%d), got: %d", numPartitions, index));
+			this.partitionIndex = index;
+			this.numPartitions = numPartitions;
+			return this;
+		}
+
 		public Builder register(ProgressCallback callback){
 			this.callback = callback;
 			return this;
@@ -506,6 +786,50 @@ public class GridSearch {
 		return this.testStrategy;
 	}
 
+	public boolean usesRegularizationPath() {
+		return regularizationPath;
+	}
+
+	public boolean reusesDataPreparation() {
+		return reuseDataPreparation;
+	}
+
+	public SearchStrategy getSearchStrategy() {
+		return searchStrategy;
+	}
+
+	public boolean usesSuccessiveHalving() {
+		return successiveHalving;
+	}
+
+	public int getReductionFactor() {
+		return reductionFactor;
+	}
+
+	public double getMinBudget() {
+		return minBudget;
+	}
+
+	public File getCheckpoint() {
+		return checkpoint;
+	}
+
+	public boolean resumes() {
+		return resume;
+	}
+
+	public List<File> getResumeFrom() {
+		return resumeFrom;
+	}
+
+	public int getPartitionIndex() {
+		return partitionIndex;
+	}
+
+	public int getNumPartitions() {
+		return numPartitions;
+	}
+
 	/**
 	 * Get the confidence used for internal cross validation
 	 * 
@@ -641,7 +965,12 @@ public class GridSearch {
 		return paramGrid;
 	}
 
-	private ParameterCombinationsIterator getParametersIterator(
+	/**
+	 * Get the grid to search, i.e. the default grid of the predictor if none was given. When running
+	 * along a regularization path the cost parameter (if present) is put last, i.e. as the fastest varying 
+	 * parameter, with the values in increasing order
+	 */
+	private Map<String, List<?>> getSearchGrid(
 			Map<String, List<? extends Object>> parameterGrid,
 			Configurable predictor) {
 
@@ -650,68 +979,38 @@ public class GridSearch {
 			parameterGrid = getDefaultParamGrid(predictor);
 		}
 
-		return new ParameterCombinationsIterator(parameterGrid);
-	}
-
-	private class ParameterCombinationsIterator implements Iterator<Map<String, Object>> {
-
-		private Map<String, List<?>> grid;
-		private List<String> paramOrder;
-
-		private LazyListsPermutationIterator permutationIterator;
-
-		private final int numTotalCombinations;
-		private int currentIndex = 0;
-
-		public ParameterCombinationsIterator(Map<String, List<?>> grid) {
-			this.grid = grid;
-			this.paramOrder = new ArrayList<>(grid.keySet());
-			List<Integer> paramSizes = new ArrayList<>();
-			int numCombos = 1;
-			for (String p : paramOrder) {
-				int s = grid.get(p).size();
-				paramSizes.add(s);
-				numCombos *= s;
-			}
-			this.permutationIterator = new LazyListsPermutationIterator(paramSizes);
-			this.numTotalCombinations = numCombos;
-		}
-
-		@Override
-		public boolean hasNext() {
-			return permutationIterator.hasNext();
+		Map<String, List<?>> grid = new HashMap<>(parameterGrid);
+		List<String> paramOrder = new ArrayList<>(grid.keySet());
+		if (regularizationPath) {
+			orderCostAsPath(grid, paramOrder);
 		}
+		Map<String, List<?>> ordered = new LinkedHashMap<>();
+		for (String p : paramOrder)
+			ordered.put(p, grid.get(p));
+		return ordered;
+	}
 
-		@Override
-		public Map<String, Object> next() {
-			List<Integer> combo = permutationIterator.next();
-
-			// Get the current parameters
-			Map<String, Object> params = new HashMap<>();
-			for (int i = 0; i < paramOrder.size(); i++) {
-				String paramName = paramOrder.get(i);
-				params.put(paramName, grid.get(paramName).get(combo.get(i)));
+	private static void orderCostAsPath(Map<String, List<?>> grid, List<String> paramOrder){
+		String costParam = null;
+		for (String p : paramOrder){
+			if (CollectionUtils.containsIgnoreCase(DefaultMLParameterSettings.COST_PARAM_NAMES, p)){
+				costParam = p;
+				break;
 			}
-			// update the internal counter
-			currentIndex++;
-
-			return params;
 		}
-
-		public int getNumTotalCombinations(){
-			return numTotalCombinations;
+		if (costParam == null){
+			LOGGER.debug("No cost parameter in the grid, using the standard grid order");
+			return;
 		}
+		// The last parameter is the one varying fastest
+		paramOrder.remove(costParam);
+		paramOrder.add(costParam);
 
-
-		/**
-		 * This method returns the index (0-based) of the next parameter 
-		 * combination that will be returned. I.e. before the first has been retrieved this index is 0,
-		 * after the fist combination has been given by calling {@link #next()} it will return 1 and so on.
-		 * @return the current (0-index based) index.
-		 */
-		public int getCurrentIndex(){
-			return currentIndex;
-		}
+		Pair<List<Number>, List<Object>> values = getOrderedListAndErroneous(grid.get(costParam));
+		List<Object> ordered = new ArrayList<>(values.getLeft());
+		ordered.addAll(values.getRight());
+		grid.put(costParam, ordered);
+		LOGGER.debug("Running grid search along regularization path of parameter {}: {}", costParam, ordered);
 	}
 
 	@SuppressWarnings("resource")
@@ -743,7 +1042,6 @@ public class GridSearch {
 			Map<String, List<?>> parameterGrid)
 			throws IllegalArgumentException, IOException, GridSearchException {
 		
-		Stopwatch fullMethodTimer = new Stopwatch().start();
 		// Validation
 		if (testStrategy == null)
 			throw new IllegalArgumentException("TestingStrategy must be set");
@@ -759,8 +1057,6 @@ public class GridSearch {
 				"Running grid search with predictor of type: {} with optimization metric: {} and the following param grid: {}",
 				predictor.getClass(), optimizationMetric.getName(), parameterGrid);
 
-		boolean foundValidResult = false;
-
 		// Metrics
 		List<Metric> metrics = getAllMetrics(optimizationMetric, predictor instanceof ConformalPredictor);
 
@@ -781,150 +1077,8 @@ public class GridSearch {
 
 		verifyMetricsOfCorrectType(metrics, predictor);
 
-		ParameterCombinationsIterator paramsIterator = getParametersIterator(parameterGrid, predictor);
-		GSResComparator sorter = new GSResComparator(predictor);
-
-		List<GSResult> results = null;
-		if (maxNumGSresults > 0)
-			results = new ArrayList<>(maxNumGSresults * 2);
-		else
-			results = new ArrayList<>((int) Math.pow(10, parameterGrid.size())); // Assume 10 values for each parameter
-
-		TestRunner runner = new TestRunner.Builder(testStrategy).calcMeanAndStd(calcMeanAndSD).build();
-		
-		Stopwatch timer = new Stopwatch();
-
-		// Configure the output logging
-		Writer resWriter = configAndGetOutput();
-		LOGGER.debug("Running with progresscallback: {}, progressmonitor: {}", callback!=null, monitor!=null);
-		boolean executionManuallyStopped = false;
-
-		try (
-				GridResultCSVWriter resultPrinter = new GridResultCSVWriter.Builder()
-						.rank(false)
-						.confidence((predictor instanceof ConformalPredictor ? confidence : null))
-						.params(parameterGrid.keySet())
-						.log(resWriter).build()) {
-
-			EvalStatus currentStatus = EvalStatus.IN_PROGRESS;
-			Map<String, Object> currentParams = new HashMap<>();
-			List<Metric> paramResult = null;
-
-			while (paramsIterator.hasNext()) {
-				currentParams = paramsIterator.next();
-				String errorMsg = "-";
-				currentStatus = EvalStatus.IN_PROGRESS;
-
-				try {
-					LOGGER.debug("Running grid point {}/{} with parameters: {}", 
-						paramsIterator.currentIndex,paramsIterator.numTotalCombinations, currentParams);
-					// Clone the metrics for this run
-					paramResult = cloneMetrics(metrics);
-					// Start timer, before things can fail
-
-					timer.start();
-					// Set the new parameters to tune
-					predictor.setConfigParameters(currentParams);
-
-					paramResult = runner.evaluate(problem, predictor, paramResult);
-
-					currentStatus = getStatus(predictor, paramResult);
-
-					if (currentStatus == EvalStatus.VALID) {
-						foundValidResult = true;
-					}
-				} catch (MissingDataException e) {
-					currentStatus = EvalStatus.FAILED;
-					LOGGER.debug("Got MissingDataException in GridSearch - failing!");
-					throw new MissingDataException(
-							"Failed performing grid search of parameter values - input data contains missing features - please revise the pre-processing of data");
-				} catch (Exception | Error e) {
-					currentStatus = EvalStatus.FAILED;
-					errorMsg = e.getMessage();
-					if (errorMsg == null)
-						errorMsg = e.getClass().getName() + " exception";
-					LOGGER.debug("Failed running GS with the following parameters: {}, exception: {}",
-							currentParams, LoggerUtils.getShortExceptionMsg(e));
-				} finally {
-					// Stop the timer for this param combo
-					timer.stop();
-					// Update results
-					if (paramResult != null){
-						GSResult.Builder builder = (currentStatus != EvalStatus.FAILED && currentStatus != EvalStatus.IN_PROGRESS 
-								? GSResult.Builder.success(currentParams, getScore(paramResult.get(0)),
-										paramResult.get(0), timer.elapsedTimeMillis())
-								: GSResult.Builder.failed(currentParams, paramResult.get(0), currentStatus,
-										errorMsg));
-						if (paramResult.size() > 1) {
-							builder.secondary(paramResult.subList(1, paramResult.size()));
-						}
-						GSResult r = builder.build();
-						results.add(r);
-					
-						// sort and remove results that are of no interest
-						updateResults(results,sorter);
-
-						// Print the current parameters and the metrics
-						resultPrinter.printRecord(r);
-					}
-
-					// clear allocations from current model
-					predictor.releaseResources();
-
-					// update any registered callback methods
-					if (callback != null || monitor != null){
-						Collections.sort(results, sorter);
-						ProgressInfo info = new ProgressInfo(
-							paramsIterator.getNumTotalCombinations(),
-							paramsIterator.getCurrentIndex(),
-							fullMethodTimer.stop().elapsedTimeMillis(),
-							results.get(0).getResult());
-						
-						if (callback != null)
-							callback.updatedInfo(info);
-						if (monitor != null){
-							ProgressMonitor.Action a = monitor.actOnInfo(info);
-							if (a == ProgressMonitor.Action.EXIT){
-								LOGGER.debug("ProgressMonitor instructed grid search to exit parameter optimization - gathering current results and returning");
-								executionManuallyStopped = true;
-								break;
-							}
-						}
-					}
-
-				}
-			}
-		}
-
-		IOUtils.closeQuietly(resWriter);
-
-		// Fix the results - sort and get correct size
-		if (foundValidResult) {
-			Collections.sort(results,sorter);
-			if (maxNumGSresults > 0 && results.size() > maxNumGSresults) {
-				results.subList(maxNumGSresults, results.size()).clear();
-			}
-
-			// Set the optimal results for the predictor implementation
-			predictor.setConfigParameters(results.get(0).getParams());
-
-			GridSearchResult.Builder res = new GridSearchResult.Builder(results, optimizationMetric.clone());
-
-			// Set warnings
-			String warning = getWarning(results.get(0).parameters, parameterGrid, executionManuallyStopped);
-
-			if (warning != null) {
-				LOGGER.debug(warning);
-				res.warning(warning);
-			}
-
-			return res.build();
-		} else {
-			LOGGER.debug("No valid parameter combinations found in grid-search!");
-			return new GridSearchResult.Builder(results, optimizationMetric.clone())
-				.warning(WARNING_NO_VALID_RESULTS).build();
-		}
-
+		return runSearch(problem, new PredictorEvaluator(predictor, metrics), parameterGrid, optimizationMetric,
+				(predictor instanceof ConformalPredictor ? confidence : null));
 	}
 
 	public GridSearchResult search(Dataset data,
@@ -932,7 +1086,6 @@ public class GridSearch {
 			Map<String, List<?>> parameterGrid)
 			throws IllegalArgumentException, IOException, GridSearchException {
 		
-		Stopwatch fullMethodTimer = new Stopwatch();
 		if (!(alg instanceof Regressor || alg instanceof Classifier))
 			throw new IllegalArgumentException("Algorithm " + alg.getName() + " not supported by GridSearch");
 		// Validation
@@ -966,106 +1119,268 @@ public class GridSearch {
 
 		// Metrics
 		List<Metric> metrics = getAllMetrics(optimizationMetric, false);
-		boolean foundValid = false;
 
 		verifyMetricsOfCorrectType(metrics, alg);
 
-		ParameterCombinationsIterator paramsIterator = getParametersIterator(parameterGrid, alg);
-		GSResComparator sorter = new GSResComparator(alg);
+		return runSearch(data, new AlgorithmEvaluator(alg, metrics), parameterGrid, optimizationMetric, null);
+	}
+
+	/**
+	 * Evaluates a single grid point, for either a {@link Predictor} or a {@link MLAlgorithm}
+	 */
+	private abstract class PointEvaluator {
+
+		private final Configurable target;
+		private final List<Metric> metrics;
+		private final GSResComparator sorter;
+		protected final TestRunner runner;
+
+		private PointEvaluator(Configurable target, List<Metric> metrics, GSResComparator sorter){
+			this.target = target;
+			this.metrics = metrics;
+			this.sorter = sorter;
+			this.runner = new TestRunner.Builder(testStrategy)
+				.calcMeanAndStd(calcMeanAndSD)
+				.reuseSplits(reuseDataPreparation)
+				.numThreads(GlobalConfig.getInstance().getNumThreads())
+				.build();
+		}
+
+		abstract List<Metric> evaluate(Dataset data, Map<String, Object> params, List<Metric> metrics) throws Exception;
+
+		abstract EvalStatus getStatus(List<Metric> result);
+
+		abstract void releaseResources();
+
+		/**
+		 * The instance that is configured and trained for each grid point, a copy of the {@link #target} 
+		 * so that the training modes used by the search do not alter the target
+		 * @return the evaluated instance
+		 */
+		abstract Configurable getEvaluated();
+
+		GSResult evaluate(Dataset data, Map<String, Object> params, double budget){
+			// Clone the metrics for this run
+			List<Metric> paramResult = cloneMetrics(metrics);
+			EvalStatus status = EvalStatus.IN_PROGRESS;
+			String errorMsg = null;
+			// Start timer, before things can fail
+			Stopwatch timer = new Stopwatch().start();
+
+			try {
+				paramResult = evaluate(data, params, paramResult);
+				status = getStatus(paramResult);
+			} catch (MissingDataException e) {
+				LOGGER.debug("Got MissingDataException in GridSearch - failing!");
+				throw new MissingDataException(
+						"Failed performing grid search of parameter values - input data contains missing features - please revise the pre-processing of data");
+			} catch (Exception | Error e) {
+				status = EvalStatus.FAILED;
+				errorMsg = e.getMessage();
+				if (errorMsg == null)
+					errorMsg = e.getClass().getName() + " exception";
+				LOGGER.debug("Failed running GS with the following parameters: {}, exception: {}",
+						params, LoggerUtils.getShortExceptionMsg(e));
+			} finally {
+				// Stop the timer for this param combo
+				timer.stop();
+			}
+
+			GSResult.Builder builder = (status == EvalStatus.FAILED 
+					? GSResult.Builder.failed(params, paramResult.get(0), status, errorMsg)
+					: GSResult.Builder.success(params, getScore(paramResult.get(0)), paramResult.get(0), timer.elapsedTimeMillis()));
+			if (paramResult.size() > 1) {
+				builder.secondary(paramResult.subList(1, paramResult.size()));
+			}
+			return builder.budget(budget).build();
+		}
+	}
+
+	private class PredictorEvaluator extends PointEvaluator {
+		private final Predictor predictor;
+
+		private PredictorEvaluator(Predictor predictor, List<Metric> metrics){
+			super(predictor, metrics, new GSResComparator(predictor));
+			this.predictor = predictor.clone();
+		}
+
+		@Override
+		List<Metric> evaluate(Dataset data, Map<String, Object> params, List<Metric> metrics) throws Exception {
+			// Set the new parameters to tune
+			predictor.setConfigParameters(params);
+			return runner.evaluate(data, predictor, metrics);
+		}
+
+		@Override
+		EvalStatus getStatus(List<Metric> result) {
+			return GridSearch.this.getStatus(predictor, result);
+		}
+
+		@Override
+		void releaseResources() {
+			// clear allocations from current model
+			predictor.releaseResources();
+		}
+
+		@Override
+		Configurable getEvaluated() {
+			return predictor;
+		}
+	}
+
+	private class AlgorithmEvaluator extends PointEvaluator {
+		private final MLAlgorithm alg;
+
+		private AlgorithmEvaluator(MLAlgorithm alg, List<Metric> metrics){
+			super(alg, metrics, new GSResComparator(alg));
+			this.alg = alg.clone();
+		}
+
+		@Override
+		List<Metric> evaluate(Dataset data, Map<String, Object> params, List<Metric> metrics) throws Exception {
+			// Set the new parameters to tune
+			MLAlgorithm pAlg = alg.clone();
+			pAlg.setConfigParameters(params);
+
+			if (alg instanceof Regressor)
+				return runner.evaluateRegressor(data, (Regressor) pAlg, metrics);
+			else
+				return runner.evaluateClassifier(data, (Classifier) pAlg, metrics);
+		}
+
+		@Override
+		EvalStatus getStatus(List<Metric> result) {
+			return EvalStatus.VALID;
+		}
+
+		@Override
+		void releaseResources() {
+			if (alg instanceof ResourceAllocator) {
+				((ResourceAllocator) alg).releaseResources();
+				LOGGER.debug("released resources from ML model");
+			}
+		}
+
+		@Override
+		Configurable getEvaluated() {
+			return alg;
+		}
+	}
+
+	/**
+	 * A round of evaluations using (a subsample of) the data, in successive halving the 
+	 * budget is increased for each rung while the number of candidates is reduced
+	 */
+	private static class Rung {
+		private final Dataset data;
+		private final double budget;
+
+		private Rung(Dataset data, double budget){
+			this.data = data;
+			this.budget = budget;
+		}
+	}
 
-		List<GSResult> results = null;
-		if (maxNumGSresults > 0)
-			results = new ArrayList<>(maxNumGSresults * 2);
-		else
-			results = new ArrayList<>((int) Math.pow(10, parameterGrid.size())); // Assume 10 values for each parameter
+	private GridSearchResult runSearch(Dataset data,
+			PointEvaluator evaluator,
+			Map<String, List<?>> parameterGrid,
+			Metric optimizationMetric,
+			Double confidenceToPrint)
+			throws IOException {
 
-		TestRunner runner = new TestRunner.Builder(testStrategy).calcMeanAndStd(calcMeanAndSD).build();
+		Stopwatch fullMethodTimer = new Stopwatch().start();
+		GSResComparator sorter = evaluator.sorter;
+		Search search = searchStrategy.newSearch(getSearchGrid(parameterGrid, evaluator.target), sorter);
+
+		List<Rung> rungs = getRungs(data, search.getNumEvaluations());
+		int numPlannedEvaluations = getNumPlannedEvaluations(getNumInPartition(search.getNumEvaluations()), rungs.size());
+		LOGGER.debug("Running grid search using {} with budgets {}, using {} evaluations in total", searchStrategy,
+			rungs.stream().map(r -> r.budget).collect(Collectors.toList()), numPlannedEvaluations);
+
+		// Results of the current rung, and the last rung that produced any results
+		List<GSResult> results = new ArrayList<>();
+		List<GSResult> previousResults = new ArrayList<>();
+		int numProcessed = 0, numProposed = 0;
+
+		// Results saved by earlier (interrupted or partitioned) searches
+		Map<String, GSResult> completed = new HashMap<>();
+		if (resume && checkpoint.exists())
+			addCompleted(checkpoint, completed, optimizationMetric);
+		// Results that are already in the checkpoint file should not be written again
+		Set<String> inCheckpoint = new HashSet<>(completed.keySet());
+		for (File f : resumeFrom)
+			addCompleted(f, completed, optimizationMetric);
+
+		// The modes are only enabled on the copy that is evaluated, so the settings of the target are left as they were
+		if (regularizationPath) 
+			enableWarmStart(evaluator.getEvaluated());
+		if (reuseDataPreparation)
+			enableDataPreparationCaches(evaluator.getEvaluated());
+
+		// Configure the output logging
+		Writer resWriter = configAndGetOutput();
 		LOGGER.debug("Running with progresscallback: {}, progressmonitor: {}", callback!=null, monitor!=null);
 		boolean executionManuallyStopped = false;
-		Stopwatch timer = new Stopwatch();
-		Writer resWriter = configAndGetOutput();
 
 		try (
+				GridSearchCheckpoint checkpointWriter = checkpoint != null ? new GridSearchCheckpoint(checkpoint, resume, confidenceToPrint) : null;
 				GridResultCSVWriter resultPrinter = new GridResultCSVWriter.Builder()
 						.rank(false)
-						.skipConfidence()
+						.confidence(confidenceToPrint)
 						.params(parameterGrid.keySet())
-						.log(resWriter).build();) {
+						.budget(rungs.size() > 1)
+						.log(resWriter).build()) {
 
-			Map<String, Object> currentParams = new HashMap<>();
-			List<Metric> paramResult = null;
-			List<Metric> inputMetrics = null;
-			String errorMsg = null;
+			Iterator<Map<String, Object>> candidates = search;
 
-			while (paramsIterator.hasNext()) {
-				currentParams = paramsIterator.next();
-				paramResult = null;
-				errorMsg = null;
+			for (int rungIndex = 0; rungIndex < rungs.size(); rungIndex++) {
+				Rung rung = rungs.get(rungIndex);
+				boolean isFinalRung = rungIndex == rungs.size() - 1;
+				if (!results.isEmpty())
+					previousResults = results;
+				results = new ArrayList<>();
 
-				try {
-					LOGGER.debug("Running grid point {}/{} with parameters: {}", paramsIterator.currentIndex,paramsIterator.numTotalCombinations, currentParams);
-					// Clone the metrics for this run
-					inputMetrics = cloneMetrics(metrics);
-
-					// Start timer, before things can fail
-					timer.start();
-					// Set the new parameters to tune
-					MLAlgorithm pAlg = alg.clone();
-					pAlg.setConfigParameters(currentParams);
-
-					if (alg instanceof Regressor)
-						paramResult = runner.evaluateRegressor(data, (Regressor) pAlg, inputMetrics);
-					else
-						paramResult = runner.evaluateClassifier(data, (Classifier) pAlg, inputMetrics);
-
-					foundValid = true;
-				} catch (MissingDataException e) {
-					LOGGER.debug("Got MissingDataException in GridSearch - failing!");
-					errorMsg = e.getMessage();
-					throw new MissingDataException(
-							"Failed performing grid search of parameter values - input data contains missing features - please revise the pre-processing of data");
-				} catch (Exception | Error e) {
-					LOGGER.debug("Failed running GS with the following parameters: {}, exception: {}", currentParams,
-							LoggerUtils.getShortExceptionMsg(e));
-					errorMsg = e.getMessage();
-				} finally {
-					timer.stop(); // Stop current timer!
-
-					// Update results
-					GSResult.Builder builder = errorMsg == null && paramResult != null
-							? GSResult.Builder.success(currentParams,
-									getScore(paramResult.get(0)),
-									paramResult.get(0),
-									timer.elapsedTimeMillis())
-							: GSResult.Builder.failed(currentParams, optimizationMetric, EvalStatus.FAILED, errorMsg);
-
-					// Set secondary metrics
-					if (paramResult != null && paramResult.size() > 1) {
-						builder.secondary(paramResult.subList(1, paramResult.size()));
-					} else if (inputMetrics!= null && inputMetrics.size() > 1) {
-						// If the run failed, the paramResult == null
-						builder.secondary(inputMetrics.subList(1, inputMetrics.size()));
+				while (candidates.hasNext()) {
+					Map<String, Object> currentParams = candidates.next();
+					if (numProposed++ % numPartitions != partitionIndex) {
+						LOGGER.debug("Skipping grid point of another partition: {}", currentParams);
+						continue;
 					}
-					GSResult r = builder.build();
-					results.add(r);
-
-					updateResults(results,sorter);
+					numProcessed++;
+					LOGGER.debug("Running grid point {}/{} with parameters: {}", 
+						numProcessed, numPlannedEvaluations, currentParams);
+
+					try {
+						String key = GridSearchCheckpoint.getKey(currentParams, rung.budget);
+						GSResult r = completed.get(key);
+						if (r != null) {
+							LOGGER.debug("Using the result of the grid point from a checkpoint");
+							r = r.withParams(currentParams);
+						} else {
+							r = evaluator.evaluate(rung.data, currentParams, rung.budget);
+						}
+						if (checkpointWriter != null && inCheckpoint.add(key))
+							checkpointWriter.write(r);
+						results.add(r);
+						if (rungIndex == 0)
+							search.report(r);
 
-					// Print the current parameters and the metrics
-					resultPrinter.printRecord(r);
+						// sort and remove results that are of no interest - all are needed for promoting candidates to the next rung
+						if (isFinalRung)
+							updateResults(results,sorter);
 
-					// Release resources
-					if (alg instanceof ResourceAllocator) {
-						((ResourceAllocator) alg).releaseResources();
-						LOGGER.debug("released resources from ML model");
+						// Print the current parameters and the metrics
+						resultPrinter.printRecord(r);
+					} finally {
+						evaluator.releaseResources();
 					}
 
 					// update any registered callback methods
 					if (callback != null || monitor != null){
 						Collections.sort(results, sorter);
 						ProgressInfo info = new ProgressInfo(
-							paramsIterator.getNumTotalCombinations(),
-							paramsIterator.getCurrentIndex(),
+							numPlannedEvaluations,
+							numProcessed,
 							fullMethodTimer.stop().elapsedTimeMillis(),
 							results.get(0).getResult());
 						
@@ -1080,23 +1395,43 @@ public class GridSearch {
 							}
 						}
 					}
-						
-							
 				}
+
+				if (executionManuallyStopped || isFinalRung)
+					break;
+
+				List<Map<String, Object>> promoted = getPromoted(results, sorter);
+				LOGGER.debug("Promoting {}/{} candidates from budget {} to budget {}", 
+					promoted.size(), results.size(), rung.budget, rungs.get(rungIndex+1).budget);
+				numPlannedEvaluations = numProcessed + getNumPlannedEvaluations(promoted.size(), rungs.size() - rungIndex - 1);
+				candidates = promoted.iterator();
 			}
 		}
 
 		IOUtils.closeQuietly(resWriter);
 
+		if (results.isEmpty()) {
+			// Stopped before any candidate of the rung was evaluated - use the ones from the previous rung
+			results = previousResults;
+		}
+
+		boolean foundValidResult = false;
+		for (GSResult r : results) {
+			if (r.getStatus() == EvalStatus.VALID) {
+				foundValidResult = true;
+				break;
+			}
+		}
+
 		// Fix the results - sort and get correct size
-		if (foundValid) {
-			Collections.sort(results, sorter);
+		if (foundValidResult) {
+			Collections.sort(results,sorter);
 			if (maxNumGSresults > 0 && results.size() > maxNumGSresults) {
 				results.subList(maxNumGSresults, results.size()).clear();
 			}
 
 			// Set the optimal results for the predictor implementation
-			alg.setConfigParameters(results.get(0).getParams());
+			evaluator.target.setConfigParameters(results.get(0).getParams());
 
 			GridSearchResult.Builder res = new GridSearchResult.Builder(results, optimizationMetric.clone());
 
@@ -1111,9 +1446,175 @@ public class GridSearch {
 			return res.build();
 		} else {
 			LOGGER.debug("No valid parameter combinations found in grid-search!");
-			return new GridSearchResult.Builder(results, optimizationMetric.clone()).warning(WARNING_NO_VALID_RESULTS).build();
+			return new GridSearchResult.Builder(results, optimizationMetric.clone())
+				.warning(WARNING_NO_VALID_RESULTS).build();
+		}
+
+	}
+
+	/**
+	 * Get the rungs of the search, a single rung with the full data unless running successive halving. 
+	 * No more reduced budgets are used than needed for reducing the candidates down to a single one, 
+	 * and budgets where the data is too small for the testing strategy are skipped.
+	 * @param data the full data
+	 * @param numCandidates the number of grid points
+	 * @return the rungs, with the full data last
+	 */
+	private List<Rung> getRungs(Dataset data, int numCandidates){
+		List<Rung> rungs = new ArrayList<>();
+		if (successiveHalving) {
+			long seed = testStrategy.getSeed() != null ? testStrategy.getSeed() : GlobalConfig.getInstance().getRNGSeed();
+			int numReduced = 0;
+			while (Math.pow(reductionFactor, -(numReduced + 1)) >= minBudget - 1e-10 && 
+					Math.pow(reductionFactor, numReduced + 1) <= numCandidates)
+				numReduced++;
+
+			for (int i = numReduced; i > 0; i--) {
+				double budget = Math.pow(reductionFactor, -i);
+				Dataset sub = subsample(data, budget, seed + i);
+				try {
+					testStrategy.getNumberOfSplitsAndValidate(sub);
+					rungs.add(new Rung(sub, budget));
+				} catch (IllegalArgumentException e) {
+					LOGGER.debug("Skipping budget {} as the testing strategy cannot be used on the subsampled data: {}", budget, e.getMessage());
+				}
+			}
+		}
+		rungs.add(new Rung(data, 1));
+		return rungs;
+	}
+
+	/**
+	 * Read the results of a checkpoint, the results must be computed using the same optimization metric
+	 * @param file the checkpoint file
+	 * @param completed results of grid points, results of points that are already added are kept
+	 * @param optimizationMetric the optimization metric of the current search
+	 * @throws IOException If the checkpoint could not be read
+	 * @throws IllegalArgumentException If the checkpoint was computed using another optimization metric
+	 */
+	private static void addCompleted(File file, Map<String, GSResult> completed, Metric optimizationMetric) 
+			throws IOException, IllegalArgumentException {
+		for (GSResult r : GridSearchCheckpoint.read(file)) {
+			if (! r.getOptimizationMetric().getName().equals(optimizationMetric.getName()))
+				throw new IllegalArgumentException(String.format("Checkpoint %s was computed using optimization metric %s, not %s", 
+					file, r.getOptimizationMetric().getName(), optimizationMetric.getName()));
+			if (r.getStatus() != EvalStatus.IN_PROGRESS)
+				completed.putIfAbsent(GridSearchCheckpoint.getKey(r.getParams(), r.getBudget()), r);
+		}
+		LOGGER.debug("Using {} completed grid points from checkpoint {}", completed.size(), file);
+	}
+
+	/**
+	 * The number of grid points that are evaluated by this partition of the grid 
+	 */
+	private int getNumInPartition(int numCandidates){
+		return (numCandidates - partitionIndex + numPartitions - 1) / numPartitions;
+	}
+
+	private int getNumPlannedEvaluations(int numCandidates, int numRungs){
+		int total = 0;
+		int n = numCandidates;
+		for (int i = 0; i < numRungs; i++) {
+			total += n;
+			n = (int) Math.ceil((double) n / reductionFactor);
 		}
+		return total;
+	}
+
+	/**
+	 * Get the candidates that should be evaluated in the next rung, the best {@code 1/reductionFactor}
+	 * of the ones that did not fail. If all of them failed (e.g. due to too little data for the predictor) 
+	 * all candidates are promoted. The candidates are kept in the order they were evaluated in, so 
+	 * that the order of the regularization path is kept
+	 * @param results the results of the current rung, in the order they were evaluated 
+	 * @param sorter comparator for the results
+	 * @return the promoted candidates
+	 */
+	private List<Map<String, Object>> getPromoted(List<GSResult> results, Comparator<GSResult> sorter){
+		int numToKeep = (int) Math.ceil((double) results.size() / reductionFactor);
+		List<GSResult> sorted = new ArrayList<>(results);
+		Collections.sort(sorted, sorter);
+		Set<GSResult> best = new HashSet<>();
+		for (GSResult r : sorted) {
+			if (best.size() >= numToKeep || r.getStatus() == EvalStatus.FAILED)
+				break;
+			best.add(r);
+		}
+		List<Map<String, Object>> promoted = new ArrayList<>();
+		for (GSResult r : results) {
+			if (best.isEmpty() || best.contains(r))
+				promoted.add(r.getParams());
+		}
+		return promoted;
+	}
+
+	/**
+	 * Random subsample of all record types of the data, stratified for classification data
+	 */
+	private static Dataset subsample(Dataset data, double fraction, long seed){
+		return new Dataset()
+			.withDataset(subsample(data.getDataset(), fraction, seed))
+			.withModelingExclusiveDataset(subsample(data.getModelingExclusiveDataset(), fraction, seed))
+			.withCalibrationExclusiveDataset(subsample(data.getCalibrationExclusiveDataset(), fraction, seed));
+	}
+
+	private static SubSet subsample(SubSet data, double fraction, long seed){
+		if (data.isEmpty())
+			return new SubSet();
+		SubSet shuffled = new SubSet(new ArrayList<>(data)).shuffle(seed);
+		try {
+			return shuffled.splitStratified(seed, fraction)[0];
+		} catch (IllegalAccessException e) {
+			// Regression data
+			return shuffled.splitRandom(seed, fraction)[0];
+		}
+	}
+
+	/**
+	 * Enable warm-starting in the scoring algorithm(s), the parameter is passed on to all underlying algorithms
+	 * and is ignored by algorithms that do not support it
+	 * @param c the predictor or algorithm
+	 */
+	private static void enableWarmStart(Configurable c){
+		try {
+			Map<String,Object> param = new HashMap<>();
+			param.put(LibLinear.WARM_START_PARAM_NAMES.get(0), true);
+			c.setConfigParameters(param);
+		} catch (Exception e){
+			if (getScoringAlgorithm(c) instanceof LibLinear.WarmStartable)
+				LOGGER.warn("Failed enabling warm-start, running the regularization path without it: {}", e.getMessage());
+			LOGGER.debug("Failed enabling warm-start, continuing without it", e);
+		}
+	}
+
+	/**
+	 * Enable caching of the train splits of aggregated predictors and sharing of native rows in the 
+	 * scoring algorithm(s), the parameters are ignored by predictors and algorithms that do not support them
+	 * @param c the predictor or algorithm
+	 */
+	private static void enableDataPreparationCaches(Configurable c){
+		try {
+			Map<String,Object> params = new HashMap<>();
+			params.putAll(TrainSplitCache.getParameters(true));
+			params.putAll(NativeRowCache.getParameters(true));
+			c.setConfigParameters(params);
+		} catch (Exception e){
+			LOGGER.debug("Failed enabling data preparation caches, continuing without them", e);
+		}
+	}
 
+	private static MLAlgorithm getScoringAlgorithm(Configurable c){
+		if (c instanceof MLAlgorithm)
+			return (MLAlgorithm) c;
+		if (c instanceof ACPClassifier && ((ACPClassifier) c).getICPImplementation() != null)
+			return ((ACPClassifier) c).getICPImplementation().getNCM().getModel();
+		if (c instanceof ACPRegressor && ((ACPRegressor) c).getICPImplementation() != null)
+			return ((ACPRegressor) c).getICPImplementation().getNCM().getModel();
+		if (c instanceof TCP && ((TCP) c).getNCM() != null)
+			return ((TCP) c).getNCM().getModel();
+		if (c instanceof AVAPClassifier)
+			return ((AVAPClassifier) c).getScoringAlgorithm();
+		return null;
 	}
 
 	private void updateResults(List<GSResult> results,Comparator<GSResult> sorter) {
@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.gridsearch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arosbio.ml.gridsearch.GridSearch.EvalStatus;
+import com.arosbio.ml.gridsearch.GridSearch.GSResult;
+import com.arosbio.ml.metrics.Metric;
+import com.arosbio.ml.metrics.SingleValuedMetric;
+import com.arosbio.ml.metrics.cp.CPMetric;
+import com.arosbio.ml.metrics.plots.Plot2D;
+import com.arosbio.ml.metrics.plots.PlotMetric;
+import com.github.cliftonlabs.json_simple.JsonArray;
+import com.github.cliftonlabs.json_simple.JsonException;
+import com.github.cliftonlabs.json_simple.JsonObject;
+import com.github.cliftonlabs.json_simple.Jsoner;
+
+/**
+ * A checkpoint of a {@link GridSearch}, holding the results of the evaluated grid points so that an interrupted 
+ * search can be resumed, or so that the results of a grid that is split over several machines can be merged. 
+ * The checkpoint is a text file with one JSON object per line, each line is written and flushed as soon as the 
+ * grid point is evaluated so at most the grid point that was being evaluated is lost if the JVM is terminated. 
+ * <p>
+ * The metrics are saved as the values that are printed by the {@link GridResultCSVWriter}, i.e. plot metrics 
+ * are only saved for the confidence used by the grid search. Restored results have metrics that implement 
+ * {@link SingleValuedMetric} and give the saved values, and the parameter values are restored as text.
+ * 
+ * @author Aros Bio AB
+ *
+ */
+public class GridSearchCheckpoint implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GridSearchCheckpoint.class);
+
+	private static final String PARAMS_KEY = "params";
+	private static final String BUDGET_KEY = "budget";
+	private static final String STATUS_KEY = "status";
+	private static final String SCORE_KEY = "score";
+	private static final String RUNTIME_KEY = "runtimeMS";
+	private static final String ERROR_KEY = "error";
+	private static final String METRICS_KEY = "metrics";
+	private static final String METRIC_NAME_KEY = "name";
+	private static final String METRIC_MINIMIZE_KEY = "minimize";
+	private static final String METRIC_NUM_EXAMPLES_KEY = "numExamples";
+	private static final String METRIC_CP_KEY = "cp";
+	private static final String METRIC_LABELS_KEY = "labels";
+	private static final String METRIC_VALUES_KEY = "values";
+
+	private final BufferedWriter writer;
+	private final Double confidence;
+
+	/**
+	 * Open a checkpoint for writing
+	 * @param file the checkpoint file
+	 * @param append {@code true} if results should be added to an existing checkpoint, {@code false} if the file should be overwritten
+	 * @param confidence the confidence that plot metrics should be saved for, or {@code null} if the metrics are not evaluated at a confidence
+	 * @throws IOException If the file could not be opened
+	 */
+	public GridSearchCheckpoint(File file, boolean append, Double confidence) throws IOException {
+		this.confidence = confidence;
+		boolean addNewLine = append && endsWithPartialLine(file);
+		if (append) {
+			writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		} else {
+			writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+		}
+		if (addNewLine) {
+			// The last line was only partially written (when the JVM was terminated) - start on a new line
+			LOGGER.debug("Checkpoint file {} ended with a partially written line", file);
+			writer.newLine();
+		}
+	}
+
+	/**
+	 * Add a result to the checkpoint, the result is written to the file before this method returns
+	 * @param result the result of a grid point
+	 * @throws IOException If the result could not be written
+	 */
+	public void write(GSResult result) throws IOException {
+		writer.write(toJSON(result, confidence).toJson());
+		writer.newLine();
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Read all results from a checkpoint file. Lines that cannot be parsed, e.g. a line that was only 
+	 * partially written when the JVM was terminated, are skipped
+	 * @param file the checkpoint file
+	 * @return the results, in the order they were written
+	 * @throws IOException If the file could not be read
+	 */
+	public static List<GSResult> read(File file) throws IOException {
+		List<GSResult> results = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)){
+			String line;
+			int lineNum = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNum++;
+				if (line.trim().isEmpty())
+					continue;
+				try {
+					results.add(fromJSON((JsonObject) Jsoner.deserialize(line)));
+				} catch (JsonException | RuntimeException e) {
+					LOGGER.debug("Skipping line {} of checkpoint {} that could not be parsed: {}", lineNum, file, e.getMessage());
+				}
+			}
+		}
+		LOGGER.debug("Read {} results from checkpoint {}", results.size(), file);
+		return results;
+	}
+
+	/**
+	 * Get a key that identifies a grid point, evaluated using a given budget
+	 * @param params the parameters
+	 * @param budget the fraction of the data used in the evaluation
+	 * @return a key that is equal for equal parameters and budget
+	 */
+	static String getKey(Map<String, Object> params, double budget) {
+		// Sort by parameter name so the order of the grid does not matter
+		Map<String, String> sorted = new TreeMap<>();
+		for (Map.Entry<String, Object> kv : params.entrySet())
+			sorted.put(kv.getKey(), String.valueOf(kv.getValue()));
+		return sorted + "@" + (float) budget;
+	}
+
+	private static boolean endsWithPartialLine(File file) throws IOException {
+		if (!file.exists() || file.length() == 0)
+			return false;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")){
+			raf.seek(file.length() - 1);
+			return raf.read() != '\n';
+		}
+	}
+
+	/*
+	 * =============================================================================
+	 * CONVERSION TO/FROM JSON
+	 * =============================================================================
+	 */
+
+	private static JsonObject toJSON(GSResult r, Double confidence) {
+		JsonObject json = new JsonObject();
+		JsonObject params = new JsonObject();
+		for (Map.Entry<String, Object> kv : r.getParams().entrySet())
+			params.put(kv.getKey(), String.valueOf(kv.getValue()));
+		json.put(PARAMS_KEY, params);
+		json.put(BUDGET_KEY, r.getBudget());
+		json.put(STATUS_KEY, r.getStatus().name());
+		json.put(SCORE_KEY, toJSONNumber(r.getResult()));
+		json.put(RUNTIME_KEY, r.getRuntime());
+		if (!r.getErrorMessage().isEmpty())
+			json.put(ERROR_KEY, r.getErrorMessage());
+
+		JsonArray metrics = new JsonArray();
+		metrics.add(toJSON(r.getOptimizationMetric(), r.getStatus() != EvalStatus.FAILED, confidence));
+		if (r.getSecondaryMetrics() != null) {
+			for (Metric m : r.getSecondaryMetrics())
+				metrics.add(toJSON(m, r.getStatus() != EvalStatus.FAILED, confidence));
+		}
+		json.put(METRICS_KEY, metrics);
+		return json;
+	}
+
+	private static JsonObject toJSON(Metric m, boolean computed, Double confidence) {
+		JsonObject json = new JsonObject();
+		json.put(METRIC_NAME_KEY, m.getName());
+		json.put(METRIC_MINIMIZE_KEY, m.goalIsMinimization());
+		json.put(METRIC_NUM_EXAMPLES_KEY, m.getNumExamples());
+		if (m instanceof CPMetric)
+			json.put(METRIC_CP_KEY, true);
+
+		JsonArray labels = new JsonArray();
+		JsonArray values = new JsonArray();
+		if (computed) {
+			for (Map.Entry<String, Object> kv : getValues(m, confidence).entrySet()) {
+				labels.add(kv.getKey());
+				values.add(kv.getValue());
+			}
+			if (m instanceof SingleValuedMetric)
+				json.put(SCORE_KEY, toJSONNumber(((SingleValuedMetric) m).getScore()));
+		}
+		json.put(METRIC_LABELS_KEY, labels);
+		json.put(METRIC_VALUES_KEY, values);
+		return json;
+	}
+
+	/**
+	 * Get the values of a metric, in the same way as they are printed by {@link GridResultCSVWriter}
+	 */
+	private static Map<String, Object> getValues(Metric m, Double confidence) {
+		Map<String, Object> values = new LinkedHashMap<>();
+		if (m instanceof SingleValuedMetric) {
+			for (Map.Entry<String, ?> kv : ((SingleValuedMetric) m).asMap().entrySet())
+				values.put(kv.getKey(), toJSONValue(kv.getValue()));
+		} else if (m instanceof PlotMetric) {
+			Plot2D plot = ((PlotMetric) m).buildPlot();
+			Map<String, List<Number>> curves = plot.getCurves();
+			for (String label : ((PlotMetric) m).getYLabels()) {
+				List<Number> curve = curves.get(label);
+				if (curve == null || curve.isEmpty())
+					continue;
+				if (curve.size() == 1) {
+					values.put(label, toJSONValue(curve.get(0)));
+				} else if (confidence != null) {
+					List<Number> xs = plot.getXvalues();
+					for (int i = 0; i < xs.size() && i < curve.size(); i++) {
+						if (Math.abs(xs.get(i).doubleValue() - confidence) < 1e-8) {
+							values.put(label, toJSONValue(curve.get(i)));
+							break;
+						}
+					}
+				}
+			}
+		}
+		return values;
+	}
+
+	private static Object toJSONValue(Object value) {
+		if (value instanceof Number)
+			return toJSONNumber(((Number) value).doubleValue(), (Number) value);
+		return value != null ? value.toString() : null;
+	}
+
+	private static Object toJSONNumber(double value) {
+		return toJSONNumber(value, value);
+	}
+
+	/** Non-finite values are not valid JSON numbers, save them as text instead */
+	private static Object toJSONNumber(double value, Number original) {
+		return Double.isFinite(value) ? original : Double.toString(value);
+	}
+
+	private static GSResult fromJSON(JsonObject json) {
+		Map<String, Object> params = new LinkedHashMap<>();
+		for (Map.Entry<String, Object> kv : ((JsonObject) json.get(PARAMS_KEY)).entrySet())
+			params.put(kv.getKey(), kv.getValue() != null ? kv.getValue().toString() : null);
+
+		List<Metric> metrics = new ArrayList<>();
+		for (Object m : (JsonArray) json.get(METRICS_KEY))
+			metrics.add(fromJSONMetric((JsonObject) m));
+		if (metrics.isEmpty())
+			throw new IllegalArgumentException("No metrics saved for grid point");
+
+		EvalStatus status = EvalStatus.valueOf((String) json.get(STATUS_KEY));
+		long runtime = ((Number) json.get(RUNTIME_KEY)).longValue();
+		GSResult.Builder b = null;
+		if (status == EvalStatus.FAILED) {
+			b = GSResult.Builder.failed(params, metrics.get(0), status, (String) json.get(ERROR_KEY));
+		} else {
+			b = GSResult.Builder.success(params, fromJSONNumber(json.get(SCORE_KEY)), metrics.get(0), runtime);
+			b.status(status);
+		}
+		if (metrics.size() > 1)
+			b.secondary(metrics.subList(1, metrics.size()));
+		return b.budget(((Number) json.get(BUDGET_KEY)).doubleValue())
+			.runtime(runtime)
+			.build();
+	}
+
+	private static Metric fromJSONMetric(JsonObject json) {
+		JsonArray labels = (JsonArray) json.get(METRIC_LABELS_KEY);
+		JsonArray values = (JsonArray) json.get(METRIC_VALUES_KEY);
+		Map<String, Object> map = new LinkedHashMap<>();
+		for (int i = 0; i < labels.size(); i++)
+			map.put(labels.get(i).toString(), fromJSONValue(values.get(i)));
+
+		RestoredMetric m = Boolean.TRUE.equals(json.get(METRIC_CP_KEY)) ? new RestoredCPMetric() : new RestoredMetric();
+		m.name = (String) json.get(METRIC_NAME_KEY);
+		m.minimize = (Boolean) json.get(METRIC_MINIMIZE_KEY);
+		m.numExamples = ((Number) json.get(METRIC_NUM_EXAMPLES_KEY)).intValue();
+		m.score = json.containsKey(SCORE_KEY) ? fromJSONNumber(json.get(SCORE_KEY)) : Double.NaN;
+		m.values = map;
+		return m;
+	}
+
+	private static Object fromJSONValue(Object value) {
+		if (value instanceof BigDecimal) {
+			BigDecimal d = (BigDecimal) value;
+			if (d.scale() <= 0 && d.compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) <= 0 && d.compareTo(BigDecimal.valueOf(Integer.MIN_VALUE)) >= 0)
+				return d.intValue();
+			return d.doubleValue();
+		} else if (value instanceof String) {
+			try {
+				double d = Double.parseDouble((String) value);
+				if (!Double.isFinite(d))
+					return d;
+			} catch (NumberFormatException e) {
+				// A text value
+			}
+		}
+		return value;
+	}
+
+	private static double fromJSONNumber(Object value) {
+		if (value instanceof Number)
+			return ((Number) value).doubleValue();
+		return Double.parseDouble(value.toString());
+	}
+
+	/**
+	 * A metric restored from a checkpoint, giving the values that were saved. Cannot be 
+	 * used for evaluating new predictions.
+	 */
+	public static class RestoredMetric implements SingleValuedMetric {
+
+		private String name;
+		private boolean minimize;
+		private int numExamples;
+		private double score;
+		private Map<String, Object> values;
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String getDescription() {
+			return "The values of the " + name + " metric, restored from a grid search checkpoint";
+		}
+
+		@Override
+		public int getNumExamples() {
+			return numExamples;
+		}
+
+		@Override
+		public boolean goalIsMinimization() {
+			return minimize;
+		}
+
+		@Override
+		public double getScore() {
+			return score;
+		}
+
+		@Override
+		public Map<String, ? extends Object> asMap() {
+			return values;
+		}
+
+		@Override
+		public void clear() {
+			// The values cannot be re-computed, keep them
+		}
+
+		@Override
+		public RestoredMetric clone() {
+			RestoredMetric clone = this instanceof CPMetric ? new RestoredCPMetric() : new RestoredMetric();
+			clone.name = name;
+			clone.minimize = minimize;
+			clone.numExamples = numExamples;
+			clone.score = score;
+			clone.values = new LinkedHashMap<>(values);
+			return clone;
+		}
+
+		@Override
+		public String toString() {
+			return SingleValuedMetric.toString(this);
+		}
+	}
+
+	/**
+	 * A restored metric that was computed from the results of a conformal predictor
+	 */
+	public static class RestoredCPMetric extends RestoredMetric implements CPMetric {
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.gridsearch.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.arosbio.commons.LazyListsPermutationIterator;
+import com.arosbio.commons.mixins.Aliased;
+import com.arosbio.ml.gridsearch.GridSearch.GSResult;
+
+/**
+ * Evaluates all points of the grid, in the order of the parameters with the last parameter 
+ * varying fastest. This is the default strategy of the {@link com.arosbio.ml.gridsearch.GridSearch GridSearch}.
+ * 
+ * @author Aros Bio AB
+ *
+ */
+public class ExhaustiveSearch implements SearchStrategy, Aliased {
+
+	public static final String NAME = "Exhaustive";
+	public static final String[] ALIASES = new String[] {"Grid", "Full"};
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public String[] getAliases() {
+		return ALIASES;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Evaluates every combination of the parameter values in the grid.";
+	}
+
+	/**
+	 * Not used
+	 */
+	@Override
+	public void setSeed(long seed) {
+		// Not used
+	}
+
+	@Override
+	public Long getSeed() {
+		return null;
+	}
+
+	@Override
+	public List<ConfigParameter> getConfigParameters() {
+		return new ArrayList<>();
+	}
+
+	@Override
+	public void setConfigParameters(Map<String, Object> params) throws IllegalArgumentException {
+		// No parameters
+	}
+
+	@Override
+	public Search newSearch(Map<String, List<?>> grid, Comparator<GSResult> comparator) throws IllegalArgumentException {
+		ParameterGrid paramGrid = new ParameterGrid(grid);
+		List<Integer> sizes = new ArrayList<>();
+		for (int s : paramGrid.getSizes())
+			sizes.add(s);
+		LazyListsPermutationIterator iterator = new LazyListsPermutationIterator(sizes);
+
+		return new Search() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Map<String, Object> next() {
+				return paramGrid.toParams(iterator.next().stream().mapToInt(Integer::intValue).toArray());
+			}
+
+			@Override
+			public int getNumEvaluations() {
+				return (int) paramGrid.getNumPoints();
+			}
+
+			@Override
+			public void report(GSResult result) {
+				// Not used
+			}
+		};
+	}
+
+	public ExhaustiveSearch clone() {
+		return new ExhaustiveSearch();
+	}
+
+	public String toString() {
+		return "Exhaustive search";
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.gridsearch.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The grid of a search, where each point is represented by the indices of the values of each parameter
+ */
+class ParameterGrid {
+
+	private final List<String> names;
+	private final List<List<?>> values;
+	private final int[] sizes;
+	private final long numPoints;
+
+	ParameterGrid(Map<String, List<?>> grid) throws IllegalArgumentException {
+		if (grid == null || grid.isEmpty())
+			throw new IllegalArgumentException("Parameter grid was empty!");
+		names = new ArrayList<>(grid.keySet());
+		values = new ArrayList<>();
+		sizes = new int[names.size()];
+		long num = 1;
+		for (int i = 0; i < names.size(); i++) {
+			List<?> v = grid.get(names.get(i));
+			if (v == null || v.isEmpty())
+				throw new IllegalArgumentException("No values given for parameter " + names.get(i));
+			values.add(v);
+			sizes[i] = v.size();
+			num = Math.min(num * v.size(), Integer.MAX_VALUE);
+		}
+		numPoints = num;
+	}
+
+	int getNumParameters() {
+		return names.size();
+	}
+
+	int getNumValues(int param) {
+		return sizes[param];
+	}
+
+	List<?> getValues(int param) {
+		return values.get(param);
+	}
+
+	int[] getSizes() {
+		return sizes;
+	}
+
+	/**
+	 * The number of points in the grid, capped at {@link Integer#MAX_VALUE}
+	 * @return the number of points
+	 */
+	long getNumPoints() {
+		return numPoints;
+	}
+
+	Map<String, Object> toParams(int[] point) {
+		Map<String, Object> params = new HashMap<>();
+		for (int i = 0; i < point.length; i++)
+			params.put(names.get(i), values.get(i).get(point[i]));
+		return params;
+	}
+
+	int[] randomPoint(Random rng) {
+		int[] point = new int[sizes.length];
+		for (int i = 0; i < sizes.length; i++)
+			point[i] = rng.nextInt(sizes[i]);
+		return point;
+	}
+
+	/**
+	 * A key for a point, with equals and hashCode based on the indices
+	 * @param point a point
+	 * @return the key
+	 */
+	static List<Integer> key(int[] point) {
+		return Arrays.asList(Arrays.stream(point).boxed().toArray(Integer[]::new));
+	}
+
+	/**
+	 * Get the point at an index of the exhaustive enumeration of the grid, where the last parameter varies fastest
+	 * @param index the index, in the range {@code [0, numPoints)}
+	 * @return the point
+	 */
+	int[] pointAt(long index) {
+		int[] point = new int[sizes.length];
+		for (int i = sizes.length - 1; i >= 0; i--) {
+			point[i] = (int) (index % sizes[i]);
+			index /= sizes[i];
+		}
+		return point;
+	}
+
+	/**
+	 * Draw a random point, that is not among the {@code used} ones
+	 * @param rng the random generator
+	 * @param used keys of the used points, see {@link #key(int[])}
+	 * @return a point, or {@code null} if all points are used
+	 */
+	int[] randomUnused(Random rng, Set<List<Integer>> used) {
+		if (used.size() >= numPoints)
+			return null;
+		if (used.size() < numPoints / 2) {
+			// Most points are free, rejection sampling is fast
+			while (true) {
+				int[] point = randomPoint(rng);
+				if (!used.contains(key(point)))
+					return point;
+			}
+		}
+		// Pick among the remaining points
+		List<int[]> free = new ArrayList<>();
+		for (long i = 0; i < numPoints; i++) {
+			int[] point = pointAt(i);
+			if (!used.contains(key(point)))
+				free.add(point);
+		}
+		return free.get(rng.nextInt(free.size()));
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.gridsearch.search;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import com.arosbio.commons.CollectionUtils;
+import com.arosbio.commons.GlobalConfig;
+import com.arosbio.commons.TypeUtils;
+import com.arosbio.commons.config.IntegerConfig;
+import com.arosbio.ml.gridsearch.GridSearch.GSResult;
+import com.google.common.collect.Range;
+
+/**
+ * Evaluates a fixed number of randomly drawn points of the grid (without replacement). 
+ * When only a few of the parameters have a large effect on the result, random search 
+ * finds good values of them using far fewer evaluations than an exhaustive search, as 
+ * no evaluations are spent on repeating the same values of the important parameters.
+ * 
+ * @author Aros Bio AB
+ *
+ */
+public class RandomSearch implements SearchStrategy {
+
+	public static final String NAME = "Random";
+	public static final int DEFAULT_NUM_EVALUATIONS = 20;
+
+	private int numEvaluations = DEFAULT_NUM_EVALUATIONS;
+	private long rngSeed = GlobalConfig.getInstance().getRNGSeed();
+
+	public RandomSearch() {}
+
+	public RandomSearch(int numEvaluations) {
+		withNumEvaluations(numEvaluations);
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Evaluates a given number of randomly drawn points of the parameter grid.";
+	}
+
+	public int getNumEvaluations() {
+		return numEvaluations;
+	}
+
+	/**
+	 * Set the number of points to evaluate, all points are evaluated if the grid is smaller
+	 * @param num the number of points, at least 1
+	 * @return the same instance
+	 * @throws IllegalArgumentException If {@code num} is smaller than 1
+	 */
+	public RandomSearch withNumEvaluations(int num) throws IllegalArgumentException {
+		if (num < 1)
+			throw new IllegalArgumentException("Number of evaluations must be at least 1, got: " + num);
+		this.numEvaluations = num;
+		return this;
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		this.rngSeed = seed;
+	}
+
+	@Override
+	public Long getSeed() {
+		return rngSeed;
+	}
+
+	public static final String[] NUM_EVALUATIONS_PARAM_NAMES = new String[] {"numEvaluations", "n", "evaluations"};
+
+	@Override
+	public List<ConfigParameter> getConfigParameters() {
+		return Arrays.asList(new IntegerConfig.Builder(Arrays.asList(NUM_EVALUATIONS_PARAM_NAMES), DEFAULT_NUM_EVALUATIONS)
+			.range(Range.atLeast(1)).description("Number of grid points to evaluate").build());
+	}
+
+	@Override
+	public void setConfigParameters(Map<String, Object> params) throws IllegalArgumentException {
+		for (Map.Entry<String, Object> kv : CollectionUtils.dropNullValues(params).entrySet()) {
+			try {
+				if (CollectionUtils.containsIgnoreCase(NUM_EVALUATIONS_PARAM_NAMES, kv.getKey())) {
+					withNumEvaluations(TypeUtils.asInt(kv.getValue()));
+				}
+			} catch (IllegalArgumentException e) {
+				// Pass along
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalArgumentException("Invalid input for parameter " + kv.getKey() + ": " + kv.getValue());
+			}
+		}
+	}
+
+	@Override
+	public Search newSearch(Map<String, List<?>> grid, Comparator<GSResult> comparator) throws IllegalArgumentException {
+		ParameterGrid paramGrid = new ParameterGrid(grid);
+		int num = (int) Math.min(numEvaluations, paramGrid.getNumPoints());
+		Random rng = new Random(rngSeed);
+		Set<List<Integer>> used = new HashSet<>();
+
+		return new Search() {
+			@Override
+			public boolean hasNext() {
+				return used.size() < num;
+			}
+
+			@Override
+			public Map<String, Object> next() {
+				int[] point = paramGrid.randomUnused(rng, used);
+				used.add(ParameterGrid.key(point));
+				return paramGrid.toParams(point);
+			}
+
+			@Override
+			public int getNumEvaluations() {
+				return num;
+			}
+
+			@Override
+			public void report(GSResult result) {
+				// Not used
+			}
+		};
+	}
+
+	public RandomSearch clone() {
+		RandomSearch clone = new RandomSearch(numEvaluations);
+		clone.rngSeed = rngSeed;
+		return clone;
+	}
+
+	public String toString() {
+		return String.format("Random search using %d evaluations", numEvaluations);
+	}
+
+}
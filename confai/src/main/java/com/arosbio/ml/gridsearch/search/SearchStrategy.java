@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.gridsearch.search;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.arosbio.commons.config.Configurable;
+import com.arosbio.commons.mixins.Described;
+import com.arosbio.commons.mixins.Named;
+import com.arosbio.commons.mixins.RequireRNGSeed;
+import com.arosbio.ml.gridsearch.GridSearch.GSResult;
+
+/**
+ * A strategy for which points of a parameter grid that should be evaluated by the 
+ * {@link com.arosbio.ml.gridsearch.GridSearch GridSearch}, and in which order. 
+ * 
+ * @author Aros Bio AB
+ *
+ */
+public interface SearchStrategy extends Configurable, Described, Named, RequireRNGSeed {
+
+	/**
+	 * A single run of a search, giving the parameters to evaluate next. Strategies that 
+	 * adapt to previous evaluations get the results through {@link #report(GSResult)}, 
+	 * which is called once for each evaluated point before the next point is requested
+	 */
+	public static interface Search extends Iterator<Map<String, Object>> {
+
+		/**
+		 * The number of points that will be evaluated
+		 * @return the number of points
+		 */
+		public int getNumEvaluations();
+
+		/**
+		 * Report the result of the latest point given by {@link #next()}
+		 * @param result the result of the evaluation
+		 */
+		public void report(GSResult result);
+	}
+
+	/**
+	 * Start a new search over the grid. The parameters are given in the order they should be
+	 * varied by strategies that enumerate the grid, i.e. the last one varies fastest, and 
+	 * the values of numerical parameters are given in increasing order when running along a 
+	 * regularization path.
+	 * @param grid parameter names mapped to the values that should be searched 
+	 * @param comparator comparator of results, that sorts the best results first 
+	 * @return the search
+	 * @throws IllegalArgumentException If the grid is empty or contains no values for a parameter
+	 */
+	public Search newSearch(Map<String, List<?>> grid, Comparator<GSResult> comparator) 
+			throws IllegalArgumentException;
+
+	/**
+	 * If the points that are proposed depend on the reported results, a search that is adaptive
+	 * cannot be split into partitions that are evaluated independently of each other
+	 * @return {@code true} if the search adapts to the reported results
+	 */
+	public default boolean isAdaptive() {
+		return false;
+	}
+
+	public SearchStrategy clone();
+
+}
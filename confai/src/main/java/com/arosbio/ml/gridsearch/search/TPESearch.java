@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.gridsearch.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import com.arosbio.commons.CollectionUtils;
+import com.arosbio.commons.GlobalConfig;
+import com.arosbio.commons.TypeUtils;
+import com.arosbio.commons.config.IntegerConfig;
+import com.arosbio.commons.config.NumericConfig;
+import com.arosbio.commons.mixins.Aliased;
+import com.arosbio.ml.gridsearch.GridSearch.EvalStatus;
+import com.arosbio.ml.gridsearch.GridSearch.GSResult;
+import com.google.common.collect.Range;
+
+/**
+ * Sequential model-based search using a Tree-structured Parzen Estimator (TPE, Bergstra et al. 2011).
+ * The first points are drawn at random, after which the evaluated points are split into the best 
+ * {@code gamma} fraction and the rest. Each parameter is modeled independently by one density for
+ * the good points, {@code l(x)}, and one for the remaining points, {@code g(x)}, and the next point
+ * is the one maximizing {@code l(x)/g(x)} among {@code numCandidates} points drawn from {@code l(x)}.
+ * <p>
+ * The search is made over the values of the grid. Numerical parameters use Gaussian kernels over the 
+ * order of the values (i.e. the values are treated as evenly spaced, which is appropriate for grids
+ * spaced linearly or logarithmically), whereas other parameters use the frequencies of each value.
+ * All densities include a uniform prior, so that all points of the grid can be picked. 
+ * 
+ * @author Aros Bio AB
+ *
+ */
+public class TPESearch implements SearchStrategy, Aliased {
+
+	public static final String NAME = "TPE";
+	public static final String[] ALIASES = new String[] {"Bayesian"};
+
+	public static final int DEFAULT_NUM_EVALUATIONS = 30;
+	public static final int DEFAULT_NUM_STARTUP = 10;
+	public static final double DEFAULT_GAMMA = 0.25;
+	public static final int DEFAULT_NUM_CANDIDATES = 24;
+
+	private int numEvaluations = DEFAULT_NUM_EVALUATIONS;
+	private int numStartup = DEFAULT_NUM_STARTUP;
+	private double gamma = DEFAULT_GAMMA;
+	private int numCandidates = DEFAULT_NUM_CANDIDATES;
+	private long rngSeed = GlobalConfig.getInstance().getRNGSeed();
+
+	public TPESearch() {}
+
+	public TPESearch(int numEvaluations) {
+		withNumEvaluations(numEvaluations);
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public String[] getAliases() {
+		return ALIASES;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Sequential model-based search using a Tree-structured Parzen Estimator (TPE), which picks the next grid point to evaluate based on the results of the previous points.";
+	}
+
+	@Override
+	public boolean isAdaptive() {
+		return true;
+	}
+
+	public int getNumEvaluations() {
+		return numEvaluations;
+	}
+
+	/**
+	 * Set the number of points to evaluate, all points are evaluated if the grid is smaller
+	 * @param num the number of points, at least 1
+	 * @return the same instance
+	 * @throws IllegalArgumentException If {@code num} is smaller than 1
+	 */
+	public TPESearch withNumEvaluations(int num) throws IllegalArgumentException {
+		if (num < 1)
+			throw new IllegalArgumentException("Number of evaluations must be at least 1, got: " + num);
+		this.numEvaluations = num;
+		return this;
+	}
+
+	public int getNumStartup() {
+		return numStartup;
+	}
+
+	/**
+	 * Set the number of randomly drawn points that are evaluated before the model is used
+	 * @param num the number of random points, at least 1
+	 * @return the same instance
+	 * @throws IllegalArgumentException If {@code num} is smaller than 1
+	 */
+	public TPESearch withNumStartup(int num) throws IllegalArgumentException {
+		if (num < 1)
+			throw new IllegalArgumentException("Number of startup points must be at least 1, got: " + num);
+		this.numStartup = num;
+		return this;
+	}
+
+	public double getGamma() {
+		return gamma;
+	}
+
+	/**
+	 * Set the fraction of the evaluated points that are considered good
+	 * @param gamma the fraction, in the range (0..1)
+	 * @return the same instance
+	 * @throws IllegalArgumentException If {@code gamma} is outside of (0..1)
+	 */
+	public TPESearch withGamma(double gamma) throws IllegalArgumentException {
+		if (gamma <= 0 || gamma >= 1)
+			throw new IllegalArgumentException("Gamma must be in the range (0..1), got: " + gamma);
+		this.gamma = gamma;
+		return this;
+	}
+
+	public int getNumCandidates() {
+		return numCandidates;
+	}
+
+	/**
+	 * Set the number of points drawn from the density of the good points, out of which the best is evaluated
+	 * @param num the number of candidates, at least 1
+	 * @return the same instance
+	 * @throws IllegalArgumentException If {@code num} is smaller than 1
+	 */
+	public TPESearch withNumCandidates(int num) throws IllegalArgumentException {
+		if (num < 1)
+			throw new IllegalArgumentException("Number of candidates must be at least 1, got: " + num);
+		this.numCandidates = num;
+		return this;
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		this.rngSeed = seed;
+	}
+
+	@Override
+	public Long getSeed() {
+		return rngSeed;
+	}
+
+	public static final String[] NUM_EVALUATIONS_PARAM_NAMES = RandomSearch.NUM_EVALUATIONS_PARAM_NAMES;
+	public static final String[] NUM_STARTUP_PARAM_NAMES = new String[] {"numStartup", "startup"};
+	public static final String[] GAMMA_PARAM_NAMES = new String[] {"gamma"};
+	public static final String[] NUM_CANDIDATES_PARAM_NAMES = new String[] {"numCandidates", "candidates"};
+
+	@Override
+	public List<ConfigParameter> getConfigParameters() {
+		return Arrays.asList(
+			new IntegerConfig.Builder(Arrays.asList(NUM_EVALUATIONS_PARAM_NAMES), DEFAULT_NUM_EVALUATIONS)
+				.range(Range.atLeast(1)).description("Number of grid points to evaluate").build(),
+			new IntegerConfig.Builder(Arrays.asList(NUM_STARTUP_PARAM_NAMES), DEFAULT_NUM_STARTUP)
+				.range(Range.atLeast(1)).description("Number of randomly drawn grid points evaluated before the model is used").build(),
+			new NumericConfig.Builder(Arrays.asList(GAMMA_PARAM_NAMES), DEFAULT_GAMMA)
+				.range(Range.open(0d, 1d)).description("Fraction of the evaluated points that are considered good").build(),
+			new IntegerConfig.Builder(Arrays.asList(NUM_CANDIDATES_PARAM_NAMES), DEFAULT_NUM_CANDIDATES)
+				.range(Range.atLeast(1)).description("Number of candidate points that the next point is picked from").build());
+	}
+
+	@Override
+	public void setConfigParameters(Map<String, Object> params) throws IllegalArgumentException {
+		for (Map.Entry<String, Object> kv : CollectionUtils.dropNullValues(params).entrySet()) {
+			try {
+				if (CollectionUtils.containsIgnoreCase(NUM_EVALUATIONS_PARAM_NAMES, kv.getKey())) {
+					withNumEvaluations(TypeUtils.asInt(kv.getValue()));
+				} else if (CollectionUtils.containsIgnoreCase(NUM_STARTUP_PARAM_NAMES, kv.getKey())) {
+					withNumStartup(TypeUtils.asInt(kv.getValue()));
+				} else if (CollectionUtils.containsIgnoreCase(GAMMA_PARAM_NAMES, kv.getKey())) {
+					withGamma(TypeUtils.asDouble(kv.getValue()));
+				} else if (CollectionUtils.containsIgnoreCase(NUM_CANDIDATES_PARAM_NAMES, kv.getKey())) {
+					withNumCandidates(TypeUtils.asInt(kv.getValue()));
+				}
+			} catch (IllegalArgumentException e) {
+				// Pass along
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalArgumentException("Invalid input for parameter " + kv.getKey() + ": " + kv.getValue());
+			}
+		}
+	}
+
+	@Override
+	public Search newSearch(Map<String, List<?>> grid, Comparator<GSResult> comparator) throws IllegalArgumentException {
+		return new TPERun(new ParameterGrid(grid), comparator);
+	}
+
+	private class TPERun implements Search {
+
+		private final ParameterGrid grid;
+		private final Comparator<GSResult> comparator;
+		private final Random rng = new Random(rngSeed);
+		private final int num;
+		/** The position of each value on the ordinal scale, or {@code null} for non-numerical parameters */
+		private final double[][] positions;
+
+		private final List<int[]> points = new ArrayList<>();
+		private final List<GSResult> results = new ArrayList<>();
+		private final Set<List<Integer>> used = new HashSet<>();
+
+		private TPERun(ParameterGrid grid, Comparator<GSResult> comparator) {
+			this.grid = grid;
+			this.comparator = comparator;
+			this.num = (int) Math.min(numEvaluations, grid.getNumPoints());
+			this.positions = new double[grid.getNumParameters()][];
+			for (int p = 0; p < grid.getNumParameters(); p++)
+				positions[p] = getPositions(grid.getValues(p));
+		}
+
+		private double[] getPositions(List<?> values) {
+			List<Double> numbers = new ArrayList<>();
+			for (Object v : values) {
+				if (!(v instanceof Number))
+					return null;
+				numbers.add(((Number) v).doubleValue());
+			}
+			List<Double> sorted = new ArrayList<>(numbers);
+			sorted.sort(null);
+			double[] pos = new double[numbers.size()];
+			for (int i = 0; i < pos.length; i++)
+				pos[i] = sorted.indexOf(numbers.get(i));
+			return pos;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return points.size() < num;
+		}
+
+		@Override
+		public Map<String, Object> next() {
+			int[] point = propose();
+			points.add(point);
+			used.add(ParameterGrid.key(point));
+			return grid.toParams(point);
+		}
+
+		@Override
+		public int getNumEvaluations() {
+			return num;
+		}
+
+		@Override
+		public void report(GSResult result) {
+			results.add(result);
+		}
+
+		private int[] propose() {
+			if (results.size() < numStartup)
+				return grid.randomUnused(rng, used);
+
+			// Split the evaluated points into the good and the remaining ones
+			List<Integer> order = new ArrayList<>();
+			for (int i = 0; i < results.size(); i++)
+				order.add(i);
+			order.sort((i1, i2) -> comparator.compare(results.get(i1), results.get(i2)));
+			int numGood = Math.max(1, (int) Math.ceil(gamma * results.size()));
+			List<int[]> good = new ArrayList<>(), bad = new ArrayList<>();
+			for (int i : order) {
+				if (good.size() < numGood && results.get(i).getStatus() == EvalStatus.VALID)
+					good.add(points.get(i));
+				else
+					bad.add(points.get(i));
+			}
+			if (good.isEmpty())
+				return grid.randomUnused(rng, used);
+
+			double[][] l = getDensities(good);
+			double[][] g = getDensities(bad);
+
+			int[] best = null;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for (int c = 0; c < numCandidates; c++) {
+				int[] candidate = sample(l);
+				if (used.contains(ParameterGrid.key(candidate)))
+					continue;
+				double score = 0;
+				for (int p = 0; p < candidate.length; p++)
+					score += Math.log(l[p][candidate[p]]) - Math.log(g[p][candidate[p]]);
+				if (score > bestScore) {
+					bestScore = score;
+					best = candidate;
+				}
+			}
+			return best != null ? best : grid.randomUnused(rng, used);
+		}
+
+		/**
+		 * The density of each value of each parameter, given the observed points
+		 */
+		private double[][] getDensities(List<int[]> observed) {
+			double[][] densities = new double[grid.getNumParameters()][];
+			for (int p = 0; p < densities.length; p++) {
+				int k = grid.getNumValues(p);
+				double[] d = new double[k];
+				if (positions[p] != null) {
+					// Uniform prior with the weight of a single observation, each observation adds a kernel normalized to 1
+					Arrays.fill(d, 1d / k);
+					double bandwidth = Math.max(1, (k - 1) / (1d + observed.size()));
+					double[] kernel = new double[k];
+					for (int[] o : observed) {
+						double kernelSum = 0;
+						for (int v = 0; v < k; v++) {
+							double dist = (positions[p][v] - positions[p][o[p]]) / bandwidth;
+							kernel[v] = Math.exp(-.5 * dist * dist);
+							kernelSum += kernel[v];
+						}
+						for (int v = 0; v < k; v++)
+							d[v] += kernel[v] / kernelSum;
+					}
+				} else {
+					// A prior count of one for each value, so no value is left out entirely
+					Arrays.fill(d, 1);
+					for (int[] o : observed)
+						d[o[p]] += 1;
+				}
+				double sum = Arrays.stream(d).sum();
+				for (int v = 0; v < k; v++)
+					d[v] /= sum;
+				densities[p] = d;
+			}
+			return densities;
+		}
+
+		private int[] sample(double[][] densities) {
+			int[] point = new int[densities.length];
+			for (int p = 0; p < densities.length; p++) {
+				double r = rng.nextDouble(), cumulative = 0;
+				int v = 0;
+				for (; v < densities[p].length - 1; v++) {
+					cumulative += densities[p][v];
+					if (r < cumulative)
+						break;
+				}
+				point[p] = v;
+			}
+			return point;
+		}
+
+	}
+
+	public TPESearch clone() {
+		TPESearch clone = new TPESearch(numEvaluations);
+		clone.numStartup = numStartup;
+		clone.gamma = gamma;
+		clone.numCandidates = numCandidates;
+		clone.rngSeed = rngSeed;
+		return clone;
+	}
+
+	public String toString() {
+		return String.format("TPE search using %d evaluations", numEvaluations);
+	}
+
+}
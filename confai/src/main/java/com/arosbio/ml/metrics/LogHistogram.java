@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A histogram with logarithmically sized bins, that summarises a stream of values in bounded memory (the same
+ * binning as used by the DDSketch). Each value is represented by its bin, and the value of a bin is within a relative
+ * error of at most {@code relativeAccuracy} of all values that fall into it. Values with an absolute value smaller than
+ * {@link #MIN_INDEXABLE} are counted as 0, and infinite values are counted in separate bins.
+ * <p>
+ * The number of bins grows with the logarithm of the range of the values rather than with the number of values, e.g.
+ * values in the range {@code [1e-6, 1e6]} use at most about 14,000 bins using a relative accuracy of 0.001. Two histograms
+ * with the same relative accuracy can be merged, giving the same histogram as if all values were added to a single one.
+ * The counts are kept in primitive arrays covering the range of bin indices seen so far, one for positive and one for 
+ * negative values.
+ *
+ * @author Aros Bio AB
+ *
+ */
+public class LogHistogram {
+
+	public static final double DEFAULT_RELATIVE_ACCURACY = 0.001;
+	public static final double MIN_RELATIVE_ACCURACY = 1e-6;
+	/** Values with an absolute value smaller than this are counted as 0 */
+	public static final double MIN_INDEXABLE = 1e-9;
+
+	private final double relativeAccuracy;
+	private final double gamma, logGamma;
+	/** Counts of the bins of positive values, and of negative values indexed by their absolute value */
+	private final Bins positive = new Bins(), negative = new Bins();
+	private long zeroCount = 0, posInfCount = 0, negInfCount = 0;
+	private long count = 0;
+
+	public LogHistogram() {
+		this(DEFAULT_RELATIVE_ACCURACY);
+	}
+
+	/**
+	 *
+	 * @param relativeAccuracy the maximum relative error of the value of a bin, in the range {@code [1e-6, 1)}
+	 * @throws IllegalArgumentException If the accuracy is outside of the allowed range
+	 */
+	public LogHistogram(double relativeAccuracy) throws IllegalArgumentException {
+		if (! (relativeAccuracy >= MIN_RELATIVE_ACCURACY && relativeAccuracy < 1))
+			throw new IllegalArgumentException("Relative accuracy must be in the range [" + MIN_RELATIVE_ACCURACY + ",1), got: " + relativeAccuracy);
+		this.relativeAccuracy = relativeAccuracy;
+		this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+		this.logGamma = Math.log(gamma);
+	}
+
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+	/**
+	 * Add a value
+	 * @param value the value
+	 * @throws IllegalArgumentException If the value is NaN
+	 */
+	public void add(double value) throws IllegalArgumentException {
+		add(value, 1);
+	}
+
+	public void add(double value, long num) throws IllegalArgumentException {
+		if (Double.isNaN(value))
+			throw new IllegalArgumentException("NaN cannot be added to the histogram");
+		if (num < 0)
+			throw new IllegalArgumentException("Count must be non-negative");
+		if (num == 0)
+			return;
+		if (value == Double.POSITIVE_INFINITY)
+			posInfCount += num;
+		else if (value == Double.NEGATIVE_INFINITY)
+			negInfCount += num;
+		else if (Math.abs(value) < MIN_INDEXABLE)
+			zeroCount += num;
+		else if (value > 0)
+			positive.add(index(value), num);
+		else
+			negative.add(index(-value), num);
+		count += num;
+	}
+
+	/**
+	 * Merge the values of another histogram into this histogram
+	 * @param other a histogram with the same relative accuracy
+	 * @throws IllegalArgumentException If the histograms have different relative accuracies
+	 */
+	public void merge(LogHistogram other) throws IllegalArgumentException {
+		if (other.relativeAccuracy != relativeAccuracy)
+			throw new IllegalArgumentException(String.format("Cannot merge histograms with different relative accuracies (%s vs %s)",
+				relativeAccuracy, other.relativeAccuracy));
+		positive.merge(other.positive);
+		negative.merge(other.negative);
+		zeroCount += other.zeroCount;
+		posInfCount += other.posInfCount;
+		negInfCount += other.negInfCount;
+		count += other.count;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public int getNumBins() {
+		return positive.getNumNonEmpty() + negative.getNumNonEmpty() 
+			+ (zeroCount > 0 ? 1 : 0) + (posInfCount > 0 ? 1 : 0) + (negInfCount > 0 ? 1 : 0);
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Get the bins of the histogram, as the value of each bin mapped to the number of added values in it
+	 * @return an unmodifiable map sorted in ascending order of the values
+	 */
+	public NavigableMap<Double, Long> getBins() {
+		TreeMap<Double, Long> res = new TreeMap<>();
+		if (negInfCount > 0)
+			res.put(Double.NEGATIVE_INFINITY, negInfCount);
+		for (int i = 0; i < negative.counts.length; i++) {
+			if (negative.counts[i] > 0)
+				res.put(-value(negative.offset + i), negative.counts[i]);
+		}
+		if (zeroCount > 0)
+			res.put(0d, zeroCount);
+		for (int i = 0; i < positive.counts.length; i++) {
+			if (positive.counts[i] > 0)
+				res.put(value(positive.offset + i), positive.counts[i]);
+		}
+		if (posInfCount > 0)
+			res.put(Double.POSITIVE_INFINITY, posInfCount);
+		return Collections.unmodifiableNavigableMap(res);
+	}
+
+	/**
+	 * Get the q-quantile of the added values, interpolating between the two closest ranks in the same way as
+	 * {@link com.arosbio.commons.MathUtils#median(double...)} does for the median. If the two closest values
+	 * have the same sign, the result has a relative error of at most {@code relativeAccuracy} compared to the
+	 * quantile of the exact values.
+	 * @param q the quantile, in the range {@code [0,1]}
+	 * @return the quantile or {@code NaN} if no values are added
+	 */
+	public double getQuantile(double q) {
+		if (q < 0 || q > 1)
+			throw new IllegalArgumentException("Quantile must be in the range [0,1], got: " + q);
+		if (count == 0)
+			return Double.NaN;
+		double rank = q * (count - 1);
+		long lowRank = (long) Math.floor(rank), highRank = (long) Math.ceil(rank);
+		double low = valueAtRank(lowRank);
+		if (lowRank == highRank)
+			return low;
+		double high = valueAtRank(highRank);
+		if (low == high)
+			return low;
+		return low + (high - low) * (rank - lowRank);
+	}
+
+	public double getMedian() {
+		return getQuantile(.5);
+	}
+
+	public void clear() {
+		positive.clear();
+		negative.clear();
+		zeroCount = 0;
+		posInfCount = 0;
+		negInfCount = 0;
+		count = 0;
+	}
+
+	public LogHistogram clone() {
+		LogHistogram clone = new LogHistogram(relativeAccuracy);
+		clone.merge(this);
+		return clone;
+	}
+
+	private double valueAtRank(long rank) {
+		long seen = negInfCount;
+		if (seen > rank)
+			return Double.NEGATIVE_INFINITY;
+		// Negative values in ascending order, i.e. descending absolute value
+		for (int i = negative.counts.length - 1; i >= 0; i--) {
+			seen += negative.counts[i];
+			if (seen > rank)
+				return -value(negative.offset + i);
+		}
+		seen += zeroCount;
+		if (seen > rank)
+			return 0;
+		for (int i = 0; i < positive.counts.length; i++) {
+			seen += positive.counts[i];
+			if (seen > rank)
+				return value(positive.offset + i);
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/** The bin index of a finite, positive value of at least {@link #MIN_INDEXABLE} */
+	private int index(double abs) {
+		return (int) Math.ceil(Math.log(abs) / logGamma);
+	}
+
+	private double value(int index) {
+		// The bin holds values in (gamma^(index-1), gamma^index], this value has a relative error <= relativeAccuracy to all of them
+		return 2 * Math.pow(gamma, index) / (gamma + 1);
+	}
+
+	/**
+	 * Counts of a contiguous range of bin indices, {@code counts[i]} is the count of bin {@code offset + i}.
+	 * The range grows to cover new indices when needed
+	 */
+	private static class Bins {
+		private long[] counts = new long[0];
+		private int offset = 0;
+
+		private void add(int index, long num) {
+			ensureRange(index, index);
+			counts[index - offset] += num;
+		}
+
+		private void merge(Bins other) {
+			if (other.counts.length == 0)
+				return;
+			ensureRange(other.offset, other.offset + other.counts.length - 1);
+			int start = other.offset - offset;
+			for (int i = 0; i < other.counts.length; i++)
+				counts[start + i] += other.counts[i];
+		}
+
+		private void ensureRange(int minIndex, int maxIndex) {
+			if (counts.length == 0) {
+				counts = new long[Math.max(16, maxIndex - minIndex + 1)];
+				// Center the initial range around the first indices
+				offset = minIndex - (counts.length - (maxIndex - minIndex + 1)) / 2;
+				return;
+			}
+			int currentMax = offset + counts.length - 1;
+			if (minIndex >= offset && maxIndex <= currentMax)
+				return;
+			// Grow by at least doubling the size, to amortise the copying
+			int newMin = Math.min(minIndex, offset), newMax = Math.max(maxIndex, currentMax);
+			int extra = Math.max(0, 2 * counts.length - (newMax - newMin + 1));
+			if (minIndex < offset)
+				newMin -= extra;
+			else
+				newMax += extra;
+			long[] grown = new long[newMax - newMin + 1];
+			System.arraycopy(counts, 0, grown, offset - newMin, counts.length);
+			counts = grown;
+			offset = newMin;
+		}
+
+		private int getNumNonEmpty() {
+			int n = 0;
+			for (long c : counts) {
+				if (c > 0)
+					n++;
+			}
+			return n;
+		}
+
+		private void clear() {
+			Arrays.fill(counts, 0);
+		}
+	}
+
+}
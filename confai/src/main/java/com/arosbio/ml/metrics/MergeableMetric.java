@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.metrics;
+
+/**
+ * A {@link Metric} that summarises the added predictions in a way that can be merged with another
+ * instance of the same metric, e.g. computed on a different thread, fold or part of a large data set.
+ * Merging should give the same result as adding all predictions to a single instance, up to floating point
+ * rounding or, for metrics that summarise the predictions approximately, within the error bound documented
+ * by the implementation.
+ * 
+ * @author Aros Bio AB
+ *
+ */
+public interface MergeableMetric extends Metric {
+
+	/**
+	 * Merge the predictions added to {@code other} into this metric. The {@code other} metric is not altered.
+	 * @param other a metric of the same type and with the same settings (e.g. evaluation points or positive label)
+	 * @throws IllegalArgumentException If {@code other} cannot be merged with this metric
+	 */
+	public void merge(Metric other) throws IllegalArgumentException;
+
+}
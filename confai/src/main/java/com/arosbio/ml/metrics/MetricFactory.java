@@ -32,7 +32,9 @@ import com.arosbio.ml.metrics.classification.ClassifierMetric;
 import com.arosbio.ml.metrics.classification.LabelDependent;
 import com.arosbio.ml.metrics.classification.PointClassifierMetric;
 import com.arosbio.ml.metrics.classification.ProbabilisticMetric;
+import com.arosbio.ml.metrics.classification.ROC_AUC;
 import com.arosbio.ml.metrics.classification.ScoringClassifierMetric;
+import com.arosbio.ml.metrics.cp.regression.MedianPredictionIntervalWidth;
 import com.arosbio.ml.metrics.plots.PlotMetric;
 import com.arosbio.ml.metrics.regression.PointPredictionMetric;
 import com.arosbio.ml.testing.utils.EvaluationUtils;
@@ -215,6 +217,24 @@ public class MetricFactory {
 		}
 	}
 	
+	/**
+	 * Make the metrics that otherwise keep every score or interval width ({@link ROC_AUC} and
+	 * {@link MedianPredictionIntervalWidth}) use histograms with the given relative accuracy instead, 
+	 * bounding their memory use. Other metrics are left unchanged
+	 * @param accuracy the relative accuracy, see {@link LogHistogram}
+	 * @param metrics the metrics, that no predictions have been added to
+	 * @throws IllegalArgumentException If the accuracy is invalid
+	 */
+	public static void setRelativeAccuracy(double accuracy, Collection<? extends Metric> metrics) 
+			throws IllegalArgumentException {
+		for (Metric m : metrics) {
+			if (m instanceof ROC_AUC)
+				((ROC_AUC) m).withRelativeAccuracy(accuracy);
+			else if (m instanceof MedianPredictionIntervalWidth)
+				((MedianPredictionIntervalWidth) m).withRelativeAccuracy(accuracy);
+		}
+	}
+	
 	public static List<SingleValuedMetric> filterToSingleValuedMetrics(Collection<? extends Metric> metrics){
 		List<SingleValuedMetric> res = new ArrayList<>(metrics.size());
 		for (Metric m : metrics) {
@@ -15,12 +15,17 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 import com.arosbio.commons.MathUtils;
 import com.arosbio.commons.mixins.Aliased;
+import com.arosbio.ml.metrics.LogHistogram;
+import com.arosbio.ml.metrics.MergeableMetric;
+import com.arosbio.ml.metrics.Metric;
 import com.arosbio.ml.metrics.SingleValuedMetric;
 import com.arosbio.ml.metrics.plots.Plot;
 import com.arosbio.ml.metrics.plots.Plot2D;
@@ -28,7 +33,13 @@ import com.arosbio.ml.metrics.plots.Plot2D.X_Axis;
 import com.github.cliftonlabs.json_simple.JsonObject;
 import com.google.common.collect.ImmutableMap;
 
-public class ROC_AUC implements ScoringClassifierMetric, SingleValuedMetric, LabelDependent, Aliased {
+/**
+ * The ROC curve and its AUC. By default all (label, score) pairs are stored and the exact curve is computed. Using
+ * {@link #withRelativeAccuracy(double)} the scores of each class are instead binned in a {@link LogHistogram}, giving bounded
+ * memory and a curve with one point per bin. Examples in the same bin are treated as ties, so the AUC can differ from the exact
+ * AUC by at most {@link #getScoreErrorBound()}.
+ */
+public class ROC_AUC implements ScoringClassifierMetric, SingleValuedMetric, LabelDependent, Aliased, MergeableMetric {
 
 	public final static String METRIC_NAME = "ROC AUC";
 	public final static String METRIC_DESCRIPTION = "The area under curve (AUC) of the receiver operating characteristic (ROC). This metric can both calculate the area and give the full ROC curve as a plot. Only available for binary classification problems.";
@@ -52,6 +63,8 @@ public class ROC_AUC implements ScoringClassifierMetric, SingleValuedMetric, Lab
 	private transient boolean labelSet = false;
 	private int label;
 	private List<Pair<Integer, Double>> labelsAndScores = new ArrayList<>();
+	/** Only used in the binned mode, {@code null} otherwise */
+	private LogHistogram positives, negatives;
 	private transient ComputedROC computedROC;
 
 	private static final double ADDED_SCORE_VAL = 1;
@@ -119,6 +132,52 @@ public class ROC_AUC implements ScoringClassifierMetric, SingleValuedMetric, Lab
 		return new ComputedROC(plot, positiveLabel, auc, numPos+numNeg);
 	}
 
+	/**
+	 * Calculate the curves from binned scores, where each bin is treated as a single threshold
+	 * @param positives scores of the examples of the positive class
+	 * @param negatives scores of the examples of all other classes
+	 * @param positiveLabel the positive label
+	 * @return the computed ROC
+	 */
+	public static ComputedROC calculateCurves(LogHistogram positives, LogHistogram negatives, int positiveLabel){
+		// Merge the bins of both classes, {pos, neg} per bin value
+		TreeMap<Double,long[]> bins = new TreeMap<>();
+		for (Map.Entry<Double,Long> b : positives.getBins().entrySet())
+			bins.computeIfAbsent(b.getKey(), k -> new long[2])[0] += b.getValue();
+		for (Map.Entry<Double,Long> b : negatives.getBins().entrySet())
+			bins.computeIfAbsent(b.getKey(), k -> new long[2])[1] += b.getValue();
+
+		long numPos = positives.getCount(), numNeg = negatives.getCount();
+		List<Number> thresholds = new ArrayList<>();
+		List<Number> fpr = new ArrayList<>();
+		List<Number> tpr = new ArrayList<>();
+
+		// Add endpoint - with a higher threshold than encountered
+		thresholds.add(bins.lastKey() + ADDED_SCORE_VAL);
+		fpr.add(0d);
+		tpr.add(0d);
+
+		double x0=0, y0=0, auc=0;
+		for (Map.Entry<Double,long[]> b : bins.descendingMap().entrySet()) {
+			double y1 = numPos > 0 ? y0 + ((double) b.getValue()[0])/numPos : y0;
+			double x1 = numNeg > 0 ? x0 + ((double) b.getValue()[1])/numNeg : x0;
+			tpr.add(y1);
+			fpr.add(x1);
+			thresholds.add(b.getKey());
+			// AUC - ties within a bin get half credit
+			auc += (x1-x0)*(y0 + (y1-y0)*.5);
+			x0 = x1;
+			y0 = y1;
+		}
+
+		Map<String,List<Number>> plot = new LinkedHashMap<>();
+		plot.put(TRUE_POSITIVE_RATE, tpr);
+		plot.put(FALSE_POSITIVE_RATE, fpr);
+		plot.put(SCORE, thresholds);
+
+		return new ComputedROC(plot, positiveLabel, auc, (int) (numPos+numNeg));
+	}
+
 	public static class ComputedROC {
 
 		private final int posLabel;
@@ -206,9 +265,74 @@ public class ROC_AUC implements ScoringClassifierMetric, SingleValuedMetric, Lab
 		return new String[] {METRIC_ALIAS};
 	}
 	
+	/**
+	 * Bin the scores instead of storing all of them, the AUC is then approximate, see {@link #getScoreErrorBound()}
+	 * @param accuracy the relative accuracy of the score bins, see {@link LogHistogram}
+	 * @return the same instance
+	 * @throws IllegalStateException If predictions have been added
+	 * @throws IllegalArgumentException If the accuracy is invalid
+	 */
+	public ROC_AUC withRelativeAccuracy(double accuracy) 
+			throws IllegalStateException, IllegalArgumentException {
+		if (getNumExamples() > 0)
+			throw new IllegalStateException("Cannot change the accuracy once predictions have been added");
+		positives = new LogHistogram(accuracy);
+		negatives = new LogHistogram(accuracy);
+		return this;
+	}
+
+	/**
+	 * Get the relative accuracy of the score bins
+	 * @return the relative accuracy, or {@code NaN} if the exact scores are used
+	 */
+	public double getRelativeAccuracy() {
+		return positives != null ? positives.getRelativeAccuracy() : Double.NaN;
+	}
+
+	/**
+	 * Get the maximum absolute difference between the AUC given by {@link #getScore()} and the AUC computed
+	 * from the exact scores. The pairs of positive and negative examples within the same bin are counted as ties,
+	 * i.e. with half credit, so the bound is half of the fraction of such pairs. Always 0 when the exact scores are used.
+	 * @return the error bound
+	 */
+	public double getScoreErrorBound() {
+		if (positives == null || positives.isEmpty() || negatives.isEmpty())
+			return 0;
+		NavigableMap<Double,Long> negBins = negatives.getBins();
+		double tiedPairs = 0;
+		for (Map.Entry<Double,Long> b : positives.getBins().entrySet()) {
+			Long neg = negBins.get(b.getKey());
+			if (neg != null)
+				tiedPairs += ((double) b.getValue()) * neg;
+		}
+		return .5 * tiedPairs / (((double) positives.getCount()) * negatives.getCount());
+	}
+
+	@Override
+	public void merge(Metric other) throws IllegalArgumentException {
+		if (! (other instanceof ROC_AUC))
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " with " + other);
+		ROC_AUC o = (ROC_AUC) other;
+		if (Double.compare(getRelativeAccuracy(), o.getRelativeAccuracy()) != 0)
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " metrics with different relative accuracies");
+		if (labelSet && o.labelSet && label != o.label)
+			throw new IllegalArgumentException(String.format("Cannot merge %s metrics with different positive labels (%s vs %s)", METRIC_NAME, label, o.label));
+		if (!labelSet && o.labelSet) {
+			label = o.label;
+			labelSet = true;
+		}
+		if (positives != null) {
+			positives.merge(o.positives);
+			negatives.merge(o.negatives);
+		} else {
+			labelsAndScores.addAll(o.labelsAndScores);
+		}
+		computedROC = null;
+	}
+
 	@Override
 	public void setPositiveLabel(int positive) throws IllegalStateException {
-		if (!labelsAndScores.isEmpty())
+		if (getNumExamples() > 0)
 			throw new IllegalStateException("Cannot change the positive label once predictions have been added");
 		this.label = positive;
 	}
@@ -224,11 +348,9 @@ public class ROC_AUC implements ScoringClassifierMetric, SingleValuedMetric, Lab
 	}
 	
 	private ComputedROC getROC() {
-		if (computedROC == null) {
-			computedROC = calculateCurves(labelsAndScores, label);
-		} else if (getNumExamples() != computedROC.getNumExamplesUsed()) {
+		if (computedROC == null || getNumExamples() != computedROC.getNumExamplesUsed()) {
 			// If new examples has been added, we need to re-compute the ROC 
-			computedROC = calculateCurves(labelsAndScores, label);
+			computedROC = positives != null ? calculateCurves(positives, negatives, label) : calculateCurves(labelsAndScores, label);
 		}
 			
 		return computedROC;
@@ -258,7 +380,7 @@ public class ROC_AUC implements ScoringClassifierMetric, SingleValuedMetric, Lab
 
 	@Override
 	public double getScore() {
-		if (labelsAndScores.isEmpty())
+		if (getNumExamples() == 0)
 			return Double.NaN;
 		return getROC().auc();
 	}
@@ -273,20 +395,32 @@ public class ROC_AUC implements ScoringClassifierMetric, SingleValuedMetric, Lab
 		}
 		if (!scores.containsKey(label))
 			throw new IllegalArgumentException(String.format("The specified label (%s) was not in the given scores: %s",label,scores));
-		labelsAndScores.add(ImmutablePair.of(trueLabel,scores.get(label)));
+		if (positives != null)
+			(trueLabel == label ? positives : negatives).add(scores.get(label));
+		else
+			labelsAndScores.add(ImmutablePair.of(trueLabel,scores.get(label)));
 	}
 
 	@Override
 	public int getNumExamples() {
+		if (positives != null)
+			return (int) (positives.getCount() + negatives.getCount());
 		return labelsAndScores.size();
 	}
 
 	public ROC_AUC clone() {
-		return new ROC_AUC(label);
+		ROC_AUC clone = new ROC_AUC(label);
+		if (positives != null)
+			clone.withRelativeAccuracy(positives.getRelativeAccuracy());
+		return clone;
 	}
 	
 	public void clear() {
 		labelsAndScores.clear();
+		if (positives != null) {
+			positives.clear();
+			negatives.clear();
+		}
 		computedROC = null;
 	}
 
@@ -13,6 +13,8 @@ import com.arosbio.commons.mixins.Aliased;
 import com.arosbio.data.NamedLabels;
 import com.arosbio.ml.cp.PValueTools;
 import com.arosbio.ml.metrics.LabelsMixin;
+import com.arosbio.ml.metrics.MergeableMetric;
+import com.arosbio.ml.metrics.Metric;
 import com.arosbio.ml.metrics.cp.classification.CPClassifierMetric;
 import com.arosbio.ml.metrics.cp.regression.CPRegressionMultiMetric;
 import com.arosbio.ml.metrics.plots.Plot2D.X_Axis;
@@ -20,7 +22,7 @@ import com.arosbio.ml.metrics.plots.PlotMetric;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Range;
 
-public class ModelCalibration implements LabelsMixin, CPClassifierMetric, CPRegressionMultiMetric, Aliased {
+public class ModelCalibration implements LabelsMixin, CPClassifierMetric, CPRegressionMultiMetric, MergeableMetric, Aliased {
 
 	public static final String METRIC_NAME = "Model calibration";
     public static final String METRIC_ALIAS = "Calibration plot";
@@ -83,6 +85,11 @@ public class ModelCalibration implements LabelsMixin, CPClassifierMetric, CPRegr
             }
         }
 
+		private void add(Counter other) {
+			numExamples += other.numExamples;
+			numCorrects += other.numCorrects;
+		}
+
 		public double getAccuracy() {
 			if (numExamples ==0)
 				return Double.NaN;
@@ -209,6 +216,31 @@ public class ModelCalibration implements LabelsMixin, CPClassifierMetric, CPRegr
 	}
 
 
+	/**
+	 * Merge the counts of another calibration metric into this one, the result is exact
+	 * @param other a {@link ModelCalibration} with the same evaluation points
+	 * @throws IllegalArgumentException If {@code other} is not a {@link ModelCalibration} with the same evaluation points
+	 */
+	@Override
+	public void merge(Metric other) throws IllegalArgumentException {
+		if (! (other instanceof ModelCalibration))
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " with " + other);
+		ModelCalibration o = (ModelCalibration) other;
+		if (! confidences.equals(o.confidences))
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " metrics with different confidences: " + confidences + " vs " + o.confidences);
+		for (double conf : confidences) {
+			counters.get(conf).add(o.counters.get(conf));
+			Map<Integer,Counter> mondrian = mondrianCounters.get(conf);
+			for (Map.Entry<Integer,Counter> c : o.mondrianCounters.get(conf).entrySet()) {
+				mondrian.computeIfAbsent(c.getKey(), Counter::forLabel).add(c.getValue());
+			}
+		}
+		encounteredLabels.addAll(o.encounteredLabels);
+		numAddedPredictions += o.numAddedPredictions;
+		if (labels == null && o.labels != null)
+			labels = o.labels.clone();
+	}
+
 	@Override
 	public int getNumExamples() {
         return numAddedPredictions;
@@ -17,14 +17,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import com.arosbio.commons.MathUtils;
+import com.arosbio.ml.metrics.MergeableMetric;
+import com.arosbio.ml.metrics.Metric;
 import com.arosbio.ml.metrics.cp.EfficiencyPlot;
 import com.arosbio.ml.metrics.plots.Plot2D.X_Axis;
 import com.arosbio.ml.metrics.plots.PlotMetric;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Range;
 
-public class MeanPredictionIntervalWidth implements CPRegressionMultiMetric {
+/**
+ * The mean prediction interval width for each confidence level. Only the sum of the widths is stored,
+ * so the memory use is independent of the number of predictions and the metric can be merged exactly.
+ */
+public class MeanPredictionIntervalWidth implements CPRegressionMultiMetric, MergeableMetric {
 
 
 	public static final X_Axis X_AXIS = X_Axis.CONFIDENCE;
@@ -33,7 +38,8 @@ public class MeanPredictionIntervalWidth implements CPRegressionMultiMetric {
 	public final static String METRIC_DESCRIPTION = "The mean interval width computed for each confidence level";
 	public static final String METRIC_NAME = Y_AXIS;
 
-	private Map<Double, List<Double>> intervalWidths = new HashMap<>();
+	/** Confidence -> sum of the widths */
+	private Map<Double, Double> intervalWidths = new HashMap<>();
 	private int numExamples = 0;
 
 	public MeanPredictionIntervalWidth() {
@@ -50,8 +56,7 @@ public class MeanPredictionIntervalWidth implements CPRegressionMultiMetric {
 			try{
 				Range<Double> interval = predictedIntervals.get(conf);
 				double width = interval.upperEndpoint() - interval.lowerEndpoint();
-				intervalWidths.get(conf). // For this confidence
-					add(width);
+				intervalWidths.merge(conf, width, Double::sum);
 			} catch (NullPointerException npe){
 				throw new IllegalArgumentException("prediction did not contain an interval for confidence: " + conf);
 			}
@@ -59,6 +64,18 @@ public class MeanPredictionIntervalWidth implements CPRegressionMultiMetric {
 		numExamples++;			
 	}
 
+	@Override
+	public void merge(Metric other) throws IllegalArgumentException {
+		if (! (other instanceof MeanPredictionIntervalWidth))
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " with " + other);
+		MeanPredictionIntervalWidth o = (MeanPredictionIntervalWidth) other;
+		if (! intervalWidths.keySet().equals(o.intervalWidths.keySet()))
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " metrics with different confidences: " + intervalWidths.keySet() + " vs " + o.intervalWidths.keySet());
+		for (Map.Entry<Double, Double> kv : o.intervalWidths.entrySet())
+			intervalWidths.merge(kv.getKey(), kv.getValue(), Double::sum);
+		numExamples += o.numExamples;
+	}
+
 	@Override
 	public int getNumExamples() {
 		return numExamples;
@@ -100,7 +117,7 @@ public class MeanPredictionIntervalWidth implements CPRegressionMultiMetric {
 		
 		intervalWidths = new LinkedHashMap<>();
 		for (double p: sortedPoints) {
-			intervalWidths.put(p, new ArrayList<>());
+			intervalWidths.put(p, 0d);
 		}
 		numExamples=0;
 	}
@@ -129,7 +146,7 @@ public class MeanPredictionIntervalWidth implements CPRegressionMultiMetric {
 		Collections.sort(confs);
 
 		for (double conf : confs) {
-			means.add( MathUtils.mean(intervalWidths.get(conf)) );
+			means.add( intervalWidths.get(conf) / numExamples );
 		}
 
 		Map<String,List<Number>> curves = new HashMap<>();
@@ -18,13 +18,21 @@ import java.util.Map;
 import java.util.Set;
 
 import com.arosbio.commons.MathUtils;
+import com.arosbio.ml.metrics.LogHistogram;
+import com.arosbio.ml.metrics.MergeableMetric;
+import com.arosbio.ml.metrics.Metric;
 import com.arosbio.ml.metrics.cp.EfficiencyPlot;
 import com.arosbio.ml.metrics.plots.Plot2D.X_Axis;
 import com.arosbio.ml.metrics.plots.PlotMetric;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Range;
 
-public class MedianPredictionIntervalWidth implements CPRegressionMultiMetric {
+/**
+ * The median prediction interval width for each confidence level. By default all widths are stored and the exact median
+ * is computed. For large numbers of predictions, {@link #withRelativeAccuracy(double)} makes the metric use a {@link LogHistogram}
+ * for each confidence instead, using bounded memory and giving medians with a relative error of at most the given accuracy.
+ */
+public class MedianPredictionIntervalWidth implements CPRegressionMultiMetric, MergeableMetric {
 
 	
 	public static final X_Axis X_AXIS = X_Axis.CONFIDENCE;
@@ -34,6 +42,9 @@ public class MedianPredictionIntervalWidth implements CPRegressionMultiMetric {
 	public static final String METRIC_NAME = Y_AXIS;
 
 	private Map<Double, List<Double>> intervalWidths = new HashMap<>();
+	/** Only used in the approximate mode, {@code null} otherwise */
+	private Map<Double, LogHistogram> histograms;
+	private double relativeAccuracy = Double.NaN;
 	private int numExamples = 0;
 
 	public MedianPredictionIntervalWidth() {
@@ -50,8 +61,11 @@ public class MedianPredictionIntervalWidth implements CPRegressionMultiMetric {
 			try {
 				Range<Double> interval = predictedIntervals.get(conf);
 				double width = interval.upperEndpoint() - interval.lowerEndpoint();
-				intervalWidths.get(conf). // For this confidence
-					add(width);
+				if (histograms != null)
+					histograms.get(conf).add(width);
+				else
+					intervalWidths.get(conf). // For this confidence
+						add(width);
 			} catch (NullPointerException npe){
 				throw new IllegalArgumentException("prediction did not contain an interval for confidence: " + conf);
 			}
@@ -59,6 +73,49 @@ public class MedianPredictionIntervalWidth implements CPRegressionMultiMetric {
 		numExamples++;		
 	}
 
+	/**
+	 * Use a histogram with logarithmic bins for the widths of each confidence, instead of storing all widths
+	 * @param accuracy the maximum relative error of the computed medians, see {@link LogHistogram}
+	 * @return the same instance
+	 * @throws IllegalStateException If predictions have been added
+	 * @throws IllegalArgumentException If the accuracy is invalid
+	 */
+	public MedianPredictionIntervalWidth withRelativeAccuracy(double accuracy) 
+			throws IllegalStateException, IllegalArgumentException {
+		if (numExamples > 0)
+			throw new IllegalStateException("Cannot change the accuracy once predictions have been added");
+		new LogHistogram(accuracy); // Validates the accuracy
+		this.relativeAccuracy = accuracy;
+		setEvaluationPoints(new ArrayList<>(intervalWidths.keySet()));
+		return this;
+	}
+
+	/**
+	 * Get the relative accuracy of the medians
+	 * @return the relative accuracy, or {@code NaN} if the exact medians are computed
+	 */
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+	@Override
+	public void merge(Metric other) throws IllegalArgumentException {
+		if (! (other instanceof MedianPredictionIntervalWidth))
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " with " + other);
+		MedianPredictionIntervalWidth o = (MedianPredictionIntervalWidth) other;
+		if (! intervalWidths.keySet().equals(o.intervalWidths.keySet()))
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " metrics with different confidences: " + intervalWidths.keySet() + " vs " + o.intervalWidths.keySet());
+		if (Double.compare(relativeAccuracy, o.relativeAccuracy) != 0)
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " metrics with different relative accuracies");
+		for (double conf : intervalWidths.keySet()) {
+			if (histograms != null)
+				histograms.get(conf).merge(o.histograms.get(conf));
+			else
+				intervalWidths.get(conf).addAll(o.intervalWidths.get(conf));
+		}
+		numExamples += o.numExamples;
+	}
+
 	@Override
 	public int getNumExamples() {
 		return numExamples;
@@ -76,7 +133,10 @@ public class MedianPredictionIntervalWidth implements CPRegressionMultiMetric {
 
 	@Override
 	public MedianPredictionIntervalWidth clone() {
-		return new MedianPredictionIntervalWidth(new ArrayList<>(intervalWidths.keySet()));
+		MedianPredictionIntervalWidth clone = new MedianPredictionIntervalWidth(new ArrayList<>(intervalWidths.keySet()));
+		if (histograms != null)
+			clone.withRelativeAccuracy(relativeAccuracy);
+		return clone;
 	}
 
 	@Override
@@ -94,8 +154,11 @@ public class MedianPredictionIntervalWidth implements CPRegressionMultiMetric {
 		List<Double> sortedPoints = PlotMetric.sortAndValidateList(points);
 		
 		intervalWidths = new LinkedHashMap<>();
+		histograms = Double.isNaN(relativeAccuracy) ? null : new LinkedHashMap<>();
 		for (double p: sortedPoints) {
 			intervalWidths.put(p, new ArrayList<>());
+			if (histograms != null)
+				histograms.put(p, new LogHistogram(relativeAccuracy));
 		}
 		numExamples=0;
 	}
@@ -129,7 +192,7 @@ public class MedianPredictionIntervalWidth implements CPRegressionMultiMetric {
 		Collections.sort(confs);
 
 		for (double conf : confs) {
-			means.add( MathUtils.median(intervalWidths.get(conf)) );
+			means.add( histograms != null ? histograms.get(conf).getMedian() : MathUtils.median(intervalWidths.get(conf)) );
 		}
 
 		Map<String,List<Number>> curves = new HashMap<>();
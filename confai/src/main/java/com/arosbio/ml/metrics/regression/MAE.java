@@ -12,6 +12,8 @@ package com.arosbio.ml.metrics.regression;
 import java.util.Map;
 
 import com.arosbio.commons.mixins.Aliased;
+import com.arosbio.ml.metrics.MergeableMetric;
+import com.arosbio.ml.metrics.Metric;
 import com.arosbio.ml.metrics.SingleValuedMetric;
 import com.google.common.collect.ImmutableMap;
 
@@ -20,7 +22,7 @@ import com.google.common.collect.ImmutableMap;
  * @author staffan
  *
  */
-public class MAE implements SingleValuedMetric, PointPredictionMetric, Aliased {
+public class MAE implements SingleValuedMetric, PointPredictionMetric, MergeableMetric, Aliased {
 
 	public static final String METRIC_NAME = "MAE";
 	public static final String METRIC_DESCRIPTION = "Mean Absolute Error (MAE). One of the most common metrics used for evaulating the performance of a regression point prediction. Smaller values are preferable.";
@@ -66,6 +68,14 @@ public class MAE implements SingleValuedMetric, PointPredictionMetric, Aliased {
 		numExamples++;
 	}
 
+	@Override
+	public void merge(Metric other) throws IllegalArgumentException {
+		if (! (other instanceof MAE))
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " with " + other);
+		absoluteResidualSum += ((MAE) other).absoluteResidualSum;
+		numExamples += ((MAE) other).numExamples;
+	}
+
 	@Override
 	public int getNumExamples() {
 		return numExamples;
@@ -9,31 +9,55 @@
  */
 package com.arosbio.ml.metrics.regression;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
-import com.arosbio.commons.MathUtils;
+import com.arosbio.ml.metrics.MergeableMetric;
+import com.arosbio.ml.metrics.Metric;
 import com.arosbio.ml.metrics.SingleValuedMetric;
 import com.google.common.collect.ImmutableMap;
 
-public class R2 implements SingleValuedMetric, PointPredictionMetric {
+/**
+ * The coefficient of determination. The total sum of squares is computed using Welford's online algorithm,
+ * so the observed values are not stored and the metric can be merged exactly (up to floating point rounding).
+ */
+public class R2 implements SingleValuedMetric, PointPredictionMetric, MergeableMetric {
 	
 	public static final String METRIC_NAME = "R^2";
 	public static final String METRIC_DESCRIPTION = "The coefficient of determination, where 1.0 is the perfect score and smaller values are worse.";
 	
-	private List<Double> ys = new ArrayList<>();
+	private int numExamples = 0;
+	private double y_mean = 0;
+	/** Sum of squared differences to the mean of the observed values */
+	private double ss_tot = 0;
 	private double ss_res = 0;
 	
 	@Override
 	public void addPrediction(double trueLabel, double predictedMidpoint) {
 		ss_res += (trueLabel - predictedMidpoint)*(trueLabel - predictedMidpoint);
-		ys.add(trueLabel);
+		numExamples++;
+		double delta = trueLabel - y_mean;
+		y_mean += delta / numExamples;
+		ss_tot += delta * (trueLabel - y_mean);
+	}
+
+	@Override
+	public void merge(Metric other) throws IllegalArgumentException {
+		if (! (other instanceof R2))
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " with " + other);
+		R2 o = (R2) other;
+		if (o.numExamples == 0)
+			return;
+		int n = numExamples + o.numExamples;
+		double delta = o.y_mean - y_mean;
+		ss_tot += o.ss_tot + delta * delta * ((double) numExamples * o.numExamples) / n;
+		y_mean += delta * o.numExamples / n;
+		ss_res += o.ss_res;
+		numExamples = n;
 	}
 
 	@Override
 	public int getNumExamples() {
-		return ys.size();
+		return numExamples;
 	}
 
 	@Override
@@ -58,19 +82,17 @@ public class R2 implements SingleValuedMetric, PointPredictionMetric {
 
 	@Override
 	public void clear() {
-		ys.clear();
+		numExamples = 0;
+		y_mean = 0;
+		ss_tot = 0;
 		ss_res = 0;
 	}
 
 	@Override
 	public double getScore() {
-		double ss_tot = 0;
-		double y_mean = MathUtils.mean(ys);
-		for(double y : ys){
-			ss_tot += (y -y_mean)*(y -y_mean);
-		}
+		if (numExamples == 0)
+			return Double.NaN;
 		return 1d - (ss_res / ss_tot);
-		
 	}
 
 	@Override
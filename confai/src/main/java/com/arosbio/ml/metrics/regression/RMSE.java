@@ -11,10 +11,12 @@ package com.arosbio.ml.metrics.regression;
 
 import java.util.Map;
 
+import com.arosbio.ml.metrics.MergeableMetric;
+import com.arosbio.ml.metrics.Metric;
 import com.arosbio.ml.metrics.SingleValuedMetric;
 import com.google.common.collect.ImmutableMap;
 
-public class RMSE implements SingleValuedMetric, PointPredictionMetric {
+public class RMSE implements SingleValuedMetric, PointPredictionMetric, MergeableMetric {
 
 	public static final String METRIC_NAME = "RMSE";
 	public static final String METRIC_DESCRIPTION = "Root-Mean-Square Error (RMSE). One of the most common metrics used for evaluating the performance of regression point predictions. Smaller values are preferable.";
@@ -51,6 +53,14 @@ public class RMSE implements SingleValuedMetric, PointPredictionMetric {
 		numExamples++;
 	}
 
+	@Override
+	public void merge(Metric other) throws IllegalArgumentException {
+		if (! (other instanceof RMSE))
+			throw new IllegalArgumentException("Cannot merge " + METRIC_NAME + " with " + other);
+		seSum += ((RMSE) other).seSum;
+		numExamples += ((RMSE) other).numExamples;
+	}
+
 	@Override
 	public int getNumExamples() {
 		return numExamples;
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.sampling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.arosbio.commons.CollectionUtils;
+import com.arosbio.commons.TypeUtils;
+import com.arosbio.data.Dataset;
+
+/**
+ * A cache of the {@link TrainSplit TrainSplits} generated by a {@link SamplingStrategy}, so that aggregated 
+ * predictors that are trained several times on the same data (e.g. for each point of a grid search) only
+ * split the data once. The splits are identified by the {@link Dataset} instance, the sampling strategy
+ * and the seed, so the data must not be altered while the cache is in use. The number of stored datasets 
+ * is bounded, the least recently used splits are evicted first.
+ * <p>
+ * Instances are thread-safe and intended to be shared between clones of the same predictor,
+ * the cache is toggled using the {@link #CONFIG_PARAM_NAMES} parameter.
+ *
+ * @author Aros Bio AB
+ *
+ */
+public class TrainSplitCache {
+
+	/** Not a tunable hyper-parameter, a training mode that is toggled e.g. by the grid search */
+	public static final List<String> CONFIG_PARAM_NAMES = Arrays.asList("cacheTrainSplits");
+
+	public static final int DEFAULT_MAX_NUM_DATASETS = 64;
+
+	private static class Key {
+		private final Dataset data;
+		private final SamplingStrategy strategy;
+		private final long seed;
+
+		private Key(Dataset data, SamplingStrategy strategy, long seed){
+			this.data = data;
+			this.strategy = strategy;
+			this.seed = seed;
+		}
+
+		@Override
+		public boolean equals(Object o){
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return data == other.data && seed == other.seed && strategy.equals(other.strategy);
+		}
+
+		@Override
+		public int hashCode(){
+			// The strategies do not implement hashCode
+			return 31 * System.identityHashCode(data) + Long.hashCode(seed);
+		}
+	}
+
+	private final Map<Key,List<TrainSplit>> splits;
+
+	public TrainSplitCache(){
+		this(DEFAULT_MAX_NUM_DATASETS);
+	}
+
+	public TrainSplitCache(final int maxNumDatasets){
+		if (maxNumDatasets < 1)
+			throw new IllegalArgumentException("Max number of datasets must be at least 1");
+		this.splits = new LinkedHashMap<Key,List<TrainSplit>>(16, .75f, true){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key,List<TrainSplit>> eldest){
+				return size() > maxNumDatasets;
+			}
+		};
+	}
+
+	/**
+	 * Get the splits of the data, generated by the {@code strategy} the first time they are requested
+	 * @param strategy the sampling strategy
+	 * @param data the data
+	 * @param seed the seed used for the splits
+	 * @return the splits, in the same order as generated by {@link SamplingStrategy#getIterator(Dataset, long)}
+	 * @throws IllegalArgumentException If the strategy cannot split the data
+	 */
+	public synchronized List<TrainSplit> getSplits(SamplingStrategy strategy, Dataset data, long seed) 
+			throws IllegalArgumentException {
+		Key key = new Key(data, strategy.clone(), seed);
+		List<TrainSplit> res = splits.get(key);
+		if (res == null) {
+			res = new ArrayList<>(strategy.getNumSamples());
+			strategy.getIterator(data, seed).forEachRemaining(res::add);
+			res = Collections.unmodifiableList(res);
+			splits.put(key, res);
+		}
+		return res;
+	}
+
+	public synchronized int size(){
+		return splits.size();
+	}
+
+	public synchronized void clear(){
+		splits.clear();
+	}
+
+	/**
+	 * Update the cache based on the {@link #CONFIG_PARAM_NAMES} parameter, if given in the {@code params}
+	 * @param current the current cache, or {@code null}
+	 * @param params parameters
+	 * @return the current cache if the parameter was not given, a cache (the current or a new one) if caching was enabled,
+	 * 	or {@code null} if caching was disabled (the current cache is then cleared)
+	 * @throws IllegalArgumentException If the parameter has an invalid value
+	 */
+	public static TrainSplitCache update(TrainSplitCache current, Map<String,Object> params)
+			throws IllegalArgumentException {
+		for (Map.Entry<String,Object> p : params.entrySet()) {
+			if (CollectionUtils.containsIgnoreCase(CONFIG_PARAM_NAMES, p.getKey())) {
+				boolean enable = false;
+				try {
+					enable = TypeUtils.asBoolean(p.getValue());
+				} catch (Exception e){
+					throw new IllegalArgumentException("Invalid argument for parameter '" + p.getKey() + "': " + p.getValue());
+				}
+				if (!enable) {
+					// Clear it as it might still be referenced by clones
+					if (current != null)
+						current.clear();
+					return null;
+				}
+				return current != null ? current : new TrainSplitCache();
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Get the parameters that enables or disables caching of the splits, to be passed to 
+	 * {@link com.arosbio.commons.config.Configurable#setConfigParameters(Map) setConfigParameters}
+	 * @param cache {@code true} to enable, {@code false} to disable and clear the cache
+	 * @return the parameters
+	 */
+	public static Map<String,Object> getParameters(boolean cache){
+		return Collections.singletonMap(CONFIG_PARAM_NAMES.get(0), cache);
+	}
+
+	public String toString(){
+		return String.format("Train split cache with splits of %d datasets", size());
+	}
+
+}
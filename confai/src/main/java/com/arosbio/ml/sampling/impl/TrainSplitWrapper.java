@@ -9,15 +9,16 @@
  */
 package com.arosbio.ml.sampling.impl;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Random;
 
+import com.arosbio.commons.CollectionUtils;
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.splitting.DataSplit;
 import com.arosbio.data.splitting.DataSplitter;
+import com.arosbio.data.splitting.IndexedRecordView;
 import com.arosbio.ml.sampling.TrainSplit;
 import com.arosbio.ml.sampling.TrainSplitGenerator;
 
@@ -57,31 +58,31 @@ public class TrainSplitWrapper implements TrainSplitGenerator {
     private static TrainSplit convert(DataSplit input){
         // Put together the proper training set
         List<DataRecord> proper = null; 
-        if (input.getFirst().getModelingExclusiveDataset().isEmpty()){
-            proper = input.getFirst().getDataset();
+        if (input.getModelingExclusiveRecords().isEmpty()){
+            proper = input.getFirstRecords();
         } else {
-            // Here we need to a copy of the data
-            proper = new ArrayList<>(input.getFirst().getDataset().size() + input.getFirst().getModelingExclusiveDataset().size());
-            proper.addAll(input.getFirst().getDataset());
-            proper.addAll(input.getFirst().getModelingExclusiveDataset());
-            // Now need to shuffle again
-            Collections.shuffle(proper, new Random(input.getSeed()));
+            proper = shuffledConcatenation(input.getFirstRecords(), input.getModelingExclusiveRecords(), input.getSeed());
         }
         
         // Put together the calibration set
         List<DataRecord> calibration = null; 
-        if (input.getFirst().getCalibrationExclusiveDataset().isEmpty()){
+        if (input.getCalibrationExclusiveRecords().isEmpty()){
             calibration = input.getSecond();
         } else {
-            // Here we need to copy data
-            calibration = new ArrayList<>(input.getSecond().size() + input.getFirst().getCalibrationExclusiveDataset().size());
-            calibration.addAll(input.getSecond());
-            calibration.addAll(input.getFirst().getCalibrationExclusiveDataset());
-            // Now need to shuffle again
-            Collections.shuffle(calibration, new Random(input.getSeed()));
+            calibration = shuffledConcatenation(input.getSecond(), input.getCalibrationExclusiveRecords(), input.getSeed());
         }
         
         return new TrainSplit(proper, calibration,input.getObservedLabelSpace());
     }
+
+    /**
+     * A view of the records in both lists, in the same order as if they were copied to a 
+     * new list that was then shuffled using the {@code seed} 
+     */
+    private static List<DataRecord> shuffledConcatenation(List<DataRecord> a, List<DataRecord> b, long seed){
+        int[] order = CollectionUtils.range(a.size() + b.size());
+        CollectionUtils.shuffle(order, new Random(seed));
+        return IndexedRecordView.concatenation(Arrays.asList(a, b), order);
+    }
     
 }
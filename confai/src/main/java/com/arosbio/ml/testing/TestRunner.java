@@ -9,29 +9,38 @@
  */
 package com.arosbio.ml.testing;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.arosbio.commons.GlobalConfig;
 import com.arosbio.commons.StringUtils;
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.DataUtils;
 import com.arosbio.data.DataUtils.DataType;
 import com.arosbio.data.Dataset;
+import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.ml.algorithms.Classifier;
 import com.arosbio.ml.algorithms.MLAlgorithm;
 import com.arosbio.ml.algorithms.PseudoProbabilisticClassifier;
 import com.arosbio.ml.algorithms.Regressor;
 import com.arosbio.ml.algorithms.ScoringClassifier;
+import com.arosbio.ml.algorithms.impl.KernelCacheBudget;
 import com.arosbio.ml.cp.ConformalClassifier;
 import com.arosbio.ml.cp.acp.ACPRegressor;
 import com.arosbio.ml.interfaces.Predictor;
+import com.arosbio.ml.metrics.MergeableMetric;
 import com.arosbio.ml.metrics.Metric;
 import com.arosbio.ml.metrics.MetricAggregation;
 import com.arosbio.ml.metrics.MetricFactory;
@@ -61,12 +70,20 @@ public class TestRunner {
 	private final List<Double> evalPointsToInject;
 	private final boolean calculateMeanAndStd;
 	private final double allowedFailureRatio;
+	private final boolean reuseSplits;
+	private final int numThreads;
+	/** The splits of the last evaluated data, in case {@link #reuseSplits} is {@code true} */
+	private Dataset splitData;
+	private long splitDataFingerprint;
+	private List<TestTrainSplit> splits;
 
 	private TestRunner(Builder b){
 		this.strategy = b.strat.clone();
 		this.evalPointsToInject = (b.evalPointsToInject != null ? new ArrayList<>(b.evalPointsToInject) : null);
 		this.calculateMeanAndStd = b.calculateMeanAndStd;
 		this.allowedFailureRatio = b.allowedFailureRatio;
+		this.reuseSplits = b.reuseSplits;
+		this.numThreads = b.numThreads;
 	}
 
 	public static class Builder {
@@ -74,6 +91,8 @@ public class TestRunner {
 		private List<Double> evalPointsToInject;
 		private boolean calculateMeanAndStd = true;
 		private double allowedFailureRatio = 0.05;
+		private boolean reuseSplits = false;
+		private int numThreads = 1;
 
 		public Builder(TestingStrategy strategy){
 			this.strat = strategy;
@@ -119,6 +138,34 @@ public class TestRunner {
 			return this;
 		}
 
+		/**
+		 * Set if the test-train splits should be computed once and re-used when the same {@link Dataset} instance is
+		 * evaluated again, e.g. when evaluating many parameter combinations in a grid search. The splits are computed 
+		 * again if the records of the data have been added, removed, re-ordered or replaced in between evaluations. 
+		 * Default is {@code false}
+		 * @param reuse {@code true} if the splits should be re-used
+		 * @return The TestRunner.Builder instance
+		 */
+		public Builder reuseSplits(boolean reuse){
+			this.reuseSplits = reuse;
+			return this;
+		}
+
+		/**
+		 * Set the number of test-train splits that are trained and evaluated concurrently. Each split is
+		 * evaluated using its own metric instances, that are aggregated (or merged, when not calculating mean and 
+		 * standard deviation) in the order of the splits, so the result is the same as when evaluating the splits 
+		 * one at a time. When a single metric is calculated for all splits, the splits are only evaluated concurrently 
+		 * if all metrics are {@link MergeableMetric MergeableMetrics}. Note that one model per concurrent split is kept
+		 * in memory. Default is {@code 1}
+		 * @param numThreads the number of splits to evaluate concurrently
+		 * @return The TestRunner.Builder instance
+		 */
+		public Builder numThreads(int numThreads){
+			this.numThreads = Math.max(1, numThreads);
+			return this;
+		}
+
 		public TestRunner build(){
 			return new TestRunner(this);
 		}
@@ -163,24 +210,9 @@ public class TestRunner {
 		if (! supports(predictor))
 			throw new UnsupportedPredictorException("Testing not supported for predictor of class " + predictor.getClass());
 
-		Iterator<TestTrainSplit> splitsIterator = strategy.getSplits(data);
-
-		// For each fold, train and predict dataset and collect metrics
-		int split=1;
-
-		// Check if proper mean +/- std should be calculated
-		boolean useAggregation = calculateMeanAndStd && numTestSplits>1;
-		List<Metric> usedMetrics = updateMetricsAndWrap(useAggregation, metrics);
-		LOGGER.debug("Running evaluation of {} using mean +/- std: {}", predictor.getPredictorType(), useAggregation);
-
-
-		while (splitsIterator.hasNext()) {
-
-			TestTrainSplit currentSplit = splitsIterator.next();
-
-			LOGGER.debug("Doing split {}/{} examples for validation={}, examples for training={}",
-					split,numTestSplits,currentSplit.getTestSet().size(), currentSplit.getTrainingSet().getNumRecords());
+		LOGGER.debug("Running evaluation of {} using mean +/- std: {}", predictor.getPredictorType(), calculateMeanAndStd && numTestSplits>1);
 
+		return runSplits(getSplits(data), numTestSplits, metrics, (currentSplit, splitMetrics) -> {
 			// Create inner problem for this fold to use in ACP
 			Dataset innerProblem = currentSplit.getTrainingSet();
 
@@ -188,24 +220,119 @@ public class TestRunner {
 			foldPredictor.setSeed(strategy.getSeed());
 			foldPredictor.train(innerProblem);
 
-			if (useAggregation) {
-				// Build up a list of metrics for the given test-split
-				List<Metric> splitMetrics = getTestSplitMetrics(usedMetrics);
-				
-				// Run the test
-				evaluateSplit(foldPredictor, currentSplit.getTestSet(), splitMetrics);
-				// Pull out the results for the ones needing aggregation
-				updateAggregatedMetrics(usedMetrics, splitMetrics);
+			evaluateSplit(foldPredictor, currentSplit.getTestSet(), splitMetrics);
+		});
 
-			} else {
-				evaluateSplit(foldPredictor, currentSplit.getTestSet(), metrics);
-			}
+	}
 
-			split++;
+	/**
+	 * Trains and evaluates a single test-train split, adding the predictions to the given metrics
+	 */
+	private interface SplitEvaluation {
+		void evaluate(TestTrainSplit split, List<Metric> splitMetrics);
+	}
+
+	/**
+	 * Evaluate all splits, each split using its own metric instances that are then aggregated (mean +/- std) or merged 
+	 * into the returned metrics in the order of the splits. Runs up to {@link #numThreads} splits concurrently
+	 */
+	private List<Metric> runSplits(Iterator<TestTrainSplit> splitsIterator, int numTestSplits, List<? extends Metric> metrics, SplitEvaluation evaluation){
+		// Check if proper mean +/- std should be calculated
+		boolean useAggregation = calculateMeanAndStd && numTestSplits>1;
+		List<Metric> usedMetrics = updateMetricsAndWrap(useAggregation, metrics);
+		int maxConcurrent = numThreads > 1 && numTestSplits > 1 && canEvaluateConcurrently(usedMetrics) ? numThreads : 1;
+		LOGGER.debug("Evaluating {} test-splits, with at most {} concurrently", numTestSplits, maxConcurrent);
+
+		// Concurrent trainings share the kernel cache budget (if enabled)
+		KernelCacheBudget cacheBudget = KernelCacheBudget.getInstance();
+		int prevConcurrency = cacheBudget.getExpectedConcurrency();
+		if (maxConcurrent > prevConcurrency)
+			cacheBudget.setExpectedConcurrency(maxConcurrent);
+
+		Deque<Future<List<Metric>>> pending = new ArrayDeque<>();
+		int split=1;
+		try {
+			while (splitsIterator.hasNext() || !pending.isEmpty()) {
+				while (splitsIterator.hasNext() && pending.size() < maxConcurrent) {
+					TestTrainSplit currentSplit = splitsIterator.next();
+					LOGGER.debug("Doing split {}/{} examples for validation={}, examples for training={}",
+							split,numTestSplits,currentSplit.getTestSet().size(), currentSplit.getTrainingSet().getNumRecords());
+					// Build up a list of metrics for the given test-split
+					List<Metric> splitMetrics = getTestSplitMetrics(usedMetrics);
+					if (maxConcurrent > 1) {
+						pending.add(GlobalConfig.getInstance().getSharedExecutor().submit(() -> {
+							evaluation.evaluate(currentSplit, splitMetrics);
+							return splitMetrics;
+						}));
+					} else {
+						evaluation.evaluate(currentSplit, splitMetrics);
+						pending.add(CompletableFuture.completedFuture(splitMetrics));
+					}
+					split++;
+				}
+				// Pull out the results of the first split in order
+				List<Metric> splitMetrics = getResult(pending.poll());
+				if (useAggregation) 
+					updateAggregatedMetrics(usedMetrics, splitMetrics);
+				else
+					mergeSplitMetrics(usedMetrics, splitMetrics);
+			}
+		} finally {
+			for (Future<?> f : pending)
+				f.cancel(true);
+			if (maxConcurrent > prevConcurrency)
+				cacheBudget.setExpectedConcurrency(prevConcurrency);
 		}
 
 		return usedMetrics;
+	}
+
+	private static List<Metric> getResult(Future<List<Metric>> future){
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while evaluating test-split");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause.getMessage(), cause);
+		}
+	}
 
+	private synchronized Iterator<TestTrainSplit> getSplits(Dataset data){
+		if (!reuseSplits)
+			return strategy.getSplits(data);
+		long fingerprint = getFingerprint(data);
+		if (splits == null || splitData != data || splitDataFingerprint != fingerprint){
+			LOGGER.debug("Computing test-train splits to be re-used in later evaluations");
+			List<TestTrainSplit> computed = new ArrayList<>();
+			strategy.getSplits(data).forEachRemaining(computed::add);
+			splits = computed;
+			splitData = data;
+			splitDataFingerprint = fingerprint;
+		}
+		return splits.iterator();
+	}
+
+	/**
+	 * A cheap fingerprint of the records (by identity), their order and labels, so that splits are not re-used 
+	 * when records have been added, removed, shuffled or replaced (e.g. by a transformer) in the same {@link Dataset}
+	 */
+	private static long getFingerprint(Dataset data){
+		long hash = 1;
+		for (SubSet set : Arrays.asList(data.getDataset(), data.getModelingExclusiveDataset(), data.getCalibrationExclusiveDataset())) {
+			hash = 31 * hash + System.identityHashCode(set);
+			hash = 31 * hash + set.size();
+			for (DataRecord r : set) {
+				hash = 31 * hash + System.identityHashCode(r);
+				hash = 31 * hash + Double.hashCode(r.getLabel());
+			}
+		}
+		return hash;
 	}
 
 	private void evaluateSplit(Predictor predictor, Collection<DataRecord> testSet, List<? extends Metric> metrics) {
@@ -289,6 +416,11 @@ public class TestRunner {
 				testSplitMetrics.add(((MetricAggregation<?>) m).spawnNewMetricInstance());
 			} else if (m instanceof PlotMetricAggregation){
 				testSplitMetrics.add(((PlotMetricAggregation) m).spawnNewMetricInstance());
+			} else if (m instanceof MergeableMetric){
+				// Merged into the pooled metric once the split is done
+				Metric splitMetric = m.clone();
+				splitMetric.clear();
+				testSplitMetrics.add(splitMetric);
 			} else {
 				testSplitMetrics.add(m); 
 			}
@@ -296,6 +428,22 @@ public class TestRunner {
 		return testSplitMetrics;
 	}
 
+	private static boolean canEvaluateConcurrently(List<Metric> metrics){
+		for (Metric m : metrics){
+			if (! (m instanceof MetricAggregation || m instanceof PlotMetricAggregation || m instanceof MergeableMetric))
+				return false;
+		}
+		return true;
+	}
+
+	private static void mergeSplitMetrics(List<Metric> pooledMetrics, List<Metric> splitMetrics){
+		for (int i=0; i<pooledMetrics.size(); i++) {
+			// Non-mergeable metrics are evaluated directly on the pooled instance
+			if (pooledMetrics.get(i) != splitMetrics.get(i))
+				((MergeableMetric) pooledMetrics.get(i)).merge(splitMetrics.get(i));
+		}
+	}
+
 	private void updateAggregatedMetrics(List<Metric> aggMetrics, List<Metric> splitMetrics){
 		
 
@@ -388,22 +536,12 @@ public class TestRunner {
 			}
 		}
 
-		Iterator<TestTrainSplit> testSplits = strategy.getSplits(data);
-
 		// Evaluate the testing strategy
 		int numTestSplits = strategy.getNumberOfSplitsAndValidate(data);
-		int split=1;
-		// Check if proper mean +/- std should be calculated
-		boolean useAggregation = calculateMeanAndStd && numTestSplits>1;
-		List<Metric> usedMetrics = updateMetricsAndWrap(useAggregation, metrics);
 
 		//For each test-split, train and predict data set and collect metrics
-		while (testSplits.hasNext()){
+		return runSplits(getSplits(data), numTestSplits, metrics, (currentSplit, testSplitMetrics) -> {
 			try {
-				TestTrainSplit currentSplit = testSplits.next();
-				LOGGER.debug("Doing split {}/{} examples for validation={}, examples for training={}",
-						split,numTestSplits,currentSplit.getTestSet().size(), currentSplit.getTrainingSet().getNumRecords());
-
 				//Create inner problem for this fold to use in ACP
 				List<DataRecord> foldDataset = currentSplit.getTrainingSet().getDataset();
 
@@ -411,8 +549,6 @@ public class TestRunner {
 				foldAlgorithm.setSeed(strategy.getSeed());
 				foldAlgorithm.train(foldDataset);
 
-				List<Metric> testSplitMetrics = (useAggregation ? getTestSplitMetrics(usedMetrics) : usedMetrics);
-
 				for (DataRecord test : currentSplit.getTestSet()) {
 					double yHat = foldAlgorithm.predictValue(test.getFeatures());
 					for (Metric m : testSplitMetrics) {
@@ -420,22 +556,13 @@ public class TestRunner {
 							((PointPredictionMetric) m).addPrediction(test.getLabel(),yHat);
 					}
 				}
-				if (useAggregation){
-					updateAggregatedMetrics(usedMetrics, testSplitMetrics);
-				}
-
-
-				split++;
 
 			} catch (IllegalStateException e) {
 				// should only be thrown in case 
-				LOGGER.debug("Failed fold {} in CV for simple MLAlgorithm",split, e);
+				LOGGER.debug("Failed fold in CV for simple MLAlgorithm", e);
 				throw new RuntimeException(e.getMessage());
 			}
-
-		}
-
-		return usedMetrics;
+		});
 	}
 
 	public List<Metric> evaluateClassifier(Dataset data, 
@@ -476,28 +603,18 @@ public class TestRunner {
 				throw new IllegalArgumentException("Metric " + m.getName() + " not supported classifier of type " + algorithm.getName());
 		}
 
-		Iterator<TestTrainSplit> testSplits = strategy.getSplits(data);
 		//For each fold, train and predict dataset and collect metrics
 		int numTestSplits = strategy.getNumberOfSplitsAndValidate(data);
-		int split=1;
-		// Check if proper mean +/- std should be calculated
-		boolean useAggregation = calculateMeanAndStd && numTestSplits>1;
-		List<Metric> usedMetrics = updateMetricsAndWrap(useAggregation, metrics);
+		final boolean needProbabilities = requireProbabilities, needScores = requireScores, needStdPred = requireStdPred;
 
-		while (testSplits.hasNext()){
+		return runSplits(getSplits(data), numTestSplits, metrics, (currentSplit, testSplitMetrics) -> {
 			try {
-				TestTrainSplit currentSplit = testSplits.next();
-				LOGGER.debug("Doing split {}/{} examples for validation={}, examples for training={}",
-						split,numTestSplits,currentSplit.getTestSet().size(), currentSplit.getTrainingSet().getNumRecords());
-
 				//Create inner problem for this fold to use in ACP
 				List<DataRecord> foldDataset = currentSplit.getTrainingSet().getDataset();
 
 				Classifier foldAlgorithm = algorithm.clone();
 				foldAlgorithm.train(foldDataset);
 
-				List<Metric> testSplitMetrics = (useAggregation ? getTestSplitMetrics(usedMetrics) : usedMetrics);
-
 				for (DataRecord test: currentSplit.getTestSet()) {
 					int observedLabel = (int) test.getLabel();
 					// Predict the stuff
@@ -505,13 +622,13 @@ public class TestRunner {
 					Map<Integer, Double> scores = null;
 					int predictedLabel = -Integer.MAX_VALUE;
 
-					if (requireProbabilities) {
+					if (needProbabilities) {
 						probabilities = ((PseudoProbabilisticClassifier)foldAlgorithm).predictProbabilities(test.getFeatures());
 					} 
-					if (requireScores) {
+					if (needScores) {
 						scores = ((ScoringClassifier) foldAlgorithm).predictScores(test.getFeatures());
 					}
-					if (requireStdPred) {
+					if (needStdPred) {
 						predictedLabel = foldAlgorithm.predictClass(test.getFeatures());
 					}
 
@@ -525,20 +642,12 @@ public class TestRunner {
 					}
 				}
 
-				if (useAggregation){
-					updateAggregatedMetrics(usedMetrics, testSplitMetrics);
-				}
-
-				split++;
 			} catch (IllegalStateException e) {
 				// should only be thrown in case 
-				LOGGER.debug("Failed fold {} in CV for Classifier algorithm",split, e);
+				LOGGER.debug("Failed fold in CV for Classifier algorithm", e);
 				throw new RuntimeException(e.getMessage());
 			}
-
-		}
-
-		return usedMetrics;
+		});
 	}
 
 }
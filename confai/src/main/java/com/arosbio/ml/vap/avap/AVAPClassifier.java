@@ -15,6 +15,7 @@ import java.io.OutputStream;
 import java.security.InvalidKeyException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -32,6 +33,7 @@ import com.arosbio.commons.GlobalConfig.Defaults.PredictorType;
 import com.arosbio.commons.MathUtils;
 import com.arosbio.commons.TypeUtils;
 import com.arosbio.commons.config.ImplementationConfig;
+import com.arosbio.commons.mixins.Freezable;
 import com.arosbio.data.DataUtils;
 import com.arosbio.data.Dataset;
 import com.arosbio.data.FeatureVector;
@@ -44,6 +46,7 @@ import com.arosbio.ml.ClassificationUtils;
 import com.arosbio.ml.PredictorBase;
 import com.arosbio.ml.algorithms.ScoringClassifier;
 import com.arosbio.ml.algorithms.impl.DefaultMLParameterSettings;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 import com.arosbio.ml.algorithms.svm.SVC;
 import com.arosbio.ml.interfaces.ClassificationPredictor;
 import com.arosbio.ml.io.MetaFileUtils;
@@ -53,10 +56,11 @@ import com.arosbio.ml.metrics.classification.LogLoss;
 import com.arosbio.ml.sampling.SamplingStrategy;
 import com.arosbio.ml.sampling.SamplingStrategyUtils;
 import com.arosbio.ml.sampling.TrainSplit;
+import com.arosbio.ml.sampling.TrainSplitCache;
 import com.arosbio.ml.sampling.TrainSplitGenerator;
 import com.arosbio.ml.vap.ivap.IVAPClassifier;
 
-public final class AVAPClassifier extends PredictorBase implements AVAP, ClassificationPredictor {
+public final class AVAPClassifier extends PredictorBase implements AVAP, ClassificationPredictor, Freezable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(AVAPClassifier.class);
 	private static final String CVAP_DIRECTORY_NAME = "cvap";
@@ -68,6 +72,9 @@ public final class AVAPClassifier extends PredictorBase implements AVAP, Classif
 	private Map<Integer,IVAPClassifier> predictors = new HashMap<>();
 	private ScoringClassifier scoringAlgorithm;
 	private SamplingStrategy strategy;
+	/** Training modes, toggled by callers that train the predictor several times on the same data */
+	private TrainSplitCache splitCache;
+	private boolean rowsSharedByCaller = false;
 
 	/* 
 	 * =================================================
@@ -96,6 +103,8 @@ public final class AVAPClassifier extends PredictorBase implements AVAP, Classif
 		clone.strategy = strategy.clone();
 		clone.scoringAlgorithm = this.scoringAlgorithm.clone();
 		clone.seed=seed;
+		clone.splitCache = splitCache;
+		clone.rowsSharedByCaller = rowsSharedByCaller;
 
 		// Copy all IVAPs 
 		if (predictors != null)
@@ -166,6 +175,7 @@ public final class AVAPClassifier extends PredictorBase implements AVAP, Classif
 	}
 
 	public boolean releaseResources(){
+		assertNotFrozen();
 		if (predictors == null || predictors.isEmpty())
 			return false;
 
@@ -220,6 +230,7 @@ public final class AVAPClassifier extends PredictorBase implements AVAP, Classif
 
 	@Override
 	public void setConfigParameters(Map<String,Object> params) throws IllegalArgumentException {
+		assertNotFrozen();
 		// SAMPLING STRATEGY
 		if (params.containsKey(CONFIG_SAMPLING_STRATEGY_PARAM_NAME)) {
 			if (params.get(CONFIG_SAMPLING_STRATEGY_PARAM_NAME) instanceof SamplingStrategy) {
@@ -229,6 +240,12 @@ public final class AVAPClassifier extends PredictorBase implements AVAP, Classif
 			}
 		}
 
+
+		splitCache = TrainSplitCache.update(splitCache, params);
+		Boolean shareRows = NativeRowCache.getSharing(params);
+		if (shareRows != null)
+			rowsSharedByCaller = shareRows;
+
 		// pass on to underlying classifier
 		scoringAlgorithm.setConfigParameters(params);
 	}
@@ -251,8 +268,10 @@ public final class AVAPClassifier extends PredictorBase implements AVAP, Classif
 	 */
 	@Override
 	public void train(Dataset problem) throws IllegalArgumentException {
+		assertNotFrozen();
 
-		Iterator<TrainSplit> splits = strategy.getIterator(problem, seed);
+		Iterator<TrainSplit> splits = splitCache != null ? 
+			splitCache.getSplits(strategy, problem, seed).iterator() : strategy.getIterator(problem, seed);
 
 		predictors=new HashMap<>();
 
@@ -260,18 +279,33 @@ public final class AVAPClassifier extends PredictorBase implements AVAP, Classif
 		int i=0, nrModels=strategy.getNumSamples();
 		LOGGER.debug("Training CVAP Predictor with {} models", nrModels);
 
-		while (splits.hasNext()){
-			IVAPClassifier ivap = new IVAPClassifier(scoringAlgorithm.clone());
-			TrainSplit nextDataset = splits.next();
-			ivap.train(nextDataset);
-			predictors.put(i, ivap);
-			LOGGER.debug(" - Trained model {}/{}",(i+1), nrModels);
-			i++;
+		// The models are trained on overlapping data, share the native representation of the records between them
+		// (unless already shared by the caller, in which case the shared rows should be kept after training)
+		boolean shareRows = nrModels > 1 && !rowsSharedByCaller;
+		if (shareRows)
+			scoringAlgorithm.setConfigParameters(NativeRowCache.getParameters(true));
+		try {
+			while (splits.hasNext()){
+				IVAPClassifier ivap = new IVAPClassifier(scoringAlgorithm.clone());
+				TrainSplit nextDataset = splits.next();
+				ivap.train(nextDataset);
+				predictors.put(i, ivap);
+				LOGGER.debug(" - Trained model {}/{}",(i+1), nrModels);
+				i++;
+			}
+		} finally {
+			if (shareRows) {
+				// The trained models should not keep a reference to the shared rows
+				scoringAlgorithm.setConfigParameters(NativeRowCache.getParameters(false));
+				for (IVAPClassifier trained : predictors.values())
+					trained.setConfigParameters(NativeRowCache.getParameters(false));
+			}
 		}
 
 	}
 
 	public void train(Dataset problem, int index) throws IllegalArgumentException {
+		assertNotFrozen();
 
 		if (predictors == null)
 			predictors = new HashMap<>();
@@ -291,6 +325,31 @@ public final class AVAPClassifier extends PredictorBase implements AVAP, Classif
 
 	}
 
+	/* 
+	 * =================================================
+	 * 			FREEZE
+	 * =================================================
+	 */
+
+	/**
+	 * Freeze the trained CVAP, and all of its IVAPs, into an immutable snapshot that can be used for 
+	 * prediction from any number of threads concurrently. All methods that alter the CVAP throw an {@link IllegalStateException}.
+	 * @return the calling instance
+	 * @throws IllegalStateException If the CVAP is not trained
+	 */
+	@Override
+	public AVAPClassifier freeze() throws IllegalStateException {
+		if (frozen)
+			return this;
+		assertIsTrained();
+		for (IVAPClassifier ivap : predictors.values())
+			ivap.freeze();
+		predictors = Collections.unmodifiableMap(new HashMap<>(predictors));
+		// Volatile write last, publishes the state above
+		frozen = true;
+		return this;
+	}
+
 	/* 
 	 * =================================================
 	 * 			PREDICT
@@ -440,6 +499,7 @@ public final class AVAPClassifier extends PredictorBase implements AVAP, Classif
 	@Override
 	public void loadFromDataSource(DataSource source, String basePath, EncryptionSpecification spec) 
 			throws IOException, IllegalArgumentException, InvalidKeyException {
+		assertNotFrozen();
 
 		String cvapDir = DataIOUtils.locateBasePath(source, basePath, CVAP_DIRECTORY_NAME+ "/");
 		LOGGER.debug("loading AVAP from source, location={}",cvapDir);
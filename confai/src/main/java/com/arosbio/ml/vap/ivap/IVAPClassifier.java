@@ -18,6 +18,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.security.InvalidKeyException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -32,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import com.arosbio.commons.FuzzyServiceLoader;
 import com.arosbio.commons.MathUtils;
 import com.arosbio.commons.TypeUtils;
+import com.arosbio.commons.mixins.Freezable;
 import com.arosbio.commons.mixins.ResourceAllocator;
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.FeatureVector;
@@ -54,7 +56,7 @@ import com.arosbio.ml.io.MetaFileUtils;
 import com.arosbio.ml.io.impl.PropertyNameSettings;
 import com.arosbio.ml.sampling.TrainSplit;
 
-public final class IVAPClassifier implements IVAP, ClassificationPredictor {
+public final class IVAPClassifier implements IVAP, ClassificationPredictor, Freezable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(IVAPClassifier.class);
 
@@ -77,6 +79,7 @@ public final class IVAPClassifier implements IVAP, ClassificationPredictor {
 	private List<WPoint2D> calibrationPoints;
 	private IsotonicRegressionCalibrator calibrator;
 	private int numTrainingObservations;
+	private volatile boolean frozen = false;
 
 	/* 
 	 * =================================================
@@ -115,6 +118,7 @@ public final class IVAPClassifier implements IVAP, ClassificationPredictor {
 	}
 
 	public void setCalibrationPoints(List<WPoint2D> points){
+		assertNotFrozen();
 		this.calibrationPoints = new ArrayList<>(points);
 	}
 
@@ -123,6 +127,7 @@ public final class IVAPClassifier implements IVAP, ClassificationPredictor {
 	}
 
 	public void setScoringAlgorithm(ScoringClassifier model){
+		assertNotFrozen();
 		this.model = model;
 	}
 
@@ -152,6 +157,7 @@ public final class IVAPClassifier implements IVAP, ClassificationPredictor {
 
 	@Override
 	public void setSeed(long seed) {
+		assertNotFrozen();
 		model.setSeed(seed);
 	}
 
@@ -172,6 +178,7 @@ public final class IVAPClassifier implements IVAP, ClassificationPredictor {
 
 	@Override
 	public void setConfigParameters(Map<String,Object> params) throws IllegalArgumentException {
+		assertNotFrozen();
 		// pass on to underlying classifier
 		model.setConfigParameters(params);
 	}
@@ -190,6 +197,36 @@ public final class IVAPClassifier implements IVAP, ClassificationPredictor {
 		return model != null && model instanceof ResourceAllocator;
 	}
 
+	/**
+	 * Freeze the trained IVAP into an immutable snapshot, that can be used for prediction from any number 
+	 * of threads concurrently. All methods that alter the IVAP throw an {@link IllegalStateException}.
+	 * @return the calling instance
+	 * @throws IllegalStateException If the IVAP is not trained
+	 */
+	@Override
+	public IVAPClassifier freeze() throws IllegalStateException {
+		if (frozen)
+			return this;
+		if (! isTrained())
+			throw new IllegalStateException("The IVAP has not been trained yet");
+		if (calibrator == null)
+			calibrator = IsotonicRegressionCalibrator.fitFromRaw(calibrationPoints);
+		calibrationPoints = Collections.unmodifiableList(calibrationPoints);
+		// Volatile write last, publishes the state above
+		frozen = true;
+		return this;
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void assertNotFrozen() throws IllegalStateException {
+		if (frozen)
+			throw new IllegalStateException("IVAP is frozen and cannot be altered");
+	}
+
 	/* 
 	 * =================================================
 	 * 			TRAINING / PREDICTING
@@ -198,6 +235,7 @@ public final class IVAPClassifier implements IVAP, ClassificationPredictor {
 
 	public void train(TrainSplit dataset) 
 			throws IllegalArgumentException {
+		assertNotFrozen();
 		TrainingsetValidator.getInstance().validateClassification(dataset);
 		// Train the underlying algorithm
 		model.train(dataset.getProperTrainingSet());
@@ -381,6 +419,7 @@ public final class IVAPClassifier implements IVAP, ClassificationPredictor {
 	@Override
 	public void loadFromDataSource(DataSource src, String modelName, EncryptionSpecification spec)
 			throws IOException, IllegalArgumentException, InvalidKeyException {
+		assertNotFrozen();
 
 		if (! src.hasEntry(modelName+META_PARAMS_FILE_ENDING))
 			throw new IllegalArgumentException("No IVAP model in source under modelName=" + modelName);
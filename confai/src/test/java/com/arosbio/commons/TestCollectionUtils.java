@@ -12,14 +12,17 @@ package com.arosbio.commons;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -31,6 +34,36 @@ import com.google.common.collect.Sets;
 @Category(UnitTest.class)
 public class TestCollectionUtils {
 
+	@Test
+	public void testIndexBasedSplittingSameAsListBased() {
+		List<Integer> list = CollectionUtils.listRange(0, 136, 1);
+		for (long seed : new long[]{1, 42, 9876543210L}) {
+			// Random split
+			Pair<List<Integer>,List<Integer>> listSplit = CollectionUtils.splitRandomly(list, 31, seed);
+			Pair<int[],int[]> indexSplit = CollectionUtils.splitIndicesRandomly(list.size(), 31, seed);
+			Assert.assertEquals(listSplit.getLeft(), IntStream.of(indexSplit.getLeft()).boxed().collect(Collectors.toList()));
+			Assert.assertEquals(listSplit.getRight(), IntStream.of(indexSplit.getRight()).boxed().collect(Collectors.toList()));
+
+			// Shuffling
+			List<Integer> shuffled = new ArrayList<>(list);
+			Collections.shuffle(shuffled, new Random(seed));
+			int[] arr = CollectionUtils.range(list.size());
+			CollectionUtils.shuffle(arr, new Random(seed));
+			Assert.assertEquals(shuffled, IntStream.of(arr).boxed().collect(Collectors.toList()));
+		}
+		// Edge cases
+		Assert.assertEquals(0, CollectionUtils.splitIndicesRandomly(10, 10, 1).getLeft().length);
+		Assert.assertEquals(10, CollectionUtils.splitIndicesRandomly(10, 0, 1).getLeft().length);
+
+		// Disjunct sets
+		for (int size : new int[]{10, 11, 19}) {
+			List<List<Integer>> sets = CollectionUtils.getDisjunctSets(list.subList(0, size), 4, false);
+			int[] bounds = CollectionUtils.getDisjunctSetBounds(size, 4, false);
+			for (int i=0; i<sets.size(); i++)
+				Assert.assertEquals(sets.get(i), list.subList(bounds[i], bounds[i+1]));
+		}
+	}
+
 	@Test
 	public void testNegativeStep() {
 		List<Integer> intList = CollectionUtils.listRange(0, -8, -1);
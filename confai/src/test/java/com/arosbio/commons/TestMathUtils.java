@@ -20,7 +20,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Random;
 
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -50,6 +52,34 @@ public class TestMathUtils {
 		Assert.assertEquals(Double.NEGATIVE_INFINITY, MathUtils.median(Arrays.asList(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY)), 0.00001);
 	}
 	
+	@Test
+	public void testPercentileSameAsCommonsMath() {
+		Random rng = new Random(17);
+		for (int n : new int[] {0, 1, 2, 5, 50, 501}) {
+			for (int numZeros : new int[] {0, 1, 30}) {
+				double[] values = new double[n];
+				for (int i=0; i<n; i++) {
+					double r = rng.nextDouble();
+					values[i] = r < .1 ? 0 : r < .15 ? Double.NaN : r < .17 ? Double.POSITIVE_INFINITY : rng.nextGaussian()*10;
+				}
+				double[] padded = Arrays.copyOf(values, n + numZeros);
+				for (double p : new double[] {.5, 1, 10, 25, 50, 75, 90, 99.9, 100}) {
+					double expected = new Percentile().evaluate(padded, p);
+					double actual = MathUtils.percentile(values.clone(), numZeros, p);
+					Assert.assertEquals("n="+n+", zeros="+numZeros+", p="+p, expected, actual, 1e-12);
+				}
+			}
+		}
+		// Without zeros, reusing the same (reordered) array
+		double[] values = {5, -1, 3, 3, 8, -2};
+		Assert.assertEquals(new Percentile().evaluate(values.clone(), 50), MathUtils.percentile(values, 50), 0);
+		Assert.assertEquals(new Percentile().evaluate(new double[] {5, -1, 3, 3, 8, -2}, 20), MathUtils.percentile(values, 20), 0);
+		try {
+			MathUtils.percentile(values, 0);
+			Assert.fail("Percentile 0 is not allowed");
+		} catch (IllegalArgumentException e) {}
+	}
+	
 	@Test
 	public void testGeometricMean() throws Exception {
 		Assert.assertEquals(1d,MathUtils.geometricMean(Arrays.asList(1d,1d,1d,1d,1d)),0.0001);
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.commons;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.arosbio.tests.suites.UnitTest;
+
+@Category(UnitTest.class)
+public class TestQuantileSketch {
+
+	private static final double MAX_RANK_ERROR = 0.02;
+
+	private static void assertRankError(double[] sorted, QuantileSketch sketch, double q) {
+		double value = sketch.getQuantile(q);
+		// Rank range of the value, handles ties
+		int low = Arrays.binarySearch(sorted, value), high = low;
+		Assert.assertTrue("Returned value must be one of the added values", low >= 0);
+		while (low > 0 && sorted[low-1] == value)
+			low--;
+		while (high < sorted.length-1 && sorted[high+1] == value)
+			high++;
+		double target = q * sorted.length;
+		double err = target < low ? (low - target) : target > high+1 ? target - high - 1 : 0;
+		Assert.assertTrue("q="+q+" rank error: " + err/sorted.length, err / sorted.length <= MAX_RANK_ERROR);
+	}
+
+	@Test
+	public void testQuantilesAndMerge() {
+		Random rng = new Random(1);
+		int n = 100_000;
+		double[] values = new double[n];
+		QuantileSketch all = new QuantileSketch();
+		QuantileSketch[] parts = new QuantileSketch[4];
+		for (int i=0; i<parts.length; i++)
+			parts[i] = new QuantileSketch();
+		for (int i=0; i<n; i++) {
+			values[i] = rng.nextDouble() < .2 ? 0 : Math.exp(rng.nextGaussian()*2);
+			all.update(values[i]);
+			parts[i % parts.length].update(values[i]);
+		}
+		for (int i=1; i<parts.length; i++)
+			parts[0].merge(parts[i]);
+		Arrays.sort(values);
+
+		for (QuantileSketch s : Arrays.asList(all, parts[0])) {
+			Assert.assertEquals(n, s.getCount());
+			Assert.assertTrue("Bounded memory: " + s.getNumRetained(), s.getNumRetained() < 2000);
+			Assert.assertEquals(values[0], s.getMin(), 0);
+			Assert.assertEquals(values[n-1], s.getMax(), 0);
+			Assert.assertEquals(values[0], s.getQuantile(0), 0);
+			Assert.assertEquals(values[n-1], s.getQuantile(1), 0);
+			for (double q : new double[] {.01, .1, .25, .5, .75, .9, .99})
+				assertRankError(values, s, q);
+		}
+	}
+
+	@Test
+	public void testWeightedUpdate() {
+		QuantileSketch weighted = new QuantileSketch(50), single = new QuantileSketch(50);
+		Random rng = new Random(5);
+		double[] values = new double[20_000 + 12_345];
+		for (int i=0; i<20_000; i++) {
+			values[i] = rng.nextGaussian();
+			weighted.update(values[i]);
+			single.update(values[i]);
+		}
+		weighted.update(0, 12_345);
+		for (int i=20_000; i<values.length; i++)
+			single.update(0);
+		Assert.assertEquals(single.getCount(), weighted.getCount());
+		Arrays.sort(values);
+		for (double q : new double[] {.1, .3, .5, .7, .9}) {
+			assertRankError(values, weighted, q);
+		}
+	}
+
+	@Test
+	public void testEdgeCases() {
+		QuantileSketch s = new QuantileSketch();
+		Assert.assertTrue(s.isEmpty());
+		Assert.assertTrue(Double.isNaN(s.getMedian()));
+		s.update(3);
+		Assert.assertEquals(3, s.getMedian(), 0);
+		s.merge(new QuantileSketch());
+		Assert.assertEquals(1, s.getCount());
+
+		try {
+			s.update(Double.NaN);
+			Assert.fail("NaN not allowed");
+		} catch (IllegalArgumentException e) {}
+		try {
+			s.merge(new QuantileSketch(20));
+			Assert.fail("Different k should fail");
+		} catch (IllegalArgumentException e) {}
+		try {
+			new QuantileSketch(QuantileSketch.MIN_K - 1);
+			Assert.fail("Too small k");
+		} catch (IllegalArgumentException e) {}
+	}
+
+}
@@ -13,8 +13,10 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.security.InvalidKeyException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -61,6 +63,35 @@ public class TestDataset extends TestEnv {
 		} catch(IllegalStateException e){}
 	}
 	
+	@Test
+	public void testGetFeatureInfoLargeData() throws Exception {
+		Random rng = new Random(4321);
+		Dataset ds = new Dataset();
+		for (int i=0; i<20000; i++) {
+			List<SparseFeature> feats = new ArrayList<>();
+			for (int c=0; c<5; c++) {
+				if (rng.nextDouble() < .8)
+					feats.add(new SparseFeatureImpl(c, 3 + rng.nextGaussian()*(c+1)));
+			}
+			(i % 3 == 0 ? ds.getCalibrationExclusiveDataset() : ds.getDataset()).add(new DataRecord(0d, feats));
+		}
+
+		List<FeatureInfo> info = ds.getFeaturesInfo();
+		Assert.assertEquals(5, info.size());
+		for (int c=0; c<5; c++) {
+			double[] column = ds.extractColumnArray(c);
+			Arrays.sort(column);
+			FeatureInfo fi = info.get(c);
+			Assert.assertEquals(column[0], fi.minValue, 0);
+			Assert.assertEquals(column[column.length-1], fi.maxValue, 0);
+			Assert.assertEquals(Arrays.stream(column).average().getAsDouble(), fi.meanValue, 1e-8);
+			// The rank of the approximate median should be within the error of the sketch
+			int rank = Arrays.binarySearch(column, fi.medianValue);
+			Assert.assertTrue("median not among the values", rank >= 0);
+			Assert.assertEquals(.5, (double) rank / column.length, .02);
+		}
+	}
+
 	@Test
 	public void testGetFeatureInfo() throws Exception {
 		Dataset clfData = TestDataLoader.loadDataset(TestResources.SVMLIGHTFiles.CLASSIFICATION_2CLASS_20);
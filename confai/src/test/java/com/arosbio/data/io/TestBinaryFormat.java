@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.data.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.arosbio.data.DataRecord;
+import com.arosbio.data.DataUtils;
+import com.arosbio.data.Dataset;
+import com.arosbio.data.Dataset.SubSet;
+import com.arosbio.data.DenseFloatVector;
+import com.arosbio.data.DenseVector;
+import com.arosbio.data.MissingValueFeature;
+import com.arosbio.data.SparseFeature;
+import com.arosbio.data.SparseFeatureImpl;
+import com.arosbio.data.SparseVector;
+import com.arosbio.data.transform.format.MakeDenseTransformer;
+import com.arosbio.io.DataSink;
+import com.arosbio.tests.TestResources;
+import com.arosbio.tests.suites.UnitTest;
+import com.arosbio.tests.utils.TestUtils;
+import com.arosbio.testutils.TestDataLoader;
+import com.arosbio.testutils.TestEnv;
+
+@Category(UnitTest.class)
+public class TestBinaryFormat extends TestEnv {
+
+	@Test
+	public void testSparseData() throws IOException {
+		SubSet data = TestDataLoader.getInstance().getDataset(true, true).getDataset();
+
+		Assert.assertTrue(DataUtils.equals(data, read(new BinaryFormat(), write(new BinaryFormat(), data))));
+
+		// Integer counts (e.g. signatures) - much more compact than the text format
+		Random rng = new Random(56);
+		SubSet counts = new SubSet();
+		for (int i=0; i<200; i++) {
+			List<SparseFeature> features = new ArrayList<>();
+			for (int index = rng.nextInt(50); index < 100000; index += 1 + rng.nextInt(2000))
+				features.add(new SparseFeatureImpl(index, 1 + rng.nextInt(5)));
+			counts.add(new DataRecord((double) rng.nextInt(2), features));
+		}
+		byte[] binary = write(new BinaryFormat(), counts);
+		Assert.assertTrue(DataUtils.equals(counts, read(new BinaryFormat(), binary)));
+		Assert.assertTrue(binary.length < write(new LIBSVMFormat(), counts).length / 2);
+	}
+
+	@Test
+	public void testDenseData() throws IOException {
+		SubSet sparse = TestDataLoader.loadSubset(TestResources.SVMLIGHTFiles.REGRESSION_HOUSING_25);
+		SubSet dense = new MakeDenseTransformer().fitAndTransform(sparse.clone());
+
+		SubSet read = read(new BinaryFormat(), write(new BinaryFormat(), dense));
+		Assert.assertTrue(DataUtils.equals(dense, read));
+		Assert.assertTrue(read.get(0).getFeatures() instanceof DenseVector);
+		Assert.assertTrue(DataUtils.equals(sparse, read));
+
+		// Float precision is kept
+		SubSet floats = new SubSet();
+		floats.add(new DataRecord(1d, new DenseFloatVector(new float[] {1.5f, 0f, -3.25f})));
+		floats.add(new DataRecord(0d, new DenseFloatVector(new float[] {0f, 2f, 1e-7f})));
+		read = read(new BinaryFormat(), write(new BinaryFormat(), floats));
+		Assert.assertTrue(read.get(1).getFeatures() instanceof DenseFloatVector);
+		Assert.assertTrue(DataUtils.equals(floats, read));
+	}
+
+	@Test
+	public void testMixedValuesAndMissingData() throws IOException {
+		SubSet data = new SubSet();
+		data.add(new DataRecord(2.5, Arrays.<SparseFeature>asList(new SparseFeatureImpl(0, 3), new SparseFeatureImpl(7, -12), new SparseFeatureImpl(100000, 1))));
+		data.add(new DataRecord(-1d, Arrays.<SparseFeature>asList(new SparseFeatureImpl(2, 0.25), new MissingValueFeature(5), new SparseFeatureImpl(6, 1e300))));
+		data.add(new DataRecord(0d, Arrays.<SparseFeature>asList(new SparseFeatureImpl(1, Integer.MIN_VALUE), new SparseFeatureImpl(3, Integer.MAX_VALUE))));
+		data.add(new DataRecord(1d, Arrays.<SparseFeature>asList()));
+
+		SubSet read = read(new BinaryFormat(), write(new BinaryFormat(), data));
+		Assert.assertTrue(DataUtils.equals(data, read));
+		Assert.assertTrue(((SparseVector) read.get(1).getFeatures()).getInternalList().get(1) instanceof MissingValueFeature);
+	}
+
+	@Test
+	public void testDetectFormat() throws Exception {
+		SubSet data = TestDataLoader.loadSubset(TestResources.SVMLIGHTFiles.CLASSIFICATION_2CLASS_20_MISSING_VALUES);
+		byte[] binary = write(new BinaryFormat(), data);
+
+		try (InputStream is = new ByteArrayInputStream(binary)){
+			Assert.assertTrue(BinaryFormat.isBinaryFormat(is));
+			// Nothing consumed
+			Assert.assertEquals(binary.length, is.available());
+		}
+		try (InputStream is = new ByteArrayInputStream(write(new LIBSVMFormat(), data))){
+			Assert.assertFalse(BinaryFormat.isBinaryFormat(is));
+		}
+
+		// Read using a different format
+		try (InputStream is = new ByteArrayInputStream(binary)){
+			Assert.assertTrue(DataUtils.equals(data, SubSet.fromInput(is, new LIBSVMFormat())));
+		}
+		// And compressed
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gz = new GZIPOutputStream(compressed)){
+			gz.write(binary);
+		}
+		try (InputStream is = new ByteArrayInputStream(compressed.toByteArray())){
+			Assert.assertTrue(DataUtils.equals(data, SubSet.fromInput(is, new LIBSVMFormat())));
+		}
+
+		// Truncated data
+		try (InputStream is = new ByteArrayInputStream(Arrays.copyOf(binary, binary.length-5))){
+			new BinaryFormat().read(is);
+			Assert.fail("Truncated data should fail");
+		} catch (IOException e){}
+	}
+
+	@Test
+	public void testSaveLoadDataset() throws Exception {
+		Dataset data = TestDataLoader.loadDataset(TestResources.SVMLIGHTFiles.CLASSIFICATION_2CLASS_20_MISSING_VALUES);
+		data.withSerializationFormat(new BinaryFormat());
+		Assert.assertTrue(data.clone().getSerializationFormat() instanceof BinaryFormat);
+
+		File jarFile = TestUtils.createTempFile("binary", ".jar");
+		try (DataSink sink = getJarDataSink(jarFile)){
+			data.saveToDataSink(sink, null, null);
+		}
+		Dataset loaded = new Dataset();
+		loaded.loadFromDataSource(getJarDataSource(jarFile), null);
+		Assert.assertEquals(data, loaded);
+	}
+
+	private static byte[] write(DataSerializationFormat fmt, SubSet data) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		fmt.write(os, data);
+		return os.toByteArray();
+	}
+
+	private static SubSet read(DataSerializationFormat fmt, byte[] bytes) throws IOException {
+		try (InputStream is = new ByteArrayInputStream(bytes)){
+			return fmt.read(is);
+		}
+	}
+
+}
@@ -11,11 +11,13 @@ package com.arosbio.data.splitting;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.Assert;
@@ -104,6 +106,48 @@ public class TestDataSplitting extends TestEnv {
 			
 		}
 		
+		/**
+		 * The folds are views of record indices, check that they are identical to the previous list-based implementation
+		 */
+		@Test
+		public void testStratifiedFoldsSameAsListBased() throws IOException {
+			Dataset data = TestDataLoader.loadDataset(TestResources.SVMLIGHTFiles.CLASSIFICATION_2CLASS_100);
+			long seed = 56789;
+			int numFolds = 7; // not evenly divisible
+			FoldedSplitter splitter = new FoldedSplitter.Builder()
+				.numFolds(numFolds)
+				.stratify(true)
+				.seed(seed)
+				.build(data);
+
+			// The list-based folds
+			List<List<DataRecord>> folds = new ArrayList<>();
+			for (int i=0; i<numFolds; i++)
+				folds.add(new ArrayList<>());
+			for (List<DataRecord> strata : DataUtils.stratify(data.getDataset())) {
+				List<DataRecord> tmp = new ArrayList<>(strata);
+				Collections.shuffle(tmp, new Random(seed));
+				List<List<DataRecord>> foldStrata = CollectionUtils.getDisjunctSets(tmp, numFolds, true);
+				List<Integer> sizeSort = CollectionUtils.getSortedIndicesBySize(folds, true);
+				for (int i=0; i<numFolds; i++)
+					folds.get(sizeSort.get(i)).addAll(foldStrata.get(i));
+			}
+			for (List<DataRecord> f : folds)
+				Collections.shuffle(f, new Random(seed));
+
+			for (int i=0; i<numFolds; i++) {
+				DataSplit split = splitter.next();
+				List<DataRecord> expectedFirst = new ArrayList<>();
+				for (int j=0; j<numFolds; j++)
+					if (j != i)
+						expectedFirst.addAll(folds.get(j));
+				Assert.assertEquals(folds.get(i), new ArrayList<>(split.getSecond()));
+				Assert.assertEquals(expectedFirst, new ArrayList<>(split.getFirstRecords()));
+				Assert.assertEquals(expectedFirst, split.getFirst().getDataset());
+			}
+			Assert.assertFalse(splitter.hasNext());
+		}
+
 		@Test
 		public void foldedStratifiedSplitting() throws IOException {
 			Dataset originalDataset = TestDataLoader.loadDataset(TestResources.SVMLIGHTFiles.CLASSIFICATION_2CLASS_100);
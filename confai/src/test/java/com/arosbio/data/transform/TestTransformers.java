@@ -21,10 +21,12 @@ import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -943,6 +945,221 @@ public class TestTransformers extends TestEnv {
 
 	}
 
+	@Category(UnitTest.class)
+	public static class TestColumnStatistics {
+
+		private static List<DataRecord> generateSparse(int numRecs, int numCols, long seed){
+			Random rng = new Random(seed);
+			List<DataRecord> recs = new ArrayList<>();
+			for (int i=0; i<numRecs; i++) {
+				List<SparseFeature> feats = new ArrayList<>();
+				for (int c=0; c<numCols; c++) {
+					if (rng.nextDouble() < .3)
+						feats.add(new SparseFeatureImpl(c, rng.nextGaussian()*(c+1)));
+				}
+				recs.add(new DataRecord((double) (i%2), feats));
+			}
+			return recs;
+		}
+
+		@Test
+		public void testMergeAccumulators() {
+			List<DataRecord> recs = generateSparse(50, 5, 123);
+			recs.add(3, new DataRecord(0d, Arrays.asList(new SparseFeatureImpl(2, Double.NaN))));
+			recs.add(7, new DataRecord(1d, Arrays.asList(new SparseFeatureImpl(2, Double.POSITIVE_INFINITY))));
+			recs.add(30, new DataRecord(1d, Arrays.asList(new MissingValueFeature(2))));
+
+			ColumnStatistics.ColumnAccumulator all = new ColumnStatistics.ColumnAccumulator(2, true);
+			ColumnStatistics.ColumnAccumulator first = new ColumnStatistics.ColumnAccumulator(2, true);
+			ColumnStatistics.ColumnAccumulator second = new ColumnStatistics.ColumnAccumulator(2, true);
+			for (int i=0; i<recs.size(); i++) {
+				for (Feature f : recs.get(i).getFeatures()) {
+					if (f.getIndex() != 2)
+						continue;
+					all.add(f);
+					(i < 20 ? first : second).add(f);
+				}
+			}
+			first.merge(second);
+
+			Assert.assertEquals(all.getNumExplicit(), first.getNumExplicit());
+			Assert.assertEquals(all.getNumFinite(), first.getNumFinite());
+			Assert.assertEquals(1, first.getNumMissing());
+			Assert.assertEquals(1, first.getNumNaN());
+			Assert.assertEquals(2, first.getNumNonFinite());
+			Assert.assertEquals(Double.POSITIVE_INFINITY, first.getMax(), 0);
+			Assert.assertEquals(all.getFiniteMin(), first.getFiniteMin(), 0);
+			Assert.assertEquals(all.getFiniteMax(), first.getFiniteMax(), 0);
+			Assert.assertArrayEquals(all.getValues(), first.getValues(), 0);
+			Assert.assertEquals(all.getNumFinite(), first.getFiniteValues().length);
+			// Merged moments match the ones computed from all finite values, padded with 0s
+			for (int len : new int[] {0, 60, 100}) {
+				Variance var = new Variance();
+				double sum = 0;
+				for (double v : all.getFiniteValues()) {
+					var.increment(v);
+					sum += v;
+				}
+				for (int i=all.getNumFinite(); i<len; i++)
+					var.increment(0);
+				Assert.assertEquals(var.getResult(), first.getFiniteVariance(len), 1e-10);
+				// A single accumulator adds the values one at a time, the same as commons-math
+				Assert.assertEquals(var.getResult(), all.getFiniteVariance(len), 0);
+				Assert.assertEquals(sum / var.getN(), first.getFiniteMean(len), 1e-10);
+			}
+
+			try {
+				first.merge(new ColumnStatistics.ColumnAccumulator(1, true));
+				Assert.fail("Should not be able to merge different columns");
+			} catch (IllegalArgumentException e) {}
+		}
+
+		@Test
+		public void testParallelSameAsSerial() throws Exception {
+			List<DataRecord> recs = generateSparse(3*ColumnStatistics.MIN_RECORDS_PER_THREAD+17, 40, 56789);
+			ColumnSpec subset = new ColumnSpec(Range.closed(5, 30));
+
+			ColumnStatistics serial = ColumnStatistics.compute(recs, subset, true, 1);
+			ColumnStatistics parallel = ColumnStatistics.compute(recs, subset, true, 4);
+			Assert.assertEquals(serial.getColumns(), parallel.getColumns());
+			for (int col : serial.getColumns()) {
+				Assert.assertEquals(serial.get(col).getNumExplicit(), parallel.get(col).getNumExplicit());
+				Assert.assertEquals(serial.get(col).getMin(), parallel.get(col).getMin(), 0);
+				Assert.assertEquals(serial.get(col).getMax(), parallel.get(col).getMax(), 0);
+				Assert.assertArrayEquals(serial.get(col).getValues(), parallel.get(col).getValues(), 0);
+				Assert.assertEquals(serial.get(col).getFiniteVariance(recs.size()), parallel.get(col).getFiniteVariance(recs.size()), 0);
+			}
+			// Moments do not require keeping the values
+			ColumnStatistics noValues = ColumnStatistics.compute(recs, subset, false, 3);
+			for (int col : serial.getColumns()) {
+				Assert.assertFalse(noValues.get(col).hasValues());
+				Assert.assertEquals(serial.get(col).getFiniteMean(recs.size()), noValues.get(col).getFiniteMean(recs.size()), 0);
+				Assert.assertEquals(serial.get(col).getFiniteVariance(recs.size()), noValues.get(col).getFiniteVariance(recs.size()), 0);
+			}
+			try {
+				serial.get(4);
+				Assert.fail("Column 4 not included in the statistics");
+			} catch (IllegalArgumentException e) {}
+
+			// The fitted transformers should be identical regardless of the number of threads
+			int initialThreads = GlobalConfig.getInstance().getNumThreads();
+			try {
+				for (ColumnSpec cols : Arrays.asList(ColumnSpec.allColumns(), subset)) {
+					List<ColumnTransformer> transformers = Arrays.asList(new Standardizer(), new MinMaxScaler(), 
+						new RobustScaler(), new VarianceBasedSelector(10), new NumNonZeroSelector(900), new SingleFeatureImputer());
+					for (ColumnTransformer t : transformers) {
+						t.setColumns(cols);
+						GlobalConfig.getInstance().setNumThreads(1);
+						Transformer serialT = t.clone().fit(recs);
+						GlobalConfig.getInstance().setNumThreads(4);
+						Transformer parallelT = t.clone().fit(recs);
+
+						if (t instanceof SingleFeatureImputer) {
+							Assert.assertEquals(((SingleFeatureImputer) serialT).getSubstitutions(), ((SingleFeatureImputer) parallelT).getSubstitutions());
+							continue;
+						}
+						for (int i=0; i<recs.size(); i+=13) {
+							Assert.assertEquals(t.toString(), serialT.transform(recs.get(i).getFeatures().clone()), parallelT.transform(recs.get(i).getFeatures().clone()));
+						}
+					}
+				}
+			} finally {
+				GlobalConfig.getInstance().setNumThreads(initialThreads);
+			}
+		}
+
+		@Test
+		public void testMomentsSameAsCommonsMath() throws Exception {
+			SubSet sparse = TestDataLoader.getInstance().getDataset(true, true).getDataset();
+			List<List<DataRecord>> datasets = Arrays.asList(sparse, new MakeDenseTransformer().fitAndTransform(sparse.clone()), 
+				generateSparse(3*ColumnStatistics.MIN_RECORDS_PER_THREAD+17, 40, 2468));
+			int initialThreads = GlobalConfig.getInstance().getNumThreads();
+			try {
+				for (List<DataRecord> recs : datasets) {
+					int maxIndex = DataUtils.getMaxFeatureIndex(recs);
+					// Same as the fitting using commons-math: explicit values in record order, followed by the implicit 0s
+					Map<Integer,SummaryStatistics> ref = new HashMap<>();
+					for (DataRecord r : recs) {
+						for (Feature f : r.getFeatures()) {
+							ref.computeIfAbsent(f.getIndex(), k -> new SummaryStatistics()).addValue(f.getValue());
+						}
+					}
+					List<CollectionUtils.IndexedValue> refVariances = new ArrayList<>();
+					for (int col=0; col<=maxIndex; col++) {
+						SummaryStatistics ss = ref.computeIfAbsent(col, k -> new SummaryStatistics());
+						while (ss.getN() > 0 && ss.getN() < recs.size())
+							ss.addValue(0);
+						refVariances.add(new CollectionUtils.IndexedValue(col, ss.getN() > 0 ? ss.getVariance() : 0));
+					}
+
+					for (int numThreads : new int[] {1, 4}) {
+						GlobalConfig.getInstance().setNumThreads(numThreads);
+						Standardizer std = new Standardizer().fit(recs);
+						for (int i=0; i<recs.size(); i+=7) {
+							FeatureVector transformed = std.transform(recs.get(i).getFeatures().clone());
+							for (int col=0; col<=maxIndex; col++) {
+								SummaryStatistics ss = ref.get(col);
+								double mean = ss.getN() > 0 ? ss.getMean() : 0;
+								double sd = ss.getN() > 0 && ss.getStandardDeviation() != 0 ? ss.getStandardDeviation() : 1;
+								Assert.assertEquals((recs.get(i).getFeatures().getFeature(col) - mean) / sd, transformed.getFeature(col), 0);
+							}
+						}
+
+						VarianceBasedSelector selector = new VarianceBasedSelector(10).fit(recs);
+						List<Integer> expected = selector.getSelectionCriterion().getIndicesToRemove(refVariances);
+						Collections.sort(expected);
+						Assert.assertEquals(expected, selector.getIndicesToRemove());
+					}
+				}
+			} finally {
+				GlobalConfig.getInstance().setNumThreads(initialThreads);
+			}
+		}
+
+		@Test
+		public void testApproximateRobustScaler() throws Exception {
+			Random rng = new Random(987);
+			List<DataRecord> recs = new ArrayList<>();
+			for (int i=0; i<3*ColumnStatistics.MIN_RECORDS_PER_THREAD; i++) {
+				List<SparseFeature> feats = new ArrayList<>();
+				for (int c=0; c<10; c++) {
+					if (rng.nextDouble() < .9)
+						feats.add(new SparseFeatureImpl(c, 5 + rng.nextGaussian()*(c+1)));
+				}
+				recs.add(new DataRecord(0d, feats));
+			}
+			ColumnStatistics stats = ColumnStatistics.computeWithSketches(recs, null, 100, 3);
+			Assert.assertTrue(stats.get(3).hasSketch());
+			Assert.assertFalse(stats.get(3).hasValues());
+			Assert.assertEquals(stats.get(3).getNumValues(), stats.get(3).getSketch().getCount());
+
+			RobustScaler exact = new RobustScaler().fit(recs);
+			RobustScaler approx = new RobustScaler().setFitStrategy(RobustScaler.FitStrategy.APPROXIMATE).fit(recs);
+			Assert.assertEquals(RobustScaler.FitStrategy.APPROXIMATE, approx.clone().getFitStrategy());
+			for (int c=0; c<10; c++) {
+				double[] e = exact.getScaleFactors().get(c), a = approx.getScaleFactors().get(c);
+				// Within a few percent of the standard deviation
+				Assert.assertEquals(e[0], a[0], .1*(c+1));
+				Assert.assertEquals(e[1], a[1], .15*(c+1));
+			}
+
+			// Set using config
+			RobustScaler fromConf = new RobustScaler();
+			Map<String,Object> conf = new HashMap<>();
+			conf.put("fitStrategy", "approximate");
+			conf.put("sketchSize", 50);
+			fromConf.setConfigParameters(conf);
+			Assert.assertEquals(RobustScaler.FitStrategy.APPROXIMATE, fromConf.getFitStrategy());
+			Assert.assertEquals(50, fromConf.getSketchSize());
+			try {
+				conf.put("sketchSize", 1);
+				fromConf.setConfigParameters(conf);
+				Assert.fail("Too small sketch");
+			} catch (IllegalArgumentException e) {}
+		}
+
+	}
+
 	@Category(UnitTest.class)
 	public static class TestFeatureScaler {
 
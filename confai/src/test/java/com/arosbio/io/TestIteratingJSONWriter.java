@@ -20,6 +20,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import com.arosbio.commons.StringUtils;
 import com.arosbio.tests.suites.UnitTest;
 import com.github.cliftonlabs.json_simple.JsonArray;
 import com.github.cliftonlabs.json_simple.JsonObject;
@@ -66,6 +67,28 @@ public class TestIteratingJSONWriter {
 		Assert.assertEquals("should equal, with a trailing new-line",correct, written);
 	}
 	
+	@Test
+	public void testPrettyPrintSameAsJsoner() throws IOException {
+		String[] items = new String[] {
+			"{\"a\":1,\"b\":[1,2.5,-3.0E-5,\"x\\\"y, {z}: \\\\\"],\"c\":{},\"d\":[],\"e\":{\"f\":null,\"g\":true,\"h\":false}}",
+			"{}",
+			"{ \"pretty\" : [ 1.23E10 , 0.5 ] }"
+		};
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (IteratingJSONArrayWriter jsonWriter = new IteratingJSONArrayWriter(new OutputStreamWriter(baos))){
+			for (String item : items)
+				jsonWriter.write(item);
+		}
+		StringBuilder expected = new StringBuilder("[").append(System.lineSeparator());
+		for (int i=0; i<items.length; i++) {
+			if (i > 0)
+				expected.append(',').append(System.lineSeparator());
+			expected.append(StringUtils.indent(Jsoner.prettyPrint(items[i])));
+		}
+		expected.append(System.lineSeparator()).append(']');
+		Assert.assertEquals(expected.toString(), baos.toString());
+	}
+
 	private String doTestWrite(List<Object> items, boolean flush) throws IOException {
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		Writer writer = new OutputStreamWriter(baos);
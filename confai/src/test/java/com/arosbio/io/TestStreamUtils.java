@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.arosbio.tests.TestResources;
+import com.arosbio.tests.suites.UnitTest;
+import com.arosbio.testutils.TestEnv;
+
+@Category(UnitTest.class)
+public class TestStreamUtils extends TestEnv {
+
+	@Test
+	public void testReadAheadGzip() throws Exception {
+		byte[] compressed = IOUtils.toByteArray(TestResources.Reg.getGluc().url());
+		byte[] expected = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+
+		try (InputStream in = StreamUtils.unZIP(new ByteArrayInputStream(compressed), 4)){
+			Assert.assertTrue(in instanceof ReadAheadInputStream);
+			Assert.assertArrayEquals(expected, IOUtils.toByteArray(in));
+		}
+		// Single thread
+		try (InputStream in = StreamUtils.unZIP(new ByteArrayInputStream(compressed), 1)){
+			Assert.assertTrue(in instanceof GZIPInputStream);
+			Assert.assertArrayEquals(expected, IOUtils.toByteArray(in));
+		}
+	}
+
+	@Test
+	public void testMultiMemberGzip() throws Exception {
+		byte[] first = randomText(10_000, 1), second = randomText(20_000, 2);
+		ByteArrayOutputStream concat = new ByteArrayOutputStream();
+		concat.write(gzip(first));
+		concat.write(gzip(second));
+
+		try (InputStream in = StreamUtils.unZIP(new ByteArrayInputStream(concat.toByteArray()), 3)){
+			byte[] res = IOUtils.toByteArray(in);
+			Assert.assertArrayEquals(first, Arrays.copyOf(res, first.length));
+			Assert.assertArrayEquals(second, Arrays.copyOfRange(res, first.length, res.length));
+		}
+	}
+
+	@Test
+	public void testBGZF() throws Exception {
+		byte[] text = randomText(500_000, 3);
+		byte[] bgzf = bgzf(text, 10_000);
+		Assert.assertTrue(StreamUtils.isBGZFCompressed(new BufferedInputStream(new ByteArrayInputStream(bgzf))));
+		Assert.assertFalse(StreamUtils.isBGZFCompressed(new BufferedInputStream(new ByteArrayInputStream(gzip(text)))));
+
+		// BGZF is valid gzip
+		Assert.assertArrayEquals(text, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(bgzf))));
+
+		for (int numThreads : new int[] {2, 5}) {
+			try (InputStream in = StreamUtils.unZIP(new ByteArrayInputStream(bgzf), numThreads)){
+				Assert.assertTrue(in instanceof ParallelBGZFInputStream);
+				Assert.assertArrayEquals(text, IOUtils.toByteArray(in));
+			}
+		}
+
+		// Corrupt data should be detected
+		bgzf[bgzf.length / 2] ^= 0x55;
+		try (InputStream in = StreamUtils.unZIP(new ByteArrayInputStream(bgzf), 2)){
+			IOUtils.toByteArray(in);
+			Assert.fail("Corrupt input should fail");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testReadAheadFailure() throws Exception {
+		byte[] compressed = gzip(randomText(100_000, 4));
+		// Truncated input
+		byte[] truncated = Arrays.copyOf(compressed, compressed.length - 100);
+		try (InputStream in = StreamUtils.unZIP(new ByteArrayInputStream(truncated), 2)){
+			IOUtils.toByteArray(in);
+			Assert.fail("Truncated input should fail");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testZstdNotSupported() throws Exception {
+		byte[] zstdMagic = new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0, 0, 0};
+		Assert.assertTrue(StreamUtils.isZstdCompressed(new BufferedInputStream(new ByteArrayInputStream(zstdMagic))));
+		try {
+			StreamUtils.unZIP(new ByteArrayInputStream(zstdMagic));
+			Assert.fail("zstd should not be supported");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage().contains("zstd"));
+		}
+	}
+
+	@Test
+	public void testNotCompressed() throws Exception {
+		byte[] text = randomText(1000, 5);
+		try (InputStream in = StreamUtils.unZIP(new ByteArrayInputStream(text), 4)){
+			Assert.assertArrayEquals(text, IOUtils.toByteArray(in));
+		}
+	}
+
+	private static byte[] randomText(int len, long seed) {
+		Random rng = new Random(seed);
+		byte[] bytes = new byte[len];
+		for (int i=0; i<len; i++)
+			bytes[i] = (byte) (rng.nextInt(10) == 0 ? '\n' : 'a' + rng.nextInt(6));
+		return bytes;
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gz = new GZIPOutputStream(out)){
+			gz.write(data);
+		}
+		return out.toByteArray();
+	}
+
+	/** Write data in the BGZF format, i.e. gzip members with the 'BC' extra field, followed by an empty EOF block */
+	private static byte[] bgzf(byte[] data, int blockSize) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int off = 0; off < data.length; off += blockSize)
+			writeBlock(out, Arrays.copyOfRange(data, off, Math.min(data.length, off + blockSize)));
+		writeBlock(out, new byte[0]);
+		return out.toByteArray();
+	}
+
+	private static void writeBlock(ByteArrayOutputStream out, byte[] block) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(block);
+		deflater.finish();
+		byte[] buffer = new byte[block.length + 1024];
+		int cLen = deflater.deflate(buffer);
+		deflater.end();
+		CRC32 crc = new CRC32();
+		crc.update(block);
+
+		int bsize = 18 + cLen + 8 - 1;
+		byte[] header = new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+			(byte) (bsize & 0xff), (byte) ((bsize >> 8) & 0xff)};
+		out.write(header, 0, header.length);
+		out.write(buffer, 0, cLen);
+		writeInt(out, crc.getValue());
+		writeInt(out, block.length);
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, long v) {
+		for (int i=0; i<4; i++)
+			out.write((int) ((v >> (8*i)) & 0xff));
+	}
+
+}
@@ -11,6 +11,7 @@ package com.arosbio.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -45,6 +46,30 @@ public class TestURIUtils extends TestEnv {
 		Assert.assertEquals(new File(thisDir,"pom.xml").toURI(), matches.get(0));
 	}
 
+	@Test
+	public void testReadProgress() throws Exception {
+		// A gzipped resource, progress should be counted on the compressed bytes
+		URI uri = TestResources.Reg.getGluc().uri();
+		ReadProgress progress = new ReadProgress();
+		long numUncompressed = 0;
+		try (InputStream in = UriUtils.getInputStream(uri, progress)){
+			Assert.assertTrue(progress.isTotalKnown());
+			Assert.assertTrue(progress.getFractionRead() < 1);
+			byte[] buffer = new byte[1024];
+			int n;
+			while ((n = in.read(buffer)) >= 0)
+				numUncompressed += n;
+		}
+		Assert.assertEquals(progress.getTotalBytes(), progress.getBytesRead());
+		Assert.assertEquals(1d, progress.getFractionRead(), 0.0000001);
+		Assert.assertTrue(numUncompressed > progress.getBytesRead());
+
+		// Unknown total size
+		ReadProgress unknown = new ReadProgress();
+		Assert.assertFalse(unknown.isTotalKnown());
+		Assert.assertTrue(Double.isNaN(unknown.getFractionRead()));
+	}
+
 	@Test
 	public void testGetResources() throws IOException {
 		// Get the svmlight files from test resources folder
@@ -10,6 +10,8 @@
 package com.arosbio.ml.algorithms;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -21,14 +23,26 @@ import com.arosbio.commons.GlobalConfig;
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.Dataset;
 import com.arosbio.data.Dataset.SubSet;
+import com.arosbio.data.SparseVector;
 import com.arosbio.data.transform.feature_selection.VarianceBasedSelector;
+import com.arosbio.ml.algorithms.impl.LibLinear;
+import com.arosbio.ml.algorithms.impl.NativeRowCache;
 import com.arosbio.ml.algorithms.svm.LinearSVC;
 import com.arosbio.ml.algorithms.svm.LinearSVR;
+import com.arosbio.ml.cp.acp.ACPClassifier;
+import com.arosbio.ml.cp.acp.ACPRegressor;
+import com.arosbio.ml.cp.icp.ICPClassifier;
+import com.arosbio.ml.cp.icp.ICPRegressor;
+import com.arosbio.ml.cp.nonconf.classification.NegativeDistanceToHyperplaneNCM;
+import com.arosbio.ml.cp.nonconf.regression.AbsDiffNCM;
 import com.arosbio.ml.metrics.Metric;
 import com.arosbio.ml.metrics.classification.BalancedAccuracy;
 import com.arosbio.ml.metrics.classification.ClassifierAccuracy;
+import com.arosbio.ml.sampling.RandomSampling;
 import com.arosbio.ml.testing.KFoldCV;
 import com.arosbio.ml.testing.TestRunner;
+import com.arosbio.ml.vap.avap.AVAPClassifier;
+import com.arosbio.ml.vap.ivap.IVAPClassifier;
 import com.arosbio.tests.TestResources;
 import com.arosbio.tests.suites.NonSuiteTest;
 import com.arosbio.tests.suites.UnitTest;
@@ -36,6 +50,9 @@ import com.arosbio.testutils.TestDataLoader;
 import com.arosbio.testutils.TestEnv;
 import com.google.common.collect.ImmutableMap;
 
+import de.bwaldvogel.liblinear.Feature;
+import de.bwaldvogel.liblinear.Problem;
+
 
 @Category(UnitTest.class)
 public class TestLibLinear extends TestEnv{
@@ -119,6 +136,38 @@ public class TestLibLinear extends TestEnv{
 		// printLogs();
 	}
 
+	@Test
+	public void testWarmStartAlongCostPath() throws Exception {
+		Dataset data = TestDataLoader.getInstance().getDataset(true, false);
+		SubSet[] trainTest = data.getDataset().splitRandom(.7);
+		SubSet train = trainTest[0];
+		SubSet test = trainTest[1];
+
+		LinearSVC warm = new LinearSVC().withWarmStart(true);
+		Assert.assertTrue(warm.isWarmStart());
+		// Clones should share the cache of solutions
+		Assert.assertTrue(warm.clone().isWarmStart());
+
+		for (double c : new double[] {0.5, 1, 2, 4, 8}){
+			LinearSVC warmClone = warm.clone().withC(c);
+			warmClone.train(train);
+			LinearSVC cold = new LinearSVC().withC(c);
+			cold.train(train);
+			
+			int numEqual = 0;
+			for (DataRecord r : test) {
+				if (warmClone.predictClass(r.getFeatures()) == cold.predictClass(r.getFeatures()))
+					numEqual++;
+			}
+			// Only equal within the tolerance of the solver
+			Assert.assertTrue(numEqual >= .95 * test.size());
+		}
+
+		// Disable it using the config parameter
+		warm.setConfigParameters(ImmutableMap.of("warmStart", false));
+		Assert.assertFalse(warm.isWarmStart());
+	}
+
 	/*
 	Regularize Bias 
 	MAE: 0.659+/-0.055
@@ -140,6 +189,57 @@ R^2: 0.342+/-0.188
 RMSE: 0.815+/-0.063
 
 	 */
+	@Test
+	public void testSharedNativeRows() {
+		DataRecord r1 = new DataRecord(0d, new SparseVector(new int[]{0,2}, new double[]{1,1}));
+		DataRecord r2 = new DataRecord(1d, new SparseVector(new int[]{1}, new double[]{-1}));
+		DataRecord r3 = new DataRecord(1d, new SparseVector(new int[]{1,4}, new double[]{-1,2}));
+
+		NativeRowCache<Feature[]> cache = new NativeRowCache<>();
+		Problem p1 = LibLinear.createLibLinearTrainProblem(Arrays.asList(r1,r2), cache);
+		Problem p2 = LibLinear.createLibLinearTrainProblem(Arrays.asList(r2,r1), cache);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertSame(p1.x[0], p2.x[1]);
+		Assert.assertSame(p1.x[1], p2.x[0]);
+
+		// Larger max feature index - the bias term is moved so rows must be re-created
+		Problem p3 = LibLinear.createLibLinearTrainProblem(Arrays.asList(r1,r3), cache);
+		Assert.assertNotSame(p1.x[0], p3.x[0]);
+		Assert.assertEquals(p3.n, p3.x[0][p3.x[0].length-1].getIndex());
+		Assert.assertEquals(3, cache.size());
+
+		// Disabling clears the cache
+		Assert.assertNull(NativeRowCache.update(cache, NativeRowCache.getParameters(false)));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testTrainedModelsDoNotKeepSharedRows() throws Exception {
+		Dataset clf = TestDataLoader.getInstance().getDataset(true, true);
+		Dataset reg = TestDataLoader.getInstance().getDataset(false, true);
+
+		ACPClassifier acpClf = new ACPClassifier(new NegativeDistanceToHyperplaneNCM(new LinearSVC()), new RandomSampling(3, .2));
+		acpClf.train(clf);
+		for (ICPClassifier icp : acpClf.getPredictors().values())
+			Assert.assertNull(getRowCache(icp.getNCM().getModel()));
+
+		ACPRegressor acpReg = new ACPRegressor(new AbsDiffNCM(new LinearSVR()), new RandomSampling(3, .2));
+		acpReg.train(reg);
+		for (ICPRegressor icp : acpReg.getPredictors().values())
+			Assert.assertNull(getRowCache(icp.getNCM().getModel()));
+
+		AVAPClassifier avap = new AVAPClassifier(new LinearSVC(), new RandomSampling(3, .2));
+		avap.train(clf);
+		for (IVAPClassifier ivap : avap.getModels().values())
+			Assert.assertNull(getRowCache(ivap.getScoringAlgorithm()));
+	}
+
+	private static Object getRowCache(Object algorithm) throws Exception {
+		Field f = algorithm.getClass().getDeclaredField("rowCache");
+		f.setAccessible(true);
+		return f.get(algorithm);
+	}
+
 	@Test
 	public void testBiasTerm() throws IOException{
 		GlobalConfig.getInstance().setRNGSeed(987654l);
@@ -9,7 +9,12 @@
  */
 package com.arosbio.ml.algorithms;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -17,6 +22,7 @@ import org.junit.experimental.categories.Category;
 
 import com.arosbio.data.DataRecord;
 import com.arosbio.data.Dataset.SubSet;
+import com.arosbio.ml.algorithms.impl.KernelCacheBudget;
 import com.arosbio.ml.algorithms.impl.LibSvm.KernelType;
 import com.arosbio.ml.algorithms.svm.C_SVC;
 import com.arosbio.ml.algorithms.svm.EpsilonSVR;
@@ -219,4 +225,71 @@ stdBalanced accuracy: 0.4520615996025832
 		// printLogs();
 	}
 
+	@Test
+	public void testKernelCacheBudget() throws Exception {
+		KernelCacheBudget budget = KernelCacheBudget.getInstance();
+		Assert.assertFalse(budget.isEnabled());
+		// Disabled - always get the requested size
+		double granted = budget.acquire(512);
+		Assert.assertEquals(512, granted, 0.0001);
+		budget.release(granted);
+
+		try {
+			budget.setTotalMemoryMB(1000);
+			budget.setExpectedConcurrency(4);
+			double first = budget.acquire(512);
+			Assert.assertEquals(250, first, 0.0001);
+			double second = budget.acquire(100);
+			Assert.assertEquals(100, second, 0.0001);
+			Assert.assertEquals(350, budget.getAllocatedMB(), 0.0001);
+			Assert.assertEquals(2, budget.getNumActive());
+			budget.release(first);
+			budget.release(second);
+			Assert.assertEquals(0, budget.getAllocatedMB(), 0.0001);
+
+			// Training still works with a reduced cache
+			SubSet d = TestDataLoader.getInstance().getDataset(true, true).getDataset();
+			C_SVC svc = new C_SVC();
+			svc.train(d);
+			Assert.assertTrue(svc.isFitted());
+			Assert.assertEquals(0, budget.getNumActive());
+		} finally {
+			budget.setTotalMemoryMB(-1);
+			budget.setExpectedConcurrency(1);
+		}
+	}
+
+	@Test
+	public void testKernelCacheBudgetConcurrentTrainings() throws Exception {
+		KernelCacheBudget budget = KernelCacheBudget.getInstance();
+		SubSet d = TestDataLoader.getInstance().getDataset(true, true).getDataset();
+		int numThreads = 4, numTrainings = 12;
+		double total = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			budget.setTotalMemoryMB(total);
+			budget.setExpectedConcurrency(numThreads);
+			List<Future<C_SVC>> trainings = new ArrayList<>();
+			for (int i=0; i<numTrainings; i++) {
+				trainings.add(executor.submit(() -> {
+					C_SVC svc = new C_SVC();
+					svc.train(d);
+					return svc;
+				}));
+			}
+			for (Future<C_SVC> f : trainings)
+				Assert.assertTrue(f.get().isFitted());
+
+			Assert.assertTrue(budget.getPeakAllocatedMB() > 0);
+			Assert.assertTrue("Granted caches exceeded the budget: " + budget.getPeakAllocatedMB(), 
+				budget.getPeakAllocatedMB() <= total + 1e-6);
+			Assert.assertEquals(0, budget.getAllocatedMB(), 0.0001);
+			Assert.assertEquals(0, budget.getNumActive());
+		} finally {
+			executor.shutdownNow();
+			budget.setTotalMemoryMB(-1);
+			budget.setExpectedConcurrency(1);
+		}
+	}
+
 }
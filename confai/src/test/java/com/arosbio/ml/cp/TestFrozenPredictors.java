@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.cp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.arosbio.data.DataRecord;
+import com.arosbio.data.Dataset;
+import com.arosbio.data.Dataset.SubSet;
+import com.arosbio.ml.algorithms.svm.LinearSVC;
+import com.arosbio.ml.algorithms.svm.LinearSVR;
+import com.arosbio.ml.cp.acp.ACPClassifier;
+import com.arosbio.ml.cp.acp.ACPRegressor;
+import com.arosbio.ml.cp.icp.ICPClassifier;
+import com.arosbio.ml.cp.icp.ICPRegressor;
+import com.arosbio.ml.cp.nonconf.calc.StandardPValue;
+import com.arosbio.ml.cp.nonconf.classification.NegativeDistanceToHyperplaneNCM;
+import com.arosbio.ml.cp.nonconf.regression.AbsDiffNCM;
+import com.arosbio.ml.sampling.RandomSampling;
+import com.arosbio.ml.vap.avap.AVAPClassifier;
+import com.arosbio.tests.suites.UnitTest;
+import com.arosbio.testutils.TestDataLoader;
+import com.arosbio.testutils.TestEnv;
+
+@Category(UnitTest.class)
+public class TestFrozenPredictors extends TestEnv {
+
+	private static final int NUM_THREADS = 8;
+	private static final int NUM_REPEATS = 5;
+	private static final List<Double> CONFIDENCES = Arrays.asList(.5, .8, .9);
+
+	private static Dataset clfTrain, regTrain;
+	private static List<DataRecord> clfTest, regTest;
+
+	@BeforeClass
+	public static void setupData() throws Exception {
+		SubSet[] clf = TestDataLoader.getInstance().getDataset(true, true).getDataset().splitStatic(.8);
+		clfTrain = new Dataset().withDataset(clf[0]);
+		clfTest = clf[1];
+		SubSet[] reg = TestDataLoader.getInstance().getDataset(false, true).getDataset().splitStatic(.8);
+		regTrain = new Dataset().withDataset(reg[0]);
+		regTest = reg[1];
+	}
+
+	@Test
+	public void testICPClassifier() throws Exception {
+		ICPClassifier icp = new ICPClassifier(new NegativeDistanceToHyperplaneNCM(new LinearSVC()));
+		icp.setPValueCalculator(new StandardPValue());
+		icp.train(new RandomSampling(1, .2).getIterator(clfTrain, 42).next());
+
+		// Freeze before any prediction has been made, so all state must be initialised by the freeze
+		Assert.assertFalse(icp.isFrozen());
+		Assert.assertSame(icp, icp.freeze());
+		Assert.assertTrue(icp.isFrozen());
+		assertConcurrentEqualsSerial(clfTest, r -> icp.predict(r.getFeatures()));
+
+		assertFails(() -> icp.setPValueCalculator(new StandardPValue()));
+		assertFails(() -> icp.setSeed(1));
+		assertFails(() -> icp.train(new RandomSampling(1, .2).getIterator(clfTrain, 42).next()));
+	}
+
+	@Test
+	public void testICPRegressor() throws Exception {
+		ICPRegressor icp = new ICPRegressor(new AbsDiffNCM(new LinearSVR()));
+		icp.setPValueCalculator(new StandardPValue());
+		icp.train(new RandomSampling(1, .2).getIterator(regTrain, 42).next());
+		icp.freeze();
+		Assert.assertTrue(icp.isFrozen());
+		assertConcurrentEqualsSerial(regTest, r -> icp.predict(r.getFeatures(), CONFIDENCES));
+
+		assertFails(() -> icp.setNCS(new ArrayList<>()));
+		assertFails(() -> icp.setMinMaxObservations(0, 1));
+	}
+
+	@Test
+	public void testACPClassifier() throws Exception {
+		ICPClassifier icp = new ICPClassifier(new NegativeDistanceToHyperplaneNCM(new LinearSVC()));
+		icp.setPValueCalculator(new StandardPValue());
+		ACPClassifier acp = new ACPClassifier(icp, new RandomSampling(5, .2));
+		acp.train(clfTrain);
+		acp.freeze();
+		Assert.assertTrue(acp.isFrozen());
+		for (ICPClassifier m : acp.getPredictors().values())
+			Assert.assertTrue(m.isFrozen());
+		assertConcurrentEqualsSerial(clfTest, r -> acp.predict(r.getFeatures()));
+
+		assertFails(() -> acp.train(clfTrain));
+		assertFails(() -> acp.setSeed(1));
+		assertFails(() -> acp.getPredictors().clear());
+		assertFails(() -> acp.releaseResources());
+	}
+
+	@Test
+	public void testACPRegressor() throws Exception {
+		ICPRegressor icp = new ICPRegressor(new AbsDiffNCM(new LinearSVR()));
+		icp.setPValueCalculator(new StandardPValue());
+		ACPRegressor acp = new ACPRegressor(icp, new RandomSampling(5, .2));
+		acp.train(regTrain);
+		acp.freeze();
+		assertConcurrentEqualsSerial(regTest, r -> acp.predict(r.getFeatures(), CONFIDENCES));
+
+		assertFails(() -> acp.train(regTrain, 0));
+		assertFails(() -> acp.setConfigParameters(new HashMap<>()));
+	}
+
+	@Test
+	public void testCVAP() throws Exception {
+		AVAPClassifier cvap = new AVAPClassifier(new LinearSVC(), new RandomSampling(5, .2));
+		cvap.train(clfTrain);
+		cvap.freeze();
+		Assert.assertTrue(cvap.isFrozen());
+		assertConcurrentEqualsSerial(clfTest, r -> cvap.predict(r.getFeatures()).getProbabilities());
+
+		assertFails(() -> cvap.train(clfTrain));
+	}
+
+	@Test
+	public void testCannotFreezeUntrained() {
+		assertFails(() -> new ICPClassifier(new NegativeDistanceToHyperplaneNCM(new LinearSVC())).freeze());
+		assertFails(() -> new ACPRegressor(new AbsDiffNCM(new LinearSVR()), new RandomSampling(2, .2)).freeze());
+	}
+
+	private static <T> void assertConcurrentEqualsSerial(List<DataRecord> records, Function<DataRecord,T> predictor)
+			throws Exception {
+		List<T> expected = new ArrayList<>();
+		for (DataRecord r : records)
+			expected.add(predictor.apply(r));
+
+		ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+		try {
+			// Start all threads at the same time to maximise contention
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<List<T>>> results = new ArrayList<>();
+			for (int t=0; t<NUM_THREADS; t++) {
+				final int offset = t;
+				results.add(executor.submit(new Callable<List<T>>() {
+					@Override
+					public List<T> call() throws Exception {
+						start.await();
+						// Every thread starts at a different record
+						List<T> preds = new ArrayList<>(records.size());
+						for (int i=0; i<records.size(); i++)
+							preds.add(null);
+						for (int rep=0; rep<NUM_REPEATS; rep++) {
+							for (int i=0; i<records.size(); i++) {
+								int index = (i + offset*records.size()/NUM_THREADS) % records.size();
+								preds.set(index, predictor.apply(records.get(index)));
+							}
+						}
+						return preds;
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<List<T>> f : results)
+				Assert.assertEquals(expected, f.get());
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+
+	private static interface Action {
+		public void run() throws Exception;
+	}
+
+	private static void assertFails(Action action) {
+		try {
+			action.run();
+			Assert.fail("Action should fail");
+		} catch (IllegalStateException | UnsupportedOperationException e) {
+			// Expected
+		} catch (Exception e) {
+			Assert.fail("Unexpected exception: " + e);
+		}
+	}
+
+}
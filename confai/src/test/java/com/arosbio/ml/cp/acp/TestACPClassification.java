@@ -22,6 +22,7 @@ import com.arosbio.data.DataRecord;
 import com.arosbio.data.Dataset;
 import com.arosbio.data.Dataset.SubSet;
 import com.arosbio.data.SparseFeature;
+import com.arosbio.ml.algorithms.svm.C_SVC;
 import com.arosbio.ml.algorithms.svm.LinearSVC;
 import com.arosbio.ml.algorithms.svm.PlattScaledC_SVC;
 import com.arosbio.ml.cp.icp.ICPClassifier;
@@ -32,6 +33,7 @@ import com.arosbio.ml.metrics.SingleValuedMetric;
 import com.arosbio.ml.metrics.cp.CalibrationPlot;
 import com.arosbio.ml.metrics.plots.Plot2D;
 import com.arosbio.ml.metrics.plots.PlotMetric;
+import com.arosbio.ml.sampling.FoldedSampling;
 import com.arosbio.ml.sampling.RandomSampling;
 import com.arosbio.ml.testing.KFoldCV;
 import com.arosbio.ml.testing.TestRunner;
@@ -116,6 +118,37 @@ public class TestACPClassification extends TestEnv{
 			printLogs();
 	}
 
+	@Test
+	public void testCrossConformalSharedNativeRows() throws Exception {
+		Dataset problem = TestDataLoader.getInstance().getDataset(true, false).clone();
+		SubSet[] splits = problem.getDataset().splitStatic(numToTest);
+		List<DataRecord> testExamples = splits[0];
+		problem.withDataset(splits[1].splitStatic(300)[0]);
+
+		// All ICPs are trained on overlapping folds (sharing the native rows)
+		ACPClassifier ccp = new ACPClassifier(
+				new ICPClassifier(new NegativeDistanceToHyperplaneNCM(new C_SVC())),
+				new FoldedSampling(5));
+		ccp.train(problem);
+		Assert.assertEquals(5, ccp.getPredictors().size());
+
+		// A single ICP is trained on its own 
+		int index = 2;
+		ACPClassifier single = new ACPClassifier(
+				new ICPClassifier(new NegativeDistanceToHyperplaneNCM(new C_SVC())),
+				new FoldedSampling(5));
+		single.train(problem, index);
+
+		ICPClassifier shared = ccp.getPredictors().get(index);
+		ICPClassifier notShared = single.getPredictors().get(index);
+		for (DataRecord r : testExamples) {
+			Map<Integer,Double> p1 = shared.predict(r.getFeatures());
+			Map<Integer,Double> p2 = notShared.predict(r.getFeatures());
+			for (int label : p1.keySet())
+				Assert.assertEquals(p2.get(label), p1.get(label), 1e-10);
+		}
+	}
+
 	@Test
 	public void testACPClassification() throws Exception {
 		long seed = System.currentTimeMillis();
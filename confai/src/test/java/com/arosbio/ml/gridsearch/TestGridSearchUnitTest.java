@@ -10,11 +10,16 @@
 package com.arosbio.ml.gridsearch;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -41,6 +46,7 @@ import com.arosbio.data.transform.scale.RobustScaler;
 import com.arosbio.io.SystemOutWriter;
 import com.arosbio.ml.algorithms.Classifier;
 import com.arosbio.ml.algorithms.Regressor;
+import com.arosbio.ml.algorithms.impl.KernelCacheBudget;
 import com.arosbio.ml.algorithms.svm.C_SVC;
 import com.arosbio.ml.algorithms.svm.EpsilonSVR;
 import com.arosbio.ml.algorithms.svm.LinearSVC;
@@ -61,6 +67,7 @@ import com.arosbio.ml.gridsearch.GridSearch.GSResult;
 import com.arosbio.ml.gridsearch.GridSearch.ProgressCallback;
 import com.arosbio.ml.gridsearch.GridSearch.ProgressInfo;
 import com.arosbio.ml.gridsearch.GridSearch.ProgressMonitor;
+import com.arosbio.ml.gridsearch.search.TPESearch;
 import com.arosbio.ml.interfaces.ClassificationPredictor;
 import com.arosbio.ml.interfaces.Predictor;
 import com.arosbio.ml.metrics.Metric;
@@ -81,6 +88,7 @@ import com.arosbio.ml.testing.TestRunner;
 import com.arosbio.ml.vap.avap.AVAPClassifier;
 import com.arosbio.tests.TestResources;
 import com.arosbio.tests.suites.UnitTest;
+import com.arosbio.tests.utils.TestUtils;
 import com.arosbio.testutils.MockFailingLinearSVC;
 import com.arosbio.testutils.TestDataLoader;
 import com.arosbio.testutils.TestEnv;
@@ -544,6 +552,342 @@ public class TestGridSearchUnitTest extends TestEnv {
 		// printLogs();
 	}
 
+	@Test
+	public void testLinearSVCRegularizationPath() throws Exception {
+		LinearSVC svc = new LinearSVC();
+		Dataset ds = TestDataLoader.getInstance().getDataset(true, true);
+		Map<String, List<?>> grid = new HashMap<>();
+		grid.put("c", Arrays.asList(100., .5, 10.));
+		grid.put("epsilon", Arrays.asList(0.001, 0.01));
+		GridSearch gs = new GridSearch.Builder()
+				.testStrategy(new KFoldCV(2))
+				.regularizationPath(true)
+				.loggingWriter(new SystemOutWriter())
+				.build();
+		Assert.assertTrue(gs.usesRegularizationPath());
+
+		GridSearchResult res = gs.search(ds, svc, grid);
+		Assert.assertEquals(6, res.getNumGSResults());
+		for (GSResult r : res.getBestParameters())
+			Assert.assertTrue(Double.isFinite(r.getResult()));
+		// The search should not change the warm-start setting of the given algorithm
+		Assert.assertFalse(svc.isWarmStart());
+
+		svc.setWarmStart(true);
+		res = gs.search(ds, svc, grid);
+		Assert.assertEquals(6, res.getNumGSResults());
+		Assert.assertTrue(svc.isWarmStart());
+	}
+
+	@Test
+	public void testReuseDataPreparation() throws Exception {
+		Dataset ds = TestDataLoader.getInstance().getDataset(true, true);
+		Map<String, List<?>> grid = new HashMap<>();
+		grid.put("c", Arrays.asList(.01, .1, 1., 10., 100.));
+
+		// Aggregated predictor using LIBLINEAR, and plain algorithm using LIBSVM
+		Map<Map<String,Object>,Double> withReuse = runSearchScores(ds, new ACPClassifier(new NegativeDistanceToHyperplaneNCM(new LinearSVC()),
+				new RandomStratifiedSampling(3, DEFAULT_CALIBRATION_RATIO)), grid, true);
+		Map<Map<String,Object>,Double> noReuse = runSearchScores(ds, new ACPClassifier(new NegativeDistanceToHyperplaneNCM(new LinearSVC()),
+				new RandomStratifiedSampling(3, DEFAULT_CALIBRATION_RATIO)), grid, false);
+		Assert.assertEquals(5, withReuse.size());
+		Assert.assertEquals(noReuse, withReuse);
+
+		C_SVC svc = new C_SVC();
+		GridSearch gs = new GridSearch.Builder().testStrategy(new KFoldCV(3)).build();
+		Assert.assertTrue(gs.reusesDataPreparation());
+		GridSearchResult res1 = gs.search(ds, svc, grid);
+		GridSearchResult res2 = new GridSearch.Builder().testStrategy(new KFoldCV(3)).reuseDataPreparation(false).build().search(ds, svc, grid);
+		Assert.assertEquals(toScores(res2), toScores(res1));
+	}
+
+	@Test
+	public void testConcurrentTestSplits() throws Exception {
+		Dataset ds = TestDataLoader.getInstance().getDataset(true, true);
+		Map<String, List<?>> grid = new HashMap<>();
+		grid.put("c", Arrays.asList(.1, 1., 10.));
+		Predictor acp = new ACPClassifier(new NegativeDistanceToHyperplaneNCM(new C_SVC()),
+				new RandomStratifiedSampling(3, DEFAULT_CALIBRATION_RATIO));
+
+		GlobalConfig config = GlobalConfig.getInstance();
+		int numThreads = config.getNumThreads();
+		try {
+			config.setNumThreads(1);
+			Map<Map<String,Object>,Double> serial = runSearchScores(ds, acp, grid, true);
+			GridSearchResult serialAlg = new GridSearch.Builder().testStrategy(new KFoldCV(3)).build().search(ds, new C_SVC(), grid);
+
+			config.setNumThreads(3);
+			Assert.assertEquals(3, serial.size());
+			Assert.assertEquals(serial, runSearchScores(ds, acp, grid, true));
+			Assert.assertEquals(toScores(serialAlg), 
+				toScores(new GridSearch.Builder().testStrategy(new KFoldCV(3)).build().search(ds, new C_SVC(), grid)));
+		} finally {
+			config.setNumThreads(numThreads);
+		}
+	}
+
+	@Test
+	public void testKernelCacheBudgetConcurrentSplits() throws Exception {
+		Dataset ds = TestDataLoader.getInstance().getDataset(true, true);
+		Map<String, List<?>> grid = new HashMap<>();
+		grid.put("c", Arrays.asList(.1, 1., 10.));
+
+		GlobalConfig config = GlobalConfig.getInstance();
+		KernelCacheBudget budget = KernelCacheBudget.getInstance();
+		int numThreads = config.getNumThreads();
+		double total = 60;
+		try {
+			// The concurrent splits must each get their share from the start, otherwise the first claims the full total
+			config.setNumThreads(3);
+			budget.setTotalMemoryMB(total);
+			runSearchScores(ds, new ACPClassifier(new NegativeDistanceToHyperplaneNCM(new C_SVC()),
+				new RandomStratifiedSampling(3, DEFAULT_CALIBRATION_RATIO)), grid, true);
+
+			Assert.assertTrue(budget.getPeakAllocatedMB() > 0);
+			Assert.assertTrue("Granted caches exceeded the budget: " + budget.getPeakAllocatedMB(), 
+				budget.getPeakAllocatedMB() <= total + 1e-6);
+			Assert.assertEquals(0, budget.getNumActive());
+			Assert.assertEquals(1, budget.getExpectedConcurrency());
+		} finally {
+			config.setNumThreads(numThreads);
+			budget.setTotalMemoryMB(-1);
+		}
+	}
+
+	private static Map<Map<String,Object>,Double> runSearchScores(Dataset ds, Predictor predictor, Map<String,List<?>> grid, boolean reuse) throws Exception {
+		GridSearch gs = new GridSearch.Builder()
+				.testStrategy(new KFoldCV(3))
+				.tolerance(.2)
+				.reuseDataPreparation(reuse)
+				.build();
+		return toScores(gs.search(ds, predictor, grid));
+	}
+
+	private static Map<Map<String,Object>,Double> toScores(GridSearchResult res){
+		Map<Map<String,Object>,Double> scores = new HashMap<>();
+		for (GSResult r : res.getBestParameters())
+			scores.put(r.getParams(), r.getResult());
+		return scores;
+	}
+
+	@Test
+	public void testCheckpointAndResume() throws Exception {
+		Dataset ds = TestDataLoader.getInstance().getDataset(true, true);
+		Map<String, List<?>> grid = new HashMap<>();
+		grid.put("c", Arrays.asList(.01, .1, 1., 10., 100.));
+		File checkpoint = TestUtils.createTempFile("checkpoint", ".jsonl");
+
+		GridSearchResult full = getCheckpointGS(null).build().search(ds, getACP(), grid);
+
+		// Interrupted after 2 grid points
+		GridSearch interrupted = new GridSearch.Builder()
+				.testStrategy(new KFoldCV(3))
+				.tolerance(.2)
+				.checkpoint(checkpoint)
+				.register(new MyEarlyStoppingMonitor(2))
+				.build();
+		interrupted.search(ds, getACP(), grid);
+		List<GSResult> saved = GridSearchCheckpoint.read(checkpoint);
+		Assert.assertEquals(2, saved.size());
+		Assert.assertEquals(full.getOptimizationType().getName(), saved.get(0).getOptimizationMetric().getName());
+		Assert.assertEquals(full.getBestParameters().get(0).getSecondaryMetrics().size(), saved.get(0).getSecondaryMetrics().size());
+
+		// Simulate that the JVM was terminated while writing a line
+		Files.write(checkpoint.toPath(), "{\"params\":{\"c\"".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		// Resume - the saved grid points should not be evaluated again
+		StringWriter log = new StringWriter();
+		GridSearch resumed = getCheckpointGS(checkpoint).resume(true).loggingWriter(log).build();
+		Assert.assertTrue(resumed.resumes());
+		GridSearchResult res = resumed.search(ds, getACP(), grid);
+		Assert.assertEquals(toScores(full), toScores(res));
+		for (GSResult s : saved) {
+			GSResult r = find(res, s.getParams());
+			Assert.assertEquals(s.getRuntime(), r.getRuntime());
+			Assert.assertTrue(r.getOptimizationMetric() instanceof GridSearchCheckpoint.RestoredMetric);
+		}
+		// All grid points printed, with the same columns
+		List<CSVRecord> records = CSVFormat.DEFAULT.builder().setHeader().build().parse(new StringReader(log.toString())).getRecords();
+		Assert.assertEquals(5, records.size());
+		for (CSVRecord r : records)
+			Assert.assertEquals(records.get(0).size(), r.size());
+
+		// The checkpoint holds all points once
+		Assert.assertEquals(5, GridSearchCheckpoint.read(checkpoint).size());
+	}
+
+	@Test
+	public void testPartitionedGrid() throws Exception {
+		Dataset ds = TestDataLoader.getInstance().getDataset(true, true);
+		Map<String, List<?>> grid = new HashMap<>();
+		grid.put("c", Arrays.asList(.01, .1, 1., 10., 100.));
+
+		GridSearchResult full = getCheckpointGS(null).build().search(ds, getACP(), grid);
+
+		List<File> partitions = new ArrayList<>();
+		List<GSResult> partitionResults = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			File f = TestUtils.createTempFile("partition"+i, ".jsonl");
+			GridSearchResult res = getCheckpointGS(f).partition(i, 2).build().search(ds, getACP(), grid);
+			Assert.assertEquals(i == 0 ? 3 : 2, res.getBestParameters().size());
+			partitions.add(f);
+			partitionResults.addAll(GridSearchCheckpoint.read(f));
+		}
+		Assert.assertEquals(5, partitionResults.size());
+
+		// Merge the partitions, no grid point should be evaluated again
+		File merged = TestUtils.createTempFile("merged", ".jsonl");
+		GridSearchResult res = getCheckpointGS(merged).resumeFrom(partitions).build().search(ds, getACP(), grid);
+		Assert.assertEquals(toScores(full), toScores(res));
+		for (GSResult r : res.getBestParameters())
+			Assert.assertTrue(r.getOptimizationMetric() instanceof GridSearchCheckpoint.RestoredMetric);
+		Assert.assertEquals(5, GridSearchCheckpoint.read(merged).size());
+
+		// Invalid settings
+		try {
+			getCheckpointGS(null).partition(0, 2).searchStrategy(new TPESearch()).build();
+			Assert.fail("TPE cannot be partitioned");
+		} catch (IllegalArgumentException e) {}
+		try {
+			getCheckpointGS(null).partition(0, 2).successiveHalving(true).build();
+			Assert.fail("Successive halving cannot be partitioned");
+		} catch (IllegalArgumentException e) {}
+		try {
+			getCheckpointGS(null).partition(2, 2);
+			Assert.fail("Invalid partition index");
+		} catch (IllegalArgumentException e) {}
+		try {
+			getCheckpointGS(null).resume(true).build();
+			Assert.fail("Resume requires a checkpoint");
+		} catch (IllegalArgumentException e) {}
+		try {
+			getCheckpointGS(null).resumeFrom(partitions).evaluationMetric(new BinaryBrierScore()).build().search(ds, getACP(), grid);
+			Assert.fail("Checkpoints using another optimization metric");
+		} catch (IllegalArgumentException e) {}
+	}
+
+	private static GridSearch.Builder getCheckpointGS(File checkpoint) {
+		return new GridSearch.Builder()
+				.testStrategy(new KFoldCV(3))
+				.tolerance(.2)
+				.checkpoint(checkpoint);
+	}
+
+	private static ACPClassifier getACP() {
+		return new ACPClassifier(new NegativeDistanceToHyperplaneNCM(new LinearSVC()),
+				new RandomStratifiedSampling(3, DEFAULT_CALIBRATION_RATIO));
+	}
+
+	private static GSResult find(GridSearchResult res, Map<String,Object> params) {
+		for (GSResult r : res.getBestParameters()) {
+			if (GridSearchCheckpoint.getKey(r.getParams(), 1).equals(GridSearchCheckpoint.getKey(params, 1)))
+				return r;
+		}
+		Assert.fail("No result for parameters: " + params);
+		return null;
+	}
+
+	@Test
+	public void testSuccessiveHalvingPredictor() throws Exception {
+		ACPClassifier acp = new ACPClassifier(new NegativeDistanceToHyperplaneNCM(new LinearSVC()),
+				new RandomStratifiedSampling(3, DEFAULT_CALIBRATION_RATIO));
+		Dataset ds = TestDataLoader.getInstance().getDataset(true, true);
+		Map<String, List<?>> grid = new HashMap<>();
+		grid.put("c", Arrays.asList(.01, .1, .5, 1., 5., 10., 50., 100., 1000.));
+		StringBuilder log = new StringBuilder();
+		List<ProgressInfo> progress = new ArrayList<>();
+		GridSearch gs = new GridSearch.Builder()
+				.testStrategy(new KFoldCV(3))
+				.tolerance(.2)
+				.successiveHalving(true)
+				.reductionFactor(3)
+				.minBudget(.3)
+				.register((ProgressCallback) progress::add)
+				.loggingWriter(new Writer() {
+					public void write(char[] cbuf, int off, int len) {
+						log.append(cbuf, off, len);
+					}
+					public void flush() {}
+					public void close() {}
+				})
+				.build();
+		Assert.assertTrue(gs.usesSuccessiveHalving());
+
+		GridSearchResult res = gs.search(ds, acp, grid);
+		// 9 points using 1/3 of the data and 3 using all data
+		Assert.assertEquals(12, progress.size());
+		Assert.assertEquals(12, progress.get(11).getTotalNumGridPoints());
+		Assert.assertEquals(3, res.getNumGSResults());
+		GSResult best = res.getBestParameters().get(0);
+		Assert.assertEquals(1, best.getBudget(), 0.0001);
+
+		try (CSVParser p = CSVFormat.DEFAULT.builder().setHeader().build().parse(new StringReader(log.toString()))){
+			Assert.assertTrue(p.getHeaderNames().contains("Budget"));
+			List<CSVRecord> records = p.getRecords();
+			Assert.assertEquals(12, records.size());
+			Map<Double,Integer> numPerBudget = new HashMap<>();
+			for (CSVRecord r : records)
+				numPerBudget.merge(Double.parseDouble(r.get("Budget")), 1, Integer::sum);
+			Assert.assertEquals(9, (int) numPerBudget.get(MathUtils.roundToNSignificantFigures(1d/3, 5)));
+			Assert.assertEquals(3, (int) numPerBudget.get(1d));
+		}
+	}
+
+	@Test
+	public void testSuccessiveHalvingMLAlg() throws Exception {
+		LinearSVC svc = new LinearSVC();
+		Dataset ds = TestDataLoader.getInstance().getDataset(true, true);
+		Map<String, List<?>> grid = new HashMap<>();
+		grid.put("c", Arrays.asList(100., .5, 10., 1.));
+		grid.put("epsilon", Arrays.asList(0.001, 0.01));
+		GridSearch gs = new GridSearch.Builder()
+				.testStrategy(new KFoldCV(2))
+				.regularizationPath(true)
+				.successiveHalving(true)
+				.reductionFactor(2)
+				.minBudget(.25)
+				.maxNumResults(-1)
+				.build();
+
+		GridSearchResult res = gs.search(ds, svc, grid);
+		// 8 points using 1/4, 4 using 1/2 and 2 using all data
+		Assert.assertEquals(2, res.getNumGSResults());
+		for (GSResult r : res.getBestParameters()){
+			Assert.assertTrue(Double.isFinite(r.getResult()));
+			Assert.assertEquals(1, r.getBudget(), 0.0001);
+		}
+		Assert.assertFalse(svc.isWarmStart());
+
+		// Stopping early gives the results of the largest budget that was evaluated
+		gs = new GridSearch.Builder()
+				.testStrategy(new KFoldCV(2))
+				.successiveHalving(true)
+				.reductionFactor(2)
+				.minBudget(.25)
+				.register(new MyEarlyStoppingMonitor(10))
+				.build();
+		res = gs.search(ds, svc, grid);
+		Assert.assertEquals(2, res.getNumGSResults());
+		Assert.assertEquals(.5, res.getBestParameters().get(0).getBudget(), 0.0001);
+		Assert.assertTrue("should be a warning message",res.getWarning().length()>10);
+	}
+
+	@Test
+	public void testSuccessiveHalvingInvalidSettings() {
+		try {
+			new GridSearch.Builder().reductionFactor(1);
+			Assert.fail("reduction factor must be at least 2");
+		} catch (IllegalArgumentException e) {}
+		try {
+			new GridSearch.Builder().minBudget(0);
+			Assert.fail("budget must be larger than 0");
+		} catch (IllegalArgumentException e) {}
+		try {
+			new GridSearch.Builder().minBudget(1.5);
+			Assert.fail("budget must be at most 1");
+		} catch (IllegalArgumentException e) {}
+	}
+
 	@Test
 	public void testC_SVC() throws Exception {
 		Classifier svc = new C_SVC();
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.ml.gridsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.arosbio.commons.FuzzyServiceLoader;
+import com.arosbio.data.Dataset;
+import com.arosbio.ml.algorithms.svm.LinearSVC;
+import com.arosbio.ml.gridsearch.GridSearch.GSResult;
+import com.arosbio.ml.gridsearch.GridSearch.ProgressCallback;
+import com.arosbio.ml.gridsearch.GridSearch.ProgressInfo;
+import com.arosbio.ml.gridsearch.search.ExhaustiveSearch;
+import com.arosbio.ml.gridsearch.search.RandomSearch;
+import com.arosbio.ml.gridsearch.search.SearchStrategy;
+import com.arosbio.ml.gridsearch.search.SearchStrategy.Search;
+import com.arosbio.ml.gridsearch.search.TPESearch;
+import com.arosbio.ml.metrics.regression.RMSE;
+import com.arosbio.ml.testing.KFoldCV;
+import com.arosbio.tests.suites.UnitTest;
+import com.arosbio.testutils.TestDataLoader;
+import com.google.common.collect.ImmutableMap;
+
+@Category(UnitTest.class)
+public class TestSearchStrategies {
+
+	private static final Comparator<GSResult> LOWER_IS_BETTER = Comparator.comparingDouble(GSResult::getResult);
+
+	private static Map<String, List<?>> getGrid() {
+		Map<String, List<?>> grid = new LinkedHashMap<>();
+		grid.put("x", IntStream.range(0, 40).boxed().collect(Collectors.toList()));
+		grid.put("y", IntStream.range(0, 40).mapToObj(i -> Math.pow(2, i - 20)).collect(Collectors.toList()));
+		grid.put("kernel", Arrays.asList("a", "b", "c", "d"));
+		return grid;
+	}
+
+	/** Minimum at x=31, y=2^-8 and kernel=c */
+	private static double objective(Map<String, Object> params) {
+		double x = ((Integer) params.get("x") - 31) / 4d;
+		double y = Math.log(((Double) params.get("y"))) / Math.log(2) + 8;
+		return x * x + y * y + (params.get("kernel").equals("c") ? 0 : 20);
+	}
+
+	/**
+	 * Run the search on the objective function and get the best value found
+	 */
+	private static double runSearch(SearchStrategy strategy, Map<String, List<?>> grid, Set<Map<String, Object>> evaluated) {
+		Search search = strategy.newSearch(grid, LOWER_IS_BETTER);
+		double best = Double.POSITIVE_INFINITY;
+		while (search.hasNext()) {
+			Map<String, Object> params = search.next();
+			Assert.assertTrue("points should not be repeated", evaluated.add(params));
+			double score = objective(params);
+			best = Math.min(best, score);
+			search.report(GSResult.Builder.success(params, score, new RMSE(), 1).build());
+		}
+		Assert.assertEquals(search.getNumEvaluations(), evaluated.size());
+		return best;
+	}
+
+	@Test
+	public void testExhaustive() {
+		Map<String, List<?>> grid = new LinkedHashMap<>();
+		grid.put("a", Arrays.asList(1, 2));
+		grid.put("b", Arrays.asList("x", "y", "z"));
+		Search search = new ExhaustiveSearch().newSearch(grid, LOWER_IS_BETTER);
+		Assert.assertEquals(6, search.getNumEvaluations());
+		List<Map<String, Object>> points = new ArrayList<>();
+		search.forEachRemaining(points::add);
+		// The last parameter varies fastest
+		Assert.assertEquals(Arrays.asList(
+			ImmutableMap.of("a", 1, "b", "x"), ImmutableMap.of("a", 1, "b", "y"), ImmutableMap.of("a", 1, "b", "z"),
+			ImmutableMap.of("a", 2, "b", "x"), ImmutableMap.of("a", 2, "b", "y"), ImmutableMap.of("a", 2, "b", "z")), points);
+	}
+
+	@Test
+	public void testRandom() {
+		RandomSearch random = new RandomSearch(50);
+		random.setSeed(13);
+		Set<Map<String, Object>> first = new HashSet<>(), second = new HashSet<>();
+		runSearch(random, getGrid(), first);
+		runSearch(random.clone(), getGrid(), second);
+		Assert.assertEquals(50, first.size());
+		Assert.assertEquals("same seed should give the same points", first, second);
+
+		// Smaller grid than the number of evaluations - all points are evaluated once
+		Map<String, List<?>> small = ImmutableMap.of("a", Arrays.asList(1, 2, 3), "b", Arrays.asList(true, false));
+		Set<Map<String, Object>> all = new HashSet<>();
+		Search search = random.newSearch(small, LOWER_IS_BETTER);
+		Assert.assertEquals(6, search.getNumEvaluations());
+		search.forEachRemaining(p -> Assert.assertTrue(all.add(p)));
+		Assert.assertEquals(6, all.size());
+	}
+
+	@Test
+	public void testTPEBetterThanRandom() {
+		double sumTPE = 0, sumRandom = 0;
+		for (long seed = 0; seed < 10; seed++) {
+			TPESearch tpe = new TPESearch(60);
+			tpe.setSeed(seed);
+			RandomSearch random = new RandomSearch(60);
+			random.setSeed(seed);
+			sumTPE += runSearch(tpe, getGrid(), new HashSet<>());
+			sumRandom += runSearch(random, getGrid(), new HashSet<>());
+		}
+		Assert.assertTrue(String.format("TPE: %s, random: %s", sumTPE, sumRandom), sumTPE < sumRandom);
+	}
+
+	@Test
+	public void testServiceLoaderAndConfig() {
+		SearchStrategy s = FuzzyServiceLoader.load(SearchStrategy.class, "bayesian");
+		Assert.assertTrue(s instanceof TPESearch);
+		s.setConfigParameters(ImmutableMap.of("n", 15, "gamma", .3));
+		Assert.assertEquals(15, ((TPESearch) s).getNumEvaluations());
+		Assert.assertEquals(.3, ((TPESearch) s).getGamma(), 1e-10);
+		Assert.assertTrue(FuzzyServiceLoader.load(SearchStrategy.class, "random") instanceof RandomSearch);
+		Assert.assertTrue(FuzzyServiceLoader.load(SearchStrategy.class, "exhaustive") instanceof ExhaustiveSearch);
+		try {
+			s.setConfigParameters(ImmutableMap.of("gamma", 1.5));
+			Assert.fail("gamma outside of allowed range");
+		} catch (IllegalArgumentException e) {}
+	}
+
+	@Test
+	public void testGridSearchWithStrategies() throws Exception {
+		LinearSVC svc = new LinearSVC();
+		Dataset ds = TestDataLoader.getInstance().getDataset(true, true);
+		Map<String, List<?>> grid = new HashMap<>();
+		grid.put("c", Arrays.asList(.01, .1, .5, 1., 5., 10., 50., 100.));
+		grid.put("epsilon", Arrays.asList(0.001, 0.01));
+
+		for (SearchStrategy strategy : Arrays.asList(new RandomSearch(5), new TPESearch(5).withNumStartup(3))) {
+			List<ProgressInfo> progress = new ArrayList<>();
+			GridSearch gs = new GridSearch.Builder()
+					.testStrategy(new KFoldCV(2))
+					.searchStrategy(strategy)
+					.register((ProgressCallback) progress::add)
+					.build();
+			Assert.assertEquals(strategy, gs.getSearchStrategy());
+			GridSearchResult res = gs.search(ds, svc, grid);
+			Assert.assertEquals(5, res.getNumGSResults());
+			Assert.assertEquals(5, progress.size());
+			Assert.assertEquals(5, progress.get(4).getTotalNumGridPoints());
+			Set<Map<String, Object>> unique = new HashSet<>();
+			for (GSResult r : res.getBestParameters())
+				unique.add(r.getParams());
+			Assert.assertEquals(5, unique.size());
+		}
+	}
+
+}
@@ -16,6 +16,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.ServiceLoader;
 
 import org.junit.Assert;
@@ -46,6 +47,7 @@ import com.arosbio.ml.metrics.cp.classification.ObservedFuzziness;
 import com.arosbio.ml.metrics.cp.classification.ProportionSingleLabelPredictionSets;
 import com.arosbio.ml.metrics.cp.classification.UnobservedConfidence;
 import com.arosbio.ml.metrics.cp.classification.UnobservedCredibility;
+import com.arosbio.ml.metrics.cp.regression.CPRegressionMultiMetric;
 import com.arosbio.ml.metrics.cp.regression.ConfidenceGivenPredictionIntervalWidth;
 import com.arosbio.ml.metrics.cp.regression.MeanPredictionIntervalWidth;
 import com.arosbio.ml.metrics.cp.regression.MedianPredictionIntervalWidth;
@@ -53,6 +55,7 @@ import com.arosbio.ml.metrics.plots.Plot2D;
 import com.arosbio.ml.metrics.plots.Plot2D.X_Axis;
 import com.arosbio.ml.metrics.plots.PlotMetric;
 import com.arosbio.ml.metrics.regression.MAE;
+import com.arosbio.ml.metrics.regression.PointPredictionMetric;
 import com.arosbio.ml.metrics.regression.R2;
 import com.arosbio.ml.metrics.regression.RMSE;
 import com.arosbio.ml.metrics.vap.MeanVAPInterval;
@@ -61,6 +64,7 @@ import com.arosbio.ml.metrics.vap.VAPCalibration;
 import com.arosbio.tests.suites.UnitTest;
 import com.arosbio.tests.utils.TestUtils;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Range;
 
@@ -1831,4 +1835,201 @@ public class TestMetrics {
 		}
 	}
 
+
+	@Category(UnitTest.class)
+	public static class TestMergeableMetrics {
+
+		private static final List<Double> CONFS = Arrays.asList(0.5, 0.8, 0.9);
+
+		private static Map<Double, Range<Double>> intervals(double mid, double halfWidth) {
+			Map<Double, Range<Double>> res = new HashMap<>();
+			for (double c : CONFS)
+				res.put(c, Range.closed(mid - c*halfWidth, mid + c*halfWidth));
+			return res;
+		}
+
+		private static void assertCurvesEquals(Plot2D expected, Plot2D actual, double delta) {
+			Assert.assertEquals(expected.getYlabels(), actual.getYlabels());
+			for (String label : expected.getYlabels()) {
+				List<Number> e = expected.getPoints(label), a = actual.getPoints(label);
+				Assert.assertEquals(e.size(), a.size());
+				for (int i=0; i<e.size(); i++)
+					Assert.assertEquals(label, e.get(i).doubleValue(), a.get(i).doubleValue(), delta);
+			}
+		}
+
+		@Test
+		public void testMergeRegression() {
+			Random rng = new Random(42);
+			R2 r2All = new R2(), r2A = new R2(), r2B = new R2();
+			RMSE rmseAll = new RMSE(), rmseA = new RMSE(), rmseB = new RMSE();
+			MAE maeAll = new MAE(), maeA = new MAE(), maeB = new MAE();
+			ModelCalibration calibAll = new ModelCalibration(CONFS), calibA = calibAll.clone(), calibB = calibAll.clone();
+			MeanPredictionIntervalWidth meanAll = new MeanPredictionIntervalWidth(CONFS), meanA = meanAll.clone(), meanB = meanAll.clone();
+			MedianPredictionIntervalWidth medAll = new MedianPredictionIntervalWidth(CONFS), medA = medAll.clone(), medB = medAll.clone();
+
+			for (int i=0; i<1000; i++) {
+				double y = rng.nextGaussian()*3 + 10, pred = y + rng.nextGaussian();
+				Map<Double, Range<Double>> pi = intervals(pred, 1 + rng.nextDouble()*2);
+				boolean first = i < 300;
+				for (PointPredictionMetric m : Arrays.<PointPredictionMetric>asList(r2All, rmseAll, maeAll, first ? r2A : r2B, first ? rmseA : rmseB, first ? maeA : maeB))
+					m.addPrediction(y, pred);
+				for (CPRegressionMultiMetric m : Arrays.<CPRegressionMultiMetric>asList(calibAll, meanAll, medAll, first ? calibA : calibB, first ? meanA : meanB, first ? medA : medB))
+					m.addPrediction(y, pi);
+			}
+
+			r2A.merge(r2B);
+			rmseA.merge(rmseB);
+			maeA.merge(maeB);
+			Assert.assertEquals(r2All.getScore(), r2A.getScore(), 1e-10);
+			Assert.assertEquals(rmseAll.getScore(), rmseA.getScore(), 1e-10);
+			Assert.assertEquals(maeAll.getScore(), maeA.getScore(), 1e-10);
+			Assert.assertEquals(1000, r2A.getNumExamples());
+
+			calibA.merge(calibB);
+			meanA.merge(meanB);
+			medA.merge(medB);
+			assertCurvesEquals(calibAll.buildPlot(), calibA.buildPlot(), 1e-10);
+			assertCurvesEquals(meanAll.buildPlot(), meanA.buildPlot(), 1e-10);
+			assertCurvesEquals(medAll.buildPlot(), medA.buildPlot(), 1e-10);
+
+			// Merging an empty metric should not change anything
+			r2A.merge(new R2());
+			Assert.assertEquals(r2All.getScore(), r2A.getScore(), 1e-10);
+			Assert.assertTrue(Double.isNaN(new R2().getScore()));
+		}
+
+		@Test
+		public void testMergeIncompatible() {
+			try {
+				new R2().merge(new RMSE());
+				Assert.fail("Should not merge different metrics");
+			} catch (IllegalArgumentException e) {}
+			try {
+				new MeanPredictionIntervalWidth(CONFS).merge(new MeanPredictionIntervalWidth(Arrays.asList(.5)));
+				Assert.fail("Should not merge different confidences");
+			} catch (IllegalArgumentException e) {}
+			try {
+				new MedianPredictionIntervalWidth(CONFS).merge(new MedianPredictionIntervalWidth(CONFS).withRelativeAccuracy(.01));
+				Assert.fail("Should not merge exact and approximate medians");
+			} catch (IllegalArgumentException e) {}
+			try {
+				new ROC_AUC(1).merge(new ROC_AUC(0));
+				Assert.fail("Should not merge different positive labels");
+			} catch (IllegalArgumentException e) {}
+		}
+
+		@Test
+		public void testApproximateMedianIntervalWidth() {
+			Random rng = new Random(7);
+			double acc = 0.005;
+			MedianPredictionIntervalWidth exact = new MedianPredictionIntervalWidth(CONFS), 
+				approxA = new MedianPredictionIntervalWidth(CONFS).withRelativeAccuracy(acc),
+				approxB = approxA.clone();
+			Assert.assertEquals(acc, approxB.getRelativeAccuracy(), 0);
+			for (int i=0; i<2001; i++) {
+				Map<Double, Range<Double>> pi = intervals(rng.nextDouble(), Math.exp(rng.nextGaussian()));
+				exact.addPrediction(0, pi);
+				(i%2==0 ? approxA : approxB).addPrediction(0, pi);
+			}
+			approxA.merge(approxB);
+			Assert.assertEquals(exact.getNumExamples(), approxA.getNumExamples());
+			Plot2D e = exact.buildPlot(), a = approxA.buildPlot();
+			List<Number> eMed = e.getPoints(MedianPredictionIntervalWidth.METRIC_NAME), aMed = a.getPoints(MedianPredictionIntervalWidth.METRIC_NAME);
+			for (int i=0; i<CONFS.size(); i++) {
+				double ex = eMed.get(i).doubleValue();
+				Assert.assertEquals(ex, aMed.get(i).doubleValue(), ex*acc);
+			}
+		}
+
+		@Test
+		public void testLogHistogram() {
+			Random rng = new Random(13);
+			double acc = 0.01;
+			LogHistogram all = new LogHistogram(acc), a = new LogHistogram(acc), b = new LogHistogram(acc);
+			List<Double> values = new ArrayList<>();
+			for (int i=0; i<5000; i++) {
+				double v = Math.exp(rng.nextGaussian()*5) * (rng.nextBoolean() ? 1 : -1);
+				values.add(v);
+				all.add(v);
+				(i < 1000 ? a : b).add(v);
+			}
+			a.merge(b);
+			Assert.assertEquals(all.getBins(), a.getBins());
+			Assert.assertEquals(5000, a.getCount());
+			Assert.assertTrue(a.getNumBins() < 5000);
+
+			Collections.sort(values);
+			for (double q : new double[] {0, .01, .1, .25, .75, .9, .99, 1}) {
+				// Ranks without interpolation, to check the error bound
+				double exact = values.get((int) Math.round(q * (values.size()-1)));
+				double approx = a.getQuantile(Math.round(q * (values.size()-1)) / (double) (values.size()-1));
+				Assert.assertEquals(exact, approx, Math.abs(exact)*acc);
+			}
+			Assert.assertTrue(Double.isNaN(new LogHistogram().getMedian()));
+
+			// Disjoint ranges, zeros and infinite values
+			LogHistogram low = new LogHistogram(acc), high = new LogHistogram(acc);
+			low.add(1e-6, 3);
+			low.add(0);
+			low.add(Double.NEGATIVE_INFINITY);
+			high.add(1e6, 2);
+			high.add(Double.POSITIVE_INFINITY);
+			low.merge(high);
+			Assert.assertEquals(8, low.getCount());
+			Assert.assertEquals(5, low.getNumBins());
+			Assert.assertEquals(Double.NEGATIVE_INFINITY, low.getQuantile(0), 0);
+			Assert.assertEquals(0, low.getQuantile(1d/7), 0);
+			Assert.assertEquals(1e-6, low.getQuantile(2d/7), 1e-6*acc);
+			Assert.assertEquals(1e6, low.getQuantile(5d/7), 1e6*acc);
+			Assert.assertEquals(Double.POSITIVE_INFINITY, low.getQuantile(1), 0);
+
+			try {
+				a.merge(new LogHistogram(.02));
+				Assert.fail("Different accuracies should fail");
+			} catch (IllegalArgumentException e) {}
+			try {
+				a.add(Double.NaN);
+				Assert.fail("NaN should fail");
+			} catch (IllegalArgumentException e) {}
+		}
+
+		@Test
+		public void testBinnedROC() {
+			Random rng = new Random(3);
+			ROC_AUC exact = new ROC_AUC(1), binnedA = new ROC_AUC(1).withRelativeAccuracy(0.01), binnedB = binnedA.clone(), exactB = new ROC_AUC(1);
+			for (int i=0; i<4000; i++) {
+				int label = rng.nextBoolean() ? 1 : 0;
+				double score = 1 / (1 + Math.exp(-(rng.nextGaussian() + (label==1 ? 1 : -1))));
+				Map<Integer, Double> scores = ImmutableMap.of(1, score, 0, 1-score);
+				if (i % 3 == 0) {
+					binnedB.addPrediction(label, scores);
+					exactB.addPrediction(label, scores);
+				} else {
+					binnedA.addPrediction(label, scores);
+				}
+				if (i % 3 != 0)
+					exact.addPrediction(label, scores);
+			}
+			exact.merge(exactB);
+			binnedA.merge(binnedB);
+			Assert.assertEquals(4000, exact.getNumExamples());
+			Assert.assertEquals(4000, binnedA.getNumExamples());
+			Assert.assertEquals(0, exact.getScoreErrorBound(), 0);
+			double bound = binnedA.getScoreErrorBound();
+			Assert.assertTrue(bound > 0 && bound < 0.01);
+			Assert.assertEquals(exact.getScore(), binnedA.getScore(), bound);
+			// Far fewer points on the binned curve
+			int numExactPoints = ((List<?>) exact.rocAsJSON().get(ROC_AUC.SCORE)).size(), 
+				numBinnedPoints = ((List<?>) binnedA.rocAsJSON().get(ROC_AUC.SCORE)).size();
+			Assert.assertEquals(4001, numExactPoints);
+			Assert.assertTrue(numBinnedPoints < numExactPoints / 4);
+			binnedA.clear();
+			Assert.assertEquals(0, binnedA.getNumExamples());
+			Assert.assertTrue(Double.isNaN(binnedA.getScore()));
+		}
+
+
+	}
+
 }
@@ -400,6 +400,35 @@ public class TestSamplingStrategies {
 			}
 		}
 
+		@Test
+		public void testTrainSplitCache() throws Exception {
+			Dataset data = TestDataLoader.loadDataset(TestResources.SVMLIGHTFiles.REGRESSION_HOUSING_25);
+			RandomSampling sampler = new RandomSampling(NUM_SAMPLES, CALIB_PART);
+			TrainSplitCache cache = new TrainSplitCache(2);
+
+			List<TrainSplit> splits = cache.getSplits(sampler, data, 42);
+			Assert.assertEquals(NUM_SAMPLES, splits.size());
+			// Same splits as generated by the strategy
+			Iterator<TrainSplit> iter = sampler.getIterator(data, 42);
+			for (TrainSplit s : splits)
+				assertEqualICPDatasets(s, iter.next());
+			Assert.assertFalse(iter.hasNext());
+
+			// Re-used for an equal strategy, seed and the same data instance
+			Assert.assertSame(splits, cache.getSplits(sampler.clone(), data, 42));
+			Assert.assertEquals(1, cache.size());
+			Assert.assertNotSame(splits, cache.getSplits(sampler, data, 43));
+			Assert.assertNotSame(splits, cache.getSplits(new RandomSampling(NUM_SAMPLES, .3), data, 42));
+			Assert.assertNotSame(splits, cache.getSplits(sampler, data.clone(), 42));
+			Assert.assertEquals(2, cache.size());
+
+			// Toggled using the config parameters
+			Assert.assertNull(TrainSplitCache.update(null, Map.of("someParam", true)));
+			Assert.assertSame(cache, TrainSplitCache.update(cache, TrainSplitCache.getParameters(true)));
+			Assert.assertNull(TrainSplitCache.update(cache, TrainSplitCache.getParameters(false)));
+			Assert.assertEquals(0, cache.size());
+		}
+
 		@Test
 		public void TestStratifiedRandomSplit() throws Exception {
 			// Read in data from file
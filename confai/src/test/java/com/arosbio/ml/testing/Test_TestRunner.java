@@ -32,6 +32,8 @@ import com.arosbio.ml.metrics.MetricFactory;
 import com.arosbio.ml.metrics.SingleValuedMetric;
 import com.arosbio.ml.metrics.cp.regression.ConfidenceGivenPredictionIntervalWidth;
 import com.arosbio.ml.metrics.plots.PlotMetric;
+import com.arosbio.ml.metrics.regression.MAE;
+import com.arosbio.ml.metrics.regression.R2;
 import com.arosbio.ml.metrics.regression.RMSE;
 import com.arosbio.ml.sampling.RandomSampling;
 import com.arosbio.tests.suites.UnitTest;
@@ -159,6 +161,55 @@ public class Test_TestRunner extends TestEnv {
 
 	}
 
+	@Test
+	public void testConcurrentSplitsSameAsSequential() throws Exception {
+		Dataset regData = TestDataLoader.getInstance().getDataset(false, true);
+		Dataset clfData = TestDataLoader.getInstance().getDataset(true, true);
+		for (boolean meanAndStd : new boolean[] {true, false}) {
+			// Mergeable metrics, so the pooled evaluation can be run concurrently as well
+			List<Metric> sequential = new TestRunner.Builder(new KFoldCV(5, seed)).calcMeanAndStd(meanAndStd).build()
+				.evaluateRegressor(regData, new LinearSVR(), Arrays.asList(new RMSE(), new MAE(), new R2()));
+			List<Metric> concurrent = new TestRunner.Builder(new KFoldCV(5, seed)).calcMeanAndStd(meanAndStd).numThreads(4).build()
+				.evaluateRegressor(regData, new LinearSVR(), Arrays.asList(new RMSE(), new MAE(), new R2()));
+			assertSameResults(sequential, concurrent);
+
+			sequential = new TestRunner.Builder(new KFoldCV(5, seed)).calcMeanAndStd(meanAndStd).build()
+				.evaluateClassifier(clfData, new LinearSVC(), MetricFactory.getMetrics(new LinearSVC(), false));
+			concurrent = new TestRunner.Builder(new KFoldCV(5, seed)).calcMeanAndStd(meanAndStd).numThreads(4).build()
+				.evaluateClassifier(clfData, new LinearSVC(), MetricFactory.getMetrics(new LinearSVC(), false));
+			assertSameResults(sequential, concurrent);
+		}
+	}
+
+	@Test
+	public void testReuseSplitsAfterChangedData() throws Exception {
+		Dataset data = TestDataLoader.getInstance().getDataset(false, true).clone();
+		TestRunner reused = new TestRunner.Builder(new KFoldCV(5, seed)).calcMeanAndStd(false).reuseSplits(true).build();
+		reused.evaluateRegressor(data, new LinearSVR(), Arrays.asList(new RMSE()));
+
+		// Shuffled in place
+		data.getDataset().shuffle(seed);
+		assertSameResults(new TestRunner.Builder(new KFoldCV(5, seed)).calcMeanAndStd(false).build()
+				.evaluateRegressor(data, new LinearSVR(), Arrays.asList(new RMSE())),
+			reused.evaluateRegressor(data, new LinearSVR(), Arrays.asList(new RMSE())));
+
+		// Removed records
+		int size = data.getNumRecords();
+		data.getDataset().subList(0, 10).clear();
+		List<Metric> afterRemove = reused.evaluateRegressor(data, new LinearSVR(), Arrays.asList(new RMSE()));
+		Assert.assertEquals(size - 10, afterRemove.get(0).getNumExamples());
+		assertSameResults(new TestRunner.Builder(new KFoldCV(5, seed)).calcMeanAndStd(false).build()
+				.evaluateRegressor(data, new LinearSVR(), Arrays.asList(new RMSE())), afterRemove);
+	}
+
+	private static void assertSameResults(List<Metric> expected, List<Metric> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i=0; i<expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getNumExamples(), actual.get(i).getNumExamples());
+			Assert.assertEquals(expected.get(i).toString(), actual.get(i).toString());
+		}
+	}
+
 	@Test
 	public void testLOOCV_clf() throws Exception {
 		TestRunner runner = new TestRunner.Builder(new LOOCV()).build();
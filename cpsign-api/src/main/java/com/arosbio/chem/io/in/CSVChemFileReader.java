@@ -11,14 +11,22 @@ package com.arosbio.chem.io.in;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -34,6 +42,7 @@ import org.slf4j.LoggerFactory;
 import com.arosbio.chem.CPSignMolProperties;
 import com.arosbio.chem.io.in.FailedRecord.Cause;
 import com.arosbio.commons.EarlyStoppingException;
+import com.arosbio.commons.GlobalConfig;
 
 public class CSVChemFileReader implements ChemFileIterator {
 
@@ -42,7 +51,12 @@ public class CSVChemFileReader implements ChemFileIterator {
 	private boolean hasLoggedFailedSMILES = false;
 
 
-	private SmilesParser sp = new SmilesParser(DEFAULT_BUILDER);
+	/** Size of the batches of records that are parsed by the worker threads */
+	private static final int BATCH_SIZE = 512;
+	private static final int BATCHES_PER_THREAD = 2;
+	private static final ThreadLocal<SmilesParser> THREAD_PARSER = ThreadLocal.withInitial(() -> new SmilesParser(DEFAULT_BUILDER));
+
+	private SmilesParser sp;
 	private CSVParser parser;
 	private Iterator<CSVRecord> recordIterator;
 	/** The number of header fields (either given or read from input file), to be populated at init */
@@ -59,6 +73,14 @@ public class CSVChemFileReader implements ChemFileIterator {
 	// The next record index
 	private int recordIndex = -1;
 
+	// Parallel parsing
+	private int numThreads = 1;
+	/** The header names of the columns that are set as properties of the molecules */
+	private List<String> propertyColumns;
+	private final Deque<Future<List<ParsedRecord>>> pendingBatches = new ArrayDeque<>();
+	private Iterator<ParsedRecord> currentBatch = Collections.emptyIterator();
+	private boolean endOfRecords = false;
+
 
 	public CSVChemFileReader(CSVFormat format, Reader reader) throws IOException {
 		initialize(format,reader);
@@ -83,6 +105,51 @@ public class CSVChemFileReader implements ChemFileIterator {
 		return this;
 	}
 
+	/**
+	 * Parse the SMILES of the records using several threads. The CSV is still read and tokenised 
+	 * in the calling thread, in batches, and the molecules are returned in the order of the input
+	 * with the same record indices and failed records as when parsing in a single thread. The batches
+	 * are parsed on the {@link GlobalConfig#getSharedExecutor() shared executor}, and inputs that fit 
+	 * in a single batch are parsed in the calling thread.
+	 * @param numThreads the number of parsing threads, {@code <=1} parses in the calling thread
+	 * @return the same instance
+	 */
+	public CSVChemFileReader withNumParsingThreads(int numThreads){
+		this.numThreads = Math.max(1, numThreads);
+		return this;
+	}
+
+	/**
+	 * Only include the given columns as properties of the parsed molecules, instead of all columns
+	 * of the CSV. The SMILES and the record index are always set. 
+	 * @param columns the header names of the columns to include, or {@code null} to include all
+	 * @return the same instance
+	 */
+	public CSVChemFileReader withIncludedColumns(Collection<String> columns){
+		if (columns == null) {
+			propertyColumns = new ArrayList<>(parser.getHeaderMap().keySet());
+		} else {
+			Set<String> included = new HashSet<>(columns);
+			propertyColumns = new ArrayList<>();
+			for (String h : parser.getHeaderMap().keySet()) {
+				if (included.contains(h))
+					propertyColumns.add(h);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Set the record index of the first record in the stream, used when the stream is a 
+	 * part of a larger file (see {@link RecordOffsetIndex})
+	 * @param index the index of the first record
+	 * @return the same instance
+	 */
+	public CSVChemFileReader withFirstRecordIndex(int index){
+		this.recordIndex = index - 1;
+		return this;
+	}
+
 	private void initialize(CSVFormat format, Reader reader) throws IOException {
 		LOGGER.debug("Initializing CSV parser with the following CSVFormat: {}", format.toString());
 		if (format.getHeader() == null){
@@ -106,6 +173,7 @@ public class CSVChemFileReader implements ChemFileIterator {
 		}
 		Map<String,Integer> tmpHeaderMap = this.parser.getHeaderMap();
 		numHeaderFields = tmpHeaderMap.size();
+		propertyColumns = new ArrayList<>(tmpHeaderMap.keySet());
 		LOGGER.debug("Header field for smiles set to: {}, CSV reader headers: {}", smilesHeaderField,tmpHeaderMap);
 
 	}
@@ -143,16 +211,25 @@ public class CSVChemFileReader implements ChemFileIterator {
 
 	private boolean tryParseNext() throws EarlyStoppingException {
 
-		if (!recordIterator.hasNext()) {
-			LOGGER.debug("No more records in CSV File, found {} records", numRecordsSuccessfullyRead);
-			return false;
-		}
+		while (true) {
+			ParsedRecord parsed = numThreads > 1 ? nextParallel() : nextSequential();
+			if (parsed == null) {
+				LOGGER.debug("No more records in CSV File, found {} records", numRecordsSuccessfullyRead);
+				shutdownWorkers();
+				return false;
+			}
 
-		// Always start with incrementing the record-index counter
-		recordIndex++;
+			// Always start with incrementing the record-index counter
+			recordIndex++;
 
-		try {
-			CSVRecord next = recordIterator.next();
+			if (parsed.record == null) {
+				// Failed reading the CSV record itself
+				if (parsed.error instanceof IllegalArgumentException)
+					throw (IllegalArgumentException) parsed.error;
+				LOGGER.debug("Failed parsing line in CSV, continuing to next, err-message: {}", parsed.error.getMessage());
+				continue;
+			}
+			CSVRecord next = parsed.record;
 
 			// Verify consistent number of fields
 			if (numHeaderFields != next.size()){
@@ -166,10 +243,8 @@ public class CSVChemFileReader implements ChemFileIterator {
 				throw new IllegalArgumentException(msg);
 			}
 
-			String smiles = next.get(smilesHeaderField);
-			try {
-				nextMol = sp.parseSmiles(smiles);
-			} catch (InvalidSmilesException e) {
+			if (parsed.error instanceof InvalidSmilesException) {
+				String smiles = parsed.smiles;
 				if (!hasLoggedFailedSMILES){
 					LOGGER.debug("Failed record due to invalid smiles '{}', from record: {}", smiles, next);
 					hasLoggedFailedSMILES = true;
@@ -183,36 +258,153 @@ public class CSVChemFileReader implements ChemFileIterator {
 				tracker.register(recordBuilder.build());
 				LOGGER.trace("Invalid smiles - skipping line");
 				checkIfExit();
-				return tryParseNext();
+				continue;
+			} else if (parsed.error instanceof IllegalArgumentException) {
+				// Pass along
+				throw (IllegalArgumentException) parsed.error;
+			} else if (parsed.error != null) {
+				LOGGER.debug("Failed parsing line in CSV, continuing to next, err-message: {}", parsed.error.getMessage());
+				continue;
 			}
 
+			nextMol = parsed.mol;
+			// Add the record index
+			CPSignMolProperties.setRecordIndex(nextMol, recordIndex);
+			CPSignMolProperties.setSMILES(nextMol, parsed.smiles);
+
+			return true;
+		}
+	}
+
+	private ParsedRecord nextSequential() {
+		if (!recordIterator.hasNext())
+			return null;
+		CSVRecord next = null;
+		try {
+			next = recordIterator.next();
+		} catch (Exception e) {
+			return new ParsedRecord(null, e);
+		}
+		return parse(next, getSmilesParser(), smilesHeaderField, numHeaderFields, propertyColumns);
+	}
+
+	private ParsedRecord nextParallel() {
+		while (! currentBatch.hasNext()) {
+			submitBatches();
+			if (pendingBatches.isEmpty())
+				return null;
+			try {
+				currentBatch = pendingBatches.poll().get().iterator();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while parsing CSV");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new IllegalStateException("Failed parsing CSV: " + cause.getMessage());
+			}
+		}
+		return currentBatch.next();
+	}
 
-			Map<Object,Object> properties = new LinkedHashMap<>(next.toMap());
-			// remove all empty
-			List<Object> keysToRemove = new ArrayList<>();
-			for (Entry<Object,Object> prop : properties.entrySet()) {
-				if (prop.getValue() == null || ((String) prop.getValue()).isEmpty())
-					keysToRemove.add(prop.getKey());
+	/**
+	 * Tokenise the next batches of records in this thread and parse them in the worker threads
+	 */
+	private void submitBatches() {
+		final String smilesCol = smilesHeaderField;
+		final int numFields = numHeaderFields;
+		final List<String> columns = propertyColumns;
+
+		while (pendingBatches.size() < numThreads * BATCHES_PER_THREAD && !endOfRecords) {
+			List<CSVRecord> batch = new ArrayList<>(BATCH_SIZE);
+			List<ParsedRecord> readFailures = new ArrayList<>();
+			while (batch.size() < BATCH_SIZE) {
+				if (!recordIterator.hasNext()) {
+					endOfRecords = true;
+					break;
+				}
+				try {
+					batch.add(recordIterator.next());
+				} catch (Exception e) {
+					// Keep the failure at its position in the input
+					readFailures.add(new ParsedRecord(null, e));
+					break;
+				}
+			}
+			if (! batch.isEmpty()) {
+				if (endOfRecords && pendingBatches.isEmpty()) {
+					// Nothing to run in parallel with - parse in this thread
+					pendingBatches.add(CompletableFuture.completedFuture(parseBatch(batch, getSmilesParser(), smilesCol, numFields, columns)));
+				} else {
+					pendingBatches.add(GlobalConfig.getInstance().getSharedExecutor().submit(
+						() -> parseBatch(batch, THREAD_PARSER.get(), smilesCol, numFields, columns)));
+				}
 			}
-			for (Object key : keysToRemove)
-				properties.remove(key);
+			if (! readFailures.isEmpty())
+				pendingBatches.add(CompletableFuture.completedFuture(readFailures));
+		}
+	}
 
-			Map<Object,Object> newMap = new LinkedHashMap<>();
-			newMap.putAll(nextMol.getProperties());
-			newMap.putAll(properties);
-			nextMol.setProperties(newMap);
+	private static List<ParsedRecord> parseBatch(List<CSVRecord> batch, SmilesParser parser, String smilesCol, int numFields, List<String> columns) {
+		List<ParsedRecord> res = new ArrayList<>(batch.size());
+		for (CSVRecord r : batch)
+			res.add(parse(r, parser, smilesCol, numFields, columns));
+		return res;
+	}
 
-			// Add the record index
-			CPSignMolProperties.setRecordIndex(nextMol, recordIndex);
-			CPSignMolProperties.setSMILES(nextMol, smiles);
+	private SmilesParser getSmilesParser() {
+		if (sp == null)
+			sp = new SmilesParser(DEFAULT_BUILDER);
+		return sp;
+	}
 
-			return true;
-		} catch (IllegalArgumentException e){
-			// Pass along
-			throw e;
+	/**
+	 * Parse the SMILES and set the properties of a single record, can be called from any thread
+	 */
+	private static ParsedRecord parse(CSVRecord record, SmilesParser sp, String smilesHeaderField, int numHeaderFields, List<String> propertyColumns) {
+		if (numHeaderFields != record.size()) {
+			// Handled when consumed
+			return new ParsedRecord(record, null, null, null);
+		}
+		String smiles = null;
+		try {
+			smiles = record.get(smilesHeaderField);
+			IAtomContainer mol = sp.parseSmiles(smiles);
+
+			Map<Object,Object> newMap = new LinkedHashMap<>();
+			newMap.putAll(mol.getProperties());
+			for (String column : propertyColumns) {
+				String value = record.get(column);
+				// Skip empty values
+				if (value == null || value.isEmpty())
+					continue;
+				newMap.put(column, value);
+			}
+			mol.setProperties(newMap);
+			return new ParsedRecord(record, smiles, mol, null);
 		} catch (Exception e) {
-			LOGGER.debug("Failed parsing line in CSV, continuing to next, err-message: {}", e.getMessage());
-			return tryParseNext();
+			return new ParsedRecord(record, smiles, null, e);
+		}
+	}
+
+	private static class ParsedRecord {
+		private final CSVRecord record;
+		private final String smiles;
+		private final IAtomContainer mol;
+		private final Exception error;
+
+		private ParsedRecord(CSVRecord record, Exception error) {
+			this(record, null, null, error);
+		}
+
+		private ParsedRecord(CSVRecord record, String smiles, IAtomContainer mol, Exception error) {
+			this.record = record;
+			this.smiles = smiles;
+			this.mol = mol;
+			this.error = error;
 		}
 	}
 
@@ -220,8 +412,16 @@ public class CSVChemFileReader implements ChemFileIterator {
 		tracker.assertCanContinueParsing();
 	}
 
+	private void shutdownWorkers() {
+		// The executor is shared, only drop the batches of this reader
+		for (Future<List<ParsedRecord>> f : pendingBatches)
+			f.cancel(false);
+		pendingBatches.clear();
+	}
+
 	@Override
 	public void close() throws IOException {
+		shutdownWorkers();
 		parser.close();
 	}
 
@@ -16,6 +16,7 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.arosbio.commons.CollectionUtils;
+import com.arosbio.commons.GlobalConfig;
 import com.arosbio.commons.TypeUtils;
 import com.arosbio.commons.config.BooleanConfig;
 import com.arosbio.commons.config.CharConfig;
@@ -34,6 +36,7 @@ import com.arosbio.commons.config.StringListConfig;
 import com.arosbio.commons.mixins.Aliased;
 import com.arosbio.commons.mixins.Described;
 import com.arosbio.commons.mixins.Named;
+import com.arosbio.io.ReadProgress;
 import com.arosbio.io.UriUtils;
 
 public class CSVFile implements ChemFile, Named, Aliased, Described, Configurable {
@@ -182,18 +185,47 @@ public class CSVFile implements ChemFile, Named, Aliased, Described, Configurabl
 
 	@Override
 	public CSVChemFileReader getIterator() throws IOException {
+		return getIterator(null, null);
+	}
+
+	@Override
+	public CSVChemFileReader getIterator(ProgressTracker tracker) throws IOException {
+		return getIterator().withProgressTracker(tracker);
+	}
+
+	@Override
+	public CSVChemFileReader getIterator(ProgressTracker tracker, ReadProgress progress) throws IOException {
+		return getIterator(tracker, progress, null);
+	}
+
+	/**
+	 * Get an iterator that only sets the given columns as properties of the molecules, so that 
+	 * columns that are not used are never copied into the molecules. 
+	 * @param tracker a progress tracker, or {@code null}
+	 * @param progress read progress, or {@code null}
+	 * @param includedColumns the header names of the columns to include, or {@code null} to include all columns
+	 * @return an iterator of the file
+	 * @throws IOException If failing to open the file
+	 * @see CSVChemFileReader#withIncludedColumns(Collection)
+	 */
+	public CSVChemFileReader getIterator(ProgressTracker tracker, ReadProgress progress, Collection<String> includedColumns) throws IOException {
 		CSVFormat f = getFormat();
 
 		try {
-			return new CSVChemFileReader(f, new InputStreamReader(UriUtils.getInputStream(uri)), explicitSmilesHeader);
+			CSVChemFileReader reader = new CSVChemFileReader(f, new InputStreamReader(UriUtils.getInputStream(uri, progress)), explicitSmilesHeader)
+					.withNumParsingThreads(GlobalConfig.getInstance().getNumThreads())
+					.withIncludedColumns(includedColumns);
+			return tracker != null ? reader.withProgressTracker(tracker) : reader;
 		} catch (MalformedURLException e) {
 			throw new IOException(e.getMessage());
 		}
 	}
 
 	@Override
-	public CSVChemFileReader getIterator(ProgressTracker tracker) throws IOException {
-		return getIterator().withProgressTracker(tracker);
+	public CSVChemFileReader getIterator(RecordOffsetIndex index, int fromRecord, int toRecord) throws IOException {
+		return new CSVChemFileReader(getFormat(), new InputStreamReader(index.openStream(fromRecord, toRecord)), explicitSmilesHeader)
+				.withFirstRecordIndex(fromRecord)
+				.withNumParsingThreads(GlobalConfig.getInstance().getNumThreads());
 	}
 	
 	public CSVFormat getFormat() {
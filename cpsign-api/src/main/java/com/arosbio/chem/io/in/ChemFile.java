@@ -13,6 +13,8 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.Map;
 
+import com.arosbio.io.ReadProgress;
+
 public interface ChemFile {
 
 	public URI getURI();
@@ -24,6 +26,28 @@ public interface ChemFile {
 	public ChemFileIterator getIterator() throws IOException;
 
 	public ChemFileIterator getIterator(ProgressTracker tracker) throws IOException;
+
+	/**
+	 * Get an iterator that counts the number of bytes read from the underlying resource, so that 
+	 * progress can be reported without first counting the number of records using {@link #countNumRecords()}
+	 * @param tracker a tracker of failed records, or {@code null}
+	 * @param progress the progress that should be updated while reading, or {@code null}
+	 * @return an iterator of the records
+	 * @throws IOException Issues reading from the resource
+	 */
+	public ChemFileIterator getIterator(ProgressTracker tracker, ReadProgress progress) throws IOException;
+
+	/**
+	 * Get an iterator of the records {@code [fromRecord, toRecord)} of the file, using a {@link RecordOffsetIndex}
+	 * for random access. The record indices of the parsed molecules are the same as when reading the full file.
+	 * Iterators of disjoint ranges can be used concurrently, e.g. by parallel parsing workers
+	 * @param index the index of this file
+	 * @param fromRecord the first record (inclusive)
+	 * @param toRecord the last record (exclusive)
+	 * @return an iterator of the records in the range
+	 * @throws IOException Issues reading from the resource, or if the file has been altered since the index was built
+	 */
+	public ChemFileIterator getIterator(RecordOffsetIndex index, int fromRecord, int toRecord) throws IOException;
 	
 	public int countNumRecords() throws IOException;
 	
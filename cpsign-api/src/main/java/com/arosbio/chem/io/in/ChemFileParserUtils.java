@@ -33,7 +33,8 @@ import com.arosbio.chem.CPSignMolProperties;
 public class ChemFileParserUtils {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ChemFileParserUtils.class);
-	private static SmilesParser smilesParser = new SmilesParser(SilentChemObjectBuilder.getInstance());
+	// The SmilesParser is not thread-safe, use one instance per thread
+	private static final ThreadLocal<SmilesParser> SMILES_PARSER = ThreadLocal.withInitial(() -> new SmilesParser(SilentChemObjectBuilder.getInstance()));
 
 	/**
 	 * Finds all properties in a SMILES/SDF file by looking at the first 20 molecules 
@@ -106,7 +107,7 @@ public class ChemFileParserUtils {
 	 */
 	public static IAtomContainer parseSMILES(String smiles) throws InvalidSmilesException {
 		try{
-			IAtomContainer mol = smilesParser.parseSmiles(smiles);
+			IAtomContainer mol = SMILES_PARSER.get().parseSmiles(smiles);
 			
 			// Add molecule names if present
 			String[] splittedLine = smiles.split("\\s+");
@@ -42,6 +42,8 @@ public class JSONChemFileReader implements ChemFileIterator {
 
 	private ProgressTracker tracker = ProgressTracker.createDefault();
 
+	private int firstRecordIndex = 0;
+
 
 	public JSONChemFileReader(InputStream jsonStream) throws IOException {
 		try (Reader reader = new InputStreamReader(jsonStream)){
@@ -64,6 +66,17 @@ public class JSONChemFileReader implements ChemFileIterator {
 		this.tracker = tracker;
 		return this;
 	}
+
+	/**
+	 * Set the record index of the first record in the stream, used when the stream is a 
+	 * part of a larger file (see {@link RecordOffsetIndex})
+	 * @param index the index of the first record
+	 * @return the same instance
+	 */
+	public JSONChemFileReader withFirstRecordIndex(int index) {
+		this.firstRecordIndex = index;
+		return this;
+	}
 	
 	private void parseJSON() throws EarlyLoadingStopException {
 		molecules = new ArrayList<>();
@@ -73,7 +86,7 @@ public class JSONChemFileReader implements ChemFileIterator {
 		String smiles = null;
 		
 		//Record index serves as the identifier to notify which records are failed in parsing/filtered out etc
-		int recordIndex = -1; // starts at 0
+		int recordIndex = firstRecordIndex - 1; // starts at firstRecordIndex
 		
 		while (jsonIterator.hasNext()){
 			recordIndex++;
@@ -18,6 +18,7 @@ import java.util.Map;
 import com.arosbio.commons.CollectionUtils;
 import com.arosbio.commons.mixins.Described;
 import com.arosbio.commons.mixins.Named;
+import com.arosbio.io.ReadProgress;
 import com.arosbio.io.UriUtils;
 
 public class JSONFile implements ChemFile, Described, Named {
@@ -54,18 +55,32 @@ public class JSONFile implements ChemFile, Described, Named {
 
 	@Override
 	public JSONChemFileReader getIterator() throws IOException {
+		return getIterator(null, null);
+	}
+
+	public JSONChemFileReader getIterator(ProgressTracker tracker) throws IOException {
+		return getIterator().withProgressTracker(tracker); 
+	}
+
+	@Override
+	public JSONChemFileReader getIterator(ProgressTracker tracker, ReadProgress progress) throws IOException {
 		try {
-			return new JSONChemFileReader(UriUtils.getInputStream(uri));
+			JSONChemFileReader reader = new JSONChemFileReader(UriUtils.getInputStream(uri, progress));
+			return tracker != null ? reader.withProgressTracker(tracker) : reader;
 		} catch (MalformedURLException e) {
 			throw new IOException(e.getMessage());
 		} catch (IOException e) {
 			throw new IOException("Malformatted JSON file");
 		}
-		
 	}
 
-	public JSONChemFileReader getIterator(ProgressTracker tracker) throws IOException {
-		return getIterator().withProgressTracker(tracker); 
+	@Override
+	public JSONChemFileReader getIterator(RecordOffsetIndex index, int fromRecord, int toRecord) throws IOException {
+		try {
+			return new JSONChemFileReader(index.openStream(fromRecord, toRecord)).withFirstRecordIndex(fromRecord);
+		} catch (IOException e) {
+			throw new IOException("Malformatted JSON file");
+		}
 	}
 
 	@Override
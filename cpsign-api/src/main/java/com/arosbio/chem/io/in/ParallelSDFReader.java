@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.chem.io.in;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arosbio.chem.CPSignMolProperties;
+import com.arosbio.commons.GlobalConfig;
+import com.arosbio.io.ReadProgress;
+
+/**
+ * Parses an SDF stream using several threads. The stream is read in large blocks (in the calling thread), each block is
+ * cut at the last record delimiter ({@code $$$$}) and the complete records are parsed by a {@link SDFReader} in a worker thread
+ * of the {@link GlobalConfig#getSharedExecutor() shared executor}.
+ * When a {@link RecordOffsetIndex} of the file is available the chunks are instead given by ranges of the index, so no 
+ * scanning for delimiters is needed. Molecules are returned in the same order as in the input, with the same record indices as when using a single {@link SDFReader}.
+ * As for the {@link SDFReader}, no failed records are registered in the {@link ProgressTracker}.
+ * <p>
+ * At most {@code numThreads} chunks are parsed at the same time, pending chunks are cancelled when the iterator is {@link #close() closed}.
+ *
+ * @author Aros Bio AB
+ *
+ */
+public class ParallelSDFReader implements ChemFileIterator {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelSDFReader.class);
+
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+	private static final byte[] DELIMITER = "$$$$".getBytes();
+
+	private final InputStream in;
+	/** Only used when reading using an index */
+	private final RecordOffsetIndex index;
+	private final List<RecordOffsetIndex.Range> ranges;
+	private final ReadProgress progress;
+	private int nextRange = 0;
+	private final int chunkSize;
+	private final int maxPending;
+	private final Deque<Future<List<IAtomContainer>>> pending = new ArrayDeque<>();
+
+	private byte[] buffer;
+	private int bufferLen = 0;
+	private final DelimiterScanner scanner = new DelimiterScanner();
+	private boolean endOfStream = false, closed = false;
+
+	private Iterator<IAtomContainer> current = Collections.emptyIterator();
+	private int recordIndex = 0;
+
+	public ParallelSDFReader(InputStream in, int numThreads) {
+		this(in, numThreads, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 *
+	 * @param in the stream to read from
+	 * @param numThreads the number of parsing threads
+	 * @param chunkSize the (minimum) number of bytes handed to each parsing task
+	 */
+	public ParallelSDFReader(InputStream in, int numThreads, int chunkSize) {
+		if (numThreads < 1)
+			throw new IllegalArgumentException("Number of threads must be >= 1");
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be >= 1");
+		this.in = in;
+		this.index = null;
+		this.ranges = null;
+		this.progress = null;
+		this.chunkSize = chunkSize;
+		this.maxPending = numThreads;
+		this.buffer = new byte[chunkSize];
+		LOGGER.debug("Parsing SDF using {} threads and chunk size {}", numThreads, chunkSize);
+	}
+
+	/**
+	 * Parse the records of an indexed file, where each chunk is a range of (approximately) {@code chunkSize} bytes of the index
+	 * @param index the index of the file
+	 * @param numThreads the number of parsing threads
+	 * @param chunkSize the approximate number of bytes handed to each parsing task
+	 * @param progress the progress that should be updated while reading, or {@code null}
+	 */
+	public ParallelSDFReader(RecordOffsetIndex index, int numThreads, int chunkSize, ReadProgress progress) {
+		if (numThreads < 1)
+			throw new IllegalArgumentException("Number of threads must be >= 1");
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be >= 1");
+		this.in = null;
+		this.index = index;
+		this.progress = progress;
+		this.chunkSize = chunkSize;
+		this.maxPending = numThreads;
+		int n = index.getNumRecords();
+		long numBytes = n > 0 ? index.getEnd(n-1) - index.getStart(0) : 0;
+		this.ranges = index.split((int) Math.max(1, Math.min(n, numBytes / chunkSize)));
+		if (progress != null)
+			progress.setTotalBytes(numBytes);
+		LOGGER.debug("Parsing indexed SDF with {} records using {} threads and {} chunks", n, numThreads, ranges.size());
+	}
+
+	/**
+	 * Set the record index of the first record in the stream, used when the stream is a
+	 * part of a larger file (see {@link RecordOffsetIndex})
+	 * @param index the index of the first record
+	 * @return the same instance
+	 */
+	public ParallelSDFReader withFirstRecordIndex(int index) {
+		this.recordIndex = index;
+		return this;
+	}
+
+	/**
+	 * Has no effect - this class do not register any failures due to
+	 * underlying CDK implementation doesn't expose those errors
+	 * @param tracker ignored
+	 */
+	public void setProgressTracker(ProgressTracker tracker){
+		// Do nothing
+	}
+
+	/**
+	 * Returns the default tracker, which has no failed records
+	 */
+	public ProgressTracker getProgressTracker(){
+		return ProgressTracker.createDefault();
+	}
+
+	/**
+	 * Has no effect - this class do not register any failures due to
+	 * underlying CDK implementation doesn't expose those errors
+	 * @param tracker ignored
+	 */
+	public ParallelSDFReader withProgressTracker(ProgressTracker tracker) {
+		return this;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (! current.hasNext()) {
+			if (closed)
+				return false;
+			submitChunks();
+			if (pending.isEmpty()) {
+				close();
+				return false;
+			}
+			current = await(pending.poll()).iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public IAtomContainer next() throws NoSuchElementException {
+		if (! hasNext())
+			throw new NoSuchElementException("No more records in SDF");
+		IAtomContainer mol = current.next();
+		CPSignMolProperties.setRecordIndex(mol, recordIndex);
+		recordIndex++;
+		return mol;
+	}
+
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		for (Future<?> f : pending)
+			f.cancel(false);
+		pending.clear();
+		current = Collections.emptyIterator();
+		try {
+			if (in != null)
+				in.close();
+		} catch (IOException e) {
+			LOGGER.debug("Failed closing SDF stream", e);
+		}
+	}
+
+	private List<IAtomContainer> await(Future<List<IAtomContainer>> chunk) {
+		try {
+			return chunk.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new IllegalStateException("Interrupted while parsing SDF");
+		} catch (ExecutionException e) {
+			close();
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException("Failed parsing SDF: " + cause.getMessage());
+		}
+	}
+
+	private void submitChunks() {
+		while (pending.size() < maxPending && ! endOfStream) {
+			byte[] chunk = readChunk();
+			if (chunk != null)
+				pending.add(GlobalConfig.getInstance().getSharedExecutor().submit(() -> parse(chunk)));
+		}
+	}
+
+	private static List<IAtomContainer> parse(byte[] chunk) throws IOException {
+		List<IAtomContainer> mols = new ArrayList<>();
+		try (SDFReader reader = new SDFReader(new ByteArrayInputStream(chunk), SilentChemObjectBuilder.getInstance())){
+			while (reader.hasNext())
+				mols.add(reader.next());
+		}
+		return mols;
+	}
+
+	/**
+	 * Read the next chunk of complete records
+	 * @return the chunk, or {@code null} if there are no more records
+	 */
+	private byte[] readChunk() {
+		if (index != null)
+			return readIndexedChunk();
+		try {
+			while (true) {
+				if (buffer.length - bufferLen < chunkSize)
+					buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, bufferLen + chunkSize));
+				int read = IOUtils.read(in, buffer, bufferLen, chunkSize);
+				bufferLen += read;
+				if (read < chunkSize) {
+					endOfStream = true;
+					// The last record might not end with a delimiter
+					byte[] chunk = hasContent(buffer, bufferLen) ? Arrays.copyOf(buffer, bufferLen) : null;
+					buffer = null;
+					bufferLen = 0;
+					return chunk;
+				}
+				int end = scanner.scan(buffer, bufferLen);
+				if (end > 0) {
+					byte[] chunk = Arrays.copyOf(buffer, end);
+					System.arraycopy(buffer, end, buffer, 0, bufferLen - end);
+					bufferLen -= end;
+					scanner.shift(end);
+					return chunk;
+				}
+				// No complete record yet - keep reading
+			}
+		} catch (IOException e) {
+			close();
+			throw new IllegalStateException("Failed reading SDF: " + e.getMessage());
+		}
+	}
+
+	private byte[] readIndexedChunk() {
+		if (nextRange >= ranges.size()) {
+			endOfStream = true;
+			return null;
+		}
+		RecordOffsetIndex.Range range = ranges.get(nextRange++);
+		try (InputStream stream = progress != null ? progress.wrap(index.openStream(range)) : index.openStream(range)){
+			return IOUtils.toByteArray(stream);
+		} catch (IOException e) {
+			close();
+			throw new IllegalStateException("Failed reading SDF: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Finds the end of the last delimiter line, i.e. the first byte after the new line that ends a line starting with {@code $$$$}.
+	 * The scanner remembers how far the buffer has been scanned, so each byte is only scanned once even though
+	 * the buffer is scanned again after every read
+	 */
+	static class DelimiterScanner {
+
+		/** Start of the line that is currently scanned */
+		private int lineStart = 0;
+		/** The next byte to scan */
+		private int pos = 0;
+
+		/**
+		 * Scan the bytes that were added since the last call
+		 * @param bytes the buffer, where the bytes before {@code len} are unchanged since the last call (apart from a {@link #shift(int)})
+		 * @param len the number of bytes in the buffer
+		 * @return the end of the last complete delimiter line among the scanned bytes, or {@code -1} if there is none
+		 */
+		int scan(byte[] bytes, int len) {
+			int end = -1;
+			for (; pos < len; pos++) {
+				if (bytes[pos] == '\n') {
+					if (pos - lineStart >= DELIMITER.length && startsWithDelimiter(bytes, lineStart))
+						end = pos + 1;
+					lineStart = pos + 1;
+				}
+			}
+			return end;
+		}
+
+		/**
+		 * Update the positions after the first {@code n} bytes have been removed from the buffer
+		 * @param n the number of removed bytes, must not be larger than the last end found by {@link #scan(byte[], int)}
+		 */
+		void shift(int n) {
+			lineStart -= n;
+			pos -= n;
+		}
+	}
+
+	private static boolean startsWithDelimiter(byte[] bytes, int pos) {
+		for (int i=0; i<DELIMITER.length; i++) {
+			if (bytes[pos+i] != DELIMITER[i])
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean hasContent(byte[] bytes, int len) {
+		for (int i=0; i<len; i++) {
+			if (! Character.isWhitespace(bytes[i]))
+				return true;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,659 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.chem.io.in;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arosbio.io.StreamUtils;
+import com.arosbio.io.UriUtils;
+
+/**
+ * An index of the byte offsets of each record in a {@link ChemFile}, which allows random access of records
+ * and splitting the file into self-contained chunks that can be parsed independently (e.g. by parallel workers).
+ * The index is built by scanning the file once (without parsing any molecules). Saving the index is opt-in: when a 
+ * {@link #setCacheDirectory(File) cache directory} is given, the index is saved there (never next to the input file) so 
+ * it can be reused as long as the input file has not been altered. If the index cannot be written it is only kept in memory.
+ * <p>
+ * The index requires random access to the file, so it is only supported for local files that are not compressed,
+ * see {@link #isSupported(ChemFile)}. Records are counted in the same way as they are indexed by the readers,
+ * i.e. for CSV files the header row, comments and empty lines (if ignored) are not records.
+ *
+ * @author Aros Bio AB
+ *
+ */
+public class RecordOffsetIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RecordOffsetIndex.class);
+
+	public static final String CACHE_FILE_SUFFIX = ".cpsidx";
+
+	private static final int MAGIC = 0x43505358; // "CPSX"
+	private static final int VERSION = 2;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final byte[] UTF8_BOM = new byte[] {(byte)0xEF, (byte)0xBB, (byte)0xBF};
+
+	private final File file;
+	private final String key;
+	private final long fileLength;
+	private final long lastModified;
+	/** Prefix bytes of every chunk, e.g. the CSV header row - {@code [prefixStart, prefixEnd)} */
+	private final long prefixStart, prefixEnd;
+	private final long[] starts, ends;
+	private final boolean wrapInArray;
+
+	private static volatile File cacheDirectory;
+
+	/**
+	 * A range of records, {@code [from, to)}
+	 */
+	public static class Range {
+		private final int from, to;
+
+		public Range(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		public int getFrom() {
+			return from;
+		}
+
+		public int getTo() {
+			return to;
+		}
+
+		public int size() {
+			return to - from;
+		}
+
+		public String toString() {
+			return String.format("[%d,%d)", from, to);
+		}
+	}
+
+	private RecordOffsetIndex(File file, String key, long prefixStart, long prefixEnd, long[] starts, long[] ends, boolean wrapInArray) {
+		this.file = file;
+		this.key = key;
+		this.fileLength = file.length();
+		this.lastModified = file.lastModified();
+		this.prefixStart = prefixStart;
+		this.prefixEnd = prefixEnd;
+		this.starts = starts;
+		this.ends = ends;
+		this.wrapInArray = wrapInArray;
+	}
+
+	/**
+	 * Check if an index can be built for the file, i.e. if it is a local and uncompressed SDF, CSV or JSON file
+	 * @param chemFile the file
+	 * @return {@code true} if an index can be built
+	 */
+	public static boolean isSupported(ChemFile chemFile) {
+		if (! (chemFile instanceof SDFile || chemFile instanceof CSVFile || chemFile instanceof JSONFile))
+			return false;
+		File f = UriUtils.getIfLocalFile(chemFile.getURI());
+		if (f == null || ! f.isFile())
+			return false;
+		try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(f))){
+			return ! StreamUtils.isGZIPCompressed(in);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Set the directory where indexes are saved by {@link #getOrBuild(ChemFile)}, so that they can be reused 
+	 * between runs. By default no directory is set and indexes are only kept in memory
+	 * @param dir the cache directory, created if it does not exist, or {@code null} to not save any indexes
+	 */
+	public static void setCacheDirectory(File dir) {
+		cacheDirectory = dir;
+	}
+
+	/**
+	 * Get the directory where indexes are saved, see {@link #setCacheDirectory(File)}
+	 * @return the cache directory, or {@code null} if indexes are not saved
+	 */
+	public static File getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	/**
+	 * Get the index using the {@link #getCacheDirectory() cache directory}, see {@link #getOrBuild(ChemFile, File)}
+	 * @param chemFile the file to index
+	 * @return the index
+	 * @throws IOException If the file is not supported or could not be read
+	 */
+	public static RecordOffsetIndex getOrBuild(ChemFile chemFile) throws IOException {
+		return getOrBuild(chemFile, cacheDirectory);
+	}
+
+	/**
+	 * Load the index from the {@code cacheDir} if it exists and is up to date with the {@code chemFile}, otherwise
+	 * build a new index and attempt to save it in the {@code cacheDir}
+	 * @param chemFile the file to index
+	 * @param cacheDir the cache directory, or {@code null} if the index should only be built and kept in memory
+	 * @return the index
+	 * @throws IOException If the file is not supported or could not be read
+	 */
+	public static RecordOffsetIndex getOrBuild(ChemFile chemFile, File cacheDir) throws IOException {
+		if (cacheDir == null)
+			return build(chemFile);
+		File f = assertSupported(chemFile);
+		File cacheFile = getCacheFile(f, cacheDir);
+		String key = getKey(chemFile);
+		if (cacheFile.isFile()) {
+			try {
+				RecordOffsetIndex index = load(f, cacheFile, key);
+				if (index != null) {
+					LOGGER.debug("Loaded record index with {} records from {}", index.getNumRecords(), cacheFile);
+					return index;
+				}
+				LOGGER.debug("Record index {} is outdated - rebuilding it", cacheFile);
+			} catch (IOException e) {
+				LOGGER.debug("Failed loading record index from {} - rebuilding it", cacheFile, e);
+			}
+		}
+		RecordOffsetIndex index = build(chemFile);
+		try {
+			if (! cacheDir.isDirectory() && ! cacheDir.mkdirs())
+				throw new IOException("Could not create directory " + cacheDir);
+			index.save(cacheFile);
+			LOGGER.debug("Saved record index to {}", cacheFile);
+		} catch (IOException e) {
+			LOGGER.debug("Could not save record index to {}, only keeping it in memory", cacheFile, e);
+		}
+		return index;
+	}
+
+	/**
+	 * Check if an index of the file is saved in the {@link #getCacheDirectory() cache directory} and is up to date
+	 * @param chemFile the file
+	 * @return {@code true} if an up to date index can be loaded without scanning the file
+	 */
+	public static boolean isCached(ChemFile chemFile) {
+		File dir = cacheDirectory;
+		if (dir == null || ! isSupported(chemFile))
+			return false;
+		File f = UriUtils.getIfLocalFile(chemFile.getURI());
+		try {
+			return load(f, getCacheFile(f, dir), getKey(chemFile)) != null;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Build an index by scanning the file, without using or writing any sidecar file
+	 * @param chemFile the file to index
+	 * @return the index
+	 * @throws IOException If the file is not supported or could not be read
+	 */
+	public static RecordOffsetIndex build(ChemFile chemFile) throws IOException {
+		File f = assertSupported(chemFile);
+		Scanner scanner = null;
+		if (chemFile instanceof SDFile) {
+			scanner = new SDFScanner();
+		} else if (chemFile instanceof CSVFile) {
+			CSVFile csv = (CSVFile) chemFile;
+			scanner = new CSVScanner(csv.getFormat().getSkipHeaderRecord(), csv.isIgnoreEmptyLines(), csv.getCommentMarker());
+		} else {
+			scanner = new JSONScanner();
+		}
+
+		try (InputStream in = new FileInputStream(f)){
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long pos = 0;
+			int n;
+			boolean first = true;
+			while ((n = in.read(buffer)) >= 0) {
+				int i = 0;
+				if (first && n >= UTF8_BOM.length && Arrays.equals(Arrays.copyOf(buffer, UTF8_BOM.length), UTF8_BOM)) {
+					i = UTF8_BOM.length;
+					scanner.startAt(i);
+				}
+				if (n > 0)
+					first = false;
+				for (; i < n; i++)
+					scanner.accept(buffer[i], pos + i);
+				pos += n;
+			}
+			scanner.finish(pos);
+		}
+
+		LOGGER.debug("Built record index for {} with {} records", f, scanner.starts.size());
+		return new RecordOffsetIndex(f, getKey(chemFile), scanner.prefixStart, scanner.prefixEnd,
+				scanner.starts.toArray(), scanner.ends.toArray(), scanner instanceof JSONScanner);
+	}
+
+	/**
+	 * Get the file in {@code cacheDir} that the index of {@code file} is saved to, the name includes 
+	 * a hash of the absolute path so that files with the same name in different directories do not clash
+	 * @param file the indexed file
+	 * @param cacheDir the cache directory
+	 * @return the cache file
+	 */
+	public static File getCacheFile(File file, File cacheDir) {
+		String path = file.getAbsolutePath();
+		return new File(cacheDir, String.format("%s-%08x%s", file.getName(), path.hashCode(), CACHE_FILE_SUFFIX));
+	}
+
+	private static File assertSupported(ChemFile chemFile) throws IOException {
+		if (! isSupported(chemFile))
+			throw new IOException("Record index is only supported for local, uncompressed SDF, CSV and JSON files: " + chemFile.getURI());
+		return UriUtils.getIfLocalFile(chemFile.getURI());
+	}
+
+	/**
+	 * The key encodes the settings that affect which bytes are records
+	 */
+	private static String getKey(ChemFile chemFile) {
+		if (chemFile instanceof CSVFile) {
+			CSVFile csv = (CSVFile) chemFile;
+			return String.format("%s:header=%b:ignoreEmpty=%b:comment=%s", chemFile.getFileFormat(),
+				csv.getFormat().getSkipHeaderRecord(), csv.isIgnoreEmptyLines(), csv.getCommentMarker());
+		}
+		return chemFile.getFileFormat();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getNumRecords() {
+		return starts.length;
+	}
+
+	/**
+	 * Get the byte offset where the record starts
+	 * @param record the index of the record
+	 * @return the byte offset
+	 */
+	public long getStart(int record) {
+		return starts[record];
+	}
+
+	/**
+	 * Get the byte offset where the record ends (exclusive)
+	 * @param record the index of the record
+	 * @return the byte offset
+	 */
+	public long getEnd(int record) {
+		return ends[record];
+	}
+
+	/**
+	 * Check if the index is up to date with the file, i.e. the file has not been altered since the index was built
+	 * @return {@code true} if the index is valid
+	 */
+	public boolean isUpToDate() {
+		return file.length() == fileLength && file.lastModified() == lastModified;
+	}
+
+	/**
+	 * Split the records into (at most) {@code numParts} consecutive ranges of approximately the same size in bytes
+	 * @param numParts the number of parts
+	 * @return the ranges, in order
+	 */
+	public List<Range> split(int numParts) {
+		int n = getNumRecords();
+		if (n == 0)
+			return Collections.emptyList();
+		if (numParts <= 1)
+			return Collections.singletonList(new Range(0, n));
+
+		long totalBytes = ends[n-1] - starts[0];
+		List<Range> ranges = new ArrayList<>(numParts);
+		int from = 0;
+		for (int p = 1; p < numParts && from < n; p++) {
+			long target = starts[0] + totalBytes * p / numParts;
+			int to = Arrays.binarySearch(starts, from, n, target);
+			if (to < 0)
+				to = -to - 1;
+			to = Math.max(to, from + 1);
+			if (to >= n)
+				break;
+			ranges.add(new Range(from, to));
+			from = to;
+		}
+		ranges.add(new Range(from, n));
+		return ranges;
+	}
+
+	/**
+	 * Open a stream of the records {@code [from, to)} that can be parsed by itself, i.e. including the header
+	 * row for CSV files and enclosed in an array for JSON files
+	 * @param from the first record (inclusive)
+	 * @param to the last record (exclusive)
+	 * @return a (non-buffered) stream of the records
+	 * @throws IOException If the file cannot be read or has been altered since the index was built
+	 * @throws IndexOutOfBoundsException If the range is invalid
+	 */
+	public InputStream openStream(int from, int to) throws IOException, IndexOutOfBoundsException {
+		if (from < 0 || to > getNumRecords() || from > to)
+			throw new IndexOutOfBoundsException("Invalid record range [" + from + ',' + to + ") for " + getNumRecords() + " records");
+		if (! isUpToDate())
+			throw new IOException("File has been altered since the record index was built: " + file);
+
+		List<InputStream> parts = new ArrayList<>(3);
+		if (prefixEnd > prefixStart)
+			parts.add(new ByteArrayInputStream(readBytes(prefixStart, prefixEnd)));
+		if (wrapInArray)
+			parts.add(new ByteArrayInputStream(new byte[] {'['}));
+		if (to > from) {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			channel.position(starts[from]);
+			parts.add(new BoundedInputStream(Channels.newInputStream(channel), ends[to-1] - starts[from]));
+		}
+		if (wrapInArray)
+			parts.add(new ByteArrayInputStream(new byte[] {']'}));
+		return new SequenceInputStream(Collections.enumeration(parts));
+	}
+
+	/**
+	 * Open a stream of the records in a {@link Range}
+	 * @param range the range
+	 * @return a (non-buffered) stream of the records
+	 * @throws IOException If the file cannot be read or has been altered since the index was built
+	 * @see #openStream(int, int)
+	 */
+	public InputStream openStream(Range range) throws IOException {
+		return openStream(range.from, range.to);
+	}
+
+	private byte[] readBytes(long start, long end) throws IOException {
+		byte[] bytes = new byte[(int) (end - start)];
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")){
+			raf.seek(start);
+			raf.readFully(bytes);
+		}
+		return bytes;
+	}
+
+	/*
+	 * =================================================
+	 * 			CACHE FILE
+	 * =================================================
+	 */
+
+	private void save(File cacheFile) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)))){
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(file.getAbsolutePath());
+			out.writeUTF(key);
+			out.writeLong(fileLength);
+			out.writeLong(lastModified);
+			out.writeBoolean(wrapInArray);
+			out.writeLong(prefixStart);
+			out.writeLong(prefixEnd);
+			out.writeInt(starts.length);
+			for (int i=0; i<starts.length; i++) {
+				out.writeLong(starts[i]);
+				out.writeLong(ends[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns {@code null} if the cache file does not match the current file
+	 */
+	private static RecordOffsetIndex load(File file, File cacheFile, String key) throws IOException {
+		if (! cacheFile.isFile())
+			return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))){
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+			if (! file.getAbsolutePath().equals(in.readUTF()) || ! key.equals(in.readUTF()))
+				return null;
+			long length = in.readLong();
+			long modified = in.readLong();
+			if (length != file.length() || modified != file.lastModified())
+				return null;
+			boolean wrap = in.readBoolean();
+			long prefixStart = in.readLong();
+			long prefixEnd = in.readLong();
+			int n = in.readInt();
+			long[] starts = new long[n], ends = new long[n];
+			for (int i=0; i<n; i++) {
+				starts[i] = in.readLong();
+				ends[i] = in.readLong();
+			}
+			return new RecordOffsetIndex(file, key, prefixStart, prefixEnd, starts, ends, wrap);
+		}
+	}
+
+	public String toString() {
+		return String.format("Record index of %s with %d records", file, getNumRecords());
+	}
+
+	/*
+	 * =================================================
+	 * 			SCANNERS
+	 * =================================================
+	 */
+
+	/**
+	 * Growable array of primitive offsets
+	 */
+	private static class LongArray {
+		private long[] values = new long[1024];
+		private int size = 0;
+
+		void add(long v) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, values.length * 2);
+			values[size++] = v;
+		}
+
+		int size() {
+			return size;
+		}
+
+		long[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	private static abstract class Scanner {
+		final LongArray starts = new LongArray();
+		final LongArray ends = new LongArray();
+		long prefixStart = 0, prefixEnd = 0;
+
+		/** Set the offset of the first byte of content (after a BOM) */
+		abstract void startAt(long pos);
+		abstract void accept(byte b, long pos);
+		abstract void finish(long length);
+	}
+
+	/**
+	 * Records end with a line starting with {@code $$$$}
+	 */
+	private static class SDFScanner extends Scanner {
+		private long recStart = 0;
+		private boolean atLineStart = true, hasContent = false, inDelimLine = false;
+		private int numDollars = -1;
+
+		void startAt(long pos) {
+			recStart = pos;
+		}
+
+		void accept(byte b, long pos) {
+			if (atLineStart) {
+				numDollars = 0;
+				atLineStart = false;
+			}
+			if (b == '\n') {
+				if (inDelimLine) {
+					starts.add(recStart);
+					ends.add(pos + 1);
+					recStart = pos + 1;
+					hasContent = false;
+					inDelimLine = false;
+				}
+				atLineStart = true;
+				return;
+			}
+			if (numDollars >= 0) {
+				if (b == '$') {
+					numDollars++;
+					if (numDollars == 4) {
+						inDelimLine = true;
+						numDollars = -1;
+					}
+				} else {
+					numDollars = -1;
+				}
+			}
+			if (! Character.isWhitespace(b))
+				hasContent = true;
+		}
+
+		void finish(long length) {
+			// The last record might not end with a new line, or not end with a $$$$ line at all
+			if (inDelimLine || hasContent) {
+				starts.add(recStart);
+				ends.add(length);
+			}
+		}
+	}
+
+	/**
+	 * Records are lines, where new lines within quotes are part of the record
+	 */
+	private static class CSVScanner extends Scanner {
+		private final boolean ignoreEmptyLines;
+		private final Character commentMarker;
+		private boolean headerDone;
+		private long lineStart = 0;
+		private boolean inQuotes = false, atLineStart = true, isComment = false, isEmpty = true;
+
+		CSVScanner(boolean hasHeader, boolean ignoreEmptyLines, Character commentMarker){
+			this.headerDone = !hasHeader;
+			this.ignoreEmptyLines = ignoreEmptyLines;
+			this.commentMarker = commentMarker;
+		}
+
+		void startAt(long pos) {
+			lineStart = pos;
+		}
+
+		void accept(byte b, long pos) {
+			if (atLineStart) {
+				isComment = commentMarker != null && b == commentMarker.charValue();
+				atLineStart = false;
+			}
+			if (b == '"') {
+				inQuotes = !inQuotes;
+			} else if (b == '\n' && !inQuotes) {
+				endLine(pos + 1);
+				return;
+			}
+			if (b != '\r')
+				isEmpty = false;
+		}
+
+		private void endLine(long end) {
+			if (isComment || (isEmpty && (ignoreEmptyLines || !headerDone))) {
+				// Skip
+			} else if (!headerDone) {
+				prefixStart = lineStart;
+				prefixEnd = end;
+				headerDone = true;
+			} else {
+				starts.add(lineStart);
+				ends.add(end);
+			}
+			lineStart = end;
+			atLineStart = true;
+			isComment = false;
+			isEmpty = true;
+		}
+
+		void finish(long length) {
+			// The last line might not end with a new line
+			if (! atLineStart && lineStart < length)
+				endLine(length);
+		}
+	}
+
+	/**
+	 * Records are the objects in the top-level JSON array
+	 */
+	private static class JSONScanner extends Scanner {
+		private int depth = 0;
+		private boolean inString = false, escaped = false;
+
+		void startAt(long pos) {}
+
+		void accept(byte b, long pos) {
+			if (inString) {
+				if (escaped)
+					escaped = false;
+				else if (b == '\\')
+					escaped = true;
+				else if (b == '"')
+					inString = false;
+				return;
+			}
+			switch (b) {
+				case '"':
+					inString = true;
+					break;
+				case '{':
+					if (depth == 1)
+						starts.add(pos);
+					depth++;
+					break;
+				case '[':
+					depth++;
+					break;
+				case '}':
+					depth--;
+					if (depth == 1)
+						ends.add(pos + 1);
+					break;
+				case ']':
+					depth--;
+					break;
+				default:
+					break;
+			}
+		}
+
+		void finish(long length) {
+			if (starts.size() != ends.size())
+				throw new IllegalStateException("Malformatted JSON file, unbalanced objects");
+		}
+	}
+
+}
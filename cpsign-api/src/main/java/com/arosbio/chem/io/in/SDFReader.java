@@ -52,6 +52,17 @@ public class SDFReader extends IteratingSDFReader implements ChemFileIterator {
 		return tmp;
 	}
 	
+	/**
+	 * Set the record index of the first record in the stream, used when the stream is a 
+	 * part of a larger file (see {@link RecordOffsetIndex})
+	 * @param index the index of the first record
+	 * @return the same instance
+	 */
+	public SDFReader withFirstRecordIndex(int index) {
+		this.recordIndex = index;
+		return this;
+	}
+
 	/**
 	 * Has no effect - this class do not register any failures due to
 	 * underlying CDK implementation doesn't expose those errors
@@ -11,6 +11,7 @@ package com.arosbio.chem.io.in;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -19,8 +20,10 @@ import java.util.Map;
 
 import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
+import com.arosbio.commons.GlobalConfig;
 import com.arosbio.commons.mixins.Described;
 import com.arosbio.commons.mixins.Named;
+import com.arosbio.io.ReadProgress;
 import com.arosbio.io.UriUtils;
 
 public class SDFile implements ChemFile, Described, Named {
@@ -63,6 +66,39 @@ public class SDFile implements ChemFile, Described, Named {
 		return getIterator(); // No tracker used
 	}
 
+	/**
+	 * Get an iterator of the file, which parses the molecules in parallel when {@link GlobalConfig#getNumThreads()}
+	 * is larger than 1 (see {@link ParallelSDFReader}). When a {@link RecordOffsetIndex#getCacheDirectory() cache directory} 
+	 * for record indexes is set and the file can be indexed, the parallel parsing uses the (cached) index of the file.
+	 * The molecules are returned in the order of the file.
+	 * @param tracker ignored, no failed records are registered for SDF files
+	 * @param progress the progress that should be updated while reading, or {@code null}
+	 * @return an iterator of the records
+	 * @throws IOException Issues reading from the resource
+	 */
+	@Override
+	public ChemFileIterator getIterator(ProgressTracker tracker, ReadProgress progress) throws IOException {
+		// No tracker used
+		int numThreads = GlobalConfig.getInstance().getNumThreads();
+		if (numThreads > 1 && RecordOffsetIndex.getCacheDirectory() != null && RecordOffsetIndex.isSupported(this)) {
+			RecordOffsetIndex index = RecordOffsetIndex.getOrBuild(this);
+			return new ParallelSDFReader(index, numThreads, ParallelSDFReader.DEFAULT_CHUNK_SIZE, progress);
+		}
+		try {
+			InputStream stream = UriUtils.getInputStream(uri, progress);
+			if (numThreads > 1)
+				return new ParallelSDFReader(stream, numThreads);
+			return new SDFReader(stream, SilentChemObjectBuilder.getInstance());
+		} catch (MalformedURLException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+
+	@Override
+	public SDFReader getIterator(RecordOffsetIndex index, int fromRecord, int toRecord) throws IOException {
+		return new SDFReader(index.openStream(fromRecord, toRecord), SilentChemObjectBuilder.getInstance())
+				.withFirstRecordIndex(fromRecord);
+	}
 
 	@Override
 	public int countNumRecords() throws IOException {
@@ -12,6 +12,8 @@ import java.awt.Font;
 import java.awt.FontFormatException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +21,7 @@ import org.slf4j.LoggerFactory;
 public class FontFactory {
 	private static final Logger LOGGER = LoggerFactory.getLogger(FontFactory.class);
 	private static final int DEFAULT_FONT_SIZE = 13;
+	private static final Map<String,Font> LOADED_FONTS = new ConcurrentHashMap<>();
 	
 	/**
 	 * Get the plain font using the default 13pt font size
@@ -70,9 +73,15 @@ public class FontFactory {
 	}
 	
 	private static Font tryLoadFont(String otf, int size){
+		// Fonts are only loaded from the resource once, and then resized
+		Font base = LOADED_FONTS.computeIfAbsent(otf, FontFactory::tryLoadFont);
+		return base != null ? base.deriveFont((float)size) : null;
+	}
+
+	private static Font tryLoadFont(String otf){
 		try(InputStream fontStream = FontFactory.class.getClassLoader().getResourceAsStream(otf)){
-			return Font.createFont(Font.TRUETYPE_FONT, fontStream).deriveFont((float)size);
-		} catch (IOException | FontFormatException e) {
+			return Font.createFont(Font.TRUETYPE_FONT, fontStream);
+		} catch (IOException | FontFormatException | RuntimeException e) {
 			LOGGER.debug("could not load font from : "+otf,e);
 		}
 		return null;
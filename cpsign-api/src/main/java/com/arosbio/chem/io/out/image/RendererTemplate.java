@@ -404,12 +404,35 @@ public abstract class RendererTemplate <T> {
 
     abstract Map<?,Double> generateColorMapping(IAtomContainer mol, SignificantSignature prediction);
 
+    /**
+     * Create an empty image of the size of the rendered images, that can be used in {@link #render(RenderInfo, BufferedImage)}
+     * @return a new image
+     */
+    public BufferedImage createImage(){
+        return new BufferedImage(context.imageFullWidth, context.imageFullHeight, MoleculeDepictor.getImageType());
+    }
+
     public MolRendering render(RenderInfo blob){
-        
-        BufferedImage img = new BufferedImage(context.imageFullWidth, context.imageFullHeight, MoleculeDepictor.getImageType());
+        return render(blob, createImage());
+    }
+
+    /**
+     * Render into an existing image, e.g. to reuse the same image buffer for several molecules. Any 
+     * previous content of the image is cleared. Note that the returned {@link MolRendering} is
+     * backed by the given image, which must thus be written or copied before being reused.
+     * @param blob the info to render
+     * @param img an image with the size of the template, see {@link #createImage()}
+     * @return the rendering, backed by {@code img}
+     * @throws IllegalArgumentException If the image has the wrong size
+     */
+    public MolRendering render(RenderInfo blob, BufferedImage img){
+        if (img.getWidth() != context.imageFullWidth || img.getHeight() != context.imageFullHeight)
+            throw new IllegalArgumentException(String.format("Image size %dx%d does not match the template size %dx%d", 
+                img.getWidth(), img.getHeight(), context.imageFullWidth, context.imageFullHeight));
         Graphics2D g2 = null;
         try {
             g2 = img.createGraphics();
+            MoleculeDepictor.clear(g2, new Rectangle2D.Double(0, 0, context.imageFullWidth, context.imageFullHeight));
 
             // Add background 
             if (backgroundColor != null){
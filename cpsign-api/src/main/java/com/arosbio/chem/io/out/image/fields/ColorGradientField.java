@@ -15,9 +15,9 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
-import java.awt.Stroke;
 import java.awt.geom.Dimension2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 
 import com.arosbio.chem.io.out.image.RendererTemplate.Context;
 import com.arosbio.chem.io.out.image.RendererTemplate.RenderInfo;
@@ -38,6 +38,8 @@ public class ColorGradientField extends AbstractField {
     private Integer gradientHeight;
     private Context context;
     private int padding;
+    // Fields are shared between renderers, possibly used by several threads
+    private volatile BufferedImage gradientStrip;
 
     public static class Builder extends AbstractField.Builder<ColorGradientField, Builder> {
         
@@ -88,22 +90,37 @@ public class ColorGradientField extends AbstractField {
 	}
 
 	private void drawGradient(Graphics2D g, Rectangle2D area){
-        Color original = g.getColor();
-        Stroke originalStroke = g.getStroke();
-        g.setStroke(new BasicStroke(1f));
         int w = (int)area.getWidth();
         int startX = (int) area.getMinX();
         int startY = (int) area.getMinY();
-        int endY = (int) area.getMaxY();
-		for (int i=0; i<w; i++) {
-			double val = -1d + 2*((double)i)/w;
-			g.setColor(gradient.getColor(val));
-            g.drawLine(startX+i, startY, startX+i, endY);
-		}
-        g.setStroke(originalStroke);
-        g.setColor(original); 
+        int h = (int) area.getMaxY() - startY + 1;
+        if (w <= 0 || h <= 0)
+            return;
+        // The gradient is the same for all images, render it once and copy it
+        BufferedImage strip = gradientStrip;
+        if (strip == null || strip.getWidth() != w || strip.getHeight() != h){
+            strip = renderGradient(w, h);
+            gradientStrip = strip;
+        }
+        g.drawImage(strip, startX, startY, null);
 	}
 
+    private BufferedImage renderGradient(int w, int h){
+        BufferedImage strip = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = strip.createGraphics();
+        try {
+            g.setStroke(new BasicStroke(1f));
+            for (int i=0; i<w; i++) {
+                double val = -1d + 2*((double)i)/w;
+                g.setColor(gradient.getColor(val));
+                g.drawLine(i, 0, i, h-1);
+            }
+        } finally {
+            g.dispose();
+        }
+        return strip;
+    }
+
     @Override
     public Dimension2D calculateDim(Context context) {
         this.context = context;
@@ -26,6 +26,8 @@ public class TitleField extends TextField.GenericMutable {
 	
     private static final Position.Vertical DEFAULT_TEXT_ALIGNMENT = Vertical.CENTERED;
 	private final double titleFontScale;
+    // The derived font of the last used default font - fields are shared between renderers and threads
+    private volatile Font[] derivedFont;
 
     private static class TitleText implements MutableTextReplacer {
         private final String exampleTitle;
@@ -106,8 +108,14 @@ public class TitleField extends TextField.GenericMutable {
         // If an explicit font was set
         if (super.hasCustomFont())
             return super.getFont(context);
-        // Calculate a new font
-        return context.defaultFont.deriveFont((float) (context.defaultFont.getSize()*titleFontScale));
+        // Derive a new font only if the default font has changed
+        Font[] cached = derivedFont;
+        if (cached == null || cached[0] != context.defaultFont){
+            cached = new Font[]{context.defaultFont, 
+                context.defaultFont.deriveFont((float) (context.defaultFont.getSize()*titleFontScale))};
+            derivedFont = cached;
+        }
+        return cached[1];
 
     }
 }
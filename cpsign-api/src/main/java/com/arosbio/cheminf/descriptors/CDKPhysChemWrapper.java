@@ -65,6 +65,16 @@ public class CDKPhysChemWrapper implements ChemDescriptor, Described {
 		this.descriptorImplementation.initialise(SilentChemObjectBuilder.getInstance());
 	}
 
+	/**
+	 * Wrap a descriptor where it is already known whether it requires 3D coordinates or not
+	 * @param descriptor the CDK descriptor
+	 * @param requires3D if 3D coordinates are required, or {@code null} if it should be checked 
+	 */
+	CDKPhysChemWrapper(IMolecularDescriptor descriptor, Boolean requires3D) {
+		this(descriptor);
+		this.require3Dcoords = requires3D;
+	}
+
 
 	@Override
 	public void initialize() {
@@ -101,6 +111,7 @@ public class CDKPhysChemWrapper implements ChemDescriptor, Described {
 				Exception e = dv.getException();
 				if (e == null) {
 					LOGGER.debug("{} does NOT require 3D coordinates",getName());
+					require3Dcoords = false;
 					return false;
 				} else {
 					String msg = e.getMessage().toUpperCase();
@@ -292,7 +303,7 @@ public class CDKPhysChemWrapper implements ChemDescriptor, Described {
 	@Override
 	public CDKPhysChemWrapper clone() {
 		try {
-			CDKPhysChemWrapper clone = new CDKPhysChemWrapper(descriptorImplementation.getClass().getDeclaredConstructor().newInstance());
+			CDKPhysChemWrapper clone = new CDKPhysChemWrapper(descriptorImplementation.getClass().getDeclaredConstructor().newInstance(), require3Dcoords);
 			try {
 				if (this.descriptorImplementation.getParameterNames() != null && 
 						this.descriptorImplementation.getParameterNames().length >0) {
@@ -9,13 +9,18 @@
  */
 package com.arosbio.cheminf.descriptors;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.ProviderNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ServiceLoader;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
@@ -28,12 +33,70 @@ import com.arosbio.cheminf.descriptors.fp.FPDescriptor;
 import com.arosbio.commons.FuzzyMatcher;
 import com.arosbio.commons.TypeUtils;
 
+/**
+ * Registry of all available {@link ChemDescriptor ChemDescriptors}. The CPSign descriptors are loaded using
+ * {@link ServiceLoader}, whereas the CDK descriptors are listed in a pre-computed index ({@value #CDK_INDEX_RESOURCE})
+ * together with whether they require 3D coordinates. CDK descriptors are thus only instantiated once they are requested, 
+ * instead of all of them being instantiated (and tested for 3D requirement) when the factory is first used. In case 
+ * the index cannot be read the CDK descriptors are loaded using {@link ServiceLoader} instead.
+ */
 public final class DescriptorFactory {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(DescriptorFactory.class); 
+	/** Index of the CDK descriptors, one {@code <class name>;<requires 3D>} per line */
+	static final String CDK_INDEX_RESOURCE = "resources/cdk_descriptors.txt";
+	private static final char INDEX_SEPARATOR = ';';
 	private static DescriptorFactory theRegistry;
 
-	private List<ChemDescriptor> allDescriptors = new ArrayList<>();
+	private List<Entry> allDescriptors = new ArrayList<>();
+
+	/**
+	 * A descriptor in the registry, either a loaded prototype or a (lazily instantiated) CDK descriptor
+	 */
+	private static class Entry {
+		private final List<String> names;
+		private final ChemDescriptor prototype;
+		private final String cdkClass;
+		private final Boolean requires3D;
+
+		private Entry(ChemDescriptor prototype) {
+			this.names = TypeUtils.getNames(prototype);
+			this.prototype = prototype;
+			this.cdkClass = null;
+			this.requires3D = null;
+		}
+
+		private Entry(String cdkClass, boolean requires3D) {
+			this.names = Arrays.asList(cdkClass.substring(cdkClass.lastIndexOf('.')+1));
+			this.prototype = null;
+			this.cdkClass = cdkClass;
+			this.requires3D = requires3D;
+		}
+
+		private boolean isCDK() {
+			return prototype instanceof CDKPhysChemWrapper || cdkClass != null;
+		}
+
+		private boolean requires3D() {
+			return requires3D != null ? requires3D : prototype.requires3DCoordinates();
+		}
+
+		/** Get a new instance of the descriptor */
+		private ChemDescriptor newDescriptor() {
+			if (prototype != null)
+				return prototype.clone();
+			try {
+				return new CDKPhysChemWrapper(loadCDKClass(cdkClass).getDeclaredConstructor().newInstance(), requires3D);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				LOGGER.debug("Failed instantiating CDK descriptor {}", cdkClass, e);
+				throw new IllegalStateException("Failed instantiating descriptor " + names.get(0) + ": " + e.getMessage());
+			}
+		}
+
+		public String toString() {
+			return names.get(0);
+		}
+	}
 
 	///////////////////////////////////////////////////
 	///////// INSTANTIATION AND LOADING OF PROVIDERS
@@ -48,28 +111,26 @@ public final class DescriptorFactory {
 		int numCPSignProviders=0;
 		List<String> names = new ArrayList<>();
 		while (classes.hasNext()) {
-			ChemDescriptor impl = classes.next();
-			allDescriptors.add(impl);
-			names.addAll(TypeUtils.getNames(impl));
+			Entry e = new Entry(classes.next());
+			allDescriptors.add(e);
+			names.addAll(e.names);
 			numCPSignProviders++;
 		}
 		LOGGER.debug("Loaded ChemDescriptor-providers: {}", allDescriptors);
 		int numInitialProviders = allDescriptors.size();
 
-		// Load the CDK IMolecularDescriptors
-		ServiceLoader<IMolecularDescriptor> ckdDescriptorLoader = ServiceLoader.load(IMolecularDescriptor.class);
-		int numCDKProviders = 0;
-		Iterator<IMolecularDescriptor> cdkClasses = ckdDescriptorLoader.iterator();
-		while (cdkClasses.hasNext()) {
-			IMolecularDescriptor impl = cdkClasses.next();
-			if (impl instanceof TaeAminoAcidDescriptor || 
-					impl instanceof LongestAliphaticChainDescriptor)
-				continue; // seems to be a bug with this one!
-			ChemDescriptor wrapped = new CDKPhysChemWrapper(impl);
-			allDescriptors.add(wrapped);
-			names.addAll(TypeUtils.getNames(wrapped));
-			numCDKProviders++;
+		// The CDK IMolecularDescriptors
+		List<Entry> cdkDescriptors = readCDKIndex();
+		if (cdkDescriptors == null) {
+			cdkDescriptors = new ArrayList<>();
+			for (CDKPhysChemWrapper d : loadCDKDescriptors())
+				cdkDescriptors.add(new Entry(d));
+		}
+		for (Entry e : cdkDescriptors) {
+			allDescriptors.add(e);
+			names.addAll(e.names);
 		}
+		int numCDKProviders = cdkDescriptors.size();
 		LOGGER.debug("Loaded {} CDK phys-chem descriptors: {}",numCDKProviders,
 				allDescriptors.subList(numInitialProviders, allDescriptors.size()));
 
@@ -82,6 +143,73 @@ public final class DescriptorFactory {
 		}
 	}
 
+	/**
+	 * Read the index of CDK descriptors
+	 * @return the descriptors, or {@code null} if the index could not be read 
+	 */
+	private static List<Entry> readCDKIndex() {
+		try (InputStream stream = DescriptorFactory.class.getClassLoader().getResourceAsStream(CDK_INDEX_RESOURCE)){
+			if (stream == null) {
+				LOGGER.debug("No CDK descriptor index found, falling back to loading all CDK descriptors");
+				return null;
+			}
+			List<Entry> entries = new ArrayList<>();
+			for (String line : IOUtils.readLines(stream, StandardCharsets.UTF_8)) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				int split = line.indexOf(INDEX_SEPARATOR);
+				String clazz = line.substring(0, split);
+				// Make sure the index matches the CDK version on the class path
+				loadCDKClass(clazz);
+				entries.add(new Entry(clazz, Boolean.parseBoolean(line.substring(split+1).trim())));
+			}
+			return entries;
+		} catch (IOException | ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("Failed reading the CDK descriptor index, falling back to loading all CDK descriptors", e);
+			return null;
+		}
+	}
+
+	private static Class<? extends IMolecularDescriptor> loadCDKClass(String className) throws ClassNotFoundException {
+		// Only load the class, static initialization is deferred until the descriptor is instantiated
+		return Class.forName(className, false, DescriptorFactory.class.getClassLoader()).asSubclass(IMolecularDescriptor.class);
+	}
+
+	/**
+	 * Instantiate all CDK descriptors available using {@link ServiceLoader}, excluding the ones that are not supported
+	 * @return a list of all CDK descriptors
+	 */
+	static List<CDKPhysChemWrapper> loadCDKDescriptors(){
+		List<CDKPhysChemWrapper> list = new ArrayList<>();
+		ServiceLoader<IMolecularDescriptor> ckdDescriptorLoader = ServiceLoader.load(IMolecularDescriptor.class);
+		Iterator<IMolecularDescriptor> cdkClasses = ckdDescriptorLoader.iterator();
+		while (cdkClasses.hasNext()) {
+			IMolecularDescriptor impl = cdkClasses.next();
+			if (impl instanceof TaeAminoAcidDescriptor || 
+					impl instanceof LongestAliphaticChainDescriptor)
+				continue; // seems to be a bug with this one!
+			list.add(new CDKPhysChemWrapper(impl));
+		}
+		return list;
+	}
+
+	/**
+	 * Write the index of CDK descriptors, that should be saved as {@value #CDK_INDEX_RESOURCE} whenever the 
+	 * CDK version is updated
+	 * @param out where to write the index 
+	 * @throws IOException If writing failed
+	 */
+	static void writeCDKIndex(Appendable out) throws IOException {
+		out.append("# CDK descriptors: <class name>").append(INDEX_SEPARATOR).append("<requires 3D coordinates>").append('\n');
+		out.append("# Generated by DescriptorFactory.writeCDKIndex, verified by TestDescriptorService").append('\n');
+		List<CDKPhysChemWrapper> descriptors = loadCDKDescriptors();
+		for (CDKPhysChemWrapper d : descriptors) {
+			out.append(d.getCDKDescriptor().getClass().getName()).append(INDEX_SEPARATOR)
+				.append(Boolean.toString(d.requires3DCoordinates())).append('\n');
+		}
+	}
+
 
 	public static synchronized DescriptorFactory getInstance() {
 		if (theRegistry == null) {
@@ -97,22 +225,24 @@ public final class DescriptorFactory {
 
 	public ChemDescriptor getDescriptorFuzzyMatch(String name) throws ProviderNotFoundException {
 
-		List<Pair<List<String>,ChemDescriptor>> availableDescriptors = new ArrayList<>();
-		for (ChemDescriptor d: allDescriptors) {
-			availableDescriptors.add(ImmutablePair.of(TypeUtils.getNames(d), d));
+		List<Pair<List<String>,Entry>> availableDescriptors = new ArrayList<>();
+		for (Entry d: allDescriptors) {
+			availableDescriptors.add(ImmutablePair.of(d.names, d));
 		}
+		Entry match = null;
 		try {
-			return new FuzzyMatcher().matchPairs(availableDescriptors, name).clone();
+			match = new FuzzyMatcher().matchPairs(availableDescriptors, name);
 		} catch (IllegalArgumentException e) {
 			throw new ProviderNotFoundException("ChemDescriptor not found: " + e.getMessage());
 		}
+		return match.newDescriptor();
 	}
 
 	public ChemDescriptor getDescriptor(String name) throws ProviderNotFoundException {
-		for (ChemDescriptor d : allDescriptors) {
-			for (String descName : TypeUtils.getNames(d))
+		for (Entry d : allDescriptors) {
+			for (String descName : d.names)
 				if (descName.toLowerCase().equals(name.toLowerCase()))
-					return d.clone();
+					return d.newDescriptor();
 		}
 		throw new ProviderNotFoundException("Provider with name " + name + " not found");
 	}
@@ -124,17 +254,17 @@ public final class DescriptorFactory {
 	public List<ChemDescriptor> getDescriptorsList(){
 		// Make a deep cloned list
 		List<ChemDescriptor> clone = new ArrayList<>();
-		for (ChemDescriptor d : allDescriptors)
-			clone.add(d.clone());
+		for (Entry d : allDescriptors)
+			clone.add(d.newDescriptor());
 		return clone;
 	}
 
 	public static List<ChemDescriptor> getCDKDescriptorsNo3D(){
 		List<ChemDescriptor> cdkDesc = new ArrayList<>();
 
-		for (ChemDescriptor d : DescriptorFactory.getInstance().getDescriptorsList()) {
-			if (d instanceof CDKPhysChemWrapper && !d.requires3DCoordinates()) {
-				cdkDesc.add(d);
+		for (Entry d : DescriptorFactory.getInstance().allDescriptors) {
+			if (d.isCDK() && !d.requires3D()) {
+				cdkDesc.add(d.newDescriptor());
 			}
 		}
 		return cdkDesc;
@@ -143,9 +273,9 @@ public final class DescriptorFactory {
 	public static List<ChemDescriptor> getCDKDescriptorsRequire3D(){
 		List<ChemDescriptor> cdkDesc = new ArrayList<>();
 
-		for (ChemDescriptor d : DescriptorFactory.getInstance().getDescriptorsList()) {
-			if (d instanceof CDKPhysChemWrapper && d.requires3DCoordinates()) {
-				cdkDesc.add(d);
+		for (Entry d : DescriptorFactory.getInstance().allDescriptors) {
+			if (d.isCDK() && d.requires3D()) {
+				cdkDesc.add(d.newDescriptor());
 			}
 		}
 		return cdkDesc;
@@ -154,9 +284,9 @@ public final class DescriptorFactory {
 	public static List<ChemDescriptor> getFingerprintDescriptors(){
 		List<ChemDescriptor> fpDesc = new ArrayList<>();
 
-		for (ChemDescriptor d : DescriptorFactory.getInstance().getDescriptorsList()) {
-			if (d instanceof FPDescriptor) {
-				fpDesc.add(d);
+		for (Entry d : DescriptorFactory.getInstance().allDescriptors) {
+			if (d.prototype instanceof FPDescriptor) {
+				fpDesc.add(d.newDescriptor());
 			}
 		}
 		return fpDesc;
@@ -11,6 +11,8 @@ package com.arosbio.chem.io.in;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.csv.CSVFormat;
@@ -20,6 +22,7 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.openscience.cdk.interfaces.IAtomContainer;
 
+import com.arosbio.chem.CPSignMolProperties;
 import com.arosbio.chem.io.in.FailedRecord.Cause;
 import com.arosbio.tests.TestResources;
 import com.arosbio.tests.TestResources.CSVCmpdData;
@@ -152,5 +155,54 @@ public class TestCSVChemReader extends UnitTestBase {
 		}
 	}
 
+	@Test
+	public void testParallelParsingSameAsSequential() throws Exception {
+		for (CSVCmpdData data : Arrays.asList(TestResources.Reg.getSolubility_1k(), TestResources.Reg.getErroneous(), TestResources.Cls.getErroneous())) {
+			CSVFile csvFile = new CSVFile(data.uri()).setDelimiter(data.delim());
+			List<IAtomContainer> expected = new ArrayList<>(), parsed = new ArrayList<>();
+			List<FailedRecord> expectedFailed = null;
+			try (CSVChemFileReader reader = csvFile.getIterator().withNumParsingThreads(1).withProgressTracker(ProgressTracker.createNoEarlyStopping())){
+				reader.forEachRemaining(expected::add);
+				expectedFailed = reader.getProgressTracker().getFailures();
+			}
+			try (CSVChemFileReader reader = csvFile.getIterator().withNumParsingThreads(4).withProgressTracker(ProgressTracker.createNoEarlyStopping())){
+				reader.forEachRemaining(parsed::add);
+				Assert.assertEquals(expectedFailed, reader.getProgressTracker().getFailures());
+			}
+			Assert.assertEquals(expected.size(), parsed.size());
+			for (int i=0; i<expected.size(); i++){
+				Assert.assertEquals(expected.get(i).getProperties(), parsed.get(i).getProperties());
+				Assert.assertEquals(expected.get(i).getAtomCount(), parsed.get(i).getAtomCount());
+			}
+		}
+	}
+
+	@Test
+	public void testIncludedColumns() throws Exception {
+		CSVCmpdData data = TestResources.Reg.getSolubility_10_multicol();
+		CSVFile csvFile = new CSVFile(data.uri()).setDelimiter(data.delim());
+		try (CSVChemFileReader reader = csvFile.getIterator().withIncludedColumns(Arrays.asList(data.property()))){
+			assertOnlyIncluded(reader, data);
+		}
+		// Set from the CSVFile, using the parallel parsing
+		try (CSVChemFileReader reader = csvFile.getIterator(null, null, Arrays.asList(data.property())).withNumParsingThreads(4)){
+			assertOnlyIncluded(reader, data);
+		}
+	}
+
+	private static void assertOnlyIncluded(CSVChemFileReader reader, CSVCmpdData data) throws Exception {
+		int count = 0;
+		while (reader.hasNext()){
+			IAtomContainer mol = reader.next();
+			count++;
+			Assert.assertNotNull(mol.getProperty(data.property()));
+			Assert.assertNotNull(CPSignMolProperties.getSMILES(mol));
+			Assert.assertNotNull(CPSignMolProperties.getRecordIndex(mol));
+			for (Object key : mol.getProperties().keySet()){
+				Assert.assertFalse(reader.getHeaders().contains(key) && !data.property().equals(key) && !reader.getSmilesColumnHeader().equals(key));
+			}
+		}
+		Assert.assertEquals(data.numValidRecords(), count);
+	}
 
-}
\ No newline at end of file
+}
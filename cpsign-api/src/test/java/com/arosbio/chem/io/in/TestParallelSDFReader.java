@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.chem.io.in;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import com.arosbio.chem.CPSignMolProperties;
+import com.arosbio.io.ReadProgress;
+import com.arosbio.io.StreamUtils;
+import com.arosbio.tests.TestResources;
+import com.arosbio.tests.TestResources.CmpdData;
+import com.arosbio.tests.suites.UnitTest;
+import com.arosbio.tests.utils.TestUtils;
+import com.arosbio.testutils.UnitTestBase;
+
+@Category(UnitTest.class)
+public class TestParallelSDFReader extends UnitTestBase {
+
+	@Test
+	public void testSameAsSequential() throws Exception {
+		CmpdData gluc = TestResources.Reg.getGluc();
+		byte[] sdf = readAll(gluc);
+		List<IAtomContainer> expected = read(new SDFReader(IOUtils.toInputStream(new String(sdf, StandardCharsets.UTF_8), StandardCharsets.UTF_8)));
+		Assert.assertEquals(gluc.numValidRecords(), expected.size());
+
+		// Small chunks that split the file in many parts, and chunks smaller than a single record
+		for (int chunkSize : new int[] {100, 4096, ParallelSDFReader.DEFAULT_CHUNK_SIZE}) {
+			for (int numThreads : new int[] {1, 4}) {
+				List<IAtomContainer> parsed = read(new ParallelSDFReader(new ByteArrayInputStream(sdf), numThreads, chunkSize));
+				assertSame(expected, parsed);
+			}
+		}
+	}
+
+	@Test
+	public void testIndexed() throws Exception {
+		CmpdData gluc = TestResources.Reg.getGluc();
+		File f = TestUtils.createTempFile("indexed", ".sdf");
+		FileUtils.writeByteArrayToFile(f, readAll(gluc));
+		SDFile sdf = new SDFile(f.toURI());
+		List<IAtomContainer> expected = read(sdf.getIterator());
+
+		RecordOffsetIndex index = RecordOffsetIndex.build(sdf);
+		for (int chunkSize : new int[] {100, 4096, ParallelSDFReader.DEFAULT_CHUNK_SIZE}) {
+			ReadProgress progress = new ReadProgress();
+			assertSame(expected, read(new ParallelSDFReader(index, 3, chunkSize, progress)));
+			Assert.assertEquals(1d, progress.getFractionRead(), 0.000001);
+		}
+	}
+
+	@Test
+	public void testInvalidRecords() throws Exception {
+		CmpdData ames = TestResources.Cls.getAMES_126();
+		byte[] sdf = readAll(ames);
+		List<IAtomContainer> expected = read(new SDFReader(new ByteArrayInputStream(sdf)));
+		assertSame(expected, read(new ParallelSDFReader(new ByteArrayInputStream(sdf), 3, 2048)));
+	}
+
+	@Test
+	public void testNoTrailingDelimiter() throws Exception {
+		CmpdData chang = TestResources.Reg.getChang();
+		String sdf = new String(readAll(chang), StandardCharsets.UTF_8).trim();
+		// Remove the last delimiter
+		Assert.assertTrue(sdf.endsWith("$$$$"));
+		sdf = sdf.substring(0, sdf.length() - 4);
+
+		List<IAtomContainer> expected = read(new SDFReader(IOUtils.toInputStream(sdf, StandardCharsets.UTF_8)));
+		Assert.assertEquals(34, expected.size());
+		assertSame(expected, read(new ParallelSDFReader(IOUtils.toInputStream(sdf, StandardCharsets.UTF_8), 2, 512)));
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		try (ParallelSDFReader reader = new ParallelSDFReader(IOUtils.toInputStream("\n\n", StandardCharsets.UTF_8), 2)){
+			Assert.assertFalse(reader.hasNext());
+		}
+	}
+
+	@Test
+	public void testFindLastRecordEnd() {
+		byte[] bytes = "a\n$$$$\nb\n$$$$\r\nc\n$$$".getBytes(StandardCharsets.UTF_8);
+		Assert.assertEquals(15, new ParallelSDFReader.DelimiterScanner().scan(bytes, bytes.length));
+		Assert.assertEquals(7, new ParallelSDFReader.DelimiterScanner().scan(bytes, 14));
+		Assert.assertEquals(-1, new ParallelSDFReader.DelimiterScanner().scan(bytes, 6));
+
+		// Scanning incrementally only looks at the new bytes
+		ParallelSDFReader.DelimiterScanner scanner = new ParallelSDFReader.DelimiterScanner();
+		Assert.assertEquals(-1, scanner.scan(bytes, 6));
+		Assert.assertEquals(7, scanner.scan(bytes, 14));
+		Assert.assertEquals(15, scanner.scan(bytes, bytes.length));
+		Assert.assertEquals(-1, scanner.scan(bytes, bytes.length));
+
+		// Positions are kept after removing the first record
+		byte[] rest = Arrays.copyOfRange(bytes, 7, bytes.length);
+		scanner = new ParallelSDFReader.DelimiterScanner();
+		Assert.assertEquals(7, scanner.scan(bytes, 14));
+		scanner.shift(7);
+		Assert.assertEquals(8, scanner.scan(rest, rest.length));
+	}
+
+	private static byte[] readAll(CmpdData data) throws IOException {
+		try (InputStream in = data.url().openStream();
+			InputStream unzipped = StreamUtils.unZIP(in)){
+			return IOUtils.toByteArray(unzipped);
+		}
+	}
+
+	private static List<IAtomContainer> read(ChemFileIterator iterator) throws IOException {
+		List<IAtomContainer> mols = new ArrayList<>();
+		try (ChemFileIterator it = iterator){
+			while (it.hasNext())
+				mols.add(it.next());
+		}
+		return mols;
+	}
+
+	private static void assertSame(List<IAtomContainer> expected, List<IAtomContainer> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i=0; i<expected.size(); i++) {
+			Assert.assertEquals(CPSignMolProperties.getRecordIndex(expected.get(i)), CPSignMolProperties.getRecordIndex(actual.get(i)));
+			Assert.assertEquals(expected.get(i).getID(), actual.get(i).getID());
+			Assert.assertEquals(expected.get(i).getAtomCount(), actual.get(i).getAtomCount());
+			Assert.assertEquals(expected.get(i).getBondCount(), actual.get(i).getBondCount());
+			Assert.assertEquals(expected.get(i).getProperties(), actual.get(i).getProperties());
+		}
+	}
+
+}
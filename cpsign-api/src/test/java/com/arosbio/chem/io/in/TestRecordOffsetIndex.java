@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) Aros Bio AB.
+ *
+ * CPSign is an Open Source Software that is dual licensed to allow you to choose a license that best suits your requirements:
+ *
+ * 1) GPLv3 (GNU General Public License Version 3) with Additional Terms, including an attribution clause as well as a limitation to use the software for commercial purposes.
+ *
+ * 2) CPSign Proprietary License that allows you to use CPSign for commercial activities, such as in a revenue-generating operation or environment, or integrate CPSign in your proprietary software without worrying about disclosing the source code of your proprietary software, which is required if you choose to use the software under GPLv3 license. See arosbio.com/cpsign/commercial-license for details.
+ */
+package com.arosbio.chem.io.in;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import com.arosbio.chem.CPSignMolProperties;
+import com.arosbio.chem.io.in.RecordOffsetIndex.Range;
+import com.arosbio.tests.TestResources;
+import com.arosbio.tests.suites.UnitTest;
+import com.arosbio.tests.utils.TestUtils;
+import com.arosbio.testutils.UnitTestBase;
+
+@Category(UnitTest.class)
+public class TestRecordOffsetIndex extends UnitTestBase {
+
+	@Test
+	public void testSDF() throws Exception {
+		File f = copy(TestResources.Cls.getAMES_126().url(), ".sdf");
+		assertConsistent(new SDFile(f.toURI()), 126);
+	}
+
+	@Test
+	public void testJSON() throws Exception {
+		File f = copy(TestResources.Reg.getChang_json().url(), ".json");
+		assertConsistent(new JSONFile(f.toURI()), 34);
+		// Without any new lines, and failing records
+		f = copy(TestResources.Reg.getChang_json_no_indent().url(), ".json");
+		assertConsistent(new JSONFile(f.toURI()), 34);
+	}
+
+	@Test
+	public void testCSV() throws Exception {
+		File f = copy(TestResources.Reg.getSolubility_100().url(), ".csv");
+		assertConsistent(new CSVFile(f.toURI()).setDelimiter('\t'), 100);
+	}
+
+	@Test
+	public void testCSVNoHeader() throws Exception {
+		File f = copy(TestResources.Reg.getSolubility_10_no_header().url(), ".csv");
+		assertConsistent(new CSVFile(f.toURI()).setDelimiter('\t').setUserDefinedHeader("smiles","solubility"), 10);
+	}
+
+	@Test
+	public void testCSVCommentsAndQuotedNewLines() throws Exception {
+		File f = TestUtils.createTempFile("quoted", ".csv");
+		FileUtils.write(f, "# a comment\nSMILES,name\nCCC,\"first\nname\"\n\n#skipped\nCCO,second\nc1ccccc1,\"\"\"third\"\"\"", StandardCharsets.UTF_8);
+		CSVFile csv = new CSVFile(f.toURI()).setCommentMarker('#');
+		assertConsistent(csv, 3);
+
+		RecordOffsetIndex index = RecordOffsetIndex.build(csv);
+		List<IAtomContainer> last = read(csv.getIterator(index, 2, 3));
+		Assert.assertEquals(1, last.size());
+		Assert.assertEquals("\"third\"", last.get(0).getProperty("name"));
+	}
+
+	@Test
+	public void testCacheIsReused() throws Exception {
+		File f = copy(TestResources.Cls.getAMES_10().url(), ".sdf");
+		SDFile sdf = new SDFile(f.toURI());
+		File cacheDir = new File(TestUtils.createTempFile("index", "cache").getParentFile(), "index-cache-" + System.nanoTime());
+		File cacheFile = RecordOffsetIndex.getCacheFile(f, cacheDir);
+		Assert.assertFalse(cacheFile.exists());
+
+		// Without a cache directory nothing is written
+		RecordOffsetIndex.getOrBuild(sdf, null);
+		Assert.assertFalse(cacheDir.exists());
+		Assert.assertEquals(1, f.getParentFile().listFiles((d, name) -> name.startsWith(f.getName())).length);
+
+		RecordOffsetIndex built = RecordOffsetIndex.getOrBuild(sdf, cacheDir);
+		Assert.assertTrue(cacheFile.isFile());
+		long savedAt = cacheFile.lastModified();
+
+		RecordOffsetIndex.setCacheDirectory(cacheDir);
+		try {
+			Assert.assertTrue(RecordOffsetIndex.isCached(sdf));
+			RecordOffsetIndex loaded = RecordOffsetIndex.getOrBuild(sdf);
+			Assert.assertEquals(savedAt, cacheFile.lastModified());
+			Assert.assertEquals(built.getNumRecords(), loaded.getNumRecords());
+			for (int i=0; i<built.getNumRecords(); i++) {
+				Assert.assertEquals(built.getStart(i), loaded.getStart(i));
+				Assert.assertEquals(built.getEnd(i), loaded.getEnd(i));
+			}
+
+			// Altering the file invalidates the index
+			FileUtils.write(f, "\n", StandardCharsets.UTF_8, true);
+			f.setLastModified(savedAt + 10_000);
+			Assert.assertFalse(loaded.isUpToDate());
+			Assert.assertFalse(RecordOffsetIndex.isCached(sdf));
+			try {
+				loaded.openStream(0, 1);
+				Assert.fail("The file has been altered");
+			} catch (IOException e) {}
+			Assert.assertTrue(RecordOffsetIndex.getOrBuild(sdf).isUpToDate());
+		} finally {
+			RecordOffsetIndex.setCacheDirectory(null);
+			FileUtils.deleteQuietly(cacheDir);
+		}
+	}
+
+	@Test
+	public void testUnsupported() throws Exception {
+		SDFile gzipped = new SDFile(copy(TestResources.Cls.getAMES_10_gzip().url(), ".sdf.gz").toURI());
+		Assert.assertFalse(RecordOffsetIndex.isSupported(gzipped));
+		try {
+			RecordOffsetIndex.build(gzipped);
+			Assert.fail("gzipped files cannot be indexed");
+		} catch (IOException e) {}
+	}
+
+	private static void assertConsistent(ChemFile file, int expectedNumRecords) throws Exception {
+		RecordOffsetIndex index = RecordOffsetIndex.build(file);
+		Assert.assertEquals(expectedNumRecords, index.getNumRecords());
+
+		// Sequential reading of the full file
+		List<IAtomContainer> expected = read(file.getIterator());
+
+		// Single records
+		List<IAtomContainer> single = new ArrayList<>();
+		for (int i=0; i<index.getNumRecords(); i++)
+			single.addAll(read(file.getIterator(index, i, i+1)));
+		assertSame(expected, single);
+
+		// Ranges
+		for (int numParts : new int[] {1, 3, 7}) {
+			List<Range> ranges = index.split(numParts);
+			Assert.assertTrue(ranges.size() <= numParts);
+			List<IAtomContainer> parsed = new ArrayList<>();
+			int next = 0;
+			for (Range r : ranges) {
+				Assert.assertEquals(next, r.getFrom());
+				Assert.assertTrue(r.size() > 0);
+				next = r.getTo();
+				parsed.addAll(read(file.getIterator(index, r.getFrom(), r.getTo())));
+			}
+			Assert.assertEquals(index.getNumRecords(), next);
+			assertSame(expected, parsed);
+		}
+	}
+
+	private static List<IAtomContainer> read(ChemFileIterator iterator) throws IOException {
+		List<IAtomContainer> mols = new ArrayList<>();
+		try (ChemFileIterator it = iterator){
+			while (it.hasNext())
+				mols.add(it.next());
+		}
+		return mols;
+	}
+
+	private static void assertSame(List<IAtomContainer> expected, List<IAtomContainer> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i=0; i<expected.size(); i++) {
+			Assert.assertEquals(CPSignMolProperties.getRecordIndex(expected.get(i)), CPSignMolProperties.getRecordIndex(actual.get(i)));
+			Assert.assertEquals(expected.get(i).getAtomCount(), actual.get(i).getAtomCount());
+			Assert.assertEquals(expected.get(i).getProperties(), actual.get(i).getProperties());
+		}
+	}
+
+	private static File copy(URL url, String suffix) throws IOException {
+		File f = TestUtils.createTempFile("indexed", suffix);
+		FileUtils.copyURLToFile(url, f);
+		return f;
+	}
+
+}
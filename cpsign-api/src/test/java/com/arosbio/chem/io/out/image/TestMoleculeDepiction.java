@@ -275,6 +275,36 @@ public class TestMoleculeDepiction extends UnitTestBase {
 			.saveToFile(new File(imageOutputFolder, "molGradCustomWithPvals.png"));
 	}
 	
+	@Test
+	public void testRenderIntoReusedImage() throws Exception {
+		AtomContributionRenderer renderer = new AtomContributionRenderer.Builder()
+			.width(pageSize)
+			.height(pageSize+100)
+			.addFieldOverMol(new TitleField.Builder().build())
+			.addFieldUnderMol(new ColorGradientField.Builder(GradientFactory.getDefaultBloomGradient()).build())
+			.addFieldUnderMol(new PValuesField.Builder(modelLabels).build())
+			.build();
+		BufferedImage expected = renderer.render(info).getImage();
+
+		// Fill the buffer with something else first, which should be cleared
+		BufferedImage buffer = renderer.createImage();
+		Graphics2D g = buffer.createGraphics();
+		g.setColor(Color.RED);
+		g.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+		g.dispose();
+		for (int i=0; i<2; i++){
+			BufferedImage reused = renderer.render(info, buffer).getImage();
+			Assert.assertSame(buffer, reused);
+			Assert.assertArrayEquals(expected.getRGB(0, 0, expected.getWidth(), expected.getHeight(), null, 0, expected.getWidth()),
+				reused.getRGB(0, 0, reused.getWidth(), reused.getHeight(), null, 0, reused.getWidth()));
+		}
+
+		try {
+			renderer.render(info, new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+			Assert.fail("Wrong image size should fail");
+		} catch (IllegalArgumentException e){}
+	}
+
 	@Test
 	public void testNewMolDepictionBuilder_GRADIENT() throws Exception {
 		Boarder molBoarder = new Boarder.Builder()
@@ -9,8 +9,14 @@
  */
 package com.arosbio.cheminf.descriptors;
 
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -44,6 +50,43 @@ public class TestDescriptorService extends UnitTestBase {
 //		printLogs();
 	}
 
+	@Test
+	public void testCDKIndexUpToDate() throws Exception {
+		StringBuilder generated = new StringBuilder();
+		DescriptorFactory.writeCDKIndex(generated);
+		String index = null;
+		try (InputStream stream = DescriptorFactory.class.getClassLoader().getResourceAsStream(DescriptorFactory.CDK_INDEX_RESOURCE)){
+			if (stream != null)
+				index = IOUtils.toString(stream, StandardCharsets.UTF_8);
+		}
+		if (!generated.toString().equals(index)) {
+			// Write the updated index so that it can be copied into the resources
+			File updated = new File("target", "cdk_descriptors.txt");
+			FileUtils.writeStringToFile(updated, generated.toString(), StandardCharsets.UTF_8);
+			Assert.fail("The CDK descriptor index is not up to date, an updated version is written to: " + updated.getAbsolutePath());
+		}
+	}
+
+	@Test
+	public void testCDKDescriptorsFromIndex() {
+		DescriptorFactory factory = DescriptorFactory.getInstance();
+		List<ChemDescriptor> no3D = DescriptorFactory.getCDKDescriptorsNo3D(), require3D = DescriptorFactory.getCDKDescriptorsRequire3D();
+		Assert.assertTrue(no3D.size() + require3D.size() >= 50);
+		Assert.assertFalse(require3D.isEmpty());
+		for (ChemDescriptor d : no3D) {
+			Assert.assertTrue(d instanceof CDKPhysChemWrapper);
+			Assert.assertFalse(d.requires3DCoordinates());
+		}
+		for (ChemDescriptor d : require3D) 
+			Assert.assertTrue(d.requires3DCoordinates());
+		
+		// Each call gives a new instance
+		ChemDescriptor alogp = factory.getDescriptor("ALOGPDescriptor");
+		Assert.assertTrue(alogp instanceof CDKPhysChemWrapper);
+		Assert.assertNotSame(alogp, factory.getDescriptor("ALOGPDescriptor"));
+		Assert.assertEquals(alogp.getName(), factory.getDescriptorFuzzyMatch("ALogPDescriptor").getName());
+	}
+
 	@Test
 	public void testLoadUserSupplied(){
 		DescriptorFactory loader = DescriptorFactory.getInstance();